@@ -21,7 +21,6 @@ import com.ctrip.framework.apollo.common.utils.BeanUtils;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -31,6 +30,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -49,23 +49,39 @@ public class InstanceConfigController {
   @Autowired
   private InstanceService instanceService;
 
+  /**
+   * 传 lastInstanceId 时，按 InstanceId 游标分页，忽略 page 参数，避免深分页的全表扫描
+   */
   @RequestMapping(value = "/by-release", method = RequestMethod.GET)
   public PageDTO<InstanceDTO> getByRelease(@RequestParam("releaseId") long releaseId,
+                                           @RequestParam(value = "lastInstanceId", required = false) Long lastInstanceId,
                                            Pageable pageable) {
     Release release = releaseService.findOne(releaseId);
     if (release == null) {
       throw new NotFoundException(String.format("release not found for %s", releaseId));
     }
-    Page<InstanceConfig> instanceConfigsPage = instanceService.findActiveInstanceConfigsByReleaseKey
-        (release.getReleaseKey(), pageable);
+    List<InstanceConfig> instanceConfigs;
+    long total;
+    if (lastInstanceId == null) {
+      Page<InstanceConfig> instanceConfigsPage = instanceService.findActiveInstanceConfigsByReleaseKey
+          (release.getReleaseKey(), pageable);
+      instanceConfigs = instanceConfigsPage.getContent();
+      total = instanceConfigsPage.getTotalElements();
+    } else {
+      instanceConfigs = instanceService.findActiveInstanceConfigsByReleaseKey(release.getReleaseKey(),
+          lastInstanceId, pageable.getPageSize());
+      // 游标分页只在首页统计数量，后续页 total 为 -1 ，避免每页都全量 count
+      total = lastInstanceId == 0 ? instanceService.countActiveInstanceConfigsByReleaseKey(
+          release.getReleaseKey()) : -1;
+    }
 
     List<InstanceDTO> instanceDTOs = Collections.emptyList();
 
-    if (instanceConfigsPage.hasContent()) {
+    if (!CollectionUtils.isEmpty(instanceConfigs)) {
       Multimap<Long, InstanceConfig> instanceConfigMap = HashMultimap.create();
       Set<String> otherReleaseKeys = Sets.newHashSet();
 
-      for (InstanceConfig instanceConfig : instanceConfigsPage.getContent()) {
+      for (InstanceConfig instanceConfig : instanceConfigs) {
         instanceConfigMap.put(instanceConfig.getInstanceId(), instanceConfig);
         otherReleaseKeys.add(instanceConfig.getReleaseKey());
       }
@@ -91,9 +107,10 @@ public class InstanceConfigController {
         }).collect(Collectors.toList());
         instanceDTO.setConfigs(configDTOs);
       }
+      instanceDTOs.sort(Comparator.comparingLong(InstanceDTO::getId));
     }
 
-    return new PageDTO<>(instanceDTOs, pageable, instanceConfigsPage.getTotalElements());
+    return new PageDTO<>(instanceDTOs, pageable, total);
   }
 
   @RequestMapping(value = "/by-namespace-and-releases-not-in", method = RequestMethod.GET)
@@ -159,12 +176,20 @@ public class InstanceConfigController {
     return instanceDTOs;
   }
 
+  /**
+   * 传 lastInstanceId 时，按 InstanceId 游标分页，忽略 page 参数，避免深分页的全表扫描
+   */
   @RequestMapping(value = "/by-namespace", method = RequestMethod.GET)
   public PageDTO<InstanceDTO> getInstancesByNamespace(
       @RequestParam("appId") String appId, @RequestParam("clusterName") String clusterName,
       @RequestParam("namespaceName") String namespaceName,
       @RequestParam(value = "instanceAppId", required = false) String instanceAppId,
+      @RequestParam(value = "lastInstanceId", required = false) Long lastInstanceId,
       Pageable pageable) {
+    if (lastInstanceId != null) {
+      return getInstancesByNamespaceAfter(appId, clusterName, namespaceName, instanceAppId,
+          lastInstanceId, pageable);
+    }
     Page<Instance> instances;
     if (Strings.isNullOrEmpty(instanceAppId)) {
       instances = instanceService.findInstancesByNamespace(appId, clusterName,
@@ -182,8 +207,26 @@ public class InstanceConfigController {
   public long getInstancesCountByNamespace(@RequestParam("appId") String appId,
                                           @RequestParam("clusterName") String clusterName,
                                           @RequestParam("namespaceName") String namespaceName) {
-    Page<Instance> instances = instanceService.findInstancesByNamespace(appId, clusterName,
-        namespaceName, new PageRequest(0, 1));
-    return instances.getTotalElements();
+    return instanceService.countInstancesByNamespace(appId, clusterName, namespaceName);
+  }
+
+  private PageDTO<InstanceDTO> getInstancesByNamespaceAfter(String appId, String clusterName,
+                                                            String namespaceName, String instanceAppId,
+                                                            long lastInstanceId, Pageable pageable) {
+    List<Instance> instances;
+    long total;
+    if (Strings.isNullOrEmpty(instanceAppId)) {
+      instances = instanceService.findInstancesByNamespace(appId, clusterName, namespaceName,
+          lastInstanceId, pageable.getPageSize());
+      total = instanceService.countInstancesByNamespace(appId, clusterName, namespaceName);
+    } else {
+      // 按 instanceAppId 过滤时，游标分页不统计数量，total 为 -1
+      instances = instanceService.findInstancesByNamespaceAndInstanceAppId(instanceAppId, appId,
+          clusterName, namespaceName, lastInstanceId, pageable.getPageSize());
+      total = -1;
+    }
+
+    List<InstanceDTO> instanceDTOs = BeanUtils.batchTransform(InstanceDTO.class, instances);
+    return new PageDTO<>(instanceDTOs, pageable, total);
   }
 }
@@ -23,15 +23,16 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -99,7 +100,7 @@ public class InstanceConfigControllerTest {
     when(instanceService.findInstancesByIds(instanceIds))
         .thenReturn(instances);
 
-    PageDTO<InstanceDTO> result = instanceConfigController.getByRelease(someReleaseId, pageable);
+    PageDTO<InstanceDTO> result = instanceConfigController.getByRelease(someReleaseId, null, pageable);
 
     assertEquals(2, result.getContent().size());
     InstanceDTO someInstanceDto = null;
@@ -129,7 +130,7 @@ public class InstanceConfigControllerTest {
 
     when(releaseService.findOne(someReleaseIdNotExists)).thenReturn(null);
 
-    instanceConfigController.getByRelease(someReleaseIdNotExists, pageable);
+    instanceConfigController.getByRelease(someReleaseIdNotExists, null, pageable);
   }
 
   @Test
@@ -243,7 +244,7 @@ public class InstanceConfigControllerTest {
         pageable)).thenReturn(instances);
 
     PageDTO<InstanceDTO> result = instanceConfigController.getInstancesByNamespace(someAppId,
-        someClusterName, someNamespaceName, null, pageable);
+        someClusterName, someNamespaceName, null, null, pageable);
 
     assertEquals(2, result.getContent().size());
     InstanceDTO someInstanceDto = null;
@@ -283,7 +284,7 @@ public class InstanceConfigControllerTest {
         someClusterName, someNamespaceName, pageable)).thenReturn(instances);
 
     PageDTO<InstanceDTO> result = instanceConfigController.getInstancesByNamespace(someAppId,
-        someClusterName, someNamespaceName, someInstanceAppId, pageable);
+        someClusterName, someNamespaceName, someInstanceAppId, null, pageable);
 
     assertEquals(2, result.getContent().size());
     InstanceDTO someInstanceDto = null;
@@ -308,15 +309,109 @@ public class InstanceConfigControllerTest {
     String someClusterName = "someClusterName";
     String someNamespaceName = "someNamespaceName";
 
-    Page<Instance> instances = new PageImpl<>(Collections.emptyList(), pageable, 2);
-
-    when(instanceService.findInstancesByNamespace(eq(someAppId), eq(someClusterName),
-        eq(someNamespaceName), any(Pageable.class))).thenReturn(instances);
+    when(instanceService.countInstancesByNamespace(someAppId, someClusterName, someNamespaceName))
+        .thenReturn(2L);
 
     long result = instanceConfigController.getInstancesCountByNamespace(someAppId,
         someClusterName, someNamespaceName);
 
     assertEquals(2, result);
+    verify(instanceService, never()).findInstancesByNamespace(anyString(), anyString(),
+        anyString(), any(Pageable.class));
+  }
+
+  @Test
+  public void testGetInstancesByNamespaceWithLastInstanceId() throws Exception {
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someNamespaceName = "someNamespaceName";
+    String someIp = "someIp";
+    long someLastInstanceId = 10;
+    long someInstanceId = 11;
+    long anotherInstanceId = 12;
+    int someSize = 2;
+    long someTotal = 100;
+    when(pageable.getPageSize()).thenReturn(someSize);
+
+    Instance someInstance = assembleInstance(someInstanceId, someAppId, someClusterName,
+        someNamespaceName, someIp);
+    Instance anotherInstance = assembleInstance(anotherInstanceId, someAppId, someClusterName,
+        someNamespaceName, someIp);
+
+    when(instanceService.findInstancesByNamespace(someAppId, someClusterName, someNamespaceName,
+        someLastInstanceId, someSize)).thenReturn(Lists.newArrayList(someInstance, anotherInstance));
+    when(instanceService.countInstancesByNamespace(someAppId, someClusterName, someNamespaceName))
+        .thenReturn(someTotal);
+
+    PageDTO<InstanceDTO> result = instanceConfigController.getInstancesByNamespace(someAppId,
+        someClusterName, someNamespaceName, null, someLastInstanceId, pageable);
+
+    assertEquals(someTotal, result.getTotal());
+    assertEquals(2, result.getContent().size());
+    verifyInstance(someInstance, result.getContent().get(0));
+    verifyInstance(anotherInstance, result.getContent().get(1));
+    verify(instanceService, never()).findInstancesByNamespace(anyString(), anyString(),
+        anyString(), any(Pageable.class));
+  }
+
+  @Test
+  public void testGetByReleaseWithLastInstanceId() throws Exception {
+    long someReleaseId = 1;
+    long someLastInstanceId = 10;
+    long someInstanceId = 11;
+    long anotherInstanceId = 12;
+    int someSize = 2;
+    long someTotal = 100;
+    String someReleaseKey = "someKey";
+    Release someRelease = new Release();
+    someRelease.setReleaseKey(someReleaseKey);
+    when(pageable.getPageSize()).thenReturn(someSize);
+    when(releaseService.findOne(someReleaseId)).thenReturn(someRelease);
+
+    InstanceConfig someInstanceConfig = assembleInstanceConfig(someInstanceId, "someConfigAppId",
+        "someNamespace", someReleaseKey, new Date());
+    InstanceConfig anotherInstanceConfig = assembleInstanceConfig(anotherInstanceId,
+        "someConfigAppId", "someNamespace", someReleaseKey, new Date());
+    when(instanceService.findActiveInstanceConfigsByReleaseKey(someReleaseKey, someLastInstanceId, someSize))
+        .thenReturn(Lists.newArrayList(someInstanceConfig, anotherInstanceConfig));
+
+    Instance someInstance = assembleInstance(someInstanceId, "someAppId", "someCluster", "someDC", "someIp");
+    Instance anotherInstance = assembleInstance(anotherInstanceId, "someAppId", "someCluster", "someDC",
+        "anotherIp");
+    //unordered
+    when(instanceService.findInstancesByIds(Sets.newHashSet(someInstanceId, anotherInstanceId)))
+        .thenReturn(Lists.newArrayList(anotherInstance, someInstance));
+
+    PageDTO<InstanceDTO> result = instanceConfigController.getByRelease(someReleaseId, someLastInstanceId,
+        pageable);
+
+    assertEquals(-1, result.getTotal());
+    assertEquals(2, result.getContent().size());
+    verifyInstance(someInstance, result.getContent().get(0));
+    verifyInstance(anotherInstance, result.getContent().get(1));
+    verify(instanceService, never()).findActiveInstanceConfigsByReleaseKey(anyString(),
+        any(Pageable.class));
+    verify(instanceService, never()).countActiveInstanceConfigsByReleaseKey(anyString());
+  }
+
+  @Test
+  public void testGetByReleaseWithLastInstanceIdOnFirstPage() throws Exception {
+    long someReleaseId = 1;
+    int someSize = 2;
+    long someTotal = 100;
+    String someReleaseKey = "someKey";
+    Release someRelease = new Release();
+    someRelease.setReleaseKey(someReleaseKey);
+    when(pageable.getPageSize()).thenReturn(someSize);
+    when(releaseService.findOne(someReleaseId)).thenReturn(someRelease);
+    when(instanceService.findActiveInstanceConfigsByReleaseKey(someReleaseKey, 0, someSize))
+        .thenReturn(Lists.newArrayList());
+    when(instanceService.countActiveInstanceConfigsByReleaseKey(someReleaseKey)).thenReturn(someTotal);
+
+    PageDTO<InstanceDTO> result = instanceConfigController.getByRelease(someReleaseId, 0L, pageable);
+
+    assertEquals(someTotal, result.getTotal());
+    assertEquals(0, result.getContent().size());
   }
 
   private void verifyInstance(Instance instance, InstanceDTO instanceDTO) {
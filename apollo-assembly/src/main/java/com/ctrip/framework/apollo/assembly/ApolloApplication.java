@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.assembly;
 
 import com.ctrip.framework.apollo.adminservice.AdminServiceApplication;
+import com.ctrip.framework.apollo.biz.message.InProcessReleaseMessageBus;
 import com.ctrip.framework.apollo.configservice.ConfigServiceApplication;
 import com.ctrip.framework.apollo.portal.PortalApplication;
 
@@ -13,6 +14,7 @@ import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfigurat
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.cloud.context.scope.refresh.RefreshScope;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication(exclude = {DataSourceAutoConfiguration.class,
     HibernateJpaAutoConfiguration.class})
@@ -20,6 +22,14 @@ public class ApolloApplication {
 
   private static final Logger logger = LoggerFactory.getLogger(ApolloApplication.class);
 
+  /**
+   * shared by the admin service and config service contexts, so released messages are pushed between them
+   */
+  @Bean
+  public InProcessReleaseMessageBus releaseMessageBus() {
+    return new InProcessReleaseMessageBus();
+  }
+
   public static void main(String[] args) throws Exception {
     /**
      * Common
@@ -0,0 +1,165 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
+import com.ctrip.framework.apollo.common.entity.AppNamespace;
+import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基准测试的内存夹具
+ *
+ * 替代依赖 DB 的组件，使基准测试只衡量被测方法本身的开销。
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 设置私有属性，替代 Spring 的 @Autowired 注入
+     */
+    public static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    /**
+     * 获得私有属性
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getField(Object target, String name) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        return (T) ReflectionUtils.getField(field, target);
+    }
+
+    public static AppNamespace appNamespace(String appId, String name, boolean isPublic) {
+        AppNamespace appNamespace = new AppNamespace();
+        appNamespace.setAppId(appId);
+        appNamespace.setName(name);
+        appNamespace.setPublic(isPublic);
+        return appNamespace;
+    }
+
+    /**
+     * 基于内存 Map 的 AppNamespaceServiceWithCache ，不启动 DB 扫描任务
+     */
+    public static class InMemoryAppNamespaceService extends AppNamespaceServiceWithCache {
+
+        /**
+         * KEY：appId + namespace
+         */
+        private final Map<String, AppNamespace> appNamespaces = Maps.newHashMap();
+        /**
+         * KEY：namespace
+         */
+        private final Map<String, AppNamespace> publicAppNamespaces = Maps.newHashMap();
+
+        public void add(AppNamespace appNamespace) {
+            appNamespaces.put(appNamespace.getAppId() + "+" + appNamespace.getName(), appNamespace);
+            if (appNamespace.isPublic()) {
+                publicAppNamespaces.put(appNamespace.getName(), appNamespace);
+            }
+        }
+
+        @Override
+        public AppNamespace findByAppIdAndNamespace(String appId, String namespaceName) {
+            return appNamespaces.get(appId + "+" + namespaceName);
+        }
+
+        @Override
+        public List<AppNamespace> findByAppIdAndNamespaces(String appId, Set<String> namespaceNames) {
+            List<AppNamespace> result = Lists.newArrayList();
+            for (String namespaceName : namespaceNames) {
+                AppNamespace appNamespace = appNamespaces.get(appId + "+" + namespaceName);
+                if (appNamespace != null) {
+                    result.add(appNamespace);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public AppNamespace findPublicNamespaceByName(String namespaceName) {
+            return publicAppNamespaces.get(namespaceName);
+        }
+
+        @Override
+        public List<AppNamespace> findPublicNamespacesByNames(Set<String> namespaceNames) {
+            List<AppNamespace> result = Lists.newArrayList();
+            for (String namespaceName : namespaceNames) {
+                AppNamespace appNamespace = publicAppNamespaces.get(namespaceName);
+                if (appNamespace != null) {
+                    result.add(appNamespace);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void afterPropertiesSet() throws Exception {
+            // 不启动 DB 扫描任务
+        }
+    }
+
+    /**
+     * 无 ReleaseMessage 的 ReleaseMessageServiceWithCache ，即客户端均已是最新，长轮询全部挂起
+     */
+    public static class EmptyReleaseMessageService extends ReleaseMessageServiceWithCache {
+
+        @Override
+        public List<ReleaseMessage> findLatestReleaseMessagesGroupByMessages(Set<String> messages) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void afterPropertiesSet() throws Exception {
+            // 不启动 DB 扫描任务
+        }
+    }
+
+    /**
+     * 无 EntityManager 可关闭
+     */
+    public static class NoOpEntityManagerUtil extends EntityManagerUtil {
+
+        @Override
+        public void closeEntityManager() {
+        }
+    }
+
+    /**
+     * 固定配置的 BizConfig ，不依赖 Environment
+     */
+    public static class FixedBizConfig extends BizConfig {
+
+        private final int notificationBatch;
+
+        public FixedBizConfig(int notificationBatch) {
+            this.notificationBatch = notificationBatch;
+        }
+
+        @Override
+        public int releaseMessageNotificationBatch() {
+            return notificationBatch;
+        }
+
+        @Override
+        public int releaseMessageNotificationBatchIntervalInMilli() {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.ctrip.framework.apollo.benchmark.BenchmarkFixtures;
+import com.ctrip.framework.apollo.biz.entity.GrayReleaseRule;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.biz.repository.GrayReleaseRuleRepository;
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GrayReleaseRulesHolder#findReleaseIdFromGrayReleaseRule} 的基准测试
+ *
+ * 规则通过 {@link GrayReleaseRulesHolder#handleMessage(ReleaseMessage, String)} 加载，GrayReleaseRuleRepository 为内存实现。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class GrayReleaseRulesHolderBenchmark {
+
+    private static final String CONFIG_APP_ID = "someAppId";
+    private static final String CONFIG_CLUSTER = "default";
+    private static final String CONFIG_NAMESPACE = "application";
+    private static final String CLIENT_APP_ID = "someClientAppId";
+
+    /**
+     * 灰度分支数量，即同一 Namespace 下的规则数量
+     */
+    @Param({"1", "10", "50"})
+    private int branchCount;
+    /**
+     * 每条规则的 IP 数量
+     */
+    @Param({"10", "100"})
+    private int ipsPerRule;
+
+    private GrayReleaseRulesHolder grayReleaseRulesHolder;
+    /**
+     * 命中最后一个分支的 IP ，即最坏情况下的匹配
+     */
+    private String lastBranchIp;
+
+    @Setup
+    public void setUp() {
+        Gson gson = new Gson();
+        final List<GrayReleaseRule> rules = Lists.newArrayListWithCapacity(branchCount);
+        for (int i = 0; i < branchCount; i++) {
+            Set<String> ips = Sets.newHashSetWithExpectedSize(ipsPerRule);
+            for (int j = 0; j < ipsPerRule; j++) {
+                ips.add(ip(i, j));
+            }
+            Set<GrayReleaseRuleItemDTO> ruleItems = Collections.singleton(new GrayReleaseRuleItemDTO(CLIENT_APP_ID, ips));
+
+            GrayReleaseRule rule = new GrayReleaseRule();
+            rule.setId(i + 1);
+            rule.setAppId(CONFIG_APP_ID);
+            rule.setClusterName(CONFIG_CLUSTER);
+            rule.setNamespaceName(CONFIG_NAMESPACE);
+            rule.setBranchName("branch" + i);
+            rule.setRules(gson.toJson(ruleItems));
+            rule.setReleaseId((long) (i + 1));
+            rule.setBranchStatus(NamespaceBranchStatus.ACTIVE);
+            rules.add(rule);
+        }
+        lastBranchIp = ip(branchCount - 1, ipsPerRule - 1);
+
+        GrayReleaseRuleRepository repository = (GrayReleaseRuleRepository) Proxy.newProxyInstance(
+                GrayReleaseRuleRepository.class.getClassLoader(), new Class<?>[]{GrayReleaseRuleRepository.class},
+                (proxy, method, args) -> {
+                    // 按编号分批加载，规则的编号从 1 开始连续
+                    if ("findFirst500ByIdGreaterThanOrderByIdAsc".equals(method.getName())) {
+                        int fromIndex = (int) Math.min((Long) args[0], rules.size());
+                        return rules.subList(fromIndex, Math.min(fromIndex + 500, rules.size()));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        grayReleaseRulesHolder = new GrayReleaseRulesHolder();
+        BenchmarkFixtures.setField(grayReleaseRulesHolder, "grayReleaseRuleRepository", repository);
+        grayReleaseRulesHolder.handleMessage(new ReleaseMessage(CONFIG_APP_ID + "+" + CONFIG_CLUSTER + "+" + CONFIG_NAMESPACE),
+                Topics.APOLLO_RELEASE_TOPIC);
+        // handleMessage 会吞掉加载异常，规则未加载时基准测试的结果无意义
+        Preconditions.checkState(Long.valueOf(branchCount).equals(findMatchedReleaseId()),
+                "gray release rules not loaded");
+    }
+
+    @Benchmark
+    public Long findMatchedReleaseId() {
+        return grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule(CLIENT_APP_ID, lastBranchIp, CONFIG_APP_ID,
+                CONFIG_CLUSTER, CONFIG_NAMESPACE);
+    }
+
+    /**
+     * 客户端不在任何规则中，需遍历所有分支
+     */
+    @Benchmark
+    public Long findUnmatchedReleaseId() {
+        return grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule(CLIENT_APP_ID, "1.1.1.1", CONFIG_APP_ID,
+                CONFIG_CLUSTER, CONFIG_NAMESPACE);
+    }
+
+    /**
+     * Namespace 无灰度规则，最常见的情况
+     */
+    @Benchmark
+    public Long findReleaseIdWithoutRules() {
+        return grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule(CLIENT_APP_ID, lastBranchIp, CONFIG_APP_ID,
+                CONFIG_CLUSTER, "someOtherNamespace");
+    }
+
+    private static String ip(int branch, int index) {
+        return "10." + (branch / 256) + "." + (branch % 256) + "." + index;
+    }
+
+}
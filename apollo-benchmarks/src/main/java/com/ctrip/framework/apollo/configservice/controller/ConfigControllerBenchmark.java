@@ -0,0 +1,74 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import com.ctrip.framework.apollo.benchmark.BenchmarkFixtures;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigController#mergeReleaseConfigurations(List)} 的基准测试
+ *
+ * 每次客户端拉取配置，都会解析并合并 Release 的配置 JSON 。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigControllerBenchmark {
+
+    /**
+     * 每个 Release 的配置项数量
+     */
+    @Param({"10", "100", "1000"})
+    private int itemCount;
+    /**
+     * Release 数量。例如，1 为仅有默认集群，3 为 dataCenter + 集群 + 默认集群
+     */
+    @Param({"1", "3"})
+    private int releaseCount;
+
+    private ConfigController configController;
+    private List<Release> releases;
+
+    @Setup
+    public void setUp() {
+        Gson gson = new Gson();
+        configController = new ConfigController();
+        BenchmarkFixtures.setField(configController, "gson", gson);
+
+        releases = Lists.newArrayListWithCapacity(releaseCount);
+        for (int i = 0; i < releaseCount; i++) {
+            Map<String, String> configurations = Maps.newHashMap();
+            for (int j = 0; j < itemCount; j++) {
+                configurations.put("key" + j, "value" + j + "-of-release" + i);
+            }
+            Release release = new Release();
+            release.setConfigurations(gson.toJson(configurations));
+            releases.add(release);
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> mergeReleaseConfigurations() {
+        return configController.mergeReleaseConfigurations(releases);
+    }
+
+}
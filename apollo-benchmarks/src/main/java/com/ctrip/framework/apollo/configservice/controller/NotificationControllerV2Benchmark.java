@@ -0,0 +1,152 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import com.ctrip.framework.apollo.benchmark.BenchmarkFixtures;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NotificationControllerV2} 长轮询注册和通知扇出的基准测试
+ *
+ * 没有 Servlet 容器时，DeferredResult 的 onCompletion 回调不会被触发，这里手动执行该回调，模拟请求结束后移除注册。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationControllerV2Benchmark {
+
+    private static final String APP_ID = "someAppId";
+    private static final String CLIENT_IP = "1.2.3.4";
+    private static final String WATCH_KEY = APP_ID + ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR + ConfigConsts.CLUSTER_NAME_DEFAULT
+            + ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR + ConfigConsts.NAMESPACE_APPLICATION;
+
+    /**
+     * 每个长轮询监听的 Namespace 数量
+     */
+    @Param({"1", "10"})
+    private int namespaceCount;
+
+    private NotificationControllerV2 controller;
+    private String notificationsAsString;
+    private long releaseMessageId;
+
+    @Setup
+    public void setUp() {
+        Gson gson = new Gson();
+        BenchmarkFixtures.InMemoryAppNamespaceService appNamespaceService = new BenchmarkFixtures.InMemoryAppNamespaceService();
+        List<ApolloConfigNotification> notifications = Lists.newArrayList();
+        for (int i = 0; i < namespaceCount; i++) {
+            String namespace = i == 0 ? ConfigConsts.NAMESPACE_APPLICATION : "namespace" + i;
+            appNamespaceService.add(BenchmarkFixtures.appNamespace(APP_ID, namespace, false));
+            notifications.add(new ApolloConfigNotification(namespace, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER));
+        }
+        notificationsAsString = gson.toJson(notifications);
+
+        WatchKeysUtil watchKeysUtil = new WatchKeysUtil();
+        BenchmarkFixtures.setField(watchKeysUtil, "appNamespaceService", appNamespaceService);
+        NamespaceUtil namespaceUtil = new NamespaceUtil();
+        BenchmarkFixtures.setField(namespaceUtil, "appNamespaceServiceWithCache", appNamespaceService);
+
+        controller = new NotificationControllerV2();
+        BenchmarkFixtures.setField(controller, "watchKeysUtil", watchKeysUtil);
+        BenchmarkFixtures.setField(controller, "releaseMessageService", new BenchmarkFixtures.EmptyReleaseMessageService());
+        BenchmarkFixtures.setField(controller, "entityManagerUtil", new BenchmarkFixtures.NoOpEntityManagerUtil());
+        BenchmarkFixtures.setField(controller, "namespaceUtil", namespaceUtil);
+        BenchmarkFixtures.setField(controller, "gson", gson);
+        // 同步通知，从而衡量扇出本身的耗时
+        BenchmarkFixtures.setField(controller, "bizConfig", new BenchmarkFixtures.FixedBizConfig(Integer.MAX_VALUE));
+    }
+
+    /**
+     * 注册长轮询，并在请求结束后移除注册
+     */
+    @Benchmark
+    @Threads(4)
+    public DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> registerAndComplete() {
+        DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result = poll();
+        complete(result);
+        return result;
+    }
+
+    /**
+     * 一条 ReleaseMessage 通知所有挂起的长轮询
+     */
+    @Benchmark
+    public void fanOut(FanOutState state) {
+        ReleaseMessage message = new ReleaseMessage(WATCH_KEY);
+        message.setId(++releaseMessageId);
+        controller.handleMessage(message, Topics.APOLLO_RELEASE_TOPIC);
+    }
+
+    /**
+     * 每次扇出前，挂起 subscriberCount 个长轮询；扇出后，结束这些请求
+     */
+    @State(Scope.Thread)
+    public static class FanOutState {
+
+        /**
+         * 监听同一 Watch Key 的长轮询数量
+         */
+        @Param({"100", "1000", "10000"})
+        private int subscriberCount;
+
+        private List<DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>> results;
+
+        @Setup(Level.Invocation)
+        public void register(NotificationControllerV2Benchmark benchmark) {
+            results = Lists.newArrayListWithCapacity(subscriberCount);
+            for (int i = 0; i < subscriberCount; i++) {
+                results.add(benchmark.poll());
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void complete() {
+            for (DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result : results) {
+                NotificationControllerV2Benchmark.complete(result);
+            }
+        }
+    }
+
+    private DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> poll() {
+        return controller.pollNotification(APP_ID, ConfigConsts.CLUSTER_NAME_DEFAULT, notificationsAsString, null, CLIENT_IP);
+    }
+
+    /**
+     * 模拟 Servlet 容器结束请求，执行 onCompletion 回调
+     */
+    private static void complete(DeferredResult<?> result) {
+        Runnable completionCallback = BenchmarkFixtures.getField(result, "completionCallback");
+        if (completionCallback != null) {
+            completionCallback.run();
+        }
+    }
+
+}
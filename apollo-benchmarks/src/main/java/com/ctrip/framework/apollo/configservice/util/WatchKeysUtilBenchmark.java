@@ -0,0 +1,80 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.benchmark.BenchmarkFixtures;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WatchKeysUtil#assembleAllWatchKeys(String, String, Set, String)} 的基准测试
+ *
+ * 每次长轮询都会组装 Watch Key 。Namespace 一半属于 App ，一半为关联的公共 Namespace 。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class WatchKeysUtilBenchmark {
+
+    private static final String APP_ID = "someAppId";
+    private static final String PUBLIC_APP_ID = "somePublicAppId";
+    private static final String CLUSTER = "someCluster";
+    private static final String DATA_CENTER = "someDC";
+
+    /**
+     * 客户端监听的 Namespace 数量
+     */
+    @Param({"1", "10", "50"})
+    private int namespaceCount;
+
+    private WatchKeysUtil watchKeysUtil;
+    private Set<String> namespaces;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.InMemoryAppNamespaceService appNamespaceService = new BenchmarkFixtures.InMemoryAppNamespaceService();
+        namespaces = Sets.newHashSet(ConfigConsts.NAMESPACE_APPLICATION);
+        appNamespaceService.add(BenchmarkFixtures.appNamespace(APP_ID, ConfigConsts.NAMESPACE_APPLICATION, false));
+        for (int i = 1; i < namespaceCount; i++) {
+            String namespace = "namespace" + i;
+            namespaces.add(namespace);
+            if (i % 2 == 0) {
+                appNamespaceService.add(BenchmarkFixtures.appNamespace(APP_ID, namespace, false));
+            } else {
+                appNamespaceService.add(BenchmarkFixtures.appNamespace(PUBLIC_APP_ID, namespace, true));
+            }
+        }
+
+        watchKeysUtil = new WatchKeysUtil();
+        BenchmarkFixtures.setField(watchKeysUtil, "appNamespaceService", appNamespaceService);
+    }
+
+    @Benchmark
+    public Multimap<String, String> assembleAllWatchKeys() {
+        return watchKeysUtil.assembleAllWatchKeys(APP_ID, CLUSTER, namespaces, DATA_CENTER);
+    }
+
+    @Benchmark
+    public Multimap<String, String> assembleAllWatchKeysWithoutDataCenter() {
+        return watchKeysUtil.assembleAllWatchKeys(APP_ID, CLUSTER, namespaces, null);
+    }
+
+}
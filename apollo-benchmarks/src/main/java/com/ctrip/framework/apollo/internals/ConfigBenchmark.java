@@ -0,0 +1,150 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.model.ConfigChange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端 {@link DefaultConfig} 读取配置，和 {@link AbstractConfig#calcPropertyChanges} 计算配置变化的基准测试
+ *
+ * 放在 internals 包下，以访问包级别的 calcPropertyChanges 方法。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+
+    private static final String NAMESPACE = "application";
+
+    /**
+     * 配置项数量
+     */
+    @Param({"100", "1000"})
+    private int keyCount;
+    /**
+     * 发生变化的配置项的比例，百分比
+     */
+    @Param({"1", "50"})
+    private int changedPercent;
+
+    private DefaultConfig config;
+    private String[] keys;
+
+    private Properties previous;
+    private Properties current;
+
+    @Setup
+    public void setUp() {
+        previous = new Properties();
+        current = new Properties();
+        keys = new String[keyCount];
+        int changedCount = keyCount * changedPercent / 100;
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "key" + i;
+            previous.setProperty(keys[i], String.valueOf(i));
+            // 前 changedCount 个配置项，一半修改，一半删除；另外新增 changedCount 个配置项
+            if (i < changedCount / 2) {
+                current.setProperty(keys[i], String.valueOf(i + 1));
+            } else if (i >= changedCount) {
+                current.setProperty(keys[i], String.valueOf(i));
+            }
+        }
+        for (int i = 0; i < changedCount; i++) {
+            current.setProperty("newKey" + i, "true");
+        }
+
+        config = new DefaultConfig(NAMESPACE, new InMemoryConfigRepository(previous));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String getProperty() {
+        return config.getProperty(randomKey(), null);
+    }
+
+    /**
+     * 不存在的配置项，会继续查找环境变量和 classpath 下的配置文件
+     */
+    @Benchmark
+    @Threads(4)
+    public String getAbsentProperty() {
+        return config.getProperty("absent.key", null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer getIntProperty() {
+        return config.getIntProperty(randomKey(), null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Long getLongProperty() {
+        return config.getLongProperty(randomKey(), null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Boolean getBooleanProperty() {
+        return config.getBooleanProperty(randomKey(), null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String[] getArrayProperty() {
+        return config.getArrayProperty(randomKey(), ",", null);
+    }
+
+    @Benchmark
+    public List<ConfigChange> calcPropertyChanges() {
+        return config.calcPropertyChanges(NAMESPACE, previous, current);
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+
+    /**
+     * 内存中的 ConfigRepository ，不访问远程和本地文件
+     */
+    private static class InMemoryConfigRepository extends AbstractConfigRepository {
+
+        private final Properties properties;
+
+        InMemoryConfigRepository(Properties properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public Properties getConfig() {
+            return properties;
+        }
+
+        @Override
+        public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+        }
+
+        @Override
+        protected void sync() {
+        }
+    }
+
+}
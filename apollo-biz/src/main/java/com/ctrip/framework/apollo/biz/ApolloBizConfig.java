@@ -1,6 +1,10 @@
 package com.ctrip.framework.apollo.biz;
 
+import com.ctrip.framework.apollo.biz.message.InProcessReleaseMessageBus;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageBus;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
@@ -9,4 +13,13 @@ import org.springframework.context.annotation.Configuration;
 @ComponentScan(basePackageClasses = ApolloBizConfig.class)
 public class ApolloBizConfig {
 
+    /**
+     * 父 ApplicationContext 已有 ReleaseMessageBus 时，例如 apollo-assembly ，使用父的，从而兄弟 ApplicationContext 之间可以推送
+     */
+    @Bean
+    @ConditionalOnMissingBean(ReleaseMessageBus.class)
+    public InProcessReleaseMessageBus releaseMessageBus() {
+        return new InProcessReleaseMessageBus();
+    }
+
 }
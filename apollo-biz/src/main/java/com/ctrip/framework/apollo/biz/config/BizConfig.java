@@ -23,11 +23,21 @@ public class BizConfig extends RefreshableConfig {
     private static final int DEFAULT_ITEM_VALUE_LENGTH = 20000;
     private static final int DEFAULT_APPNAMESPACE_CACHE_REBUILD_INTERVAL = 60; //60s
     private static final int DEFAULT_GRAY_RELEASE_RULE_SCAN_INTERVAL = 60; //60s
+    private static final int DEFAULT_GRAY_RELEASE_RULE_FULL_SCAN_INTERVAL_IN_MINUTES = 60; //60 minutes
     private static final int DEFAULT_APPNAMESPACE_CACHE_SCAN_INTERVAL = 1; //1s
     private static final int DEFAULT_RELEASE_MESSAGE_CACHE_SCAN_INTERVAL = 1; //1s
     private static final int DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS = 1000; //1000ms
     private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH = 100;
     private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI = 100;//100ms
+    private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_WORKERS = 4;
+    private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_WORKERS = 2;
+    private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH = 100;
+    private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH_WINDOW_IN_MILLI = 100;//100ms
+    private static final int DEFAULT_INSTANCE_COUNT_CACHE_EXPIRE_IN_SECONDS = 60;//60s
+    private static final int DEFAULT_CONFIG_RESPONSE_GZIP_THRESHOLD = 1024;//1KB
+    private static final int DEFAULT_CONFIG_SERVICE_CACHE_MAX_SIZE_IN_MB = 128;//128MB
+    private static final int DEFAULT_CONFIG_SERVICE_CACHE_SNAPSHOT_INTERVAL_IN_MINUTES = 5;//5 minutes
+    private static final String DEFAULT_CONFIG_SERVICE_CACHE_SNAPSHOT_DIR = "/opt/data/apollo-configservice/snapshot";
 
     private Gson gson = new Gson();
 
@@ -58,6 +68,14 @@ public class BizConfig extends RefreshableConfig {
         return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_GRAY_RELEASE_RULE_SCAN_INTERVAL);
     }
 
+    /**
+     * @return GrayReleaseRule 全量扫描的频率，单位：分钟。其余的扫描均为增量扫描
+     */
+    public int grayReleaseRuleFullScanIntervalInMinutes() {
+        int interval = getIntProperty("apollo.gray-release-rule-full-scan.interval", DEFAULT_GRAY_RELEASE_RULE_FULL_SCAN_INTERVAL_IN_MINUTES);
+        return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_GRAY_RELEASE_RULE_FULL_SCAN_INTERVAL_IN_MINUTES);
+    }
+
     public int itemKeyLengthLimit() {
         int limit = getIntProperty("item.key.length.limit", DEFAULT_ITEM_KEY_LENGTH);
         return checkInt(limit, 5, Integer.MAX_VALUE, DEFAULT_ITEM_KEY_LENGTH);
@@ -124,6 +142,13 @@ public class BizConfig extends RefreshableConfig {
         return checkInt(interval, 100, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS);
     }
 
+    /**
+     * @return 是否通过 {@link com.ctrip.framework.apollo.biz.message.ReleaseMessageBus} 接收推送的 ReleaseMessage
+     */
+    public boolean isReleaseMessageBusEnabled() {
+        return getBooleanProperty("apollo.release-message.bus.enabled", true);
+    }
+
     public int releaseMessageNotificationBatch() {
         int batch = getIntProperty("apollo.release-message.notification.batch", DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH);
         return checkInt(batch, 1, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH);
@@ -134,10 +159,80 @@ public class BizConfig extends RefreshableConfig {
         return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI);
     }
 
+    /**
+     * @return 大量通知时，每秒通知的客户端数量。未配置时，为 batch / batch.interval 换算的速率
+     */
+    public int releaseMessageNotificationRate() {
+        long derivedRate = (long) releaseMessageNotificationBatch() * 1000 / releaseMessageNotificationBatchIntervalInMilli();
+        int defaultRate = (int) Math.max(1, Math.min(Integer.MAX_VALUE, derivedRate));
+        int rate = getIntProperty("apollo.release-message.notification.rate", defaultRate);
+        return checkInt(rate, 1, Integer.MAX_VALUE, defaultRate);
+    }
+
+    public int releaseMessageNotificationWorkers() {
+        int workers = getIntProperty("apollo.release-message.notification.workers", DEFAULT_RELEASE_MESSAGE_NOTIFICATION_WORKERS);
+        return checkInt(workers, 1, 64, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_WORKERS);
+    }
+
+    public int instanceConfigAuditWorkers() {
+        int workers = getIntProperty("apollo.instance-config.audit.workers", DEFAULT_INSTANCE_CONFIG_AUDIT_WORKERS);
+        return checkInt(workers, 1, 64, DEFAULT_INSTANCE_CONFIG_AUDIT_WORKERS);
+    }
+
+    public int instanceConfigAuditBatch() {
+        int batch = getIntProperty("apollo.instance-config.audit.batch", DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH);
+        return checkInt(batch, 1, 1000, DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH);
+    }
+
+    public int instanceConfigAuditBatchWindowInMilli() {
+        int window = getIntProperty("apollo.instance-config.audit.batch.window", DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH_WINDOW_IN_MILLI);
+        return checkInt(window, 0, 10000, DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH_WINDOW_IN_MILLI);
+    }
+
+    public int instanceCountCacheExpireInSeconds() {
+        int expire = getIntProperty("apollo.instance-count.cache.expire", DEFAULT_INSTANCE_COUNT_CACHE_EXPIRE_IN_SECONDS);
+        return checkInt(expire, 1, Integer.MAX_VALUE, DEFAULT_INSTANCE_COUNT_CACHE_EXPIRE_IN_SECONDS);
+    }
+
     public boolean isConfigServiceCacheEnabled() {
         return getBooleanProperty("config-service.cache.enabled", false);
     }
 
+    public int configServiceCacheMaxSizeInMB() {
+        int size = getIntProperty("config-service.cache.max-size", DEFAULT_CONFIG_SERVICE_CACHE_MAX_SIZE_IN_MB);
+        return checkInt(size, 1, 1024 * 1024, DEFAULT_CONFIG_SERVICE_CACHE_MAX_SIZE_IN_MB);
+    }
+
+    public boolean isConfigServiceCacheSnapshotEnabled() {
+        return getBooleanProperty("config-service.cache.snapshot.enabled", false);
+    }
+
+    public String configServiceCacheSnapshotDir() {
+        return getValue("config-service.cache.snapshot.dir", DEFAULT_CONFIG_SERVICE_CACHE_SNAPSHOT_DIR);
+    }
+
+    public int configServiceCacheSnapshotIntervalInMinutes() {
+        int interval = getIntProperty("config-service.cache.snapshot.interval", DEFAULT_CONFIG_SERVICE_CACHE_SNAPSHOT_INTERVAL_IN_MINUTES);
+        return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_CONFIG_SERVICE_CACHE_SNAPSHOT_INTERVAL_IN_MINUTES);
+    }
+
+    public boolean isConfigResponseCacheEnabled() {
+        return getBooleanProperty("config-service.response.cache.enabled", true);
+    }
+
+    public boolean isConfigResponseGzipEnabled() {
+        return getBooleanProperty("config-service.response.gzip.enabled", true);
+    }
+
+    public boolean isConfigResponseDeltaEnabled() {
+        return getBooleanProperty("config-service.response.delta.enabled", true);
+    }
+
+    public int configResponseGzipThreshold() {
+        int threshold = getIntProperty("config-service.response.gzip.threshold", DEFAULT_CONFIG_RESPONSE_GZIP_THRESHOLD);
+        return checkInt(threshold, 0, Integer.MAX_VALUE, DEFAULT_CONFIG_RESPONSE_GZIP_THRESHOLD);
+    }
+
     int checkInt(int value, int min, int max, int defaultValue) {
         if (value >= min && value <= max) {
             return value;
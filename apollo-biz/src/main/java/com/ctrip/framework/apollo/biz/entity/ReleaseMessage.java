@@ -62,6 +62,10 @@ public class ReleaseMessage {
         this.message = message;
     }
 
+    public Date getDataChangeLastModifiedTime() {
+        return dataChangeLastModifiedTime;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
@@ -21,19 +21,14 @@ public class GrayReleaseRuleCache {
     private Set<GrayReleaseRuleItemDTO> ruleItems;
     private long releaseId;
     private int branchStatus;
-    /**
-     * 加载版本
-     */
-    private long loadVersion;
 
     public GrayReleaseRuleCache(long ruleId, String branchName, String namespaceName, long
-            releaseId, int branchStatus, long loadVersion, Set<GrayReleaseRuleItemDTO> ruleItems) {
+            releaseId, int branchStatus, Set<GrayReleaseRuleItemDTO> ruleItems) {
         this.ruleId = ruleId;
         this.branchName = branchName;
         this.namespaceName = namespaceName;
         this.releaseId = releaseId;
         this.branchStatus = branchStatus;
-        this.loadVersion = loadVersion;
         this.ruleItems = ruleItems;
     }
 
@@ -67,14 +62,6 @@ public class GrayReleaseRuleCache {
         return releaseId;
     }
 
-    public long getLoadVersion() {
-        return loadVersion;
-    }
-
-    public void setLoadVersion(long loadVersion) {
-        this.loadVersion = loadVersion;
-    }
-
     public String getNamespaceName() {
         return namespaceName;
     }
@@ -0,0 +1,126 @@
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 一个 Namespace（configAppId+configCluster+configNamespace）下的灰度规则索引，创建后不可变。
+ *
+ * 替代逐条调用 {@link GrayReleaseRuleCache#matches(String, String)} 的线性匹配：
+ * 1. 精确索引，KEY 为 clientAppId+clientIp ；
+ * 2. 通配索引，KEY 为 clientAppId ，对应 {@link GrayReleaseRuleItemDTO#ALL_IP} 的规则。
+ *
+ * 多条规则同时匹配时，和线性匹配一致，按构建时规则的遍历顺序，先匹配者优先。
+ * 因此每个索引项记录规则的顺序号，查询时取精确和通配中顺序号较小者。
+ */
+public class GrayReleaseRuleIndex {
+
+    private static final String KEY_SEPARATOR = ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR;
+
+    /**
+     * 精确索引
+     *
+     * KEY：clientAppId+clientIp
+     * VALUE：优先级最高的匹配规则
+     */
+    private final Map<String, IndexedRule> ipRules;
+    /**
+     * 通配索引
+     *
+     * KEY：clientAppId
+     * VALUE：优先级最高的 ALL_IP 规则
+     */
+    private final Map<String, IndexedRule> wildcardRules;
+
+    private GrayReleaseRuleIndex(Map<String, IndexedRule> ipRules, Map<String, IndexedRule> wildcardRules) {
+        this.ipRules = ipRules;
+        this.wildcardRules = wildcardRules;
+    }
+
+    /**
+     * 构建索引。仅索引分支状态为有效的规则。
+     *
+     * @param rules 同一 Namespace 下的 GrayReleaseRuleCache ，按匹配优先级排列
+     * @return 索引
+     */
+    public static GrayReleaseRuleIndex build(Collection<GrayReleaseRuleCache> rules) {
+        Map<String, IndexedRule> ipRules = Maps.newHashMap();
+        Map<String, IndexedRule> wildcardRules = Maps.newHashMap();
+        int order = 0;
+        for (GrayReleaseRuleCache rule : rules) {
+            //check branch status
+            if (rule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
+                continue;
+            }
+            IndexedRule indexedRule = new IndexedRule(order++, rule.getReleaseId());
+            for (GrayReleaseRuleItemDTO ruleItem : rule.getRuleItems()) {
+                if (ruleItem.getClientAppId() == null || ruleItem.getClientIpList() == null) {
+                    continue;
+                }
+                // 先添加的优先级更高，不覆盖
+                if (ruleItem.getClientIpList().contains(GrayReleaseRuleItemDTO.ALL_IP)) {
+                    wildcardRules.putIfAbsent(ruleItem.getClientAppId(), indexedRule);
+                    continue;
+                }
+                for (String clientIp : ruleItem.getClientIpList()) {
+                    ipRules.putIfAbsent(assembleKey(ruleItem.getClientAppId(), clientIp), indexedRule);
+                }
+            }
+        }
+        return new GrayReleaseRuleIndex(ImmutableMap.copyOf(ipRules), ImmutableMap.copyOf(wildcardRules));
+    }
+
+    /**
+     * 获得匹配的 Release 编号
+     *
+     * @param clientAppId 客户端 App 编号
+     * @param clientIp    客户端 IP
+     * @return Release 编号，不匹配时返回 null
+     */
+    public Long findReleaseId(String clientAppId, String clientIp) {
+        if (clientAppId == null) {
+            return null;
+        }
+        IndexedRule wildcardRule = wildcardRules.get(clientAppId);
+        IndexedRule ipRule = clientIp == null ? null : ipRules.get(assembleKey(clientAppId, clientIp));
+        if (ipRule == null && wildcardRule == null) {
+            return null;
+        }
+        if (ipRule == null || (wildcardRule != null && wildcardRule.order < ipRule.order)) {
+            return wildcardRule.releaseId;
+        }
+        return ipRule.releaseId;
+    }
+
+    /**
+     * @return 是否没有任何有效的规则
+     */
+    public boolean isEmpty() {
+        return ipRules.isEmpty() && wildcardRules.isEmpty();
+    }
+
+    private static String assembleKey(String clientAppId, String clientIp) {
+        return clientAppId + KEY_SEPARATOR + clientIp;
+    }
+
+    private static class IndexedRule {
+
+        /**
+         * 规则的顺序号，越小优先级越高
+         */
+        private final int order;
+        private final long releaseId;
+
+        IndexedRule(int order, long releaseId) {
+            this.order = order;
+            this.releaseId = releaseId;
+        }
+    }
+
+}
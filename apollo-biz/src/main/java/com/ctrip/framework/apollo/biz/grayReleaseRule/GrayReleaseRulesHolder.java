@@ -6,6 +6,8 @@ import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.repository.GrayReleaseRuleRepository;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshot;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshotManager;
 import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
 import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
 import com.ctrip.framework.apollo.common.utils.GrayReleaseRuleItemTransformer;
@@ -23,16 +25,29 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * GrayReleaseRule 缓存 Holder
  *
+ * GrayReleaseRule 的每次变更，都是新增一条记录，并删除老的记录。因此同步分为：
+ * 1. 增量同步：按编号加载新增的 GrayReleaseRule ，按最后更新时间加载更新和删除的 GrayReleaseRule 。
+ *    定时执行，并在收到 ReleaseMessage 时执行；
+ * 2. 全量同步：重新加载全部 GrayReleaseRule ，作为兜底，频率为 {@link BizConfig#grayReleaseRuleFullScanIntervalInMinutes()} 。
+ *
+ * 缓存为不可变的 {@link GrayReleaseRuleState} ，同步时复制并修改，再整体替换，查询无锁。
+ *
+ * 开启快照时，启动时先从快照预热缓存，再增量加载快照之后新增的 GrayReleaseRule ，并立即异步全量同步一次
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 public class GrayReleaseRulesHolder implements ReleaseMessageListener, InitializingBean {
@@ -41,11 +56,18 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
 
     private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
     private static final Splitter STRING_SPLITTER = Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
+    private static final String SNAPSHOT_NAME = "gray-release-rule";
+    /**
+     * 按最后更新时间增量同步时，回溯的时间，容忍各 Admin Service 之间的时钟偏差
+     */
+    private static final long MODIFIED_TIME_LOOKBACK_IN_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
     @Autowired
     private GrayReleaseRuleRepository grayReleaseRuleRepository;
     @Autowired
     private BizConfig bizConfig;
+    @Autowired(required = false)
+    private CacheSnapshotManager cacheSnapshotManager;
 
     /**
      * 数据库扫描频率，单位：秒
@@ -56,33 +78,24 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
      */
     private ScheduledExecutorService executorService;
     /**
-     * GrayReleaseRuleCache 缓存
-     *
-     * KEY：configAppId+configCluster+configNamespace ，通过 {@link #assembleGrayReleaseRuleKey(String, String, String)} 生成
-     *      注意，KEY 中不包含 BranchName
-     * VALUE：GrayReleaseRuleCache 数组
+     * 当前的缓存，不可变，变化后整体替换
      */
-    //store configAppId+configCluster+configNamespace -> GrayReleaseRuleCache map
-    private Multimap<String, GrayReleaseRuleCache> grayReleaseRuleCache;
+    private volatile GrayReleaseRuleState state;
     /**
-     * GrayReleaseRuleCache 缓存2
-     *
-     * KEY：clientAppId+clientNamespace+ip ，通过 {@link #assembleReversedGrayReleaseRuleKey(String, String, String)} 生成
-     *      注意，KEY 中不包含 ClusterName
-     * VALUE：{@link GrayReleaseRule#id} 数组
+     * 最后扫描到的 GrayReleaseRule 的编号
+     */
+    private volatile long maxIdScanned;
+    /**
+     * 扫描到的 GrayReleaseRule 的最大的最后更新时间，0 表示未知，此时不按最后更新时间同步
      */
-    //store clientAppId+clientNamespace+ip -> ruleId map
-    private Multimap<String, Long> reversedGrayReleaseRuleCache;
+    private long maxModifiedTimeScanned;
     /**
-     * 加载版本号
+     * 最后全量同步的时间，0 表示尚未全量同步
      */
-    // an auto increment version to indicate the age of rules
-    private AtomicLong loadVersion;
+    private long lastFullScanTime;
 
     public GrayReleaseRulesHolder() {
-        loadVersion = new AtomicLong();
-        grayReleaseRuleCache = Multimaps.synchronizedSetMultimap(HashMultimap.create());
-        reversedGrayReleaseRuleCache = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+        state = GrayReleaseRuleState.EMPTY;
         executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory.create("GrayReleaseRulesHolder", true));
     }
 
@@ -90,12 +103,20 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
     public void afterPropertiesSet() throws Exception {
         // 从 ServerConfig 中，读取任务的周期配置
         populateDataBaseInterval();
-        // 初始拉取 GrayReleaseRuleCache 到缓存
+        // 从快照预热缓存
+        boolean warmedUp = warmUpFromSnapshot();
+        // 初始全量加载 GrayReleaseRule 到缓存
         // force sync load for the first time
-        periodicScanRules();
-        // 定时拉取 GrayReleaseRuleCache 到缓存
+        if (!warmedUp) {
+            periodicScanRules();
+        }
+        // 注册快照
+        if (isSnapshotEnabled()) {
+            cacheSnapshotManager.register(SNAPSHOT_NAME, this::createSnapshot);
+        }
+        // 定时同步 GrayReleaseRule 到缓存。若从快照预热，立即异步全量同步一次，同步快照之后的变化
         executorService.scheduleWithFixedDelay(this::periodicScanRules,
-                getDatabaseScanIntervalSecond(), getDatabaseScanIntervalSecond(), getDatabaseScanTimeUnit()
+                warmedUp ? 0 : getDatabaseScanIntervalSecond(), getDatabaseScanIntervalSecond(), getDatabaseScanTimeUnit()
         );
     }
 
@@ -107,31 +128,34 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
         if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(releaseMessage)) {
             return;
         }
-        // 获得 appId cluster namespace 参数
-        List<String> keys = STRING_SPLITTER.splitToList(releaseMessage);
-        //message should be appId+cluster+namespace
-        if (keys.size() != 3) {
-            logger.error("message format invalid - {}", releaseMessage);
-            return;
+        // 灰度规则的变更，都会新增 GrayReleaseRule ，按编号增量加载即可，无需按 Namespace 查询
+        Transaction transaction = Tracer.newTransaction("Apollo.GrayReleaseRulesScanner", "scanNewGrayReleaseRules");
+        try {
+            scanNewGrayReleaseRules();
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            logger.error("Scan new gray release rules failed", ex);
+        } finally {
+            transaction.complete();
         }
-        String appId = keys.get(0);
-        String cluster = keys.get(1);
-        String namespace = keys.get(2);
-
-        // 获得对应的 GrayReleaseRule 数组
-        List<GrayReleaseRule> rules = grayReleaseRuleRepository.findByAppIdAndClusterNameAndNamespaceName(appId, cluster, namespace);
-        // 合并到 GrayReleaseRule 缓存中
-        mergeGrayReleaseRules(rules);
     }
 
     private void periodicScanRules() {
+        // 到达全量同步的周期，全量同步，否则增量同步
+        boolean fullScan = lastFullScanTime == 0 || System.currentTimeMillis() - lastFullScanTime
+                >= TimeUnit.MINUTES.toMillis(bizConfig.grayReleaseRuleFullScanIntervalInMinutes());
         // 【TODO 6001】Tracer 日志
-        Transaction transaction = Tracer.newTransaction("Apollo.GrayReleaseRulesScanner", "scanGrayReleaseRules");
+        Transaction transaction = Tracer.newTransaction("Apollo.GrayReleaseRulesScanner",
+                fullScan ? "scanGrayReleaseRules" : "syncGrayReleaseRules");
         try {
-            // 递增加载版本号
-            loadVersion.incrementAndGet();
-            // 从数据卷库中，扫描所有 GrayReleaseRules ，并合并到缓存中
-            scanGrayReleaseRules();
+            if (fullScan) {
+                // 从数据库中，扫描所有 GrayReleaseRules ，并替换缓存
+                scanGrayReleaseRules();
+            } else {
+                // 从数据库中，扫描新增、更新和删除的 GrayReleaseRules ，并合并到缓存中
+                syncGrayReleaseRules();
+            }
             // 【TODO 6001】Tracer 日志
             transaction.setStatus(Transaction.SUCCESS);
         } catch (Throwable ex) {
@@ -147,26 +171,14 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
     // 获得 Release 编号
     public Long findReleaseIdFromGrayReleaseRule(String clientAppId, String clientIp, String
             configAppId, String configCluster, String configNamespaceName) {
-        // 判断 grayReleaseRuleCache 中是否存在
+        // 获得 GrayReleaseRuleIndex 。不存在，说明该 Namespace 无有效的灰度规则
         String key = assembleGrayReleaseRuleKey(configAppId, configCluster, configNamespaceName);
-        if (!grayReleaseRuleCache.containsKey(key)) {
+        GrayReleaseRuleIndex index = state.indexes.get(key);
+        if (index == null) {
             return null;
         }
-        // 循环 GrayReleaseRuleCache 数组，获得匹配的 Release 编号
-        // create a new list to avoid ConcurrentModificationException
-        List<GrayReleaseRuleCache> rules = Lists.newArrayList(grayReleaseRuleCache.get(key));
-        for (GrayReleaseRuleCache rule : rules) {
-            // 校验 GrayReleaseRuleCache 对应的子 Namespace 的状态是否为有效
-            //check branch status
-            if (rule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
-                continue;
-            }
-            // 是否匹配灰度规则。若是，则返回。
-            if (rule.matches(clientAppId, clientIp)) {
-                return rule.getReleaseId();
-            }
-        }
-        return null;
+        // 从索引中，获得匹配的 Release 编号
+        return index.findReleaseId(clientAppId, clientIp);
     }
 
     /**
@@ -175,114 +187,192 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
      * load gray releases. Because gray release rules actually apply to one more dimension - cluster.
      */
     public boolean hasGrayReleaseRule(String clientAppId, String clientIp, String namespaceName) {
-        return reversedGrayReleaseRuleCache.containsKey(assembleReversedGrayReleaseRuleKey(clientAppId, namespaceName, clientIp))
-                || reversedGrayReleaseRuleCache.containsKey(assembleReversedGrayReleaseRuleKey(clientAppId, namespaceName, GrayReleaseRuleItemDTO.ALL_IP));
+        GrayReleaseRuleState current = state;
+        return current.reversedRules.containsKey(assembleReversedGrayReleaseRuleKey(clientAppId, namespaceName, clientIp))
+                || current.reversedRules.containsKey(assembleReversedGrayReleaseRuleKey(clientAppId, namespaceName, GrayReleaseRuleItemDTO.ALL_IP));
     }
 
-    private void scanGrayReleaseRules() {
-        long maxIdScanned = 0;
+    /**
+     * 从快照预热缓存，并增量加载快照之后新增的 GrayReleaseRule
+     *
+     * @return 是否预热
+     */
+    private boolean warmUpFromSnapshot() {
+        if (!isSnapshotEnabled()) {
+            return false;
+        }
+        CacheSnapshot<GrayReleaseRule> snapshot = cacheSnapshotManager.load(SNAPSHOT_NAME, GrayReleaseRule.class);
+        if (snapshot == null) {
+            return false;
+        }
+        Transaction transaction = Tracer.newTransaction("Apollo.GrayReleaseRulesScanner", "warmUpFromSnapshot");
+        try {
+            synchronized (this) {
+                state = merge(GrayReleaseRuleState.EMPTY, snapshot.getEntries());
+                maxIdScanned = snapshot.getMaxId();
+                scanNewGrayReleaseRules();
+            }
+            transaction.setStatus(Transaction.SUCCESS);
+            logger.info("Warmed up {} gray release rules from snapshot, maxIdScanned: {}", snapshot.getEntries().size(), maxIdScanned);
+            return true;
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            logger.error("Warm up gray release rules from snapshot failed", ex);
+            return false;
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    private boolean isSnapshotEnabled() {
+        return cacheSnapshotManager != null && cacheSnapshotManager.isEnabled();
+    }
+
+    private CacheSnapshot<?> createSnapshot() {
+        long maxId = maxIdScanned;
+        List<GrayReleaseRule> rules = Lists.newArrayList();
+        for (Map.Entry<String, ImmutableMap<String, GrayReleaseRuleCache>> entry : state.rules.entrySet()) {
+            for (GrayReleaseRuleCache ruleCache : entry.getValue().values()) {
+                rules.add(transformRuleCacheToRule(entry.getKey(), ruleCache));
+            }
+        }
+        return new CacheSnapshot<>(0, maxId, rules);
+    }
+
+    /**
+     * 全量同步：加载全部 GrayReleaseRule ，构建新的缓存并替换
+     */
+    private synchronized void scanGrayReleaseRules() {
+        long scanStartTime = System.currentTimeMillis();
+        GrayReleaseRuleState newState = GrayReleaseRuleState.EMPTY;
+        long newMaxIdScanned = 0;
+        long newMaxModifiedTimeScanned = 0;
         boolean hasMore = true;
         // 循环顺序分批加载 GrayReleaseRule ，直到结束或者线程打断
         while (hasMore && !Thread.currentThread().isInterrupted()) {
             // 顺序分批加载 GrayReleaseRule 500 条
-            List<GrayReleaseRule> grayReleaseRules = grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(maxIdScanned);
+            List<GrayReleaseRule> grayReleaseRules = grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(newMaxIdScanned);
             if (CollectionUtils.isEmpty(grayReleaseRules)) {
                 break;
             }
-            // 合并到 GrayReleaseRule 缓存
-            mergeGrayReleaseRules(grayReleaseRules);
+            newState = merge(newState, grayReleaseRules);
+            newMaxModifiedTimeScanned = Math.max(newMaxModifiedTimeScanned, findMaxModifiedTime(grayReleaseRules));
             // 获得新的 maxIdScanned ，取最后一条记录
             int rulesScanned = grayReleaseRules.size();
-            maxIdScanned = grayReleaseRules.get(rulesScanned - 1).getId();
+            newMaxIdScanned = grayReleaseRules.get(rulesScanned - 1).getId();
             // batch is 500
             // 若拉取不足 500 条，说明无 GrayReleaseRule 了
             hasMore = rulesScanned == 500;
         }
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        // 全量结果即数据库的当前状态，无需保留失效分支的规则
+        state = newState.withoutInactiveRules();
+        maxIdScanned = Math.max(maxIdScanned, newMaxIdScanned);
+        maxModifiedTimeScanned = newMaxModifiedTimeScanned == 0 ? scanStartTime : newMaxModifiedTimeScanned;
+        lastFullScanTime = scanStartTime;
     }
 
-    private void mergeGrayReleaseRules(List<GrayReleaseRule> grayReleaseRules) {
+    /**
+     * 增量同步：加载新增、更新和删除的 GrayReleaseRule ，合并到缓存中
+     */
+    private synchronized void syncGrayReleaseRules() {
+        scanNewGrayReleaseRules();
+        // 未知最后更新时间，等待全量同步
+        if (maxModifiedTimeScanned == 0) {
+            return;
+        }
+        List<GrayReleaseRule> grayReleaseRules = grayReleaseRuleRepository.findModifiedSinceIncludingDeleted(
+                new Date(maxModifiedTimeScanned - MODIFIED_TIME_LOOKBACK_IN_MILLIS));
         if (CollectionUtils.isEmpty(grayReleaseRules)) {
             return;
         }
-        // !!! 注意，下面我们说的“老”，指的是已经在缓存中，但是实际不一定“老”。
+        state = merge(state, grayReleaseRules);
+        maxModifiedTimeScanned = Math.max(maxModifiedTimeScanned, findMaxModifiedTime(grayReleaseRules));
+    }
+
+    /**
+     * 按编号，加载新增的 GrayReleaseRule ，合并到缓存中
+     */
+    private synchronized void scanNewGrayReleaseRules() {
+        boolean hasMore = true;
+        while (hasMore && !Thread.currentThread().isInterrupted()) {
+            List<GrayReleaseRule> grayReleaseRules = grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(maxIdScanned);
+            if (CollectionUtils.isEmpty(grayReleaseRules)) {
+                break;
+            }
+            state = merge(state, grayReleaseRules);
+            if (maxModifiedTimeScanned > 0) {
+                maxModifiedTimeScanned = Math.max(maxModifiedTimeScanned, findMaxModifiedTime(grayReleaseRules));
+            }
+            int rulesScanned = grayReleaseRules.size();
+            maxIdScanned = grayReleaseRules.get(rulesScanned - 1).getId();
+            hasMore = rulesScanned == 500;
+        }
+    }
+
+    private long findMaxModifiedTime(List<GrayReleaseRule> grayReleaseRules) {
+        long maxModifiedTime = 0;
+        for (GrayReleaseRule grayReleaseRule : grayReleaseRules) {
+            if (grayReleaseRule.getDataChangeLastModifiedTime() != null) {
+                maxModifiedTime = Math.max(maxModifiedTime, grayReleaseRule.getDataChangeLastModifiedTime().getTime());
+            }
+        }
+        return maxModifiedTime;
+    }
+
+    /**
+     * 合并 GrayReleaseRule 们，返回新的缓存，不修改原缓存
+     *
+     * @param base             原缓存
+     * @param grayReleaseRules GrayReleaseRule 们，按编号升序
+     * @return 新的缓存，无变化时返回原缓存
+     */
+    private GrayReleaseRuleState merge(GrayReleaseRuleState base, List<GrayReleaseRule> grayReleaseRules) {
+        if (CollectionUtils.isEmpty(grayReleaseRules)) {
+            return base;
+        }
+        // 发生变化的 KEY 的分支规则，KEY 为 configAppId+configCluster+configNamespace ，VALUE 为 branchName -> GrayReleaseRuleCache
+        Map<String, Map<String, GrayReleaseRuleCache>> changedRules = Maps.newHashMap();
         for (GrayReleaseRule grayReleaseRule : grayReleaseRules) {
             // 无对应的 Release 编号，记未灰度发布，则无视
             if (grayReleaseRule.getReleaseId() == null || grayReleaseRule.getReleaseId() == 0) {
                 // filter rules with no release id, i.e. never released
                 continue;
             }
-            // 创建 `grayReleaseRuleCache` 的 KEY
+            // 创建 KEY
             String key = assembleGrayReleaseRuleKey(grayReleaseRule.getAppId(), grayReleaseRule.getClusterName(), grayReleaseRule.getNamespaceName());
-            // 从缓存 `grayReleaseRuleCache` 读取，并创建数组，避免并发
-            // create a new list to avoid ConcurrentModificationException
-            List<GrayReleaseRuleCache> rules = Lists.newArrayList(grayReleaseRuleCache.get(key));
-            // 获得子 Namespace 对应的老的 GrayReleaseRuleCache 对象
-            GrayReleaseRuleCache oldRule = null;
-            for (GrayReleaseRuleCache ruleCache : rules) {
-                if (ruleCache.getBranchName().equals(grayReleaseRule.getBranchName())) {
-                    oldRule = ruleCache;
-                    break;
+            Map<String, GrayReleaseRuleCache> branchRules = changedRules.computeIfAbsent(key,
+                    k -> Maps.newLinkedHashMap(base.rules.getOrDefault(k, ImmutableMap.of())));
+            // 获得分支对应的老的 GrayReleaseRuleCache 对象
+            GrayReleaseRuleCache oldRule = branchRules.get(grayReleaseRule.getBranchName());
+
+            // 已删除，即被更新的规则替换。若仍在缓存中，移除
+            if (grayReleaseRule.isDeleted()) {
+                if (oldRule != null && oldRule.getRuleId() == grayReleaseRule.getId()) {
+                    branchRules.remove(grayReleaseRule.getBranchName());
                 }
+                continue;
             }
-
             // 忽略，若不存在老的 GrayReleaseRuleCache ，并且当前 GrayReleaseRule 对应的分支不处于激活( 有效 )状态
             // if old rule is null and new rule's branch status is not active, ignore
             if (oldRule == null && grayReleaseRule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
                 continue;
             }
-
-            // 若新的 GrayReleaseRule 为新增或更新，进行缓存更新
-            // use id comparison to avoid synchronization
+            // 仅编号更大的规则替换老的规则，规则记录不会原地修改
+            // use id comparison to avoid stale rules
             if (oldRule == null || grayReleaseRule.getId() > oldRule.getRuleId()) {
-                // 添加新的 GrayReleaseRuleCache 到缓存中
-                addCache(key, transformRuleToRuleCache(grayReleaseRule));
-                // 移除老的 GrayReleaseRuleCache 出缓存中
-                if (oldRule != null) {
-                    removeCache(key, oldRule);
-                }
-            } else {
-                // 老的 GrayReleaseRuleCache 对应的分支处于激活( 有效 )状态，更新加载版本号。
-                // 例如，定时轮询，有可能，早于 `#handleMessage(...)` 拿到对应的新的 GrayReleaseRule 记录，那么此时规则编号是相等的，不符合上面的条件，但是符合这个条件。
-                // 再例如，两次定时轮询，第二次和第一次的规则编号是相等的，不符合上面的条件，但是符合这个条件。
-                if (oldRule.getBranchStatus() == NamespaceBranchStatus.ACTIVE) {
-                    // update load version
-                    oldRule.setLoadVersion(loadVersion.get());
-                // 保留两轮，
-                // 适用于，`GrayReleaseRule.branchStatus` 为 DELETED 或 MERGED 的情况。
-                } else if ((loadVersion.get() - oldRule.getLoadVersion()) > 1) {
-                    // remove outdated inactive branch rule after 2 update cycles
-                    removeCache(key, oldRule);
-                }
+                // 失效分支的规则也保留，避免编号更小的老规则被重新加入，全量同步时移除
+                branchRules.put(grayReleaseRule.getBranchName(), transformRuleToRuleCache(grayReleaseRule));
             }
         }
-    }
-
-    private void addCache(String key, GrayReleaseRuleCache ruleCache) {
-        // 添加到 reversedGrayReleaseRuleCache 中
-        // 为什么这里判断状态？因为删除灰度，或者灰度全量发布的情况下，是无效的，所以不添加到 reversedGrayReleaseRuleCache 中
-        if (ruleCache.getBranchStatus() == NamespaceBranchStatus.ACTIVE) {
-            for (GrayReleaseRuleItemDTO ruleItemDTO : ruleCache.getRuleItems()) {
-                for (String clientIp : ruleItemDTO.getClientIpList()) {
-                    reversedGrayReleaseRuleCache.put(assembleReversedGrayReleaseRuleKey(ruleItemDTO.getClientAppId(), ruleCache.getNamespaceName(), clientIp),
-                            ruleCache.getRuleId());
-                }
-            }
-        }
-        // 添加到 grayReleaseRuleCache
-        // 这里为什么可以添加？因为添加到 grayReleaseRuleCache 中是个对象，可以判断状态
-        grayReleaseRuleCache.put(key, ruleCache);
-    }
-
-    private void removeCache(String key, GrayReleaseRuleCache ruleCache) {
-        // 移除出 grayReleaseRuleCache
-        grayReleaseRuleCache.remove(key, ruleCache);
-        // 移除出 reversedGrayReleaseRuleCache
-        for (GrayReleaseRuleItemDTO ruleItemDTO : ruleCache.getRuleItems()) {
-            for (String clientIp : ruleItemDTO.getClientIpList()) {
-                reversedGrayReleaseRuleCache.remove(assembleReversedGrayReleaseRuleKey(ruleItemDTO.getClientAppId(), ruleCache.getNamespaceName(), clientIp),
-                        ruleCache.getRuleId());
-            }
+        // 过滤未变化的 KEY
+        changedRules.entrySet().removeIf(entry -> entry.getValue().equals(base.rules.getOrDefault(entry.getKey(), ImmutableMap.of())));
+        if (changedRules.isEmpty()) {
+            return base;
         }
+        return base.update(changedRules);
     }
 
     // 将 GrayReleaseRule 转换成 GrayReleaseRuleCache 对象
@@ -299,7 +389,22 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
         // 创建 GrayReleaseRuleCache 对象，并返回
         return new GrayReleaseRuleCache(grayReleaseRule.getId(),
                 grayReleaseRule.getBranchName(), grayReleaseRule.getNamespaceName(), grayReleaseRule
-                .getReleaseId(), grayReleaseRule.getBranchStatus(), loadVersion.get(), ruleItems);
+                .getReleaseId(), grayReleaseRule.getBranchStatus(), ruleItems);
+    }
+
+    // 将 GrayReleaseRuleCache 转换回 GrayReleaseRule 对象，用于保存快照
+    private GrayReleaseRule transformRuleCacheToRule(String key, GrayReleaseRuleCache ruleCache) {
+        List<String> keys = STRING_SPLITTER.splitToList(key);
+        GrayReleaseRule grayReleaseRule = new GrayReleaseRule();
+        grayReleaseRule.setId(ruleCache.getRuleId());
+        grayReleaseRule.setAppId(keys.get(0));
+        grayReleaseRule.setClusterName(keys.get(1));
+        grayReleaseRule.setNamespaceName(ruleCache.getNamespaceName());
+        grayReleaseRule.setBranchName(ruleCache.getBranchName());
+        grayReleaseRule.setRules(GrayReleaseRuleItemTransformer.batchTransformToJSON(ruleCache.getRuleItems()));
+        grayReleaseRule.setReleaseId(ruleCache.getReleaseId());
+        grayReleaseRule.setBranchStatus(ruleCache.getBranchStatus());
+        return grayReleaseRule;
     }
 
     private void populateDataBaseInterval() {
@@ -322,4 +427,119 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
         return STRING_JOINER.join(clientAppId, clientNamespaceName, clientIp);
     }
 
+    /**
+     * 不可变的灰度规则缓存
+     */
+    private static class GrayReleaseRuleState {
+
+        private static final GrayReleaseRuleState EMPTY = new GrayReleaseRuleState(ImmutableMap.of(), ImmutableMap.of(), ImmutableSetMultimap.of());
+
+        /**
+         * KEY：configAppId+configCluster+configNamespace ，通过 {@link GrayReleaseRulesHolder#assembleGrayReleaseRuleKey(String, String, String)} 生成
+         *      注意，KEY 中不包含 BranchName
+         * VALUE：branchName -> GrayReleaseRuleCache ，包括失效分支的规则
+         */
+        //store configAppId+configCluster+configNamespace -> branchName -> GrayReleaseRuleCache map
+        private final ImmutableMap<String, ImmutableMap<String, GrayReleaseRuleCache>> rules;
+        /**
+         * GrayReleaseRuleIndex 缓存，由 `rules` 构建，供 {@link GrayReleaseRulesHolder#findReleaseIdFromGrayReleaseRule} 查询
+         *
+         * KEY：和 `rules` 相同，仅包含存在有效规则的 KEY
+         */
+        //store configAppId+configCluster+configNamespace -> GrayReleaseRuleIndex map
+        private final ImmutableMap<String, GrayReleaseRuleIndex> indexes;
+        /**
+         * KEY：clientAppId+clientNamespace+ip ，通过 {@link GrayReleaseRulesHolder#assembleReversedGrayReleaseRuleKey(String, String, String)} 生成
+         *      注意，KEY 中不包含 ClusterName
+         * VALUE：有效的 {@link GrayReleaseRule#id} 数组
+         */
+        //store clientAppId+clientNamespace+ip -> ruleId map
+        private final ImmutableSetMultimap<String, Long> reversedRules;
+
+        private GrayReleaseRuleState(ImmutableMap<String, ImmutableMap<String, GrayReleaseRuleCache>> rules,
+                                     ImmutableMap<String, GrayReleaseRuleIndex> indexes,
+                                     ImmutableSetMultimap<String, Long> reversedRules) {
+            this.rules = rules;
+            this.indexes = indexes;
+            this.reversedRules = reversedRules;
+        }
+
+        /**
+         * 复制并替换 KEY 对应的分支规则
+         *
+         * @param changedRules KEY 对应的新的分支规则，为空时移除 KEY
+         * @return 新的缓存
+         */
+        private GrayReleaseRuleState update(Map<String, Map<String, GrayReleaseRuleCache>> changedRules) {
+            Map<String, ImmutableMap<String, GrayReleaseRuleCache>> newRules = Maps.newHashMap(rules);
+            Map<String, GrayReleaseRuleIndex> newIndexes = Maps.newHashMap(indexes);
+            SetMultimap<String, Long> newReversedRules = HashMultimap.create(reversedRules);
+            for (Map.Entry<String, Map<String, GrayReleaseRuleCache>> entry : changedRules.entrySet()) {
+                String key = entry.getKey();
+                // 移除老的规则
+                ImmutableMap<String, GrayReleaseRuleCache> oldBranchRules = rules.get(key);
+                if (oldBranchRules != null) {
+                    for (GrayReleaseRuleCache ruleCache : oldBranchRules.values()) {
+                        forEachReversedKey(ruleCache, reversedKey -> newReversedRules.remove(reversedKey, ruleCache.getRuleId()));
+                    }
+                }
+                newRules.remove(key);
+                newIndexes.remove(key);
+                if (entry.getValue().isEmpty()) {
+                    continue;
+                }
+                // 添加新的规则，并重建索引
+                ImmutableMap<String, GrayReleaseRuleCache> branchRules = ImmutableMap.copyOf(entry.getValue());
+                newRules.put(key, branchRules);
+                for (GrayReleaseRuleCache ruleCache : branchRules.values()) {
+                    forEachReversedKey(ruleCache, reversedKey -> newReversedRules.put(reversedKey, ruleCache.getRuleId()));
+                }
+                GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(sortByRuleId(branchRules.values()));
+                if (!index.isEmpty()) {
+                    newIndexes.put(key, index);
+                }
+            }
+            return new GrayReleaseRuleState(ImmutableMap.copyOf(newRules), ImmutableMap.copyOf(newIndexes),
+                    ImmutableSetMultimap.copyOf(newReversedRules));
+        }
+
+        /**
+         * @return 移除失效分支的规则后的缓存
+         */
+        private GrayReleaseRuleState withoutInactiveRules() {
+            Map<String, Map<String, GrayReleaseRuleCache>> changedRules = Maps.newHashMap();
+            for (Map.Entry<String, ImmutableMap<String, GrayReleaseRuleCache>> entry : rules.entrySet()) {
+                Map<String, GrayReleaseRuleCache> activeRules = Maps.filterValues(entry.getValue(),
+                        ruleCache -> ruleCache.getBranchStatus() == NamespaceBranchStatus.ACTIVE);
+                if (activeRules.size() != entry.getValue().size()) {
+                    changedRules.put(entry.getKey(), activeRules);
+                }
+            }
+            return changedRules.isEmpty() ? this : update(changedRules);
+        }
+
+        /**
+         * 为什么这里判断状态？因为删除灰度，或者灰度全量发布的情况下，是无效的，所以不添加到 `reversedRules` 中
+         */
+        private static void forEachReversedKey(GrayReleaseRuleCache ruleCache, Consumer<String> consumer) {
+            if (ruleCache.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
+                return;
+            }
+            for (GrayReleaseRuleItemDTO ruleItemDTO : ruleCache.getRuleItems()) {
+                for (String clientIp : ruleItemDTO.getClientIpList()) {
+                    consumer.accept(STRING_JOINER.join(ruleItemDTO.getClientAppId(), ruleCache.getNamespaceName(), clientIp));
+                }
+            }
+        }
+
+        /**
+         * 按规则编号排序，多条规则匹配时，结果稳定
+         */
+        private static List<GrayReleaseRuleCache> sortByRuleId(Collection<GrayReleaseRuleCache> ruleCaches) {
+            List<GrayReleaseRuleCache> sorted = Lists.newArrayList(ruleCaches);
+            sorted.sort(Comparator.comparingLong(GrayReleaseRuleCache::getRuleId));
+            return sorted;
+        }
+    }
+
 }
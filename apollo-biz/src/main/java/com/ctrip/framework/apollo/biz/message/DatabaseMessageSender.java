@@ -11,6 +11,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.PostConstruct;
 import java.util.List;
@@ -50,6 +52,8 @@ public class DatabaseMessageSender implements MessageSender {
 
     @Autowired
     private ReleaseMessageRepository releaseMessageRepository;
+    @Autowired(required = false)
+    private ReleaseMessageBus releaseMessageBus;
 
     public DatabaseMessageSender() {
         // 创建 ExecutorService 对象
@@ -76,6 +80,8 @@ public class DatabaseMessageSender implements MessageSender {
             ReleaseMessage newMessage = releaseMessageRepository.save(new ReleaseMessage(message));
             // 添加到清理 Message 队列。若队列已满，添加失败，不阻塞等待。
             toClean.offer(newMessage.getId());
+            // 推送给订阅者，减少等待扫描的延迟
+            publish(newMessage, channel);
             // 【TODO 6001】Tracer 日志
             transaction.setStatus(Transaction.SUCCESS);
         } catch (Throwable ex) {
@@ -89,6 +95,25 @@ public class DatabaseMessageSender implements MessageSender {
         }
     }
 
+    /**
+     * 事务提交后，推送 ReleaseMessage 到总线，避免订阅者收到回滚的消息
+     */
+    private void publish(ReleaseMessage message, String channel) {
+        if (releaseMessageBus == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            releaseMessageBus.publish(message, channel);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                releaseMessageBus.publish(message, channel);
+            }
+        });
+    }
+
     @PostConstruct
     private void initialize() {
         cleanExecutorService.submit(() -> {
@@ -0,0 +1,65 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ReleaseMessage 总线实现类，基于 JVM 内存实现。
+ *
+ * 仅在同一进程内推送，适用于 Admin Service 和 Config Service 部署在同一进程的场景，例如 apollo-assembly 。
+ * 不同进程的 Config Service ，仍通过数据库扫描获得 ReleaseMessage 。
+ *
+ * 订阅者们属于该 Bean 。apollo-assembly 中，Admin Service 和 Config Service 是两个兄弟 ApplicationContext ，
+ * 由父 ApplicationContext 创建该 Bean 共享，见 {@link com.ctrip.framework.apollo.biz.ApolloBizConfig} 。
+ */
+public class InProcessReleaseMessageBus implements ReleaseMessageBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(InProcessReleaseMessageBus.class);
+
+    /**
+     * 订阅者数组
+     */
+    private final List<ReleaseMessageListener> listeners = Lists.newCopyOnWriteArrayList();
+    /**
+     * 推送的 ReleaseMessage 数量
+     */
+    private final LongAdder publishedMessages = new LongAdder();
+
+    @Override
+    public void publish(ReleaseMessage message, String channel) {
+        publishedMessages.increment();
+        for (ReleaseMessageListener listener : listeners) {
+            try {
+                listener.handleMessage(message, channel);
+            } catch (Throwable ex) {
+                // 推送失败，等待数据库扫描补偿
+                Tracer.logError(ex);
+                logger.error("Failed to publish message {} to {}", message, listener.getClass(), ex);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(ReleaseMessageListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unsubscribe(ReleaseMessageListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return 推送的 ReleaseMessage 数量
+     */
+    public long getPublishedMessageCount() {
+        return publishedMessages.sum();
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+
+/**
+ * ReleaseMessage 总线接口
+ *
+ * 发送者保存 ReleaseMessage 后，通过总线直接推送给订阅者，无需等待 {@link ReleaseMessageScanner} 的下一次扫描。
+ * 推送不保证送达，数据库扫描仍是可靠的补偿路径。
+ */
+public interface ReleaseMessageBus {
+
+    /**
+     * 推送 ReleaseMessage 给订阅者们
+     *
+     * @param message 已保存的 ReleaseMessage
+     * @param channel 通道（主题）
+     */
+    void publish(ReleaseMessage message, String channel);
+
+    /**
+     * 订阅 ReleaseMessage
+     *
+     * @param listener 订阅者
+     */
+    void subscribe(ReleaseMessageListener listener);
+
+    /**
+     * 取消订阅 ReleaseMessage
+     *
+     * @param listener 订阅者
+     */
+    void unsubscribe(ReleaseMessageListener listener);
+
+}
@@ -17,4 +17,17 @@ public interface ReleaseMessageListener {
      */
     void handleMessage(ReleaseMessage message, String channel);
 
-}
\ No newline at end of file
+    /**
+     * 处理通过 {@link ReleaseMessageBus} 推送的 ReleaseMessage
+     *
+     * 推送的 ReleaseMessage 按提交顺序到达，而非编号顺序，编号更小的 ReleaseMessage 可能尚未提交，稍后才被扫描到。
+     * 依赖编号连续的监听器，需覆盖该方法。默认与扫描到的 ReleaseMessage 相同处理。
+     *
+     * @param message
+     * @param channel 通道（主题）
+     */
+    default void handlePushedMessage(ReleaseMessage message, String channel) {
+        handleMessage(message, channel);
+    }
+
+}
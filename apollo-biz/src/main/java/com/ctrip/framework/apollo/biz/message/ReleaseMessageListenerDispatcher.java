@@ -0,0 +1,193 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReleaseMessageListener 分发器
+ *
+ * 每个 ReleaseMessageListener 一个分发器，拥有自己的队列和单线程，从而：
+ * 1. 同一个监听器，按照 ReleaseMessage 编号顺序处理；
+ * 2. 不同的监听器，互不阻塞。例如，GrayReleaseRulesHolder 的 DB 查询，不会阻塞 ConfigServiceWithCache 的缓存失效；
+ * 3. 若存在上游分发器，等待上游的监听器处理完同一条 ReleaseMessage 后，再处理。例如，客户端通知需等待灰度规则和缓存刷新完成。
+ */
+public class ReleaseMessageListenerDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageListenerDispatcher.class);
+
+    /**
+     * 监听器
+     */
+    private final ReleaseMessageListener listener;
+    /**
+     * 上游分发器们，需先处理完同一条 ReleaseMessage
+     */
+    private final List<ReleaseMessageListenerDispatcher> upstreamDispatchers;
+    /**
+     * 单线程 ExecutorService ，保证同一个监听器的处理顺序
+     */
+    private final ExecutorService executorService;
+    /**
+     * 已分发，但未处理完成的消息数量
+     */
+    private final AtomicInteger backlog;
+    /**
+     * 已分发的消息数量。由于 ReleaseMessageScanner 按相同顺序分发给所有分发器，可用于定位上游处理到的位置
+     */
+    private final AtomicLong dispatchedCount;
+    /**
+     * 已处理完成的消息数量
+     */
+    private long handledCount;
+    /**
+     * {@link #handledCount} 的锁，下游分发器在此等待
+     */
+    private final Object handledLock = new Object();
+    /**
+     * 最后分发的 ReleaseMessage 的编号
+     */
+    private volatile long lastDispatchedMessageId;
+    /**
+     * 最后处理完成的 ReleaseMessage 的编号
+     */
+    private volatile long lastHandledMessageId;
+    /**
+     * 最后处理完成的 ReleaseMessage ，从分发到处理完成的耗时，单位：毫秒
+     */
+    private volatile long lastHandledDelayInMillis;
+    /**
+     * 最后处理完成的 ReleaseMessage ，从保存到处理完成的耗时，单位：毫秒
+     */
+    private volatile long lastHandledLatencyInMillis;
+
+    public ReleaseMessageListenerDispatcher(ReleaseMessageListener listener) {
+        this(listener, Collections.emptyList());
+    }
+
+    public ReleaseMessageListenerDispatcher(ReleaseMessageListener listener,
+                                            List<ReleaseMessageListenerDispatcher> upstreamDispatchers) {
+        this.listener = listener;
+        this.upstreamDispatchers = upstreamDispatchers;
+        this.backlog = new AtomicInteger();
+        this.dispatchedCount = new AtomicLong();
+        this.executorService = Executors.newSingleThreadExecutor(
+                ApolloThreadFactory.create("ReleaseMessageListener-" + listener.getClass().getSimpleName(), true));
+    }
+
+    /**
+     * 分发 ReleaseMessage 到监听器，异步处理
+     *
+     * 上游分发器需先分发同一条 ReleaseMessage ，由 ReleaseMessageScanner 按注册顺序分发保证。
+     *
+     * @param message ReleaseMessage
+     * @param channel 通道（主题）
+     * @param pushed  是否通过 {@link ReleaseMessageBus} 推送
+     */
+    public void dispatch(ReleaseMessage message, String channel, boolean pushed) {
+        long dispatchedTime = System.currentTimeMillis();
+        backlog.incrementAndGet();
+        lastDispatchedMessageId = message.getId();
+        dispatchedCount.incrementAndGet();
+        // 上游分发器已分发的消息数量，其已处理完成的数量达到时，即已处理完本条消息
+        long[] upstreamDispatchedCounts = new long[upstreamDispatchers.size()];
+        for (int i = 0; i < upstreamDispatchedCounts.length; i++) {
+            upstreamDispatchedCounts[i] = upstreamDispatchers.get(i).dispatchedCount.get();
+        }
+        executorService.submit(() -> {
+            try {
+                // 等待上游的监听器处理完成
+                for (int i = 0; i < upstreamDispatchedCounts.length; i++) {
+                    upstreamDispatchers.get(i).awaitHandled(upstreamDispatchedCounts[i]);
+                }
+                // 触发监听器
+                if (pushed) {
+                    listener.handlePushedMessage(message, channel);
+                } else {
+                    listener.handleMessage(message, channel);
+                }
+            } catch (InterruptedException ex) {
+                // 关闭中，不再处理
+                Thread.currentThread().interrupt();
+            } catch (Throwable ex) {
+                Tracer.logError(ex);
+                logger.error("Failed to invoke message listener {}", listener.getClass(), ex);
+            } finally {
+                lastHandledMessageId = message.getId();
+                long handledTime = System.currentTimeMillis();
+                lastHandledDelayInMillis = handledTime - dispatchedTime;
+                if (message.getDataChangeLastModifiedTime() != null) {
+                    lastHandledLatencyInMillis = handledTime - message.getDataChangeLastModifiedTime().getTime();
+                }
+                backlog.decrementAndGet();
+                synchronized (handledLock) {
+                    handledCount++;
+                    handledLock.notifyAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * 等待已处理完成的消息数量达到 count
+     *
+     * @param count 消息数量
+     */
+    private void awaitHandled(long count) throws InterruptedException {
+        synchronized (handledLock) {
+            while (handledCount < count) {
+                handledLock.wait();
+            }
+        }
+    }
+
+    /**
+     * 关闭，未处理的消息被丢弃
+     */
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    public ReleaseMessageListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return 已分发，但未处理完成的消息数量
+     */
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    /**
+     * @return 落后的消息编号差，即最后分发的编号 - 最后处理完成的编号
+     */
+    public long getLag() {
+        return backlog.get() == 0 ? 0 : lastDispatchedMessageId - lastHandledMessageId;
+    }
+
+    public long getLastHandledMessageId() {
+        return lastHandledMessageId;
+    }
+
+    public long getLastHandledDelayInMillis() {
+        return lastHandledDelayInMillis;
+    }
+
+    /**
+     * @return 端到端延迟，即最后处理完成的 ReleaseMessage 从保存到处理完成的耗时
+     */
+    public long getLastHandledLatencyInMillis() {
+        return lastHandledLatencyInMillis;
+    }
+
+}
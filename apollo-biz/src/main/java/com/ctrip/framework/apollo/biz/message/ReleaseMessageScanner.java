@@ -9,21 +9,29 @@ import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * ReleaseMessage 扫描器
  *
+ * 若存在 {@link ReleaseMessageBus} ，订阅推送的 ReleaseMessage ，立即分发给监听器；定时扫描数据库作为补偿，
+ * 已推送的 ReleaseMessage 扫描到时不再分发。
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
-public class ReleaseMessageScanner implements InitializingBean {
+public class ReleaseMessageScanner implements InitializingBean, DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageScanner.class);
 
@@ -31,14 +39,16 @@ public class ReleaseMessageScanner implements InitializingBean {
     private BizConfig bizConfig;
     @Autowired
     private ReleaseMessageRepository releaseMessageRepository;
+    @Autowired(required = false)
+    private ReleaseMessageBus releaseMessageBus;
     /**
      * 从 DB 中扫描 ReleaseMessage 表的频率，单位：毫秒
      */
     private int databaseScanInterval;
     /**
-     * 监听器数组
+     * 监听器分发器数组，每个监听器一个
      */
-    private List<ReleaseMessageListener> listeners;
+    private List<ReleaseMessageListenerDispatcher> dispatchers;
     /**
      * 定时任务服务
      */
@@ -47,10 +57,30 @@ public class ReleaseMessageScanner implements InitializingBean {
      * 最后扫描到的 ReleaseMessage 的编号
      */
     private long maxIdScanned;
+    /**
+     * 已推送，但未扫描到的 ReleaseMessage 的编号们，用于去重
+     */
+    private final NavigableSet<Long> pushedMessageIds = new ConcurrentSkipListSet<>();
+    /**
+     * 订阅 {@link #releaseMessageBus} 的监听器
+     */
+    private final ReleaseMessageListener pushedMessageListener = this::onMessagePushed;
+    /**
+     * 推送和扫描分发的锁，保证同一条 ReleaseMessage 只分发一次
+     */
+    private final Object dispatchLock = new Object();
+    /**
+     * 通过推送分发的 ReleaseMessage 数量
+     */
+    private final LongAdder pushedMessages = new LongAdder();
+    /**
+     * 通过扫描分发的 ReleaseMessage 数量，即未被推送的
+     */
+    private final LongAdder scannedMessages = new LongAdder();
 
     public ReleaseMessageScanner() {
-        // 创建监听器数组
-        listeners = Lists.newCopyOnWriteArrayList();
+        // 创建监听器分发器数组
+        dispatchers = Lists.newCopyOnWriteArrayList();
         // 创建 ScheduledExecutorService 对象
         executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory.create("ReleaseMessageScanner", true));
     }
@@ -61,6 +91,10 @@ public class ReleaseMessageScanner implements InitializingBean {
         databaseScanInterval = bizConfig.releaseMessageScanIntervalInMilli();
         // 获得最大的 ReleaseMessage 的编号
         maxIdScanned = loadLargestMessageId();
+        // 订阅推送的 ReleaseMessage
+        if (releaseMessageBus != null && bizConfig.isReleaseMessageBusEnabled()) {
+            releaseMessageBus.subscribe(pushedMessageListener);
+        }
         // 创建从 DB 中扫描 ReleaseMessage 表的定时任务
         executorService.scheduleWithFixedDelay((Runnable) () -> {
             // 【TODO 6001】Tracer 日志
@@ -81,14 +115,101 @@ public class ReleaseMessageScanner implements InitializingBean {
         }, databaseScanInterval, databaseScanInterval, TimeUnit.MILLISECONDS);
     }
 
+    @Override
+    public void destroy() {
+        if (releaseMessageBus != null) {
+            releaseMessageBus.unsubscribe(pushedMessageListener);
+        }
+        executorService.shutdownNow();
+        for (ReleaseMessageListenerDispatcher dispatcher : dispatchers) {
+            dispatcher.shutdown();
+        }
+    }
+
     /**
      * add message listeners for release message
      *
      * @param listener
      */
     public void addMessageListener(ReleaseMessageListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
+        addMessageListener(listener, Collections.emptyList());
+    }
+
+    /**
+     * 添加监听器，每条 ReleaseMessage 在上游监听器们都处理完成后，才由该监听器处理
+     *
+     * @param listener          监听器
+     * @param upstreamListeners 上游监听器们，需已添加
+     */
+    public synchronized void addMessageListener(ReleaseMessageListener listener,
+                                                List<? extends ReleaseMessageListener> upstreamListeners) {
+        if (findDispatcher(listener) != null) {
+            return;
+        }
+        List<ReleaseMessageListenerDispatcher> upstreamDispatchers = Lists.newArrayList();
+        for (ReleaseMessageListener upstreamListener : upstreamListeners) {
+            ReleaseMessageListenerDispatcher upstreamDispatcher = findDispatcher(upstreamListener);
+            if (upstreamDispatcher == null) {
+                throw new IllegalArgumentException(
+                        String.format("Upstream listener %s is not added", upstreamListener.getClass()));
+            }
+            upstreamDispatchers.add(upstreamDispatcher);
+        }
+        dispatchers.add(new ReleaseMessageListenerDispatcher(listener, upstreamDispatchers));
+    }
+
+    private ReleaseMessageListenerDispatcher findDispatcher(ReleaseMessageListener listener) {
+        for (ReleaseMessageListenerDispatcher dispatcher : dispatchers) {
+            if (dispatcher.getListener() == listener) {
+                return dispatcher;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获得监听器分发器数组，用于查看每个监听器的积压和延迟
+     *
+     * @return 监听器分发器数组
+     */
+    public List<ReleaseMessageListenerDispatcher> getListenerDispatchers() {
+        return Collections.unmodifiableList(dispatchers);
+    }
+
+    /**
+     * @return 通过推送分发的 ReleaseMessage 数量
+     */
+    public long getPushedMessageCount() {
+        return pushedMessages.sum();
+    }
+
+    /**
+     * @return 通过扫描分发的 ReleaseMessage 数量，即未被推送的
+     */
+    public long getScannedMessageCount() {
+        return scannedMessages.sum();
+    }
+
+    /**
+     * 处理推送的 ReleaseMessage ，立即分发。
+     *
+     * 不推进 maxIdScanned ，因为其他进程保存的、编号更小的 ReleaseMessage 可能尚未扫描到。
+     * 推送的 ReleaseMessage 可能先于编号更小的 ReleaseMessage 分发，监听器通过
+     * {@link ReleaseMessageListener#handlePushedMessage(ReleaseMessage, String)} 区分处理。
+     *
+     * @param message ReleaseMessage
+     * @param channel 通道（主题）
+     */
+    private void onMessagePushed(ReleaseMessage message, String channel) {
+        synchronized (dispatchLock) {
+            // 已扫描或已推送，忽略
+            if (message.getId() <= maxIdScanned || !pushedMessageIds.add(message.getId())) {
+                return;
+            }
+            pushedMessages.increment();
+            for (ReleaseMessageListenerDispatcher dispatcher : dispatchers) {
+                dispatcher.dispatch(message, channel, true);
+            }
         }
     }
 
@@ -116,11 +237,15 @@ public class ReleaseMessageScanner implements InitializingBean {
         if (CollectionUtils.isEmpty(releaseMessages)) {
             return false;
         }
-        // 触发监听器
-        fireMessageScanned(releaseMessages);
-        // 获得新的 maxIdScanned ，取最后一条记录
         int messageScanned = releaseMessages.size();
-        maxIdScanned = releaseMessages.get(messageScanned - 1).getId();
+        synchronized (dispatchLock) {
+            // 触发监听器
+            fireMessageScanned(releaseMessages);
+            // 获得新的 maxIdScanned ，取最后一条记录
+            maxIdScanned = releaseMessages.get(messageScanned - 1).getId();
+            // 移除已扫描的推送编号
+            pushedMessageIds.headSet(maxIdScanned, true).clear();
+        }
         // 若拉取不足 500 条，说明无新消息了
         return messageScanned == 500;
     }
@@ -138,20 +263,19 @@ public class ReleaseMessageScanner implements InitializingBean {
     /**
      * Notify listeners with messages loaded
      *
-     * 触发监听器，处理 ReleaseMessage 们
+     * 分发 ReleaseMessage 们到每个监听器的队列，由监听器各自的线程按顺序处理，慢的监听器只阻塞其下游监听器。
      *
      * @param messages ReleaseMessage 们
      */
     private void fireMessageScanned(List<ReleaseMessage> messages) {
         for (ReleaseMessage message : messages) { // 循环 ReleaseMessage
-            for (ReleaseMessageListener listener : listeners) { // 循环 ReleaseMessageListener
-                try {
-                    // 触发监听器
-                    listener.handleMessage(message, Topics.APOLLO_RELEASE_TOPIC);
-                } catch (Throwable ex) {
-                    Tracer.logError(ex);
-                    logger.error("Failed to invoke message listener {}", listener.getClass(), ex);
-                }
+            // 已推送，跳过
+            if (pushedMessageIds.remove(message.getId())) {
+                continue;
+            }
+            scannedMessages.increment();
+            for (ReleaseMessageListenerDispatcher dispatcher : dispatchers) { // 循环 ReleaseMessageListener
+                dispatcher.dispatch(message, Topics.APOLLO_RELEASE_TOPIC, false);
             }
         }
     }
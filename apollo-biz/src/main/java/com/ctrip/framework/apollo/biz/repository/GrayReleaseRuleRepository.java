@@ -2,8 +2,10 @@ package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.GrayReleaseRule;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -17,4 +19,10 @@ public interface GrayReleaseRuleRepository extends PagingAndSortingRepository<Gr
 
   List<GrayReleaseRule> findFirst500ByIdGreaterThanOrderByIdAsc(Long id);
 
+  /**
+   * 获得最后更新时间不早于指定时间的 GrayReleaseRule ，包括已删除的，用于增量同步
+   */
+  @Query(value = "SELECT * FROM GrayReleaseRule WHERE DataChange_LastTime >= ?1 ORDER BY Id", nativeQuery = true)
+  List<GrayReleaseRule> findModifiedSinceIncludingDeleted(Date dataChangeLastModifiedTime);
+
 }
\ No newline at end of file
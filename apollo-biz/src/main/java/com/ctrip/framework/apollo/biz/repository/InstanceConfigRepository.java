@@ -20,12 +20,32 @@ public interface InstanceConfigRepository extends PagingAndSortingRepository<Ins
     InstanceConfig findByInstanceIdAndConfigAppIdAndConfigNamespaceName(long instanceId, String
             configAppId, String configNamespaceName);
 
+    List<InstanceConfig> findByConfigAppIdAndConfigNamespaceNameAndInstanceIdIn(String configAppId, String
+            configNamespaceName, Set<Long> instanceIds);
+
     Page<InstanceConfig> findByReleaseKeyAndDataChangeLastModifiedTimeAfter(String releaseKey, Date
             validDate, Pageable pageable);
 
     Page<InstanceConfig> findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfter(
             String appId, String clusterName, String namespaceName, Date validDate, Pageable pageable);
 
+    /**
+     * 按 InstanceId 游标分页，pageable 只用于限制条数，不执行 count 查询
+     */
+    List<InstanceConfig> findByReleaseKeyAndDataChangeLastModifiedTimeAfterAndInstanceIdGreaterThanOrderByInstanceIdAsc(
+            String releaseKey, Date validDate, long lastInstanceId, Pageable pageable);
+
+    /**
+     * 按 InstanceId 游标分页，pageable 只用于限制条数，不执行 count 查询
+     */
+    List<InstanceConfig> findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfterAndInstanceIdGreaterThanOrderByInstanceIdAsc(
+            String appId, String clusterName, String namespaceName, Date validDate, long lastInstanceId, Pageable pageable);
+
+    long countByReleaseKeyAndDataChangeLastModifiedTimeAfter(String releaseKey, Date validDate);
+
+    long countByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfter(
+            String appId, String clusterName, String namespaceName, Date validDate);
+
     List<InstanceConfig> findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfterAndReleaseKeyNotIn(
             String appId, String clusterName, String namespaceName, Date validDate, Set<String> releaseKey);
 
@@ -48,4 +68,17 @@ public interface InstanceConfigRepository extends PagingAndSortingRepository<Ins
             @Param("clusterName") String clusterName, @Param("namespaceName") String namespaceName,
             @Param("validDate") Date validDate, Pageable pageable);
 
+    @Query(
+            value = "select a.`InstanceId` from `InstanceConfig` a inner join `Instance` b on b.Id =" +
+                    " a.`InstanceId` where a.`ConfigAppId` = :configAppId and a.`ConfigClusterName` = " +
+                    ":clusterName and a.`ConfigNamespaceName` = :namespaceName and a.`DataChange_LastTime` " +
+                    "> :validDate and a.`InstanceId` > :lastInstanceId and b.`AppId` = :instanceAppId " +
+                    "order by a.`InstanceId` limit :size",
+            nativeQuery = true)
+    List<Object> findInstanceIdsByNamespaceAndInstanceAppIdAfter(
+            @Param("instanceAppId") String instanceAppId, @Param("configAppId") String configAppId,
+            @Param("clusterName") String clusterName, @Param("namespaceName") String namespaceName,
+            @Param("validDate") Date validDate, @Param("lastInstanceId") long lastInstanceId,
+            @Param("size") int size);
+
 }
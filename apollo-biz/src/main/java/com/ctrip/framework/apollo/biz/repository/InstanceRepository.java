@@ -4,6 +4,9 @@ import com.ctrip.framework.apollo.biz.entity.Instance;
 
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * Instance Repository
  */
@@ -11,4 +14,6 @@ public interface InstanceRepository extends PagingAndSortingRepository<Instance,
 
     Instance findByAppIdAndClusterNameAndDataCenterAndIp(String appId, String clusterName, String dataCenter, String ip);
 
+    List<Instance> findByAppIdAndClusterNameAndIpIn(String appId, String clusterName, Set<String> ips);
+
 }
\ No newline at end of file
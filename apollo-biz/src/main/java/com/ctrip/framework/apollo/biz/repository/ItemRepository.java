@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -24,6 +25,17 @@ public interface ItemRepository extends PagingAndSortingRepository<Item, Long> {
 
   Item findFirst1ByNamespaceIdOrderByLineNumDesc(Long namespaceId);
 
+  @Query("select distinct i.namespaceId from Item i where i.namespaceId in (?1)")
+  List<Long> findNamespaceIdsWithItems(Collection<Long> namespaceIds);
+
+  /**
+   * 查询 Release 对应的 Namespace 中，在 Release 之后修改的 Item
+   */
+  @Query("select i from Item i, Namespace n, Release r where i.namespaceId = n.id and n.appId = r.appId"
+      + " and n.clusterName = r.clusterName and n.namespaceName = r.namespaceName and r.id in (?1)"
+      + " and i.dataChangeLastModifiedTime > r.dataChangeLastModifiedTime")
+  List<Item> findItemsModifiedAfterReleases(Collection<Long> releaseIds);
+
   @Modifying
   @Query("update Item set isdeleted=1,DataChange_LastModifiedBy = ?2 where namespaceId = ?1")
   int deleteByNamespaceId(long namespaceId, String operator);
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -30,6 +31,13 @@ public interface ReleaseRepository extends PagingAndSortingRepository<Release, L
 
   List<Release> findByIdIn(Set<Long> releaseIds);
 
+  /**
+   * @return 每个 Namespace 最新的有效 Release 编号，元素为 [clusterName, namespaceName, releaseId]
+   */
+  @Query("select r.clusterName, r.namespaceName, max(r.id) from Release r where r.appId = ?1 and r.clusterName in (?2)"
+      + " and r.isAbandoned = false group by r.clusterName, r.namespaceName")
+  List<Object[]> findLatestActiveReleaseIds(String appId, Collection<String> clusterNames);
+
   @Modifying
   @Query("update Release set isdeleted=1,DataChange_LastModifiedBy = ?4 where appId=?1 and clusterName=?2 and namespaceName = ?3")
   int batchDelete(String appId, String clusterName, String namespaceName, String operator);
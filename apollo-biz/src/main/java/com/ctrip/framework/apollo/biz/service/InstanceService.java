@@ -1,21 +1,32 @@
 package com.ctrip.framework.apollo.biz.service;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.repository.InstanceConfigRepository;
 import com.ctrip.framework.apollo.biz.repository.InstanceRepository;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PostConstruct;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -23,17 +34,50 @@ import java.util.stream.Collectors;
  */
 @Service
 public class InstanceService {
+
     @Autowired
     private InstanceRepository instanceRepository;
 
     @Autowired
     private InstanceConfigRepository instanceConfigRepository;
 
+    @Autowired
+    private BizConfig bizConfig;
+
+    /**
+     * 有效的 Instance 数量的缓存，避免每次查看实例列表都执行 count 查询
+     *
+     * KEY：Namespace
+     * VALUE：数量
+     *
+     * 按时间过期后重新统计，而不是维护计数器：InstanceConfig 由 Config Service 创建，InstanceConfig 过期或重新有效
+     * 也不会通知 Admin Service ，无法准确累加。缓存过期前数量可能略有偏差，仅删除 InstanceConfig 时主动失效。
+     * 不缓存 ReleaseKey 的数量，因为发布后实例更新 ReleaseKey ，新旧 ReleaseKey 的数量都会变化。
+     */
+    private Cache<String, Long> instanceCountCache;
+
+    @PostConstruct
+    private void initialize() {
+        instanceCountCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(bizConfig.instanceCountCacheExpireInSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
     public Instance findInstance(String appId, String clusterName, String dataCenter, String ip) {
         return instanceRepository.findByAppIdAndClusterNameAndDataCenterAndIp(appId, clusterName,
                 dataCenter, ip);
     }
 
+    /**
+     * 批量查询同一 App 、同一 Cluster 下，多个 IP 的 Instance
+     */
+    public List<Instance> findInstances(String appId, String clusterName, Set<String> ips) {
+        if (CollectionUtils.isEmpty(ips)) {
+            return Collections.emptyList();
+        }
+        return instanceRepository.findByAppIdAndClusterNameAndIpIn(appId, clusterName, ips);
+    }
+
     public List<Instance> findInstancesByIds(Set<Long> instanceIds) {
         Iterable<Instance> instances = instanceRepository.findAll(instanceIds);
         if (instances == null) {
@@ -49,6 +93,16 @@ public class InstanceService {
         return instanceRepository.save(instance);
     }
 
+    /**
+     * 批量创建 Instance ，在同一事务内 JDBC 批量写入。若任一违反唯一约束，整批回滚。
+     */
+    @Transactional
+    public List<Instance> batchCreateInstances(List<Instance> instances) {
+        instances.forEach(instance -> instance.setId(0)); //protection
+
+        return Lists.newArrayList(instanceRepository.save(instances));
+    }
+
     public InstanceConfig findInstanceConfig(long instanceId, String configAppId, String
             configNamespaceName) {
         return instanceConfigRepository
@@ -56,6 +110,18 @@ public class InstanceService {
                         instanceId, configAppId, configNamespaceName);
     }
 
+    /**
+     * 批量查询多个 Instance ，对同一 Namespace 的 InstanceConfig
+     */
+    public List<InstanceConfig> findInstanceConfigs(Set<Long> instanceIds, String configAppId, String
+            configNamespaceName) {
+        if (CollectionUtils.isEmpty(instanceIds)) {
+            return Collections.emptyList();
+        }
+        return instanceConfigRepository.findByConfigAppIdAndConfigNamespaceNameAndInstanceIdIn(configAppId,
+                configNamespaceName, instanceIds);
+    }
+
     public Page<InstanceConfig> findActiveInstanceConfigsByReleaseKey(String releaseKey, Pageable
             pageable) {
         Page<InstanceConfig> instanceConfigs = instanceConfigRepository
@@ -64,6 +130,90 @@ public class InstanceService {
         return instanceConfigs;
     }
 
+    /**
+     * 按 InstanceId 游标分页，查询使用某 ReleaseKey 的有效 InstanceConfig
+     *
+     * @param lastInstanceId 上一页最大的 InstanceId ，首页传 0
+     * @param size           条数
+     * @return InstanceConfig 的列表，按 InstanceId 升序
+     */
+    public List<InstanceConfig> findActiveInstanceConfigsByReleaseKey(String releaseKey, long lastInstanceId, int size) {
+        return instanceConfigRepository
+                .findByReleaseKeyAndDataChangeLastModifiedTimeAfterAndInstanceIdGreaterThanOrderByInstanceIdAsc(
+                        releaseKey, getValidInstanceConfigDate(), lastInstanceId, new PageRequest(0, size));
+    }
+
+    /**
+     * 统计使用某 ReleaseKey 的有效 InstanceConfig 数量
+     */
+    public long countActiveInstanceConfigsByReleaseKey(String releaseKey) {
+        return instanceConfigRepository.countByReleaseKeyAndDataChangeLastModifiedTimeAfter(releaseKey,
+                getValidInstanceConfigDate());
+    }
+
+    /**
+     * 按 InstanceId 游标分页，查询 Namespace 下有效的 Instance
+     *
+     * @param lastInstanceId 上一页最大的 InstanceId ，首页传 0
+     * @param size           条数
+     * @return Instance 的列表，按编号升序
+     */
+    public List<Instance> findInstancesByNamespace(String appId, String clusterName, String namespaceName,
+                                                   long lastInstanceId, int size) {
+        List<InstanceConfig> instanceConfigs = instanceConfigRepository
+                .findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfterAndInstanceIdGreaterThanOrderByInstanceIdAsc(
+                        appId, clusterName, namespaceName, getValidInstanceConfigDate(), lastInstanceId,
+                        new PageRequest(0, size));
+        if (CollectionUtils.isEmpty(instanceConfigs)) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> instanceIds = instanceConfigs.stream().map(InstanceConfig::getInstanceId).collect(Collectors.toSet());
+        return findInstancesByIdsOrderById(instanceIds);
+    }
+
+    /**
+     * 按 InstanceId 游标分页，查询 Namespace 下某 App 的有效的 Instance
+     *
+     * @param lastInstanceId 上一页最大的 InstanceId ，首页传 0
+     * @param size           条数
+     * @return Instance 的列表，按编号升序
+     */
+    public List<Instance> findInstancesByNamespaceAndInstanceAppId(String instanceAppId, String appId,
+                                                                   String clusterName, String namespaceName,
+                                                                   long lastInstanceId, int size) {
+        List<Object> instanceIdResult = instanceConfigRepository
+                .findInstanceIdsByNamespaceAndInstanceAppIdAfter(instanceAppId, appId, clusterName,
+                        namespaceName, getValidInstanceConfigDate(), lastInstanceId, size);
+        if (CollectionUtils.isEmpty(instanceIdResult)) {
+            return Collections.emptyList();
+        }
+        return findInstancesByIdsOrderById(toInstanceIds(instanceIdResult));
+    }
+
+    /**
+     * 统计 Namespace 下有效的 Instance 数量，结果缓存
+     */
+    public long countInstancesByNamespace(String appId, String clusterName, String namespaceName) {
+        return getInstanceCount(ReleaseMessageKeyGenerator.generate(appId, clusterName, namespaceName), () ->
+                instanceConfigRepository.countByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfter(
+                        appId, clusterName, namespaceName, getValidInstanceConfigDate()));
+    }
+
+    private long getInstanceCount(String key, Callable<Long> counter) {
+        try {
+            return instanceCountCache.get(key, counter);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(String.format("Count instances for %s failed", key), ex.getCause());
+        }
+    }
+
+    private List<Instance> findInstancesByIdsOrderById(Set<Long> instanceIds) {
+        List<Instance> instances = findInstancesByIds(instanceIds);
+        instances.sort(Comparator.comparingLong(Instance::getId));
+        return instances;
+    }
+
     public Page<Instance> findInstancesByNamespace(String appId, String clusterName, String
             namespaceName, Pageable pageable) {
         Page<InstanceConfig> instanceConfigs = instanceConfigRepository.
@@ -90,30 +240,33 @@ public class InstanceService {
 
         List<Instance> instances = Collections.emptyList();
         if (instanceIdResult.hasContent()) {
-            Set<Long> instanceIds = instanceIdResult.getContent().stream().map((Object o) -> {
-                if (o == null) {
-                    return null;
-                }
+            instances = findInstancesByIds(toInstanceIds(instanceIdResult.getContent()));
+        }
 
-                if (o instanceof Integer) {
-                    return ((Integer) o).longValue();
-                }
+        return new PageImpl<>(instances, pageable, instanceIdResult.getTotalElements());
+    }
 
-                if (o instanceof Long) {
-                    return (Long) o;
-                }
+    private Set<Long> toInstanceIds(List<?> instanceIdResult) {
+        return instanceIdResult.stream().map((Object o) -> {
+            if (o == null) {
+                return null;
+            }
 
-                //for h2 test
-                if (o instanceof BigInteger) {
-                    return ((BigInteger) o).longValue();
-                }
+            if (o instanceof Integer) {
+                return ((Integer) o).longValue();
+            }
 
-                return null;
-            }).filter((Long value) -> value != null).collect(Collectors.toSet());
-            instances = findInstancesByIds(instanceIds);
-        }
+            if (o instanceof Long) {
+                return (Long) o;
+            }
 
-        return new PageImpl<>(instances, pageable, instanceIdResult.getTotalElements());
+            //for h2 test
+            if (o instanceof BigInteger) {
+                return ((BigInteger) o).longValue();
+            }
+
+            return null;
+        }).filter((Long value) -> value != null).collect(Collectors.toSet());
     }
 
     public List<InstanceConfig> findInstanceConfigsByNamespaceWithReleaseKeysNotIn(String appId,
@@ -166,8 +319,62 @@ public class InstanceService {
         return instanceConfigRepository.save(existedInstanceConfig);
     }
 
+    /**
+     * 批量创建 InstanceConfig ，在同一事务内 JDBC 批量写入。若任一违反唯一约束，整批回滚。
+     */
+    @Transactional
+    public List<InstanceConfig> batchCreateInstanceConfigs(List<InstanceConfig> instanceConfigs) {
+        instanceConfigs.forEach(instanceConfig -> instanceConfig.setId(0)); //protection
+
+        return Lists.newArrayList(instanceConfigRepository.save(instanceConfigs));
+    }
+
+    /**
+     * 事务提交后执行，无事务时立即执行
+     */
+    private void runAfterCommit(Runnable runnable) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                runnable.run();
+            }
+        });
+    }
+
+    /**
+     * 批量更新 InstanceConfig ，多行查询已存在的记录，在同一事务内 JDBC 批量更新。
+     */
+    @Transactional
+    public List<InstanceConfig> batchUpdateInstanceConfigs(List<InstanceConfig> instanceConfigs) {
+        Set<Long> ids = instanceConfigs.stream().map(InstanceConfig::getId).collect(Collectors.toSet());
+        Map<Long, InstanceConfig> existedInstanceConfigs = Lists.newArrayList(instanceConfigRepository.findAll(ids))
+                .stream().collect(Collectors.toMap(InstanceConfig::getId, instanceConfig -> instanceConfig));
+
+        for (InstanceConfig instanceConfig : instanceConfigs) {
+            InstanceConfig existedInstanceConfig = existedInstanceConfigs.get(instanceConfig.getId());
+            Preconditions.checkArgument(existedInstanceConfig != null, String.format(
+                    "Instance config %d doesn't exist", instanceConfig.getId()));
+
+            existedInstanceConfig.setConfigClusterName(instanceConfig.getConfigClusterName());
+            existedInstanceConfig.setReleaseKey(instanceConfig.getReleaseKey());
+            existedInstanceConfig.setReleaseDeliveryTime(instanceConfig.getReleaseDeliveryTime());
+            existedInstanceConfig.setDataChangeLastModifiedTime(instanceConfig
+                    .getDataChangeLastModifiedTime());
+        }
+
+        return Lists.newArrayList(instanceConfigRepository.save(existedInstanceConfigs.values()));
+    }
+
     @Transactional
     public int batchDeleteInstanceConfig(String configAppId, String configClusterName, String configNamespaceName) {
-        return instanceConfigRepository.batchDelete(configAppId, configClusterName, configNamespaceName);
+        int deleted = instanceConfigRepository.batchDelete(configAppId, configClusterName, configNamespaceName);
+        // 事务提交后才失效，避免提交前被重新统计并缓存删除前的数量
+        runAfterCommit(() -> instanceCountCache.invalidate(
+                ReleaseMessageKeyGenerator.generate(configAppId, configClusterName, configNamespaceName)));
+        return deleted;
     }
 }
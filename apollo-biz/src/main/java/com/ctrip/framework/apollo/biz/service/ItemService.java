@@ -9,14 +9,18 @@ import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
+import com.google.common.collect.Sets;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Item Service
@@ -119,6 +123,26 @@ public class ItemService {
         return itemRepository.findByNamespaceIdAndDataChangeLastModifiedTimeGreaterThan(namespaceId, date);
     }
 
+    /**
+     * @return 有 Item 的 Namespace 编号的集合
+     */
+    public Set<Long> findNamespaceIdsWithItems(Collection<Long> namespaceIds) {
+        if (CollectionUtils.isEmpty(namespaceIds)) {
+            return Collections.emptySet();
+        }
+        return Sets.newHashSet(itemRepository.findNamespaceIdsWithItems(namespaceIds));
+    }
+
+    /**
+     * 批量查询多个 Release 对应的 Namespace 中，在 Release 之后修改的 Item
+     */
+    public List<Item> findItemsModifiedAfterReleases(Collection<Long> releaseIds) {
+        if (CollectionUtils.isEmpty(releaseIds)) {
+            return Collections.emptyList();
+        }
+        return itemRepository.findItemsModifiedAfterReleases(releaseIds);
+    }
+
     @Transactional
     public Item save(Item entity) {
         // 校验 Key 长度
@@ -12,7 +12,10 @@ import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
@@ -341,6 +344,14 @@ public class NamespaceService {
         }
     }
 
+    /**
+     * 查询 App 下每个 Cluster 是否有未发布的修改
+     *
+     * 批量查询所有 Namespace 最新的有效 Release 及之后修改的 Item ，只解析有修改的 Namespace 的发布配置，
+     * 避免每个 Namespace 各自查询。
+     *
+     * @return KEY：Cluster 名，VALUE：是否有未发布的修改
+     */
     public Map<String, Boolean> namespacePublishInfo(String appId) {
         List<Cluster> clusters = clusterService.findParentClusters(appId);
         if (CollectionUtils.isEmpty(clusters)) {
@@ -348,43 +359,72 @@ public class NamespaceService {
         }
 
         Map<String, Boolean> clusterHasNotPublishedItems = Maps.newHashMap();
-
         for (Cluster cluster : clusters) {
-            String clusterName = cluster.getName();
-            List<Namespace> namespaces = findNamespaces(appId, clusterName);
+            clusterHasNotPublishedItems.put(cluster.getName(), false);
+        }
 
-            for (Namespace namespace : namespaces) {
-                boolean isNamespaceNotPublished = isNamespaceNotPublished(namespace);
+        List<Namespace> namespaces = namespaceRepository.findByAppIdAndClusterNameInOrderByIdAsc(appId,
+                clusterHasNotPublishedItems.keySet());
+        if (CollectionUtils.isEmpty(namespaces)) {
+            return clusterHasNotPublishedItems;
+        }
 
-                if (isNamespaceNotPublished) {
-                    clusterHasNotPublishedItems.put(clusterName, true);
-                    break;
-                }
+        Set<Long> notPublishedNamespaceIds = findNotPublishedNamespaceIds(appId, clusterHasNotPublishedItems.keySet(),
+                namespaces);
+        for (Namespace namespace : namespaces) {
+            if (notPublishedNamespaceIds.contains(namespace.getId())) {
+                clusterHasNotPublishedItems.put(namespace.getClusterName(), true);
             }
-
-            clusterHasNotPublishedItems.putIfAbsent(clusterName, false);
         }
 
         return clusterHasNotPublishedItems;
     }
 
-    private boolean isNamespaceNotPublished(Namespace namespace) {
-
-        Release latestRelease = releaseService.findLatestActiveRelease(namespace);
-        long namespaceId = namespace.getId();
+    private Set<Long> findNotPublishedNamespaceIds(String appId, Set<String> clusterNames, List<Namespace> namespaces) {
+        Map<String, Long> latestReleaseIds = releaseService.findLatestActiveReleaseIds(appId, clusterNames);
 
-        if (latestRelease == null) {
-            Item lastItem = itemService.findLastOne(namespaceId);
-            return lastItem != null;
+        // Release 编号 => Namespace 编号
+        Map<Long, Long> releasedNamespaceIds = Maps.newHashMap();
+        Set<Long> neverReleasedNamespaceIds = Sets.newHashSet();
+        for (Namespace namespace : namespaces) {
+            Long releaseId = latestReleaseIds.get(ReleaseMessageKeyGenerator.generate(namespace.getAppId(),
+                    namespace.getClusterName(), namespace.getNamespaceName()));
+            if (releaseId == null) {
+                neverReleasedNamespaceIds.add(namespace.getId());
+            } else {
+                releasedNamespaceIds.put(releaseId, namespace.getId());
+            }
         }
 
-        Date lastPublishTime = latestRelease.getDataChangeLastModifiedTime();
-        List<Item> itemsModifiedAfterLastPublish = itemService.findItemsModifiedAfterDate(namespaceId, lastPublishTime);
+        // 从未发布的 Namespace ，有 Item 即为未发布
+        Set<Long> notPublishedNamespaceIds = Sets.newHashSet(itemService.findNamespaceIdsWithItems(neverReleasedNamespaceIds));
 
+        // 发布过的 Namespace ，发布之后修改的 Item 与发布的值不同即为未发布
+        List<Item> itemsModifiedAfterLastPublish = itemService.findItemsModifiedAfterReleases(releasedNamespaceIds.keySet());
         if (CollectionUtils.isEmpty(itemsModifiedAfterLastPublish)) {
-            return false;
+            return notPublishedNamespaceIds;
+        }
+
+        Multimap<Long, Item> modifiedItems = ArrayListMultimap.create();
+        for (Item item : itemsModifiedAfterLastPublish) {
+            modifiedItems.put(item.getNamespaceId(), item);
         }
 
+        Set<Long> modifiedReleaseIds = releasedNamespaceIds.entrySet().stream()
+                .filter(entry -> modifiedItems.containsKey(entry.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        for (Release release : releaseService.findByReleaseIds(modifiedReleaseIds)) {
+            long namespaceId = releasedNamespaceIds.get(release.getId());
+            if (hasItemNotPublished(release, modifiedItems.get(namespaceId))) {
+                notPublishedNamespaceIds.add(namespaceId);
+            }
+        }
+
+        return notPublishedNamespaceIds;
+    }
+
+    private boolean hasItemNotPublished(Release latestRelease, Collection<Item> itemsModifiedAfterLastPublish) {
         Map<String, String> publishedConfiguration = gson.fromJson(latestRelease.getConfigurations(), GsonType.CONFIG);
         for (Item item : itemsModifiedAfterLastPublish) {
             if (!Objects.equals(item.getValue(), publishedConfiguration.get(item.getKey()))) {
@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.biz.service;
 import com.ctrip.framework.apollo.biz.entity.*;
 import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
 import com.ctrip.framework.apollo.biz.utils.ReleaseKeyGenerator;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
 import com.ctrip.framework.apollo.common.constants.ReleaseOperationContext;
@@ -79,6 +80,23 @@ public class ReleaseService {
                 clusterName, namespaceName); // IsAbandoned = False && Id DESC
     }
 
+    /**
+     * 批量查询 App 下多个 Cluster 中，每个 Namespace 最新的有效 Release 编号
+     *
+     * @return KEY：{@link ReleaseMessageKeyGenerator#generate(String, String, String)} ，VALUE：Release 编号
+     */
+    public Map<String, Long> findLatestActiveReleaseIds(String appId, Collection<String> clusterNames) {
+        if (CollectionUtils.isEmpty(clusterNames)) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> releaseIds = Maps.newHashMap();
+        for (Object[] row : releaseRepository.findLatestActiveReleaseIds(appId, clusterNames)) {
+            releaseIds.put(ReleaseMessageKeyGenerator.generate(appId, (String) row[0], (String) row[1]),
+                    ((Number) row[2]).longValue());
+        }
+        return releaseIds;
+    }
+
     public List<Release> findAllReleases(String appId, String clusterName, String namespaceName, Pageable page) {
         List<Release> releases = releaseRepository.findByAppIdAndClusterNameAndNamespaceNameOrderByIdDesc(appId,
                 clusterName,
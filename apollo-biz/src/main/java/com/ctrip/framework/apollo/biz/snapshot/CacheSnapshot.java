@@ -0,0 +1,61 @@
+package com.ctrip.framework.apollo.biz.snapshot;
+
+import java.util.List;
+
+/**
+ * 缓存快照
+ *
+ * @param <T> 缓存的对象类型
+ */
+public class CacheSnapshot<T> {
+
+    /**
+     * 快照对应的最大 ReleaseMessage 编号。启动时，从该编号增量同步
+     */
+    private long maxReleaseMessageId;
+    /**
+     * 快照对应的缓存对象的最大编号。例如 AppNamespace 缓存，从该编号增量同步新增的记录
+     */
+    private long maxId;
+    /**
+     * 生成时间
+     */
+    private long timestamp;
+    /**
+     * 缓存的对象
+     */
+    private List<T> entries;
+
+    public CacheSnapshot(long maxReleaseMessageId, long maxId, List<T> entries) {
+        this.maxReleaseMessageId = maxReleaseMessageId;
+        this.maxId = maxId;
+        this.entries = entries;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public long getMaxReleaseMessageId() {
+        return maxReleaseMessageId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<T> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheSnapshot{" +
+                "maxReleaseMessageId=" + maxReleaseMessageId +
+                ", maxId=" + maxId +
+                ", timestamp=" + timestamp +
+                ", entries=" + (entries == null ? 0 : entries.size()) +
+                '}';
+    }
+}
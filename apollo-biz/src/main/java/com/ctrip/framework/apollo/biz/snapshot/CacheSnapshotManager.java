@@ -0,0 +1,204 @@
+package com.ctrip.framework.apollo.biz.snapshot;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.io.File;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 缓存快照管理器
+ *
+ * Config Service 的缓存，启动时都需要从数据库全量加载。开启后，缓存定时以及关闭时，保存快照到本地磁盘。
+ * 重启时，先从快照预热缓存，再从快照记录的编号增量同步，从而减少启动耗时和启动后对数据库的冲击。
+ *
+ * 快照只是加速启动，读取失败时，缓存从数据库全量加载。
+ */
+@Component
+public class CacheSnapshotManager implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheSnapshotManager.class);
+    private static final String SNAPSHOT_FILE_SUFFIX = ".json";
+
+    @Autowired
+    private BizConfig bizConfig;
+    @Autowired
+    private ReleaseMessageRepository releaseMessageRepository;
+
+    /**
+     * 保留毫秒，用于比较更新时间
+     */
+    private final Gson gson = new GsonBuilder()
+            .registerTypeHierarchyAdapter(Date.class, (JsonSerializer<Date>) (src, typeOfSrc, context) -> new JsonPrimitive(src.getTime()))
+            .registerTypeHierarchyAdapter(Date.class, (JsonDeserializer<Date>) (json, typeOfT, context) -> new Date(json.getAsLong()))
+            .create();
+    /**
+     * 快照提供者
+     *
+     * KEY：快照名
+     */
+    private final Map<String, Supplier<CacheSnapshot<?>>> snapshotSuppliers = Maps.newConcurrentMap();
+    private final ScheduledExecutorService scheduledExecutorService =
+            Executors.newScheduledThreadPool(1, ApolloThreadFactory.create("CacheSnapshotManager", true));
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    public boolean isEnabled() {
+        return bizConfig.isConfigServiceCacheSnapshotEnabled();
+    }
+
+    /**
+     * 注册快照，定时以及关闭时保存
+     *
+     * @param name     快照名
+     * @param supplier 生成快照的方法
+     */
+    public void register(String name, Supplier<CacheSnapshot<?>> supplier) {
+        snapshotSuppliers.put(name, supplier);
+        if (scheduled.compareAndSet(false, true)) {
+            int interval = bizConfig.configServiceCacheSnapshotIntervalInMinutes();
+            scheduledExecutorService.scheduleWithFixedDelay(this::saveAll, interval, interval, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * 读取快照
+     *
+     * @param name       快照名
+     * @param entryClass 缓存的对象类型
+     * @return 快照，不存在或读取失败时返回 null
+     */
+    public <T> CacheSnapshot<T> load(String name, Class<T> entryClass) {
+        Path path = snapshotPath(name);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Transaction transaction = Tracer.newTransaction("Apollo.CacheSnapshot", "load." + name);
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Type type = TypeToken.getParameterized(CacheSnapshot.class, entryClass).getType();
+            CacheSnapshot<T> snapshot = gson.fromJson(reader, type);
+            transaction.setStatus(Transaction.SUCCESS);
+            logger.info("Loaded cache snapshot {}: {}", name, snapshot);
+            return snapshot == null || snapshot.getEntries() == null ? null : snapshot;
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            Tracer.logError(ex);
+            logger.warn("Load cache snapshot {} from {} failed, will load from database", name, path, ex);
+            return null;
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    /**
+     * @return 当前最大的 ReleaseMessage 编号，快照在生成前获取，启动时从该编号增量同步
+     */
+    public long findMaxReleaseMessageId() {
+        ReleaseMessage releaseMessage = releaseMessageRepository.findTopByOrderByIdDesc();
+        return releaseMessage == null ? 0 : releaseMessage.getId();
+    }
+
+    /**
+     * 获得编号大于 startId 的 ReleaseMessage 的消息内容，用于失效快照之后发生变化的缓存
+     *
+     * @param startId 快照对应的最大 ReleaseMessage 编号
+     * @return 消息内容的集合，即发生变化的 Watch Key
+     */
+    public Set<String> findMessagesAfter(long startId) {
+        Set<String> messages = Sets.newHashSet();
+        boolean hasMore = true;
+        while (hasMore && !Thread.currentThread().isInterrupted()) {
+            // current batch is 500
+            List<ReleaseMessage> releaseMessages = releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(startId);
+            if (CollectionUtils.isEmpty(releaseMessages)) {
+                break;
+            }
+            for (ReleaseMessage releaseMessage : releaseMessages) {
+                messages.add(releaseMessage.getMessage());
+            }
+            int scanned = releaseMessages.size();
+            startId = releaseMessages.get(scanned - 1).getId();
+            hasMore = scanned == 500;
+        }
+        return messages;
+    }
+
+    /**
+     * 保存所有注册的快照
+     */
+    public void saveAll() {
+        if (!isEnabled()) {
+            return;
+        }
+        for (Map.Entry<String, Supplier<CacheSnapshot<?>>> entry : snapshotSuppliers.entrySet()) {
+            save(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void save(String name, Supplier<CacheSnapshot<?>> supplier) {
+        Transaction transaction = Tracer.newTransaction("Apollo.CacheSnapshot", "save." + name);
+        try {
+            CacheSnapshot<?> snapshot = supplier.get();
+            Path path = snapshotPath(name);
+            Files.createDirectories(path.getParent());
+            // 先写临时文件，再替换，避免读到不完整的快照
+            Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmpPath, StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+            }
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            transaction.setStatus(Transaction.SUCCESS);
+            logger.debug("Saved cache snapshot {}: {}", name, snapshot);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            Tracer.logError(ex);
+            logger.warn("Save cache snapshot {} failed", name, ex);
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    private Path snapshotPath(String name) {
+        return new File(bizConfig.configServiceCacheSnapshotDir(), name + SNAPSHOT_FILE_SUFFIX).toPath();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        scheduledExecutorService.shutdownNow();
+        // 关闭时保存最新的快照
+        saveAll();
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GrayReleaseRuleIndexTest {
+  private long idCounter;
+
+  @Before
+  public void setUp() throws Exception {
+    idCounter = 0;
+  }
+
+  @Test
+  public void testFindReleaseId() throws Exception {
+    String someClientAppId = "someClientAppId";
+    String anotherClientAppId = "anotherClientAppId";
+    String someIp = "1.1.1.1";
+    String anotherIp = "2.2.2.2";
+    long someReleaseId = 1;
+    long anotherReleaseId = 2;
+
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(Lists.newArrayList(
+        assembleRule(someReleaseId, NamespaceBranchStatus.ACTIVE, assembleRuleItem(someClientAppId, someIp)),
+        assembleRule(anotherReleaseId, NamespaceBranchStatus.ACTIVE,
+            assembleRuleItem(anotherClientAppId, GrayReleaseRuleItemDTO.ALL_IP))));
+
+    assertEquals(someReleaseId, index.findReleaseId(someClientAppId, someIp).longValue());
+    assertNull(index.findReleaseId(someClientAppId, anotherIp));
+    assertEquals(anotherReleaseId, index.findReleaseId(anotherClientAppId, someIp).longValue());
+    assertEquals(anotherReleaseId, index.findReleaseId(anotherClientAppId, anotherIp).longValue());
+    assertEquals(anotherReleaseId, index.findReleaseId(anotherClientAppId, null).longValue());
+    assertNull(index.findReleaseId(someClientAppId, null));
+    assertNull(index.findReleaseId(null, someIp));
+    assertNull(index.findReleaseId("yetAnotherClientAppId", someIp));
+  }
+
+  @Test
+  public void testEarlierRuleWins() throws Exception {
+    String someClientAppId = "someClientAppId";
+    String someIp = "1.1.1.1";
+    long wildcardReleaseId = 1;
+    long ipReleaseId = 2;
+
+    GrayReleaseRuleIndex wildcardFirst = GrayReleaseRuleIndex.build(Lists.newArrayList(
+        assembleRule(wildcardReleaseId, NamespaceBranchStatus.ACTIVE,
+            assembleRuleItem(someClientAppId, GrayReleaseRuleItemDTO.ALL_IP)),
+        assembleRule(ipReleaseId, NamespaceBranchStatus.ACTIVE, assembleRuleItem(someClientAppId, someIp))));
+    GrayReleaseRuleIndex ipFirst = GrayReleaseRuleIndex.build(Lists.newArrayList(
+        assembleRule(ipReleaseId, NamespaceBranchStatus.ACTIVE, assembleRuleItem(someClientAppId, someIp)),
+        assembleRule(wildcardReleaseId, NamespaceBranchStatus.ACTIVE,
+            assembleRuleItem(someClientAppId, GrayReleaseRuleItemDTO.ALL_IP))));
+
+    assertEquals(wildcardReleaseId, wildcardFirst.findReleaseId(someClientAppId, someIp).longValue());
+    assertEquals(ipReleaseId, ipFirst.findReleaseId(someClientAppId, someIp).longValue());
+    assertEquals(wildcardReleaseId, ipFirst.findReleaseId(someClientAppId, "2.2.2.2").longValue());
+  }
+
+  @Test
+  public void testInactiveRulesAreNotIndexed() throws Exception {
+    String someClientAppId = "someClientAppId";
+    String someIp = "1.1.1.1";
+
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(Lists.newArrayList(
+        assembleRule(1, NamespaceBranchStatus.DELETED, assembleRuleItem(someClientAppId, someIp)),
+        assembleRule(2, NamespaceBranchStatus.MERGED,
+            assembleRuleItem(someClientAppId, GrayReleaseRuleItemDTO.ALL_IP))));
+
+    assertTrue(index.isEmpty());
+    assertNull(index.findReleaseId(someClientAppId, someIp));
+  }
+
+  /**
+   * Random rule sets with overlapping ips, wildcards and inactive branches, the index must give the same answer as
+   * matching the rules one by one
+   */
+  @Test
+  public void testSameResultAsLinearMatching() throws Exception {
+    Random random = new Random(20180101L);
+    List<String> clientAppIds = Lists.newArrayList("app1", "app2", "app3");
+    List<String> ips = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      ips.add("10.0.0." + i);
+    }
+    int[] branchStatuses = {NamespaceBranchStatus.ACTIVE, NamespaceBranchStatus.ACTIVE, NamespaceBranchStatus.ACTIVE,
+        NamespaceBranchStatus.DELETED, NamespaceBranchStatus.MERGED};
+
+    for (int round = 0; round < 500; round++) {
+      List<GrayReleaseRuleCache> rules = Lists.newArrayList();
+      int ruleCount = 1 + random.nextInt(6);
+      for (int i = 0; i < ruleCount; i++) {
+        Set<GrayReleaseRuleItemDTO> ruleItems = Sets.newHashSet();
+        int itemCount = 1 + random.nextInt(3);
+        for (int j = 0; j < itemCount; j++) {
+          Set<String> clientIps = Sets.newHashSet();
+          if (random.nextInt(5) == 0) {
+            clientIps.add(GrayReleaseRuleItemDTO.ALL_IP);
+          }
+          int ipCount = random.nextInt(5);
+          for (int k = 0; k < ipCount; k++) {
+            clientIps.add(ips.get(random.nextInt(ips.size())));
+          }
+          ruleItems.add(new GrayReleaseRuleItemDTO(clientAppIds.get(random.nextInt(clientAppIds.size())), clientIps));
+        }
+        rules.add(new GrayReleaseRuleCache(++idCounter, "branch" + i, "someNamespace", idCounter,
+            branchStatuses[random.nextInt(branchStatuses.length)], ruleItems));
+      }
+
+      GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(rules);
+
+      for (String clientAppId : clientAppIds) {
+        for (String ip : ips) {
+          assertEquals(linearMatch(rules, clientAppId, ip), index.findReleaseId(clientAppId, ip));
+        }
+        assertEquals(linearMatch(rules, clientAppId, "192.168.0.1"), index.findReleaseId(clientAppId, "192.168.0.1"));
+      }
+    }
+  }
+
+  /**
+   * The matching logic before the index was introduced
+   */
+  private Long linearMatch(List<GrayReleaseRuleCache> rules, String clientAppId, String clientIp) {
+    for (GrayReleaseRuleCache rule : rules) {
+      if (rule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
+        continue;
+      }
+      if (rule.matches(clientAppId, clientIp)) {
+        return rule.getReleaseId();
+      }
+    }
+    return null;
+  }
+
+  private GrayReleaseRuleCache assembleRule(long releaseId, int branchStatus, GrayReleaseRuleItemDTO... ruleItems) {
+    long ruleId = ++idCounter;
+    return new GrayReleaseRuleCache(ruleId, "branch" + ruleId, "someNamespace", releaseId, branchStatus,
+        Sets.newHashSet(ruleItems));
+  }
+
+  private GrayReleaseRuleItemDTO assembleRuleItem(String clientAppId, String... clientIps) {
+    return new GrayReleaseRuleItemDTO(clientAppId, Sets.newHashSet(clientIps));
+  }
+}
@@ -21,6 +21,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
@@ -29,7 +30,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -108,8 +112,8 @@ public class GrayReleaseRulesHolderTest {
         someNamespaceName, Lists.newArrayList(assembleRuleItem(anotherClientAppId, Sets.newHashSet
             (anotherClientIp))), someReleaseId, activeBranchStatus);
 
-    when(grayReleaseRuleRepository.findByAppIdAndClusterNameAndNamespaceName(someAppId,
-        someClusterName, someNamespaceName)).thenReturn(Lists.newArrayList(anotherRule));
+    when(grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(someRule.getId()))
+        .thenReturn(Lists.newArrayList(anotherRule));
 
     //send message
     grayReleaseRulesHolder.handleMessage(assembleReleaseMessage(someAppId, someClusterName,
@@ -133,6 +137,120 @@ public class GrayReleaseRulesHolderTest {
         anotherNamespaceName));
   }
 
+  @Test
+  public void testWildcardRuleAndMergedBranch() throws Exception {
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someNamespaceName = "someNamespaceName";
+    String someClientAppId = "clientAppId1";
+    String someClientIp = "1.1.1.1";
+    Long someReleaseId = 1L;
+
+    GrayReleaseRule someRule = assembleGrayReleaseRule(someAppId, someClusterName, someNamespaceName,
+        Lists.newArrayList(assembleRuleItem(someClientAppId, Sets.newHashSet(GrayReleaseRuleItemDTO.ALL_IP))),
+        someReleaseId, NamespaceBranchStatus.ACTIVE);
+
+    when(grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L))
+        .thenReturn(Lists.newArrayList(someRule));
+
+    grayReleaseRulesHolder.handleMessage(assembleReleaseMessage(someAppId, someClusterName,
+        someNamespaceName), Topics.APOLLO_RELEASE_TOPIC);
+
+    assertEquals(someReleaseId, grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule
+        (someClientAppId, someClientIp, someAppId, someClusterName, someNamespaceName));
+    assertEquals(someReleaseId, grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule
+        (someClientAppId, "2.2.2.2", someAppId, someClusterName, someNamespaceName));
+
+    GrayReleaseRule mergedRule = assembleGrayReleaseRule(someAppId, someClusterName, someNamespaceName,
+        Lists.newArrayList(assembleRuleItem(someClientAppId, Sets.newHashSet(GrayReleaseRuleItemDTO.ALL_IP))),
+        someReleaseId, NamespaceBranchStatus.MERGED);
+
+    when(grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(someRule.getId()))
+        .thenReturn(Lists.newArrayList(mergedRule));
+
+    grayReleaseRulesHolder.handleMessage(assembleReleaseMessage(someAppId, someClusterName,
+        someNamespaceName), Topics.APOLLO_RELEASE_TOPIC);
+
+    assertNull(grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule
+        (someClientAppId, someClientIp, someAppId, someClusterName, someNamespaceName));
+  }
+
+  @Test
+  public void testSyncDeletedRulesIncrementally() throws Exception {
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someNamespaceName = "someNamespaceName";
+    String someClientAppId = "clientAppId1";
+    String someClientIp = "1.1.1.1";
+    Long someReleaseId = 1L;
+
+    GrayReleaseRule someRule = assembleGrayReleaseRule(someAppId, someClusterName, someNamespaceName,
+        Lists.newArrayList(assembleRuleItem(someClientAppId, Sets.newHashSet(someClientIp))),
+        someReleaseId, NamespaceBranchStatus.ACTIVE);
+    someRule.setDataChangeLastModifiedTime(new Date());
+
+    when(bizConfig.grayReleaseRuleScanInterval()).thenReturn(30);
+    when(bizConfig.grayReleaseRuleFullScanIntervalInMinutes()).thenReturn(60);
+    when(grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L))
+        .thenReturn(Lists.newArrayList(someRule));
+
+    grayReleaseRulesHolder.afterPropertiesSet();
+
+    assertEquals(someReleaseId, grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule
+        (someClientAppId, someClientIp, someAppId, someClusterName, someNamespaceName));
+
+    GrayReleaseRule deletedRule = assembleGrayReleaseRule(someAppId, someClusterName, someNamespaceName,
+        Lists.newArrayList(assembleRuleItem(someClientAppId, Sets.newHashSet(someClientIp))),
+        someReleaseId, NamespaceBranchStatus.ACTIVE);
+    deletedRule.setId(someRule.getId());
+    deletedRule.setDeleted(true);
+    deletedRule.setDataChangeLastModifiedTime(new Date());
+
+    when(grayReleaseRuleRepository.findModifiedSinceIncludingDeleted(any(Date.class)))
+        .thenReturn(Lists.newArrayList(deletedRule));
+
+    //incremental sync, no full scan
+    ReflectionTestUtils.invokeMethod(grayReleaseRulesHolder, "periodicScanRules");
+
+    assertNull(grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule
+        (someClientAppId, someClientIp, someAppId, someClusterName, someNamespaceName));
+    assertFalse(grayReleaseRulesHolder.hasGrayReleaseRule(someClientAppId, someClientIp,
+        someNamespaceName));
+    verify(grayReleaseRuleRepository, times(1)).findFirst500ByIdGreaterThanOrderByIdAsc(0L);
+  }
+
+  @Test
+  public void testFullScanReplacesRules() throws Exception {
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someNamespaceName = "someNamespaceName";
+    String someClientAppId = "clientAppId1";
+    String someClientIp = "1.1.1.1";
+    Long someReleaseId = 1L;
+
+    GrayReleaseRule someRule = assembleGrayReleaseRule(someAppId, someClusterName, someNamespaceName,
+        Lists.newArrayList(assembleRuleItem(someClientAppId, Sets.newHashSet(someClientIp))),
+        someReleaseId, NamespaceBranchStatus.ACTIVE);
+
+    when(bizConfig.grayReleaseRuleScanInterval()).thenReturn(30);
+    when(grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L))
+        .thenReturn(Lists.newArrayList(someRule)).thenReturn(Lists.newArrayList());
+
+    grayReleaseRulesHolder.afterPropertiesSet();
+
+    assertTrue(grayReleaseRulesHolder.hasGrayReleaseRule(someClientAppId, someClientIp,
+        someNamespaceName));
+
+    //the rule is gone without any change record, only the full scan could find it out
+    ReflectionTestUtils.setField(grayReleaseRulesHolder, "lastFullScanTime", 0L);
+    ReflectionTestUtils.invokeMethod(grayReleaseRulesHolder, "periodicScanRules");
+
+    assertNull(grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule
+        (someClientAppId, someClientIp, someAppId, someClusterName, someNamespaceName));
+    assertFalse(grayReleaseRulesHolder.hasGrayReleaseRule(someClientAppId, someClientIp,
+        someNamespaceName));
+  }
+
   private GrayReleaseRule assembleGrayReleaseRule(String appId, String clusterName, String
       namespaceName, List<GrayReleaseRuleItemDTO> ruleItems, long releaseId, int branchStatus) {
     GrayReleaseRule rule = new GrayReleaseRule();
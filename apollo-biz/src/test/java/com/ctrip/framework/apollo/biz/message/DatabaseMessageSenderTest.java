@@ -48,6 +48,19 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
     assertEquals(someMessage, captor.getValue().getMessage());
   }
 
+  @Test
+  public void testSendMessageWithBus() throws Exception {
+    String someMessage = "some-message";
+    ReleaseMessage someReleaseMessage = mock(ReleaseMessage.class);
+    ReleaseMessageBus someReleaseMessageBus = mock(ReleaseMessageBus.class);
+    when(releaseMessageRepository.save(any(ReleaseMessage.class))).thenReturn(someReleaseMessage);
+    ReflectionTestUtils.setField(messageSender, "releaseMessageBus", someReleaseMessageBus);
+
+    messageSender.sendMessage(someMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    verify(someReleaseMessageBus, times(1)).publish(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+  }
+
   @Test
   public void testSendUnsupportedMessage() throws Exception {
     String someMessage = "some-message";
@@ -14,9 +14,12 @@ import org.mockito.Mock;
 import org.springframework.core.env.Environment;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.when;
 
 /**
@@ -79,6 +82,144 @@ public class ReleaseMessageScannerTest extends AbstractUnitTest {
 
   }
 
+  @Test
+  public void testPushedMessageDispatchedOnce() throws Exception {
+    int someScanInterval = 500;
+    when(bizConfig.releaseMessageScanIntervalInMilli()).thenReturn(someScanInterval);
+    when(bizConfig.isReleaseMessageBusEnabled()).thenReturn(true);
+    InProcessReleaseMessageBus releaseMessageBus = new InProcessReleaseMessageBus();
+    ReleaseMessageScanner anotherScanner = new ReleaseMessageScanner();
+    ReflectionTestUtils.setField(anotherScanner, "releaseMessageRepository", releaseMessageRepository);
+    ReflectionTestUtils.setField(anotherScanner, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(anotherScanner, "releaseMessageBus", releaseMessageBus);
+    anotherScanner.afterPropertiesSet();
+
+    SettableFuture<ReleaseMessage> someListenerFuture = SettableFuture.create();
+    List<Long> someListenerMessageIds = Lists.newCopyOnWriteArrayList();
+    anotherScanner.addMessageListener((message, channel) -> {
+      someListenerMessageIds.add(message.getId());
+      someListenerFuture.set(message);
+    });
+
+    long someId = 100;
+    ReleaseMessage someReleaseMessage = assembleReleaseMessage(someId, "someMessage");
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+        Lists.newArrayList(someReleaseMessage));
+
+    try {
+      releaseMessageBus.publish(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+      //pushed message is dispatched without waiting for the scan
+      assertEquals(someId, someListenerFuture.get(someScanInterval / 2, TimeUnit.MILLISECONDS).getId());
+
+      //the scan catches up and does not dispatch the pushed message again
+      TimeUnit.MILLISECONDS.sleep(someScanInterval * 2);
+      assertEquals(Lists.newArrayList(someId), someListenerMessageIds);
+      assertEquals(1, anotherScanner.getPushedMessageCount());
+      assertEquals(0, anotherScanner.getScannedMessageCount());
+
+      //messages already scanned are ignored
+      releaseMessageBus.publish(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+      TimeUnit.MILLISECONDS.sleep(100);
+      assertEquals(Lists.newArrayList(someId), someListenerMessageIds);
+    } finally {
+      anotherScanner.destroy();
+    }
+  }
+
+  @Test
+  public void testSlowListenerNotBlockingOtherListeners() throws Exception {
+    CountDownLatch slowListenerLatch = new CountDownLatch(1);
+    List<Long> slowListenerMessageIds = Lists.newCopyOnWriteArrayList();
+    ReleaseMessageListener slowListener = (message, channel) -> {
+      try {
+        slowListenerLatch.await(5000, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        //ignore
+      }
+      slowListenerMessageIds.add(message.getId());
+    };
+    SettableFuture<ReleaseMessage> fastListenerFuture = SettableFuture.create();
+    List<Long> fastListenerMessageIds = Lists.newCopyOnWriteArrayList();
+    ReleaseMessageListener fastListener = (message, channel) -> {
+      fastListenerMessageIds.add(message.getId());
+      if (fastListenerMessageIds.size() == 3) {
+        fastListenerFuture.set(message);
+      }
+    };
+    releaseMessageScanner.addMessageListener(slowListener);
+    releaseMessageScanner.addMessageListener(fastListener);
+
+    long someId = 100;
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+        Lists.newArrayList(assembleReleaseMessage(someId, "someMessage"),
+            assembleReleaseMessage(someId + 1, "anotherMessage"),
+            assembleReleaseMessage(someId + 2, "yetAnotherMessage")));
+
+    //the fast listener receives all messages while the slow listener is still handling the first one
+    assertEquals(someId + 2, fastListenerFuture.get(5000, TimeUnit.MILLISECONDS).getId());
+    assertEquals(Lists.newArrayList(someId, someId + 1, someId + 2), fastListenerMessageIds);
+
+    ReleaseMessageListenerDispatcher slowDispatcher = releaseMessageScanner.getListenerDispatchers().get(0);
+    assertEquals(3, slowDispatcher.getBacklog());
+    assertEquals(someId + 2, slowDispatcher.getLag() + slowDispatcher.getLastHandledMessageId());
+
+    slowListenerLatch.countDown();
+    TimeUnit.MILLISECONDS.sleep(100);
+
+    //the slow listener still handles the messages in order
+    assertEquals(Lists.newArrayList(someId, someId + 1, someId + 2), slowListenerMessageIds);
+    assertEquals(0, slowDispatcher.getBacklog());
+    assertEquals(0, slowDispatcher.getLag());
+    assertEquals(someId + 2, slowDispatcher.getLastHandledMessageId());
+  }
+
+  @Test
+  public void testDownstreamListenerWaitsForUpstreamListeners() throws Exception {
+    CountDownLatch upstreamListenerLatch = new CountDownLatch(1);
+    List<Long> upstreamListenerMessageIds = Lists.newCopyOnWriteArrayList();
+    ReleaseMessageListener upstreamListener = (message, channel) -> {
+      try {
+        upstreamListenerLatch.await(5000, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        //ignore
+      }
+      upstreamListenerMessageIds.add(message.getId());
+    };
+    List<Long> handledByUpstreamFirst = Lists.newCopyOnWriteArrayList();
+    SettableFuture<ReleaseMessage> downstreamListenerFuture = SettableFuture.create();
+    ReleaseMessageListener downstreamListener = (message, channel) -> {
+      if (upstreamListenerMessageIds.contains(message.getId())) {
+        handledByUpstreamFirst.add(message.getId());
+      }
+      downstreamListenerFuture.set(message);
+    };
+    releaseMessageScanner.addMessageListener(upstreamListener);
+    releaseMessageScanner.addMessageListener(downstreamListener, Lists.newArrayList(upstreamListener));
+
+    long someId = 100;
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+        Lists.newArrayList(assembleReleaseMessage(someId, "someMessage")));
+
+    TimeUnit.MILLISECONDS.sleep(databaseScanInterval * 3);
+    assertFalse(downstreamListenerFuture.isDone());
+
+    upstreamListenerLatch.countDown();
+
+    assertEquals(someId, downstreamListenerFuture.get(5000, TimeUnit.MILLISECONDS).getId());
+    assertEquals(Lists.newArrayList(someId), handledByUpstreamFirst);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddMessageListenerWithUnknownUpstreamListener() throws Exception {
+    ReleaseMessageListener someListener = (message, channel) -> {
+    };
+    ReleaseMessageListener anotherListener = (message, channel) -> {
+    };
+
+    releaseMessageScanner.addMessageListener(someListener, Lists.newArrayList(anotherListener));
+  }
+
   private ReleaseMessage assembleReleaseMessage(long id, String message) {
     ReleaseMessage releaseMessage = new ReleaseMessage();
     releaseMessage.setId(id);
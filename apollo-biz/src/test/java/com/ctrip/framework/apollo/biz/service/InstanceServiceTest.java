@@ -110,6 +110,66 @@ public class InstanceServiceTest extends AbstractIntegrationTest {
     assertEquals(anotherReleaseKey, updated.getReleaseKey());
   }
 
+  @Test
+  @Rollback
+  public void testBatchCreateAndFindInstances() throws Exception {
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someDataCenter = "someDataCenter";
+    String someIp = "someIp";
+    String anotherIp = "anotherIp";
+    String yetAnotherIp = "yetAnotherIp";
+
+    List<Instance> created = instanceService.batchCreateInstances(Lists.newArrayList(
+        assembleInstance(someAppId, someClusterName, someDataCenter, someIp),
+        assembleInstance(someAppId, someClusterName, someDataCenter, anotherIp)));
+
+    assertEquals(2, created.size());
+    created.forEach(instance -> assertNotEquals(0, instance.getId()));
+
+    List<Instance> instances = instanceService.findInstances(someAppId, someClusterName,
+        Sets.newHashSet(someIp, anotherIp, yetAnotherIp));
+
+    Set<String> ips = instances.stream().map(Instance::getIp).collect(Collectors.toSet());
+    assertEquals(Sets.newHashSet(someIp, anotherIp), ips);
+  }
+
+  @Test
+  @Rollback
+  public void testBatchCreateUpdateAndFindInstanceConfigs() throws Exception {
+    long someInstanceId = 1;
+    long anotherInstanceId = 2;
+    String someConfigAppId = "someConfigAppId";
+    String someConfigClusterName = "someConfigClusterName";
+    String someConfigNamespaceName = "someConfigNamespaceName";
+    String anotherConfigNamespaceName = "anotherConfigNamespaceName";
+    String someReleaseKey = "someReleaseKey";
+    String anotherReleaseKey = "anotherReleaseKey";
+
+    instanceService.batchCreateInstanceConfigs(Lists.newArrayList(
+        assembleInstanceConfig(someInstanceId, someConfigAppId, someConfigClusterName,
+            someConfigNamespaceName, someReleaseKey),
+        assembleInstanceConfig(anotherInstanceId, someConfigAppId, someConfigClusterName,
+            someConfigNamespaceName, someReleaseKey),
+        assembleInstanceConfig(someInstanceId, someConfigAppId, someConfigClusterName,
+            anotherConfigNamespaceName, someReleaseKey)));
+
+    List<InstanceConfig> instanceConfigs = instanceService.findInstanceConfigs(
+        Sets.newHashSet(someInstanceId, anotherInstanceId), someConfigAppId, someConfigNamespaceName);
+
+    assertEquals(2, instanceConfigs.size());
+
+    instanceConfigs.forEach(instanceConfig -> instanceConfig.setReleaseKey(anotherReleaseKey));
+    instanceService.batchUpdateInstanceConfigs(instanceConfigs);
+
+    assertEquals(anotherReleaseKey, instanceService.findInstanceConfig(someInstanceId,
+        someConfigAppId, someConfigNamespaceName).getReleaseKey());
+    assertEquals(anotherReleaseKey, instanceService.findInstanceConfig(anotherInstanceId,
+        someConfigAppId, someConfigNamespaceName).getReleaseKey());
+    assertEquals(someReleaseKey, instanceService.findInstanceConfig(someInstanceId,
+        someConfigAppId, anotherConfigNamespaceName).getReleaseKey());
+  }
+
   @Test
   @Rollback
   public void testFindActiveInstanceConfigs() throws Exception {
@@ -170,6 +230,101 @@ public class InstanceServiceTest extends AbstractIntegrationTest {
     assertEquals(Lists.newArrayList(someInstance, anotherInstance), result.getContent());
   }
 
+  @Test
+  @Rollback
+  public void testFindInstancesByNamespaceWithLastInstanceId() throws Exception {
+    String someConfigAppId = "someConfigAppId";
+    String someConfigClusterName = "someConfigClusterName";
+    String someConfigNamespaceName = "someKeysetNamespaceName";
+    String someReleaseKey = "someReleaseKey";
+    Date someValidDate = new Date();
+    Calendar calendar = Calendar.getInstance();
+    calendar.add(Calendar.DATE, -2);
+    Date someInvalidDate = calendar.getTime();
+
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someDataCenter = "someDataCenter";
+
+    Instance someInstance = instanceService.createInstance(assembleInstance(someAppId,
+        someClusterName, someDataCenter, "someIp"));
+    Instance anotherInstance = instanceService.createInstance(assembleInstance(someAppId,
+        someClusterName, someDataCenter, "anotherIp"));
+    Instance yetAnotherInstance = instanceService.createInstance(assembleInstance(someAppId,
+        someClusterName, someDataCenter, "yetAnotherIp"));
+    Instance expiredInstance = instanceService.createInstance(assembleInstance(someAppId,
+        someClusterName, someDataCenter, "expiredIp"));
+
+    prepareInstanceConfigForInstance(someInstance.getId(), someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someValidDate);
+    prepareInstanceConfigForInstance(anotherInstance.getId(), someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someValidDate);
+    prepareInstanceConfigForInstance(expiredInstance.getId(), someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someInvalidDate);
+    prepareInstanceConfigForInstance(yetAnotherInstance.getId(), someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someValidDate);
+
+    List<Instance> firstPage = instanceService.findInstancesByNamespace(someConfigAppId,
+        someConfigClusterName, someConfigNamespaceName, 0, 2);
+    List<Instance> secondPage = instanceService.findInstancesByNamespace(someConfigAppId,
+        someConfigClusterName, someConfigNamespaceName, anotherInstance.getId(), 2);
+    List<InstanceConfig> releaseInstanceConfigs = instanceService.findActiveInstanceConfigsByReleaseKey(
+        someReleaseKey, someInstance.getId(), 10);
+
+    assertEquals(Lists.newArrayList(someInstance, anotherInstance), firstPage);
+    assertEquals(Lists.newArrayList(yetAnotherInstance), secondPage);
+    assertEquals(Lists.newArrayList(anotherInstance.getId(), yetAnotherInstance.getId()),
+        releaseInstanceConfigs.stream().map(InstanceConfig::getInstanceId).collect(Collectors.toList()));
+    assertEquals(3, instanceService.countInstancesByNamespace(someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName));
+    assertEquals(3, instanceService.countActiveInstanceConfigsByReleaseKey(someReleaseKey));
+
+    //release key counts are not cached, instances switching to the release key are counted at once
+    Instance newInstance = instanceService.createInstance(assembleInstance(someAppId,
+        someClusterName, someDataCenter, "newIp"));
+    prepareInstanceConfigForInstance(newInstance.getId(), someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someValidDate);
+
+    assertEquals(4, instanceService.countActiveInstanceConfigsByReleaseKey(someReleaseKey));
+  }
+
+  @Test
+  @Rollback
+  public void testFindInstancesByNamespaceAndInstanceAppIdWithLastInstanceId() throws Exception {
+    String someConfigAppId = "someConfigAppId";
+    String someConfigClusterName = "someConfigClusterName";
+    String someConfigNamespaceName = "someConfigNamespaceName";
+    String someReleaseKey = "someReleaseKey";
+    Date someValidDate = new Date();
+
+    String someAppId = "someAppId";
+    String anotherAppId = "anotherAppId";
+    String someClusterName = "someClusterName";
+    String someDataCenter = "someDataCenter";
+
+    Instance someInstance = instanceService.createInstance(assembleInstance(someAppId,
+        someClusterName, someDataCenter, "someIp"));
+    Instance anotherInstance = instanceService.createInstance(assembleInstance(anotherAppId,
+        someClusterName, someDataCenter, "someIp"));
+    Instance yetAnotherInstance = instanceService.createInstance(assembleInstance(someAppId,
+        someClusterName, someDataCenter, "anotherIp"));
+
+    prepareInstanceConfigForInstance(someInstance.getId(), someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someValidDate);
+    prepareInstanceConfigForInstance(anotherInstance.getId(), someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someValidDate);
+    prepareInstanceConfigForInstance(yetAnotherInstance.getId(), someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someValidDate);
+
+    List<Instance> firstPage = instanceService.findInstancesByNamespaceAndInstanceAppId(someAppId,
+        someConfigAppId, someConfigClusterName, someConfigNamespaceName, 0, 1);
+    List<Instance> secondPage = instanceService.findInstancesByNamespaceAndInstanceAppId(someAppId,
+        someConfigAppId, someConfigClusterName, someConfigNamespaceName, someInstance.getId(), 1);
+
+    assertEquals(Lists.newArrayList(someInstance), firstPage);
+    assertEquals(Lists.newArrayList(yetAnotherInstance), secondPage);
+  }
+
   @Test
   @Rollback
   public void testFindInstancesByNamespaceAndInstanceAppId() throws Exception {
@@ -0,0 +1,238 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
+import com.ctrip.framework.apollo.biz.entity.Cluster;
+import com.ctrip.framework.apollo.biz.entity.Item;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.repository.ClusterRepository;
+import com.ctrip.framework.apollo.biz.repository.ItemRepository;
+import com.ctrip.framework.apollo.biz.repository.NamespaceRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
+import com.ctrip.framework.apollo.common.constants.GsonType;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 验证批量计算的发布状态，与逐个 Namespace 计算的结果一致
+ */
+public class NamespacePublishInfoIntegrationTest extends AbstractIntegrationTest {
+
+  private static final Gson GSON = new Gson();
+
+  @Autowired
+  private NamespaceService namespaceService;
+  @Autowired
+  private ClusterService clusterService;
+  @Autowired
+  private ReleaseService releaseService;
+  @Autowired
+  private ItemService itemService;
+  @Autowired
+  private ClusterRepository clusterRepository;
+  @Autowired
+  private NamespaceRepository namespaceRepository;
+  @Autowired
+  private ItemRepository itemRepository;
+  @Autowired
+  private ReleaseRepository releaseRepository;
+
+  private String someAppId = "somePublishInfoApp";
+  private Date someReleaseTime = new Date(System.currentTimeMillis() - 60 * 60 * 1000);
+  private Date beforeRelease = new Date(someReleaseTime.getTime() - 60 * 1000);
+  private Date afterRelease = new Date(someReleaseTime.getTime() + 60 * 1000);
+
+  @Test
+  public void testNamespacePublishInfoEquivalentToPerNamespaceCheck() throws Exception {
+    Cluster defaultCluster = createCluster("default", 0);
+    createCluster("neverReleasedWithoutItems", 0);
+    createCluster("neverReleasedWithItems", 0);
+    createCluster("neverReleasedWithDeletedItems", 0);
+    createCluster("notModified", 0);
+    createCluster("modifiedWithSameValue", 0);
+    createCluster("modifiedWithDifferentValue", 0);
+    createCluster("newKeyAdded", 0);
+    createCluster("latestReleaseAbandoned", 0);
+    createCluster("deletedAfterRelease", 0);
+    createCluster("commentAddedAfterRelease", 0);
+    createCluster("someChildCluster", defaultCluster.getId());
+
+    //default cluster has one not published namespace among published ones
+    Namespace published = createNamespace("default", "application");
+    createItem(published.getId(), "k1", "v1", beforeRelease, false);
+    createRelease("default", "application", ImmutableMap.of("k1", "v1"), false);
+    Namespace notPublished = createNamespace("default", "someNamespace");
+    createItem(notPublished.getId(), "k1", "v2", afterRelease, false);
+    createRelease("default", "someNamespace", ImmutableMap.of("k1", "v1"), false);
+    createNamespace("default", "anotherNamespace");
+
+    createNamespace("neverReleasedWithoutItems", "application");
+
+    Namespace neverReleasedWithItems = createNamespace("neverReleasedWithItems", "application");
+    createItem(neverReleasedWithItems.getId(), "k1", "v1", beforeRelease, false);
+
+    Namespace neverReleasedWithDeletedItems = createNamespace("neverReleasedWithDeletedItems", "application");
+    createItem(neverReleasedWithDeletedItems.getId(), "k1", "v1", beforeRelease, true);
+
+    Namespace notModified = createNamespace("notModified", "application");
+    createItem(notModified.getId(), "k1", "v1", beforeRelease, false);
+    createRelease("notModified", "application", ImmutableMap.of("k1", "v1"), false);
+
+    Namespace modifiedWithSameValue = createNamespace("modifiedWithSameValue", "application");
+    createItem(modifiedWithSameValue.getId(), "k1", "v1", afterRelease, false);
+    createRelease("modifiedWithSameValue", "application", ImmutableMap.of("k1", "v1"), false);
+
+    Namespace modifiedWithDifferentValue = createNamespace("modifiedWithDifferentValue", "application");
+    createItem(modifiedWithDifferentValue.getId(), "k1", "v2", afterRelease, false);
+    createRelease("modifiedWithDifferentValue", "application", ImmutableMap.of("k1", "v1"), false);
+
+    Namespace newKeyAdded = createNamespace("newKeyAdded", "application");
+    createItem(newKeyAdded.getId(), "k1", "v1", beforeRelease, false);
+    createItem(newKeyAdded.getId(), "k2", "v2", afterRelease, false);
+    createRelease("newKeyAdded", "application", ImmutableMap.of("k1", "v1"), false);
+
+    //the abandoned release is ignored, the item matches the previous active release
+    Namespace latestReleaseAbandoned = createNamespace("latestReleaseAbandoned", "application");
+    createItem(latestReleaseAbandoned.getId(), "k1", "v1", afterRelease, false);
+    createRelease("latestReleaseAbandoned", "application", ImmutableMap.of("k1", "v1"), false);
+    createRelease("latestReleaseAbandoned", "application", ImmutableMap.of("k1", "v2"), true);
+
+    Namespace deletedAfterRelease = createNamespace("deletedAfterRelease", "application");
+    createItem(deletedAfterRelease.getId(), "k1", "v2", afterRelease, true);
+    createRelease("deletedAfterRelease", "application", ImmutableMap.of("k1", "v1"), false);
+
+    Namespace commentAddedAfterRelease = createNamespace("commentAddedAfterRelease", "application");
+    createItem(commentAddedAfterRelease.getId(), "", "", afterRelease, false);
+    createRelease("commentAddedAfterRelease", "application", ImmutableMap.of(), false);
+
+    //child clusters are not included
+    Namespace childNamespace = createNamespace("someChildCluster", "application");
+    createItem(childNamespace.getId(), "k1", "v1", afterRelease, false);
+
+    Map<String, Boolean> result = namespaceService.namespacePublishInfo(someAppId);
+
+    assertEquals(perNamespacePublishInfo(someAppId), result);
+    assertEquals(11, result.size());
+    assertEquals(true, result.get("default"));
+    assertEquals(false, result.get("neverReleasedWithoutItems"));
+    assertEquals(true, result.get("neverReleasedWithItems"));
+    assertEquals(false, result.get("neverReleasedWithDeletedItems"));
+    assertEquals(false, result.get("notModified"));
+    assertEquals(false, result.get("modifiedWithSameValue"));
+    assertEquals(true, result.get("modifiedWithDifferentValue"));
+    assertEquals(true, result.get("newKeyAdded"));
+    assertEquals(false, result.get("latestReleaseAbandoned"));
+    assertEquals(false, result.get("deletedAfterRelease"));
+    assertEquals(true, result.get("commentAddedAfterRelease"));
+  }
+
+  @Test
+  public void testNamespacePublishInfoWithoutNamespaces() throws Exception {
+    createCluster("default", 0);
+
+    Map<String, Boolean> result = namespaceService.namespacePublishInfo(someAppId);
+
+    assertEquals(perNamespacePublishInfo(someAppId), result);
+    assertEquals(ImmutableMap.of("default", false), result);
+  }
+
+  /**
+   * 逐个 Namespace 查询最新的有效 Release 及之后修改的 Item ，作为批量计算的对照
+   */
+  private Map<String, Boolean> perNamespacePublishInfo(String appId) {
+    Map<String, Boolean> clusterHasNotPublishedItems = Maps.newHashMap();
+    for (Cluster cluster : clusterService.findParentClusters(appId)) {
+      boolean notPublished = false;
+      for (Namespace namespace : namespaceService.findNamespaces(appId, cluster.getName())) {
+        if (isNamespaceNotPublished(namespace)) {
+          notPublished = true;
+          break;
+        }
+      }
+      clusterHasNotPublishedItems.put(cluster.getName(), notPublished);
+    }
+    return clusterHasNotPublishedItems;
+  }
+
+  private boolean isNamespaceNotPublished(Namespace namespace) {
+    Release latestRelease = releaseService.findLatestActiveRelease(namespace);
+    if (latestRelease == null) {
+      return itemService.findLastOne(namespace.getId()) != null;
+    }
+
+    List<Item> itemsModifiedAfterLastPublish = itemService.findItemsModifiedAfterDate(namespace.getId(),
+        latestRelease.getDataChangeLastModifiedTime());
+    if (CollectionUtils.isEmpty(itemsModifiedAfterLastPublish)) {
+      return false;
+    }
+
+    Map<String, String> publishedConfiguration = GSON.fromJson(latestRelease.getConfigurations(), GsonType.CONFIG);
+    for (Item item : itemsModifiedAfterLastPublish) {
+      if (!Objects.equals(item.getValue(), publishedConfiguration.get(item.getKey()))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Cluster createCluster(String clusterName, long parentClusterId) {
+    Cluster cluster = new Cluster();
+    cluster.setAppId(someAppId);
+    cluster.setName(clusterName);
+    cluster.setParentClusterId(parentClusterId);
+    cluster.setDataChangeCreatedBy("someUser");
+    return clusterRepository.save(cluster);
+  }
+
+  private Namespace createNamespace(String clusterName, String namespaceName) {
+    Namespace namespace = new Namespace();
+    namespace.setAppId(someAppId);
+    namespace.setClusterName(clusterName);
+    namespace.setNamespaceName(namespaceName);
+    namespace.setDataChangeCreatedBy("someUser");
+    return namespaceRepository.save(namespace);
+  }
+
+  private void createItem(long namespaceId, String key, String value, Date lastModifiedTime, boolean deleted) {
+    Item item = new Item();
+    item.setNamespaceId(namespaceId);
+    item.setKey(key);
+    item.setValue(value);
+    item.setComment("");
+    item.setLineNum(1);
+    item.setDeleted(deleted);
+    item.setDataChangeCreatedBy("someUser");
+    item.setDataChangeCreatedTime(lastModifiedTime);
+    item.setDataChangeLastModifiedTime(lastModifiedTime);
+    itemRepository.save(item);
+  }
+
+  private void createRelease(String clusterName, String namespaceName, Map<String, String> configurations,
+                             boolean abandoned) {
+    Release release = new Release();
+    release.setAppId(someAppId);
+    release.setClusterName(clusterName);
+    release.setNamespaceName(namespaceName);
+    release.setReleaseKey(clusterName + namespaceName + System.nanoTime());
+    release.setName("someRelease");
+    release.setComment("");
+    release.setConfigurations(GSON.toJson(configurations));
+    release.setAbandoned(abandoned);
+    release.setDataChangeCreatedBy("someUser");
+    release.setDataChangeCreatedTime(someReleaseTime);
+    release.setDataChangeLastModifiedTime(someReleaseTime);
+    releaseRepository.save(release);
+  }
+}
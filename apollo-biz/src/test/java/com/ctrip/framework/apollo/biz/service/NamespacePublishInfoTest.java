@@ -6,6 +6,7 @@ import com.ctrip.framework.apollo.biz.entity.Item;
 import com.ctrip.framework.apollo.biz.entity.Namespace;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.repository.NamespaceRepository;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 
 import org.junit.Assert;
@@ -17,8 +18,9 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Random;
 
-import static org.mockito.Matchers.anyLong;
-import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class NamespacePublishInfoTest extends AbstractUnitTest {
@@ -44,9 +46,10 @@ public class NamespacePublishInfoTest extends AbstractUnitTest {
     Item item = createItem(namespace.getId(), "a", "b");
 
     when(clusterService.findParentClusters(testApp)).thenReturn(Collections.singletonList(cluster));
-    when(namespaceRepository.findByAppIdAndClusterNameOrderByIdAsc(testApp, ConfigConsts.CLUSTER_NAME_DEFAULT))
-        .thenReturn(Collections.singletonList(namespace));
-    when(itemService.findLastOne(anyLong())).thenReturn(item);
+    when(namespaceRepository.findByAppIdAndClusterNameInOrderByIdAsc(testApp,
+        Collections.singleton(ConfigConsts.CLUSTER_NAME_DEFAULT))).thenReturn(Collections.singletonList(namespace));
+    when(itemService.findNamespaceIdsWithItems(Collections.singleton(namespace.getId())))
+        .thenReturn(Collections.singleton(item.getNamespaceId()));
 
     Map<String, Boolean> result = namespaceService.namespacePublishInfo(testApp);
 
@@ -62,10 +65,15 @@ public class NamespacePublishInfoTest extends AbstractUnitTest {
     Release release = createRelease("{\"a\":\"b\"}");
 
     when(clusterService.findParentClusters(testApp)).thenReturn(Collections.singletonList(cluster));
-    when(namespaceRepository.findByAppIdAndClusterNameOrderByIdAsc(testApp, ConfigConsts.CLUSTER_NAME_DEFAULT))
-        .thenReturn(Collections.singletonList(namespace));
-    when(releaseService.findLatestActiveRelease(namespace)).thenReturn(release);
-    when(itemService.findItemsModifiedAfterDate(anyLong(), anyObject())).thenReturn(Collections.singletonList(item));
+    when(namespaceRepository.findByAppIdAndClusterNameInOrderByIdAsc(testApp,
+        Collections.singleton(ConfigConsts.CLUSTER_NAME_DEFAULT))).thenReturn(Collections.singletonList(namespace));
+    when(releaseService.findLatestActiveReleaseIds(testApp, Collections.singleton(ConfigConsts.CLUSTER_NAME_DEFAULT)))
+        .thenReturn(Collections.singletonMap(ReleaseMessageKeyGenerator.generate(testApp,
+            ConfigConsts.CLUSTER_NAME_DEFAULT, ConfigConsts.NAMESPACE_APPLICATION), release.getId()));
+    when(itemService.findItemsModifiedAfterReleases(Collections.singleton(release.getId())))
+        .thenReturn(Collections.singletonList(item));
+    when(releaseService.findByReleaseIds(Collections.singleton(release.getId())))
+        .thenReturn(Collections.singletonList(release));
 
     Map<String, Boolean> result = namespaceService.namespacePublishInfo(testApp);
 
@@ -82,10 +90,15 @@ public class NamespacePublishInfoTest extends AbstractUnitTest {
     Release release = createRelease("{\"a\":\"c\"}");
 
     when(clusterService.findParentClusters(testApp)).thenReturn(Collections.singletonList(cluster));
-    when(namespaceRepository.findByAppIdAndClusterNameOrderByIdAsc(testApp, ConfigConsts.CLUSTER_NAME_DEFAULT))
-        .thenReturn(Collections.singletonList(namespace));
-    when(releaseService.findLatestActiveRelease(namespace)).thenReturn(release);
-    when(itemService.findItemsModifiedAfterDate(anyLong(), anyObject())).thenReturn(Collections.singletonList(item));
+    when(namespaceRepository.findByAppIdAndClusterNameInOrderByIdAsc(testApp,
+        Collections.singleton(ConfigConsts.CLUSTER_NAME_DEFAULT))).thenReturn(Collections.singletonList(namespace));
+    when(releaseService.findLatestActiveReleaseIds(testApp, Collections.singleton(ConfigConsts.CLUSTER_NAME_DEFAULT)))
+        .thenReturn(Collections.singletonMap(ReleaseMessageKeyGenerator.generate(testApp,
+            ConfigConsts.CLUSTER_NAME_DEFAULT, ConfigConsts.NAMESPACE_APPLICATION), release.getId()));
+    when(itemService.findItemsModifiedAfterReleases(Collections.singleton(release.getId())))
+        .thenReturn(Collections.singletonList(item));
+    when(releaseService.findByReleaseIds(Collections.singleton(release.getId())))
+        .thenReturn(Collections.singletonList(release));
 
     Map<String, Boolean> result = namespaceService.namespacePublishInfo(testApp);
 
@@ -94,6 +107,26 @@ public class NamespacePublishInfoTest extends AbstractUnitTest {
 
   }
 
+  @Test
+  public void testNamespaceEverPublishedAndNoItemModifiedAfter() {
+    Cluster cluster = createCluster(ConfigConsts.CLUSTER_NAME_DEFAULT);
+    Namespace namespace = createNamespace(ConfigConsts.CLUSTER_NAME_DEFAULT, ConfigConsts.NAMESPACE_APPLICATION);
+    Release release = createRelease("{\"a\":\"b\"}");
+
+    when(clusterService.findParentClusters(testApp)).thenReturn(Collections.singletonList(cluster));
+    when(namespaceRepository.findByAppIdAndClusterNameInOrderByIdAsc(testApp,
+        Collections.singleton(ConfigConsts.CLUSTER_NAME_DEFAULT))).thenReturn(Collections.singletonList(namespace));
+    when(releaseService.findLatestActiveReleaseIds(testApp, Collections.singleton(ConfigConsts.CLUSTER_NAME_DEFAULT)))
+        .thenReturn(Collections.singletonMap(ReleaseMessageKeyGenerator.generate(testApp,
+            ConfigConsts.CLUSTER_NAME_DEFAULT, ConfigConsts.NAMESPACE_APPLICATION), release.getId()));
+
+    Map<String, Boolean> result = namespaceService.namespacePublishInfo(testApp);
+
+    Assert.assertEquals(1, result.size());
+    Assert.assertFalse(result.get(ConfigConsts.CLUSTER_NAME_DEFAULT));
+    verify(releaseService, never()).findByReleaseIds(anySetOf(Long.class));
+  }
+
   private Cluster createCluster(String clusterName) {
     Cluster cluster = new Cluster();
 
@@ -127,6 +160,7 @@ public class NamespacePublishInfoTest extends AbstractUnitTest {
 
   private Release createRelease(String configuration) {
     Release release = new Release();
+    release.setId(new Random().nextLong());
     release.setConfigurations(configuration);
     return release;
   }
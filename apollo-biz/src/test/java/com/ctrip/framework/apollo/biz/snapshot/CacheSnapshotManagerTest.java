@@ -0,0 +1,122 @@
+package com.ctrip.framework.apollo.biz.snapshot;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.ctrip.framework.apollo.common.entity.AppNamespace;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CacheSnapshotManagerTest {
+  private CacheSnapshotManager cacheSnapshotManager;
+  @Mock
+  private BizConfig bizConfig;
+  @Mock
+  private ReleaseMessageRepository releaseMessageRepository;
+  private File someSnapshotDir;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheSnapshotManager = new CacheSnapshotManager();
+    ReflectionTestUtils.setField(cacheSnapshotManager, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(cacheSnapshotManager, "releaseMessageRepository", releaseMessageRepository);
+
+    someSnapshotDir = new File(Files.createTempDir(), "snapshot");
+    when(bizConfig.isConfigServiceCacheSnapshotEnabled()).thenReturn(true);
+    when(bizConfig.configServiceCacheSnapshotDir()).thenReturn(someSnapshotDir.getAbsolutePath());
+    when(bizConfig.configServiceCacheSnapshotIntervalInMinutes()).thenReturn(60);
+  }
+
+  @Test
+  public void testSaveAndLoad() throws Exception {
+    String someName = "someName";
+    long someMaxId = 10;
+    AppNamespace someAppNamespace = new AppNamespace();
+    someAppNamespace.setId(someMaxId);
+    someAppNamespace.setAppId("someAppId");
+    someAppNamespace.setName("someNamespace");
+    someAppNamespace.setPublic(true);
+    Date someDate = new Date(123456789);
+    someAppNamespace.setDataChangeLastModifiedTime(someDate);
+
+    cacheSnapshotManager.register(someName, () -> new CacheSnapshot<>(0, someMaxId,
+        Lists.newArrayList(someAppNamespace)));
+    cacheSnapshotManager.saveAll();
+
+    CacheSnapshot<AppNamespace> snapshot = cacheSnapshotManager.load(someName, AppNamespace.class);
+
+    assertEquals(someMaxId, snapshot.getMaxId());
+    assertEquals(1, snapshot.getEntries().size());
+    AppNamespace appNamespace = snapshot.getEntries().get(0);
+    assertEquals(someAppNamespace.getId(), appNamespace.getId());
+    assertEquals(someAppNamespace.getAppId(), appNamespace.getAppId());
+    assertEquals(someAppNamespace.getName(), appNamespace.getName());
+    assertEquals(someAppNamespace.isPublic(), appNamespace.isPublic());
+    //the milliseconds are kept to compare the last modified time
+    assertEquals(someDate, appNamespace.getDataChangeLastModifiedTime());
+  }
+
+  @Test
+  public void testLoadNotExistingOrCorruptedSnapshot() throws Exception {
+    String someName = "someName";
+
+    assertNull(cacheSnapshotManager.load(someName, ReleaseMessage.class));
+
+    someSnapshotDir.mkdirs();
+    Files.write("{corrupted".getBytes(), new File(someSnapshotDir, someName + ".json"));
+
+    assertNull(cacheSnapshotManager.load(someName, ReleaseMessage.class));
+  }
+
+  @Test
+  public void testNotSavedWhenDisabled() throws Exception {
+    String someName = "someName";
+    when(bizConfig.isConfigServiceCacheSnapshotEnabled()).thenReturn(false);
+
+    cacheSnapshotManager.register(someName, () -> new CacheSnapshot<>(0, 0, Collections.emptyList()));
+    cacheSnapshotManager.saveAll();
+
+    assertNull(cacheSnapshotManager.load(someName, ReleaseMessage.class));
+  }
+
+  @Test
+  public void testFindMessagesAfter() throws Exception {
+    long someStartId = 1;
+    List<ReleaseMessage> someBatch = Lists.newArrayList();
+    for (int i = 0; i < 500; i++) {
+      someBatch.add(assembleReleaseMessage(someStartId + i + 1, "someMessage" + (i % 2)));
+    }
+    ReleaseMessage anotherReleaseMessage = assembleReleaseMessage(someStartId + 501, "anotherMessage");
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(someStartId)).thenReturn(someBatch);
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(someStartId + 500))
+        .thenReturn(Lists.newArrayList(anotherReleaseMessage));
+
+    assertEquals(Sets.newHashSet("someMessage0", "someMessage1", "anotherMessage"),
+        cacheSnapshotManager.findMessagesAfter(someStartId));
+  }
+
+  private ReleaseMessage assembleReleaseMessage(long id, String message) {
+    ReleaseMessage releaseMessage = new ReleaseMessage(message);
+    releaseMessage.setId(id);
+    return releaseMessage;
+  }
+}
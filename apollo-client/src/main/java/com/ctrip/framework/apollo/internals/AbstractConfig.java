@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -49,28 +50,21 @@ public abstract class AbstractConfig implements Config {
      */
     private List<ConfigChangeListener> m_listeners = Lists.newCopyOnWriteArrayList();
     private ConfigUtil m_configUtil;
-    private volatile Cache<String, Integer> m_integerCache;
-    private volatile Cache<String, Long> m_longCache;
-    private volatile Cache<String, Short> m_shortCache;
-    private volatile Cache<String, Float> m_floatCache;
-    private volatile Cache<String, Double> m_doubleCache;
-    private volatile Cache<String, Byte> m_byteCache;
-    private volatile Cache<String, Boolean> m_booleanCache;
-    private volatile Cache<String, Date> m_dateCache;
-    private volatile Cache<String, Long> m_durationCache;
     /**
-     * 数组属性 Cache Map
+     * 属性值缓存
      *
-     * KEY：分隔符
-     * KEY2：属性建
+     * KEY：属性键
+     * VALUE：该属性解析后的值，KEY 为解析函数，VALUE 为解析结果。同一属性的多种类型的值，放在同一个槽位中。
      */
-    private Map<String, Cache<String, String[]>> m_arrayCache; // 并发 Map
+    private final Cache<String, ConcurrentMap<Function<String, ?>, Object>> m_valueCache;
     /**
-     * 上述 Cache 对象集合
+     * 数组属性的解析函数 Map
+     *
+     * KEY：分隔符
      */
-    private List<Cache> allCaches;
+    private final ConcurrentMap<String, Function<String, String[]>> m_arrayParsers;
     /**
-     * 缓存版本号，用于解决更新缓存可能存在的并发问题。详细见 {@link #getValueAndStoreToCache(String, Function, Cache, Object)} 方法
+     * 缓存版本号，用于解决更新缓存可能存在的并发问题。详细见 {@link #getValueAndStoreToCache(String, Function, Object)} 方法
      */
     private AtomicLong m_configVersion; //indicate config version
 
@@ -81,8 +75,12 @@ public abstract class AbstractConfig implements Config {
     public AbstractConfig() {
         m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
         m_configVersion = new AtomicLong();
-        m_arrayCache = Maps.newConcurrentMap();
-        allCaches = Lists.newArrayList();
+        m_valueCache = CacheBuilder.newBuilder()
+                .maximumSize(m_configUtil.getMaxConfigCacheSize()) // 500
+                .expireAfterAccess(m_configUtil.getConfigCacheExpireTime(), // 1 分钟
+                        m_configUtil.getConfigCacheExpireTimeUnit())
+                .build();
+        m_arrayParsers = Maps.newConcurrentMap();
     }
 
     @Override
@@ -95,16 +93,8 @@ public abstract class AbstractConfig implements Config {
     @Override
     public Integer getIntProperty(String key, Integer defaultValue) {
         try {
-            // 初始化缓存
-            if (m_integerCache == null) {
-                synchronized (this) {
-                    if (m_integerCache == null) {
-                        m_integerCache = newCache();
-                    }
-                }
-            }
             // 从缓存中，读取属性值
-            return getValueFromCache(key, Functions.TO_INT_FUNCTION, m_integerCache, defaultValue);
+            return getValueFromCache(key, Functions.TO_INT_FUNCTION, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(
                     String.format("getIntProperty for %s failed, return default value %d", key,
@@ -117,16 +107,8 @@ public abstract class AbstractConfig implements Config {
     @Override
     public Long getLongProperty(String key, Long defaultValue) {
         try {
-            // 初始化缓存
-            if (m_longCache == null) {
-                synchronized (this) {
-                    if (m_longCache == null) {
-                        m_longCache = newCache();
-                    }
-                }
-            }
             // 从缓存中，读取属性值
-            return getValueFromCache(key, Functions.TO_LONG_FUNCTION, m_longCache, defaultValue);
+            return getValueFromCache(key, Functions.TO_LONG_FUNCTION, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(
                     String.format("getLongProperty for %s failed, return default value %d", key,
@@ -139,16 +121,8 @@ public abstract class AbstractConfig implements Config {
     @Override
     public Short getShortProperty(String key, Short defaultValue) {
         try {
-            // 初始化缓存
-            if (m_shortCache == null) {
-                synchronized (this) {
-                    if (m_shortCache == null) {
-                        m_shortCache = newCache();
-                    }
-                }
-            }
             // 从缓存中，读取属性值
-            return getValueFromCache(key, Functions.TO_SHORT_FUNCTION, m_shortCache, defaultValue);
+            return getValueFromCache(key, Functions.TO_SHORT_FUNCTION, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(String.format("getShortProperty for %s failed, return default value %d", key, defaultValue), ex));
         }
@@ -159,16 +133,8 @@ public abstract class AbstractConfig implements Config {
     @Override
     public Float getFloatProperty(String key, Float defaultValue) {
         try {
-            // 初始化缓存
-            if (m_floatCache == null) {
-                synchronized (this) {
-                    if (m_floatCache == null) {
-                        m_floatCache = newCache();
-                    }
-                }
-            }
             // 从缓存中，读取属性值
-            return getValueFromCache(key, Functions.TO_FLOAT_FUNCTION, m_floatCache, defaultValue);
+            return getValueFromCache(key, Functions.TO_FLOAT_FUNCTION, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(String.format("getFloatProperty for %s failed, return default value %f", key, defaultValue), ex));
         }
@@ -179,16 +145,8 @@ public abstract class AbstractConfig implements Config {
     @Override
     public Double getDoubleProperty(String key, Double defaultValue) {
         try {
-            // 初始化缓存
-            if (m_doubleCache == null) {
-                synchronized (this) {
-                    if (m_doubleCache == null) {
-                        m_doubleCache = newCache();
-                    }
-                }
-            }
             // 从缓存中，读取属性值
-            return getValueFromCache(key, Functions.TO_DOUBLE_FUNCTION, m_doubleCache, defaultValue);
+            return getValueFromCache(key, Functions.TO_DOUBLE_FUNCTION, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(String.format("getDoubleProperty for %s failed, return default value %f", key, defaultValue), ex));
         }
@@ -199,16 +157,8 @@ public abstract class AbstractConfig implements Config {
     @Override
     public Byte getByteProperty(String key, Byte defaultValue) {
         try {
-            // 初始化缓存
-            if (m_byteCache == null) {
-                synchronized (this) {
-                    if (m_byteCache == null) {
-                        m_byteCache = newCache();
-                    }
-                }
-            }
             // 从缓存中，读取属性值
-            return getValueFromCache(key, Functions.TO_BYTE_FUNCTION, m_byteCache, defaultValue);
+            return getValueFromCache(key, Functions.TO_BYTE_FUNCTION, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(
                     String.format("getByteProperty for %s failed, return default value %d", key,
@@ -221,16 +171,8 @@ public abstract class AbstractConfig implements Config {
     @Override
     public Boolean getBooleanProperty(String key, Boolean defaultValue) {
         try {
-            // 初始化缓存
-            if (m_booleanCache == null) {
-                synchronized (this) {
-                    if (m_booleanCache == null) {
-                        m_booleanCache = newCache();
-                    }
-                }
-            }
             // 从缓存中，读取属性值
-            return getValueFromCache(key, Functions.TO_BOOLEAN_FUNCTION, m_booleanCache, defaultValue);
+            return getValueFromCache(key, Functions.TO_BOOLEAN_FUNCTION, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(
                     String.format("getBooleanProperty for %s failed, return default value %b", key,
@@ -243,28 +185,22 @@ public abstract class AbstractConfig implements Config {
     @Override
     public String[] getArrayProperty(String key, final String delimiter, String[] defaultValue) {
         try {
-            // 初始化缓存
-            if (!m_arrayCache.containsKey(delimiter)) {
-                synchronized (this) {
-                    if (!m_arrayCache.containsKey(delimiter)) {
-                        m_arrayCache.put(delimiter, this.<String[]>newCache());
+            // 获得分隔符对应的解析函数
+            Function<String, String[]> parser = m_arrayParsers.get(delimiter);
+            if (parser == null) {
+                parser = new Function<String, String[]>() {
+                    @Override
+                    public String[] apply(String input) {
+                        return input.split(delimiter);
                     }
+                };
+                Function<String, String[]> previous = m_arrayParsers.putIfAbsent(delimiter, parser);
+                if (previous != null) {
+                    parser = previous;
                 }
             }
-            // 获得对应的 Cache 对象
-            Cache<String, String[]> cache = m_arrayCache.get(delimiter);
-            // 获得属性值
-            String[] result = cache.getIfPresent(key);
-            if (result != null) {
-                return result;
-            }
             // 从缓存中，读取属性值
-            return getValueAndStoreToCache(key, new Function<String, String[]>() {
-                @Override
-                public String[] apply(String input) {
-                    return input.split(delimiter);
-                }
-            }, cache, defaultValue);
+            return getValueFromCache(key, parser, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(
                     String.format("getArrayProperty for %s failed, return default value", key), ex));
@@ -293,15 +229,7 @@ public abstract class AbstractConfig implements Config {
     @Override
     public Date getDateProperty(String key, Date defaultValue) {
         try {
-            if (m_dateCache == null) {
-                synchronized (this) {
-                    if (m_dateCache == null) {
-                        m_dateCache = newCache();
-                    }
-                }
-            }
-
-            return getValueFromCache(key, Functions.TO_DATE_FUNCTION, m_dateCache, defaultValue);
+            return getValueFromCache(key, Functions.TO_DATE_FUNCTION, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(
                     String.format("getDateProperty for %s failed, return default value %s", key,
@@ -348,15 +276,7 @@ public abstract class AbstractConfig implements Config {
     @Override
     public long getDurationProperty(String key, long defaultValue) {
         try {
-            if (m_durationCache == null) {
-                synchronized (this) {
-                    if (m_durationCache == null) {
-                        m_durationCache = newCache();
-                    }
-                }
-            }
-
-            return getValueFromCache(key, Functions.TO_DURATION_FUNCTION, m_durationCache, defaultValue);
+            return getValueFromCache(key, Functions.TO_DURATION_FUNCTION, defaultValue);
         } catch (Throwable ex) {
             Tracer.logError(new ApolloConfigException(
                     String.format("getDurationProperty for %s failed, return default value %d", key,
@@ -366,18 +286,22 @@ public abstract class AbstractConfig implements Config {
         return defaultValue;
     }
 
-    private <T> T getValueFromCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
-        // 获得属性值
-        T result = cache.getIfPresent(key);
+    @SuppressWarnings("unchecked")
+    private <T> T getValueFromCache(String key, Function<String, T> parser, T defaultValue) {
+        // 获得属性对应的槽位
+        ConcurrentMap<Function<String, ?>, Object> values = m_valueCache.getIfPresent(key);
         // 若存在，则返回
-        if (result != null) {
-            return result;
+        if (values != null) {
+            T result = (T) values.get(parser);
+            if (result != null) {
+                return result;
+            }
         }
         // 获得值，并更新到缓存
-        return getValueAndStoreToCache(key, parser, cache, defaultValue);
+        return getValueAndStoreToCache(key, parser, defaultValue);
     }
 
-    private <T> T getValueAndStoreToCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
+    private <T> T getValueAndStoreToCache(String key, Function<String, T> parser, T defaultValue) {
         // 获得当前版本号
         long currentConfigVersion = m_configVersion.get();
         // 获得属性值
@@ -391,7 +315,12 @@ public abstract class AbstractConfig implements Config {
                 // 若版本号未变化，则更新到缓存，从而解决并发的问题。
                 synchronized (this) {
                     if (m_configVersion.get() == currentConfigVersion) {
-                        cache.put(key, result);
+                        ConcurrentMap<Function<String, ?>, Object> values = m_valueCache.getIfPresent(key);
+                        if (values == null) {
+                            values = Maps.newConcurrentMap();
+                            m_valueCache.put(key, values);
+                        }
+                        values.put(parser, result);
                     }
                 }
                 // 返回属性值
@@ -402,34 +331,32 @@ public abstract class AbstractConfig implements Config {
         return defaultValue;
     }
 
-    private <T> Cache<String, T> newCache() {
-        // 创建 Cache 对象
-        Cache<String, T> cache = CacheBuilder.newBuilder()
-                .maximumSize(m_configUtil.getMaxConfigCacheSize()) // 500
-                .expireAfterAccess(m_configUtil.getConfigCacheExpireTime(), // 1 分钟
-                        m_configUtil.getConfigCacheExpireTimeUnit())
-                .build();
-        // 添加到 Cache 集合
-        allCaches.add(cache);
-        return cache;
-    }
-
     /**
      * Clear config cache
      */
     protected void clearConfigCache() {
         synchronized (this) {
             // 过期缓存
-            for (Cache c : allCaches) {
-                if (c != null) {
-                    c.invalidateAll();
-                }
-            }
+            m_valueCache.invalidateAll();
             // 新增版本号
             m_configVersion.incrementAndGet();
         }
     }
 
+    /**
+     * Clear config cache of the changed keys, the parsed values of the other keys are kept
+     *
+     * @param changedKeys the keys whose values are changed
+     */
+    protected void clearConfigCache(Collection<String> changedKeys) {
+        synchronized (this) {
+            // 只过期变更的属性
+            m_valueCache.invalidateAll(changedKeys);
+            // 新增版本号，避免并发读取时，将旧值写入缓存
+            m_configVersion.incrementAndGet();
+        }
+    }
+
     protected void fireConfigChange(final ConfigChangeEvent changeEvent) {
         // 缓存 ConfigChangeListener 数组
         for (final ConfigChangeListener listener : m_listeners) {
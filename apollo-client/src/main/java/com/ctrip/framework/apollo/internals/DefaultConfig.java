@@ -7,6 +7,9 @@ import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.MapDifference;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.RateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 
@@ -26,6 +30,11 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultConfig.class);
 
+    /**
+     * 系统 Properties 的版本号，每次调用 {@link #refreshSystemProperties()} 时递增
+     */
+    private static final AtomicLong s_systemPropertiesVersion = new AtomicLong();
+
     /**
      * Namespace 的名字
      */
@@ -42,6 +51,10 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
      * 项目下，Namespace 对应的配置文件的 Properties
      */
     private Properties m_resourceProperties;
+    /**
+     * 合并后的属性快照，读取时无需加锁
+     */
+    private volatile PropertySnapshot m_propertySnapshot;
     /**
      * 答应告警限流器。当读取不到属性值，会打印告警日志。通过该限流器，避免打印过多日志。
      */
@@ -71,6 +84,8 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
             Tracer.logError(ex);
             logger.warn("Init Apollo Local Config failed - namespace: {}, reason: {}.", m_namespace, ExceptionUtil.getDetailMessage(ex));
         } finally {
+            // 初始化属性快照
+            m_propertySnapshot = buildPropertySnapshot();
             // register the change listener no matter config repository is working or not
             // so that whenever config repository is recovered, config could get changed
             // 注册到 ConfigRepository 中，从而实现每次配置发生变更时，更新配置缓存 `m_configProperties` 。
@@ -80,27 +95,13 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
     @Override
     public String getProperty(String key, String defaultValue) {
-        // step 1: check system properties, i.e. -Dkey=value 从系统 Properties 获得属性，例如，JVM 启动参数。
-        String value = System.getProperty(key);
-
-        // step 2: check local cached properties file 从缓存 Properties 获得属性
-        if (value == null && m_configProperties.get() != null) {
-            value = m_configProperties.get().getProperty(key);
-        }
-
-        /**
-         * step 3: check env variable, i.e. PATH=... 从环境变量中获得参数
-         * normally system environment variables are in UPPERCASE, however there might be exceptions.
-         * so the caller should provide the key in the right case
-         */
-        if (value == null) {
-            value = System.getenv(key);
+        PropertySnapshot snapshot = m_propertySnapshot;
+        // 系统 Properties 已刷新，重建快照
+        if (snapshot.systemPropertiesVersion != s_systemPropertiesVersion.get()) {
+            snapshot = refreshPropertySnapshot();
         }
 
-        // step 4: check properties file from classpath
-        if (value == null && m_resourceProperties != null) {
-            value = (String) m_resourceProperties.get(key);
-        }
+        String value = snapshot.properties.get(key);
 
         // 打印告警日志
         if (value == null && m_configProperties.get() == null && m_warnLogRateLimiter.tryAcquire()) {
@@ -111,6 +112,14 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
         return value == null ? defaultValue : value;
     }
 
+    /**
+     * Refresh the property snapshots of all the {@link DefaultConfig} instances,
+     * should be called after the system properties are changed at runtime so that the new values are visible.
+     */
+    public static void refreshSystemProperties() {
+        s_systemPropertiesVersion.incrementAndGet();
+    }
+
     @Override
     public Set<String> getPropertyNames() {
         Properties properties = m_configProperties.get();
@@ -162,8 +171,14 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
         //2. update m_configProperties
         // 更新到 `m_configProperties` 中
         m_configProperties.set(newConfigProperties);
-        // 清空 Cache 缓存
-        clearConfigCache();
+        // 重建属性快照
+        m_propertySnapshot = buildPropertySnapshot();
+        // 清空变更属性的 Cache 缓存
+        Set<String> changedKeys = Sets.newHashSetWithExpectedSize(configChanges.size());
+        for (ConfigChange change : configChanges) {
+            changedKeys.add(change.getPropertyName());
+        }
+        clearConfigCache(changedKeys);
 
         //3. use getProperty to update configChange's new value and calc the final changes
         for (ConfigChange change : configChanges) {
@@ -209,6 +224,63 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
         return actualChanges.build();
     }
 
+    private synchronized PropertySnapshot refreshPropertySnapshot() {
+        // double check
+        PropertySnapshot previous = m_propertySnapshot;
+        if (previous.systemPropertiesVersion != s_systemPropertiesVersion.get()) {
+            m_propertySnapshot = buildPropertySnapshot();
+            // 清空变更属性的 Cache 缓存
+            MapDifference<String, String> difference = Maps.difference(previous.properties, m_propertySnapshot.properties);
+            if (!difference.areEqual()) {
+                clearConfigCache(Sets.union(Sets.union(difference.entriesOnlyOnLeft().keySet(),
+                        difference.entriesOnlyOnRight().keySet()), difference.entriesDiffering().keySet()));
+            }
+        }
+        return m_propertySnapshot;
+    }
+
+    /**
+     * 按优先级从低到高合并属性，高优先级的覆盖低优先级的：
+     * 项目下的配置文件 < 环境变量 < 缓存 Properties < 系统 Properties
+     */
+    private PropertySnapshot buildPropertySnapshot() {
+        // 先读取版本号，避免遗漏构建过程中的刷新
+        long systemPropertiesVersion = s_systemPropertiesVersion.get();
+        Map<String, String> properties = new HashMap<>();
+
+        // step 4: check properties file from classpath
+        if (m_resourceProperties != null) {
+            putAll(properties, m_resourceProperties);
+        }
+
+        /**
+         * step 3: check env variable, i.e. PATH=... 从环境变量中获得参数
+         * normally system environment variables are in UPPERCASE, however there might be exceptions.
+         * so the caller should provide the key in the right case
+         */
+        properties.putAll(System.getenv());
+
+        // step 2: check local cached properties file 从缓存 Properties 获得属性
+        Properties configProperties = m_configProperties.get();
+        if (configProperties != null) {
+            putAll(properties, configProperties);
+        }
+
+        // step 1: check system properties, i.e. -Dkey=value 从系统 Properties 获得属性，例如，JVM 启动参数。
+        putAll(properties, System.getProperties());
+
+        return new PropertySnapshot(systemPropertiesVersion, ImmutableMap.copyOf(properties));
+    }
+
+    private void putAll(Map<String, String> target, Properties source) {
+        for (String key : source.stringPropertyNames()) {
+            String value = source.getProperty(key);
+            if (value != null) {
+                target.put(key, value);
+            }
+        }
+    }
+
     private Properties loadFromResource(String namespace) {
         // 生成文件名
         String name = String.format("META-INF/config/%s.properties", namespace);
@@ -233,4 +305,23 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
         return properties;
     }
 
+    /**
+     * 属性快照，创建后不可变
+     */
+    private static class PropertySnapshot {
+        /**
+         * 构建时的系统 Properties 版本号
+         */
+        private final long systemPropertiesVersion;
+        /**
+         * 合并后的属性
+         */
+        private final Map<String, String> properties;
+
+        private PropertySnapshot(long systemPropertiesVersion, Map<String, String> properties) {
+            this.systemPropertiesVersion = systemPropertiesVersion;
+            this.properties = properties;
+        }
+    }
+
 }
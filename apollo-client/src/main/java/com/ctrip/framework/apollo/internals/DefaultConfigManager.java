@@ -6,9 +6,18 @@ import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.spi.ConfigFactory;
 import com.ctrip.framework.apollo.spi.ConfigFactoryManager;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.ExceptionUtil;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 默认配置管理器实现类
@@ -17,7 +26,20 @@ import java.util.Map;
  */
 public class DefaultConfigManager implements ConfigManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(DefaultConfigManager.class);
+
     private ConfigFactoryManager m_factoryManager;
+    private ConfigUtil m_configUtil;
+    /**
+     * 是否已经批量加载过
+     */
+    private final AtomicBoolean m_batchLoaded = new AtomicBoolean(false);
+    /**
+     * 创建 Config 或 ConfigFile 时使用的锁，不同 Namespace 可并发创建
+     *
+     * KEY：Namespace 名字
+     */
+    private final ConcurrentMap<String, Object> m_creationLocks = Maps.newConcurrentMap();
 
     /**
      * Config 对象的缓存
@@ -30,6 +52,7 @@ public class DefaultConfigManager implements ConfigManager {
 
     public DefaultConfigManager() {
         m_factoryManager = ApolloInjector.getInstance(ConfigFactoryManager.class);
+        m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
     }
 
     @Override
@@ -38,11 +61,13 @@ public class DefaultConfigManager implements ConfigManager {
         Config config = m_configs.get(namespace);
         // 若不存在，进行创建
         if (config == null) {
-            synchronized (this) {
+            synchronized (getCreationLock(namespace)) {
                 // 获得 Config 对象
                 config = m_configs.get(namespace);
                 // 若不存在，进行创建
                 if (config == null) {
+                    // 批量加载声明的 Namespace 们
+                    batchLoadIfNecessary(namespace);
                     // 获得对应的 ConfigFactory 对象
                     ConfigFactory factory = m_factoryManager.getFactory(namespace);
                     // 创建 Config 对象
@@ -63,11 +88,13 @@ public class DefaultConfigManager implements ConfigManager {
         ConfigFile configFile = m_configFiles.get(namespaceFileName);
         // 若不存在，进行创建
         if (configFile == null) {
-            synchronized (this) {
+            synchronized (getCreationLock(namespaceFileName)) {
                 // 获得 ConfigFile 对象
                 configFile = m_configFiles.get(namespaceFileName);
                 // 若不存在，进行创建
                 if (configFile == null) {
+                    // 批量加载声明的 Namespace 们
+                    batchLoadIfNecessary(namespaceFileName);
                     // 获得对应的 ConfigFactory 对象
                     ConfigFactory factory = m_factoryManager.getFactory(namespaceFileName);
                     // 创建 ConfigFile 对象
@@ -80,4 +107,45 @@ public class DefaultConfigManager implements ConfigManager {
         return configFile;
     }
 
+    /**
+     * 首次创建 Config 或 ConfigFile 时，通过一次请求加载声明的 Namespace 们和当前 Namespace 的配置，
+     * 之后各 Namespace 的 RemoteConfigRepository 首次同步时，直接使用加载的结果。
+     *
+     * @param namespace 当前 Namespace 名字
+     */
+    private void batchLoadIfNecessary(String namespace) {
+        if (!m_configUtil.isBatchLoadEnabled() || m_configUtil.isInLocalMode() || m_batchLoaded.get()) {
+            return;
+        }
+        // 并发创建时，其它 Namespace 等待批量加载完成，从而使用加载的结果
+        synchronized (m_batchLoaded) {
+            if (m_batchLoaded.get()) {
+                return;
+            }
+            Set<String> namespaces = Sets.newLinkedHashSet(m_configUtil.getBatchLoadNamespaces());
+            namespaces.add(namespace);
+            try {
+                ApolloInjector.getInstance(RemoteConfigBatchLoader.class).load(namespaces);
+            } catch (Throwable ex) {
+                // 批量加载失败，逐个 Namespace 加载
+                Tracer.logError(ex);
+                logger.warn("Batch load namespaces {} failed, reason: {}", namespaces, ExceptionUtil.getDetailMessage(ex));
+            } finally {
+                m_batchLoaded.set(true);
+            }
+        }
+    }
+
+    private Object getCreationLock(String name) {
+        Object lock = m_creationLocks.get(name);
+        if (lock == null) {
+            lock = new Object();
+            Object previous = m_creationLocks.putIfAbsent(name, lock);
+            if (previous != null) {
+                lock = previous;
+            }
+        }
+        return lock;
+    }
+
 }
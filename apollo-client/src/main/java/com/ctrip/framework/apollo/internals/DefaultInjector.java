@@ -58,6 +58,7 @@ public class DefaultInjector implements Injector {
             bind(HttpUtil.class).in(Singleton.class);
             bind(ConfigServiceLocator.class).in(Singleton.class);
             bind(RemoteConfigLongPollService.class).in(Singleton.class);
+            bind(RemoteConfigBatchLoader.class).in(Singleton.class);
         }
 
     }
@@ -0,0 +1,205 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * 本地缓存配置的二进制快照
+ * <p>
+ * 相比 Properties 文件，无需转义和逐行解析，读取时一次性读入内存。格式如下，数字均为大端：
+ * <pre>
+ * int    MAGIC
+ * byte   VERSION
+ * int    配置项数量
+ * 每个配置项：int KEY 字节数，bytes KEY ，int VALUE 字节数，bytes VALUE ，均为 UTF-8
+ * int    以上所有字节的 CRC32
+ * </pre>
+ * 写入时，先写临时文件，再原子重命名，读取者不会读到写了一半的文件。
+ */
+public class LocalConfigSnapshot {
+
+    private static final int MAGIC = 0x41504c53; // APLS
+    private static final byte VERSION = 2;
+    private static final int CHECKSUM_LENGTH = 4;
+    private static final int CRC_CHUNK_SIZE = 8192;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /**
+     * 配置
+     */
+    private final Properties properties;
+
+    public LocalConfigSnapshot(Properties properties) {
+        this.properties = properties;
+    }
+
+    public Properties getProperties() {
+        return properties;
+    }
+
+    /**
+     * 写入快照文件。先写入同目录下的临时文件，再原子重命名为目标文件。
+     *
+     * @param file 快照文件
+     * @throws IOException 写入失败
+     */
+    public void writeTo(File file) throws IOException {
+        byte[] content = encode();
+        Path target = file.toPath();
+        Path temp = Files.createTempFile(target.getParent(), file.getName(), TEMP_FILE_SUFFIX);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                out.write(content);
+                out.getChannel().force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 读取快照文件到堆内存，并校验 CRC32 。
+     *
+     * 不使用内存映射文件，因为映射在 GC 前不会释放，Windows 下文件会一直被锁定，无法重命名覆盖。
+     *
+     * @param file 快照文件
+     * @return 快照
+     * @throws IOException 读取失败，或者文件格式不正确、已损坏
+     */
+    public static LocalConfigSnapshot readFrom(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < CHECKSUM_LENGTH || size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Invalid snapshot size %d of %s", size, file.getAbsolutePath()));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(String.format("Unexpected end of snapshot %s", file.getAbsolutePath()));
+                }
+            }
+            buffer.flip();
+            try {
+                return decode(buffer);
+            } catch (BufferUnderflowException | IllegalArgumentException ex) {
+                throw new IOException(String.format("Corrupted snapshot %s", file.getAbsolutePath()), ex);
+            }
+        }
+    }
+
+    private byte[] encode() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(properties.size());
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            writeString(out, (String) entry.getKey());
+            writeString(out, (String) entry.getValue());
+        }
+        out.flush();
+        CRC32 crc32 = new CRC32();
+        crc32.update(bos.toByteArray(), 0, bos.size());
+        out.writeInt((int) crc32.getValue());
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private static LocalConfigSnapshot decode(ByteBuffer buffer) throws IOException {
+        int contentLength = buffer.limit() - CHECKSUM_LENGTH;
+        // 校验 CRC32
+        int checksum = buffer.getInt(contentLength);
+        if (checksum != (int) crc32(buffer, contentLength)) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        buffer.limit(contentLength);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a config snapshot");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported snapshot version %d", version));
+        }
+        int count = buffer.getInt();
+        Properties properties = new Properties();
+        for (int i = 0; i < count; i++) {
+            String key = readString(buffer);
+            String value = readString(buffer);
+            if (key == null || value == null) {
+                throw new IOException("Null key or value in snapshot");
+            }
+            properties.setProperty(key, value);
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("Unexpected trailing bytes in snapshot");
+        }
+        return new LocalConfigSnapshot(properties);
+    }
+
+    private static long crc32(ByteBuffer buffer, int length) {
+        CRC32 crc32 = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.position(0);
+        byte[] chunk = new byte[Math.min(CRC_CHUNK_SIZE, length)];
+        int remaining = length;
+        while (remaining > 0) {
+            int read = Math.min(chunk.length, remaining);
+            content.get(chunk, 0, read);
+            crc32.update(chunk, 0, read);
+            remaining -= read;
+        }
+        return crc32.getValue();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("String length exceeds snapshot size");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "LocalConfigSnapshot{" +
+                "size=" + properties.size() +
+                '}';
+    }
+}
@@ -212,6 +212,13 @@ public class LocalFileConfigRepository extends AbstractConfigRepository implemen
 
     private Properties loadFromLocalCacheFile(File baseDir, String namespace) {
         Preconditions.checkNotNull(baseDir, "Basedir cannot be null");
+        // 优先读取二进制快照文件，不存在或已损坏时，读取 Properties 文件
+        if (m_configUtil.isLocalCacheSnapshotEnabled()) {
+            Properties properties = loadFromLocalSnapshotFile(baseDir, namespace);
+            if (properties != null) {
+                return properties;
+            }
+        }
         // 拼接本地缓存的配置文件 File 对象
         File file = assembleLocalCacheFile(baseDir, namespace);
         // 从文件中，读取 Properties
@@ -241,6 +248,27 @@ public class LocalFileConfigRepository extends AbstractConfigRepository implemen
         return properties;
     }
 
+    /**
+     * @return 快照文件中的配置。快照文件不存在，或者读取失败时，返回 null
+     */
+    private Properties loadFromLocalSnapshotFile(File baseDir, String namespace) {
+        File file = assembleLocalSnapshotFile(baseDir, namespace);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            LocalConfigSnapshot snapshot = LocalConfigSnapshot.readFrom(file);
+            logger.debug("Loading local config snapshot {} successfully", file.getAbsolutePath());
+            return snapshot.getProperties();
+        } catch (IOException ex) {
+            Tracer.logError(new ApolloConfigException(String.format("Loading config from local snapshot %s failed",
+                    file.getAbsolutePath()), ex));
+            logger.warn("Loading local config snapshot {} failed, will try the properties file, reason: {}",
+                    file.getAbsolutePath(), ExceptionUtil.getDetailMessage(ex));
+            return null;
+        }
+    }
+
     void persistLocalCacheFile(File baseDir, String namespace) {
         if (baseDir == null) {
             return;
@@ -270,6 +298,32 @@ public class LocalFileConfigRepository extends AbstractConfigRepository implemen
             }
             transaction.complete();
         }
+        // Properties 文件始终写入，关闭快照或降级客户端后，仍可读取到最新的配置
+        if (m_configUtil.isLocalCacheSnapshotEnabled()) {
+            persistLocalSnapshotFile(baseDir, namespace);
+        } else {
+            // 删除之前的快照文件，避免再次开启时读取到过期的配置
+            assembleLocalSnapshotFile(baseDir, namespace).delete();
+        }
+    }
+
+    private void persistLocalSnapshotFile(File baseDir, String namespace) {
+        File file = assembleLocalSnapshotFile(baseDir, namespace);
+        Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "persistLocalConfigSnapshot");
+        transaction.addData("LocalConfigFile", file.getAbsolutePath());
+        try {
+            new LocalConfigSnapshot(m_fileProperties).writeTo(file);
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (IOException ex) {
+            ApolloConfigException exception = new ApolloConfigException(String.format("Persist local snapshot %s failed", file.getAbsolutePath()), ex);
+            Tracer.logError(exception);
+            transaction.setStatus(exception);
+            logger.warn("Persist local snapshot {} failed, reason: {}.", file.getAbsolutePath(), ExceptionUtil.getDetailMessage(ex));
+            // 删除旧的快照文件，读取时使用 Properties 文件
+            file.delete();
+        } finally {
+            transaction.complete();
+        }
     }
 
     /**
@@ -305,4 +359,11 @@ public class LocalFileConfigRepository extends AbstractConfigRepository implemen
         return new File(baseDir, fileName);
     }
 
+    // 拼接完整的本地缓存快照文件的地址
+    File assembleLocalSnapshotFile(File baseDir, String namespace) {
+        String fileName = String.format("%s.snapshot", Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR) // + 号分隔
+                .join(m_configUtil.getAppId(), m_configUtil.getCluster(), namespace));
+        return new File(baseDir, fileName);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigQuery;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigQueryResult;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 远程配置批量加载器
+ * <p>
+ * 通过一次请求，从 Config Service 加载多个 Namespace 的配置，暂存在内存中。
+ * 各 Namespace 的 {@link RemoteConfigRepository} 首次同步时，优先使用暂存的配置，从而避免每个 Namespace 一次请求。
+ * <p>
+ * 批量加载失败时，不抛出异常，各 RemoteConfigRepository 仍然逐个加载。
+ */
+public class RemoteConfigBatchLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(RemoteConfigBatchLoader.class);
+    private static final Joiner.MapJoiner MAP_JOINER = Joiner.on("&").withKeyValueSeparator("=");
+    private static final Escaper pathEscaper = UrlEscapers.urlPathSegmentEscaper();
+    private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
+    private static final Type RESPONSE_TYPE = new TypeToken<List<ApolloConfigQueryResult>>() {
+    }.getType();
+
+    /**
+     * 暂存的配置
+     *
+     * KEY：Namespace 名字
+     * VALUE：ApolloConfig 对象
+     */
+    private final Map<String, ApolloConfig> m_loadedConfigs = Maps.newConcurrentMap();
+    private final ConfigUtil m_configUtil;
+    private final HttpUtil m_httpUtil;
+    private final ConfigServiceLocator m_serviceLocator;
+    private final Gson gson;
+
+    public RemoteConfigBatchLoader() {
+        m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+        m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
+        m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+        gson = new Gson();
+    }
+
+    /**
+     * 批量加载 Namespace 们的配置，并暂存
+     *
+     * @param namespaces Namespace 名字们
+     * @return 是否加载成功
+     */
+    public boolean load(Collection<String> namespaces) {
+        if (namespaces.isEmpty()) {
+            return true;
+        }
+        String appId = m_configUtil.getAppId();
+        String cluster = m_configUtil.getCluster();
+        String dataCenter = m_configUtil.getDataCenter();
+
+        // 创建查询条件，客户端尚无配置，不传 Release Key
+        List<ApolloConfigQuery> queries = Lists.newArrayListWithCapacity(namespaces.size());
+        for (String namespace : namespaces) {
+            queries.add(new ApolloConfigQuery(namespace, null));
+        }
+        String body = gson.toJson(queries);
+
+        // 随机所有的 Config Service 的地址，逐个尝试，直到成功
+        List<ServiceDTO> configServices = Lists.newArrayList(m_serviceLocator.getConfigServices());
+        Collections.shuffle(configServices);
+        for (ServiceDTO configService : configServices) {
+            String url = assembleBatchQueryConfigUrl(configService.getHomepageUrl(), appId, cluster, dataCenter);
+            HttpRequest request = new HttpRequest(url);
+            request.setBody(body);
+
+            Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "queryConfigs");
+            transaction.addData("Url", url);
+            try {
+                HttpResponse<List<ApolloConfigQueryResult>> response = m_httpUtil.doPost(request, RESPONSE_TYPE);
+                int loaded = 0;
+                if (response.getBody() != null) {
+                    for (ApolloConfigQueryResult result : response.getBody()) {
+                        // 暂存有配置的结果。304 和 404 的 Namespace ，交给 RemoteConfigRepository 自行处理
+                        if (result.getStatusCode() == 200 && result.getConfig() != null) {
+                            m_loadedConfigs.put(result.getNamespaceName(), result.getConfig());
+                            loaded++;
+                        }
+                    }
+                }
+                logger.debug("Batch loaded {} of {} namespaces from {}", loaded, namespaces.size(), url);
+                transaction.addData("StatusCode", response.getStatusCode());
+                transaction.setStatus(Transaction.SUCCESS);
+                return true;
+            } catch (Throwable ex) {
+                Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
+                transaction.setStatus(ex);
+                logger.debug("Batch load config from {} failed, reason: {}", url, ExceptionUtil.getDetailMessage(ex));
+            } finally {
+                transaction.complete();
+            }
+        }
+        logger.warn("Batch load config failed - appId: {}, cluster: {}, namespaces: {}, will load them one by one",
+                appId, cluster, namespaces);
+        return false;
+    }
+
+    /**
+     * 获得并移除暂存的配置。每份暂存的配置，仅使用一次，后续的同步仍然走单个 Namespace 的请求。
+     *
+     * @param namespace Namespace 名字
+     * @return ApolloConfig 对象，不存在时返回 null
+     */
+    public ApolloConfig take(String namespace) {
+        return m_loadedConfigs.remove(namespace);
+    }
+
+    // 组装批量查询配置的地址
+    String assembleBatchQueryConfigUrl(String uri, String appId, String cluster, String dataCenter) {
+        String path = "configs/%s/%s"; // /configs/{appId}/{clusterName}
+        String pathExpanded = String.format(path, pathEscaper.escape(appId), pathEscaper.escape(cluster));
+        Map<String, String> queryParams = Maps.newHashMap();
+        // dataCenter
+        if (!Strings.isNullOrEmpty(dataCenter)) {
+            queryParams.put("dataCenter", queryParamEscaper.escape(dataCenter));
+        }
+        // ip
+        String localIp = m_configUtil.getLocalIp();
+        if (!Strings.isNullOrEmpty(localIp)) {
+            queryParams.put("ip", queryParamEscaper.escape(localIp));
+        }
+        // 拼接 Query String
+        if (!queryParams.isEmpty()) {
+            pathExpanded += "?" + MAP_JOINER.join(queryParams);
+        }
+        // 拼接最终的请求 URL
+        if (!uri.endsWith("/")) {
+            uri += "/";
+        }
+        return uri + pathExpanded;
+    }
+
+}
@@ -10,10 +10,12 @@ import com.ctrip.framework.apollo.core.schedule.ExponentialSchedulePolicy;
 import com.ctrip.framework.apollo.core.schedule.SchedulePolicy;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.http.EventStreamHandler;
 import com.ctrip.framework.apollo.util.http.HttpRequest;
 import com.ctrip.framework.apollo.util.http.HttpResponse;
 import com.ctrip.framework.apollo.util.http.HttpUtil;
@@ -54,6 +56,8 @@ public class RemoteConfigLongPollService {
     private static final long INIT_NOTIFICATION_ID = ConfigConsts.NOTIFICATION_ID_PLACEHOLDER;
     // 90 seconds, should be longer than server side's long polling timeout, which is now 60 seconds
     private static final int LONG_POLLING_READ_TIMEOUT = 90 * 1000;
+    // 6 minutes, should be longer than server side's notification stream timeout, which is now 5 minutes
+    private static final int NOTIFICATION_STREAM_READ_TIMEOUT = 6 * 60 * 1000;
 
     /**
      * 长轮询 ExecutorService
@@ -98,6 +102,18 @@ public class RemoteConfigLongPollService {
      * VALUE：ApolloNotificationMessages 对象
      */
     private final Map<String, ApolloNotificationMessages> m_remoteNotificationMessages;//namespaceName -> watchedKey -> notificationId
+    /**
+     * 是否使用通知流（Server-Sent Events）的标识。Config Service 不支持时，置为 false ，只使用长轮询。
+     */
+    private final AtomicBoolean m_notificationStreamEnabled;
+    /**
+     * 通知流失败定时重试策略，使用 {@link ExponentialSchedulePolicy} 。失败期间，回退到长轮询。
+     */
+    private SchedulePolicy m_notificationStreamFailSchedulePolicyInSecond;
+    /**
+     * 下次尝试通知流的时间，单位毫秒
+     */
+    private long m_nextNotificationStreamAttemptTime;
     private Type m_responseType;
     private Gson gson;
     private ConfigUtil m_configUtil;
@@ -119,6 +135,8 @@ public class RemoteConfigLongPollService {
         m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
         m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
         m_longPollRateLimiter = RateLimiter.create(m_configUtil.getLongPollQPS());
+        m_notificationStreamEnabled = new AtomicBoolean(m_configUtil.isNotificationStreamEnabled());
+        m_notificationStreamFailSchedulePolicyInSecond = new ExponentialSchedulePolicy(1, 120); //in second
     }
 
     /**
@@ -217,6 +235,16 @@ public class RemoteConfigLongPollService {
                     List<ServiceDTO> configServices = getConfigServices();
                     lastServiceDto = configServices.get(random.nextInt(configServices.size()));
                 }
+                // 优先使用通知流，成功结束（服务端超时）后重新订阅；失败时，本轮回退到长轮询。
+                if (shouldUseNotificationStream()) {
+                    url = assembleNotificationStreamUrl(lastServiceDto.getHomepageUrl(), appId, cluster, dataCenter, m_notifications);
+                    transaction.addData("Url", url);
+                    if (doNotificationStream(lastServiceDto, url)) {
+                        m_longPollFailSchedulePolicyInSecond.success();
+                        transaction.setStatus(Transaction.SUCCESS);
+                        continue;
+                    }
+                }
                 // 组装长轮询通知变更的地址
                 url = assembleLongPollRefreshUrl(lastServiceDto.getHomepageUrl(), appId, cluster, dataCenter, m_notifications);
 
@@ -276,6 +304,62 @@ public class RemoteConfigLongPollService {
         }
     }
 
+    private boolean shouldUseNotificationStream() {
+        return m_notificationStreamEnabled.get() && System.currentTimeMillis() >= m_nextNotificationStreamAttemptTime;
+    }
+
+    /**
+     * 通过通知流接收配置变更通知，直到服务端结束连接。
+     *
+     * @param serviceDto Config Service
+     * @param url        通知流地址
+     * @return 是否正常结束。若为 false ，调用方回退到长轮询。
+     */
+    private boolean doNotificationStream(final ServiceDTO serviceDto, String url) {
+        logger.debug("Streaming notifications from {}", url);
+        HttpRequest request = new HttpRequest(url);
+        request.setReadTimeout(NOTIFICATION_STREAM_READ_TIMEOUT);
+        try {
+            m_httpUtil.doGetEventStream(request, m_responseType, new EventStreamHandler<List<ApolloConfigNotification>>() {
+                @Override
+                public void onEvent(List<ApolloConfigNotification> notifications) {
+                    if (notifications == null || notifications.isEmpty()) {
+                        return;
+                    }
+                    logger.debug("Notification stream event: {}, url: {}", notifications, serviceDto.getHomepageUrl());
+                    // 更新 m_notifications
+                    updateNotifications(notifications);
+                    // 更新 m_remoteNotificationMessages
+                    updateRemoteNotifications(notifications);
+                    // 通知对应的 RemoteConfigRepository 们
+                    RemoteConfigLongPollService.this.notify(serviceDto, notifications);
+                }
+            });
+            m_notificationStreamFailSchedulePolicyInSecond.success();
+            return true;
+        } catch (ApolloConfigStatusCodeException ex) {
+            // Config Service 版本较老，不支持通知流，只使用长轮询
+            if (ex.getStatusCode() == 404 || ex.getStatusCode() == 405) {
+                logger.warn("Notification stream is not supported by {}, fall back to long polling", serviceDto.getHomepageUrl());
+                m_notificationStreamEnabled.set(false);
+                return false;
+            }
+            onNotificationStreamFailed(url, ex);
+            return false;
+        } catch (Throwable ex) {
+            onNotificationStreamFailed(url, ex);
+            return false;
+        }
+    }
+
+    private void onNotificationStreamFailed(String url, Throwable ex) {
+        long retryInSecond = m_notificationStreamFailSchedulePolicyInSecond.fail();
+        m_nextNotificationStreamAttemptTime = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retryInSecond);
+        Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
+        logger.warn("Notification stream failed, will fall back to long polling and retry stream in {} seconds. url: {}, reason: {}",
+                retryInSecond, url, ExceptionUtil.getDetailMessage(ex));
+    }
+
     private void notify(ServiceDTO lastServiceDto, List<ApolloConfigNotification> notifications) {
         if (notifications == null || notifications.isEmpty()) {
             return;
@@ -353,6 +437,11 @@ public class RemoteConfigLongPollService {
 
     // 组装长轮询通知变更的地址
     String assembleLongPollRefreshUrl(String uri, String appId, String cluster, String dataCenter, Map<String, Long> notificationsMap) {
+        return assembleNotificationsUrl(uri, "notifications/v2", appId, cluster, dataCenter, notificationsMap);
+    }
+
+    private String assembleNotificationsUrl(String uri, String path, String appId, String cluster, String dataCenter,
+                                            Map<String, Long> notificationsMap) {
         Map<String, String> queryParams = Maps.newHashMap();
         queryParams.put("appId", queryParamEscaper.escape(appId));
         queryParams.put("cluster", queryParamEscaper.escape(cluster));
@@ -373,7 +462,12 @@ public class RemoteConfigLongPollService {
         if (!uri.endsWith("/")) {
             uri += "/";
         }
-        return uri + "notifications/v2?" + params;
+        return uri + path + "?" + params;
+    }
+
+    // 组装通知流的地址，参数和长轮询相同
+    String assembleNotificationStreamUrl(String uri, String appId, String cluster, String dataCenter, Map<String, Long> notificationsMap) {
+        return assembleNotificationsUrl(uri, "notifications/v2/stream", appId, cluster, dataCenter, notificationsMap);
     }
 
     String assembleNotifications(Map<String, Long> notificationsMap) {
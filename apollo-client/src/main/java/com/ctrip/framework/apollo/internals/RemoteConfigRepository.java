@@ -98,6 +98,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     private ConfigUtil m_configUtil;
     private HttpUtil m_httpUtil;
     private ConfigServiceLocator m_serviceLocator;
+    private RemoteConfigBatchLoader m_batchLoader;
 
     static {
         // 单线程池
@@ -115,6 +116,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
         m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
         m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+        m_batchLoader = ApolloInjector.getInstance(RemoteConfigBatchLoader.class);
         remoteConfigLongPollService = ApolloInjector.getInstance(RemoteConfigLongPollService.class);
         m_longPollServiceDto = new AtomicReference<>();
         m_remoteMessages = new AtomicReference<>();
@@ -204,6 +206,15 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     }
 
     private ApolloConfig loadApolloConfig() {
+        // 首次同步时，优先使用批量加载的配置
+        if (m_configUtil.isBatchLoadEnabled() && m_configCache.get() == null) {
+            ApolloConfig batchLoaded = m_batchLoader.take(m_namespace);
+            if (batchLoaded != null) {
+                logger.debug("Loaded config for {} from batch: {}", m_namespace, batchLoaded);
+                m_configNeedForceRefresh.set(false);
+                return batchLoaded;
+            }
+        }
         // 限流
         if (!m_loadConfigRateLimiter.tryAcquire(5, TimeUnit.SECONDS)) {
             // wait at most 5 seconds
@@ -275,6 +286,21 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
 
                     // 有新的配置，进行返回新的 ApolloConfig 对象
                     ApolloConfig result = response.getBody();
+                    // 增量配置，合并到缓存的配置中。无法合并时，重新拉取全量配置
+                    if (result != null && result.getBaseReleaseKey() != null) {
+                        ApolloConfig merged = mergeDeltaConfig(m_configCache.get(), result);
+                        if (merged == null) {
+                            Tracer.logEvent("Apollo.Client.ConfigDeltaMismatch", STRING_JOINER.join(appId, cluster, m_namespace));
+                            url = assembleQueryConfigUrl(configService.getHomepageUrl(), appId, cluster, m_namespace, dataCenter, m_remoteMessages.get(), m_configCache.get(), false);
+                            transaction.addData("FullUrl", url);
+                            HttpResponse<ApolloConfig> fullResponse = m_httpUtil.doGet(new HttpRequest(url), ApolloConfig.class);
+                            if (fullResponse.getStatusCode() == 304) {
+                                return m_configCache.get();
+                            }
+                            merged = fullResponse.getBody();
+                        }
+                        result = merged;
+                    }
                     logger.debug("Loaded config for {}: {}", m_namespace, result);
                     return result;
                 } catch (ApolloConfigStatusCodeException ex) {
@@ -312,15 +338,52 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         throw new ApolloConfigException(message, exception);
     }
 
+    /**
+     * 合并增量配置到缓存的配置
+     *
+     * @param previous 缓存的配置
+     * @param delta    增量配置
+     * @return 合并后的全量配置。若增量配置不是基于缓存的配置，返回 null
+     */
+    ApolloConfig mergeDeltaConfig(ApolloConfig previous, ApolloConfig delta) {
+        if (previous == null || !delta.getBaseReleaseKey().equals(previous.getReleaseKey())) {
+            return null;
+        }
+        Map<String, String> configurations = Maps.newHashMap(previous.getConfigurations());
+        if (delta.getDeletedKeys() != null) {
+            for (String deletedKey : delta.getDeletedKeys()) {
+                configurations.remove(deletedKey);
+            }
+        }
+        if (delta.getConfigurations() != null) {
+            configurations.putAll(delta.getConfigurations());
+        }
+        ApolloConfig result = new ApolloConfig(delta.getAppId(), delta.getCluster(), delta.getNamespaceName(), delta.getReleaseKey());
+        result.setConfigurations(configurations);
+        return result;
+    }
+
     // 组装查询配置的地址
     String assembleQueryConfigUrl(String uri, String appId, String cluster, String namespace,
                                   String dataCenter, ApolloNotificationMessages remoteMessages, ApolloConfig previousConfig) {
+        return assembleQueryConfigUrl(uri, appId, cluster, namespace, dataCenter, remoteMessages, previousConfig,
+                m_configUtil.isDeltaConfigEnabled());
+    }
+
+    // 组装查询配置的地址。若 delta 为 true ，且已有配置，请求增量配置
+    String assembleQueryConfigUrl(String uri, String appId, String cluster, String namespace,
+                                  String dataCenter, ApolloNotificationMessages remoteMessages, ApolloConfig previousConfig,
+                                  boolean delta) {
         String path = "configs/%s/%s/%s"; // /configs/{appId}/{clusterName}/{namespace:.+}
         List<String> pathParams = Lists.newArrayList(pathEscaper.escape(appId), pathEscaper.escape(cluster), pathEscaper.escape(namespace));
         Map<String, String> queryParams = Maps.newHashMap();
         // releaseKey
         if (previousConfig != null) {
             queryParams.put("releaseKey", queryParamEscaper.escape(previousConfig.getReleaseKey()));
+            // delta
+            if (delta) {
+                queryParams.put("delta", "true");
+            }
         }
         // dataCenter
         if (!Strings.isNullOrEmpty(dataCenter)) {
@@ -102,8 +102,8 @@ public class SimpleConfig extends AbstractConfig implements RepositoryChangeList
 
         // 更新到 `m_configProperties` 中
         m_configProperties = newConfigProperties;
-        // 清空 Cache 缓存
-        clearConfigCache();
+        // 清空变更属性的 Cache 缓存
+        clearConfigCache(changeMap.keySet());
 
         // 通知监听器们
         this.fireConfigChange(new ConfigChangeEvent(m_namespace, changeMap));
@@ -0,0 +1,190 @@
+package com.ctrip.framework.apollo.spring.config;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.internals.DefaultConfig;
+import com.ctrip.framework.apollo.internals.LocalFileConfigRepository;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 应用启动时，并行加载 Namespace 的 Config
+ * <p>
+ * 各 Namespace 通过有界线程池并发调用 {@link ConfigService#getConfig(String)} ，共享一个截止时间。
+ * 截止时间内未加载完成的 Namespace ，先使用本地缓存文件 {@link LocalFileConfigRepository} 中的配置，
+ * 待加载完成后，再同步为最新的配置，并持续跟随其变更。
+ */
+public class ConfigPreloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigPreloader.class);
+
+    private final ConfigUtil configUtil;
+
+    public ConfigPreloader() {
+        configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    }
+
+    /**
+     * 加载 Namespace 们的 Config
+     *
+     * @param namespaces Namespace 名字们
+     * @return Config Map ，按 Namespace 的顺序
+     */
+    public Map<String, Config> preload(Collection<String> namespaces) {
+        Set<String> distinctNamespaces = Sets.newLinkedHashSet(namespaces);
+        Map<String, Config> configs = Maps.newLinkedHashMap();
+        int parallelism = Math.min(configUtil.getPreloadParallelism(), distinctNamespaces.size());
+        // 逐个加载
+        if (parallelism <= 1) {
+            for (String namespace : distinctNamespaces) {
+                PreloadTask task = new PreloadTask(namespace);
+                task.run();
+                configs.put(namespace, task.getConfig());
+            }
+            return configs;
+        }
+        // 并行加载
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism,
+                ApolloThreadFactory.create("ConfigPreloader", true));
+        try {
+            Map<String, PreloadTask> tasks = Maps.newLinkedHashMap();
+            for (String namespace : distinctNamespaces) {
+                PreloadTask task = new PreloadTask(namespace);
+                tasks.put(namespace, task);
+                executorService.execute(task);
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(configUtil.getPreloadTimeoutInMills());
+            for (PreloadTask task : tasks.values()) {
+                configs.put(task.namespace, task.await(deadline));
+            }
+        } finally {
+            // 未完成的任务继续执行，完成后线程退出
+            executorService.shutdown();
+        }
+        return configs;
+    }
+
+    private static Properties toProperties(Config config) {
+        Properties properties = new Properties();
+        for (String key : config.getPropertyNames()) {
+            String value = config.getProperty(key, null);
+            if (value != null) {
+                properties.setProperty(key, value);
+            }
+        }
+        return properties;
+    }
+
+    private class PreloadTask implements Runnable {
+
+        private final String namespace;
+        private final CountDownLatch loaded = new CountDownLatch(1);
+        /**
+         * 加载的 Config 对象
+         */
+        private Config config;
+        /**
+         * 加载失败的异常
+         */
+        private Throwable exception;
+        /**
+         * 超时后使用的本地缓存 Config 对象
+         */
+        private DefaultConfig failoverConfig;
+
+        private PreloadTask(String namespace) {
+            this.namespace = namespace;
+        }
+
+        @Override
+        public void run() {
+            Transaction transaction = Tracer.newTransaction("Apollo.Client.Preload", namespace);
+            long start = System.nanoTime();
+            Config result = null;
+            Throwable error = null;
+            try {
+                result = ConfigService.getConfig(namespace);
+                transaction.setStatus(Transaction.SUCCESS);
+            } catch (Throwable ex) {
+                transaction.setStatus(ex);
+                error = ex;
+            } finally {
+                transaction.complete();
+            }
+            logger.debug("Preloaded namespace {} in {} ms", namespace,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            synchronized (this) {
+                config = result;
+                exception = error;
+                // 已使用本地缓存，同步为最新的配置
+                if (failoverConfig != null && config != null) {
+                    syncFailoverConfig();
+                }
+                // 在锁内标记完成，await 超时后在锁内判断，要么获得加载的 Config ，要么其 failoverConfig 被同步
+                loaded.countDown();
+            }
+        }
+
+        private synchronized Config getConfig() {
+            if (exception != null) {
+                if (exception instanceof RuntimeException) {
+                    throw (RuntimeException) exception;
+                }
+                throw new ApolloConfigException(String.format("Load config for namespace %s failed", namespace), exception);
+            }
+            return config;
+        }
+
+        private Config await(long deadline) {
+            try {
+                loaded.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                if (loaded.getCount() == 0) {
+                    return getConfig();
+                }
+                // 超时，使用本地缓存
+                Tracer.logEvent("Apollo.Client.PreloadTimeout", namespace);
+                logger.warn("Load config for namespace {} timed out after {} ms, use the local cache until it is loaded",
+                        namespace, configUtil.getPreloadTimeoutInMills());
+                failoverConfig = new DefaultConfig(namespace, new LocalFileConfigRepository(namespace));
+                return failoverConfig;
+            }
+        }
+
+        private void syncFailoverConfig() {
+            final Config source = config;
+            final DefaultConfig target = failoverConfig;
+            target.onRepositoryChange(namespace, toProperties(source));
+            source.addChangeListener(new ConfigChangeListener() {
+                @Override
+                public void onChange(ConfigChangeEvent changeEvent) {
+                    target.onRepositoryChange(namespace, toProperties(source));
+                }
+            });
+        }
+    }
+
+}
@@ -1,13 +1,13 @@
 package com.ctrip.framework.apollo.spring.config;
 
 import com.ctrip.framework.apollo.Config;
-import com.ctrip.framework.apollo.ConfigService;
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.spring.property.AutoUpdateConfigChangeListener;
 import com.ctrip.framework.apollo.spring.util.SpringInjector;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
@@ -21,6 +21,7 @@ import org.springframework.core.env.Environment;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -86,10 +87,15 @@ public class PropertySourcesProcessor implements BeanFactoryPostProcessor, Envir
         // 按照优先级，顺序遍历 Namespace
         // sort by order asc
         ImmutableSortedSet<Integer> orders = ImmutableSortedSet.copyOf(NAMESPACE_NAMES.keySet());
+        List<String> namespaces = Lists.newArrayList();
+        for (Integer order : orders) {
+            namespaces.addAll(NAMESPACE_NAMES.get(order));
+        }
+        // 并行加载 Apollo Config 对象
+        Map<String, Config> configs = new ConfigPreloader().preload(namespaces);
         for (Integer order : orders) {
             for (String namespace : NAMESPACE_NAMES.get(order)) {
-                // 创建 Apollo Config 对象
-                Config config = ConfigService.getConfig(namespace);
+                Config config = configs.get(namespace);
                 // 创建 Namespace 对应的 ConfigPropertySource 对象
                 // 添加到 `composite` 中。
                 composite.addPropertySource(configPropertySourceFactory.getConfigPropertySource(namespace, config));
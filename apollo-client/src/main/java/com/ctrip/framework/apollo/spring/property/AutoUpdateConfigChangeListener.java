@@ -1,10 +1,12 @@
 package com.ctrip.framework.apollo.spring.property;
 
 import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.spring.util.SpringInjector;
+import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,9 +18,19 @@ import org.springframework.util.CollectionUtils;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 自动更新配置监听器
@@ -29,6 +41,22 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener {
 
     private static final Logger logger = LoggerFactory.getLogger(AutoUpdateConfigChangeListener.class);
 
+    /**
+     * 每批更新的 SpringValue 数量，不超过该数量时，在当前线程更新
+     */
+    private static final int UPDATE_BATCH_SIZE = 64;
+    /**
+     * 并行更新的线程池，所有监听器共享
+     */
+    private static final ThreadPoolExecutor s_updateExecutorService;
+
+    static {
+        int parallelism = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        s_updateExecutorService = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), ApolloThreadFactory.create("SpringValueUpdater", true));
+        s_updateExecutorService.allowCoreThreadTimeOut(true);
+    }
+
     /**
      * {@link TypeConverter#convertIfNecessary(Object, Class, Field)} 是否带上 Field 参数，因为 Spring 3.2.0+ 才有该方法
      */
@@ -40,16 +68,24 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener {
      */
     private final TypeConverter typeConverter;
     private final PlaceholderHelper placeholderHelper;
+    /**
+     * 每次调用 {@link ConfigurableBeanFactory#getTypeConverter()} 是否返回新的 TypeConverter 对象。
+     * TypeConverter 非线程安全，只有各批次能使用各自的 TypeConverter 时，才并行更新。
+     */
+    private final boolean parallelUpdateSupported;
     private final SpringValueRegistry springValueRegistry;
+    private final AutoUpdateMetrics autoUpdateMetrics;
     private final Gson gson;
 
     public AutoUpdateConfigChangeListener(Environment environment, ConfigurableListableBeanFactory beanFactory) {
         this.typeConverterHasConvertIfNecessaryWithFieldParameter = testTypeConverterHasConvertIfNecessaryWithFieldParameter();
         this.beanFactory = beanFactory;
         this.typeConverter = this.beanFactory.getTypeConverter();
+        this.parallelUpdateSupported = this.typeConverter != this.beanFactory.getTypeConverter();
         this.environment = environment;
         this.placeholderHelper = SpringInjector.getInstance(PlaceholderHelper.class);
         this.springValueRegistry = SpringInjector.getInstance(SpringValueRegistry.class);
+        this.autoUpdateMetrics = SpringInjector.getInstance(AutoUpdateMetrics.class);
         this.gson = new Gson();
     }
 
@@ -60,12 +96,14 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener {
         if (CollectionUtils.isEmpty(keys)) {
             return;
         }
-        // 循环 KEY 集合，更新 StringValue
+        long start = System.nanoTime();
+        // 收集需要更新的 SpringValue
+        List<SpringValue> springValues = new ArrayList<>();
         for (String key : keys) {
             // 忽略，若不在 SpringValueRegistry 中
             // 1. check whether the changed key is relevant
             Collection<SpringValue> targetValues = springValueRegistry.get(key);
-            if (targetValues == null || targetValues.isEmpty()) {
+            if (targetValues.isEmpty()) {
                 continue;
             }
             // 校验是否需要更新
@@ -73,12 +111,96 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener {
             if (!shouldTriggerAutoUpdate(changeEvent, key)) {
                 continue;
             }
-            // 循环，更新 SpringValue
-            // 3. update the value
             for (SpringValue val : targetValues) {
-                updateSpringValue(val);
+                if (val.isTargetBeanValid()) {
+                    springValues.add(val);
+                }
+            }
+        }
+        if (springValues.isEmpty()) {
+            return;
+        }
+        // 更新 SpringValue
+        // 3. update the value
+        int failed;
+        if (springValues.size() <= UPDATE_BATCH_SIZE || !parallelUpdateSupported) {
+            failed = updateSpringValues(springValues, typeConverter);
+        } else {
+            failed = updateSpringValuesInParallel(springValues);
+        }
+        autoUpdateMetrics.recordUpdate(springValues.size() - failed, failed, System.nanoTime() - start);
+    }
+
+    /**
+     * 按批次并行更新。同一 Bean 的 SpringValue 在同一批次中顺序更新，避免并发调用同一 Bean 的 setter 方法。
+     *
+     * @return 更新失败的数量
+     */
+    private int updateSpringValuesInParallel(List<SpringValue> springValues) {
+        // 按 Bean 分组
+        Map<Object, List<SpringValue>> springValuesByBean = new IdentityHashMap<>();
+        for (SpringValue springValue : springValues) {
+            Object bean = springValue.getBean();
+            if (bean == null) {
+                continue;
+            }
+            List<SpringValue> beanSpringValues = springValuesByBean.get(bean);
+            if (beanSpringValues == null) {
+                beanSpringValues = Lists.newArrayList();
+                springValuesByBean.put(bean, beanSpringValues);
+            }
+            beanSpringValues.add(springValue);
+        }
+        // 拆分批次
+        List<Callable<Integer>> batches = Lists.newArrayList();
+        List<SpringValue> batch = Lists.newArrayList();
+        for (List<SpringValue> beanSpringValues : springValuesByBean.values()) {
+            batch.addAll(beanSpringValues);
+            if (batch.size() >= UPDATE_BATCH_SIZE) {
+                batches.add(newUpdateTask(batch));
+                batch = Lists.newArrayList();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(newUpdateTask(batch));
+        }
+        // 并行更新，并等待全部完成
+        int failed = 0;
+        try {
+            for (Future<Integer> future : s_updateExecutorService.invokeAll(batches)) {
+                failed += future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for the auto update of apollo changed values");
+        } catch (ExecutionException ex) {
+            logger.error("Auto update apollo changed values failed", ex);
+        }
+        return failed;
+    }
+
+    private Callable<Integer> newUpdateTask(final List<SpringValue> springValues) {
+        // TypeConverter 非线程安全，每个批次使用各自的
+        final TypeConverter batchTypeConverter = beanFactory.getTypeConverter();
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return updateSpringValues(springValues, batchTypeConverter);
+            }
+        };
+    }
+
+    /**
+     * @return 更新失败的数量
+     */
+    private int updateSpringValues(List<SpringValue> springValues, TypeConverter typeConverter) {
+        int failed = 0;
+        for (SpringValue val : springValues) {
+            if (!updateSpringValue(val, typeConverter)) {
+                failed++;
             }
         }
+        return failed;
     }
 
     /**
@@ -99,15 +221,17 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener {
         return Objects.equals(environment.getProperty(changedKey), configChange.getNewValue());
     }
 
-    private void updateSpringValue(SpringValue springValue) {
+    private boolean updateSpringValue(SpringValue springValue, TypeConverter typeConverter) {
         try {
             // 解析值
-            Object value = resolvePropertyValue(springValue);
+            Object value = resolvePropertyValue(springValue, typeConverter);
             // 更新 StringValue
             springValue.update(value);
             logger.info("Auto update apollo changed value successfully, new value: {}, {}", value, springValue);
+            return true;
         } catch (Throwable ex) {
             logger.error("Auto update apollo changed value failed, {}", springValue.toString(), ex);
+            return false;
         }
     }
 
@@ -116,7 +240,7 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener {
      *
      * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#doResolveDependency(org.springframework.beans.factory.config.DependencyDescriptor, java.lang.String, java.util.Set, org.springframework.beans.TypeConverter)
      */
-    private Object resolvePropertyValue(SpringValue springValue) {
+    private Object resolvePropertyValue(SpringValue springValue, TypeConverter typeConverter) {
         // value will never be null, as @Value and @ApolloJsonValue will not allow that
         Object value = placeholderHelper.resolvePropertyValue(beanFactory, springValue.getBeanName(), springValue.getPlaceholder());
         // 如果值数据结构是 JSON 类型，则使用 Gson 解析成对应值的类型
@@ -127,13 +251,13 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener {
             if (springValue.isField()) {
                 // org.springframework.beans.TypeConverter#convertIfNecessary(java.lang.Object, java.lang.Class, java.lang.reflect.Field) is available from Spring 3.2.0+
                 if (typeConverterHasConvertIfNecessaryWithFieldParameter) {
-                    value = this.typeConverter.convertIfNecessary(value, springValue.getTargetType(), springValue.getField());
+                    value = typeConverter.convertIfNecessary(value, springValue.getTargetType(), springValue.getField());
                 } else {
-                    value = this.typeConverter.convertIfNecessary(value, springValue.getTargetType());
+                    value = typeConverter.convertIfNecessary(value, springValue.getTargetType());
                 }
             // 如果类型为 Method
             } else {
-                value = this.typeConverter.convertIfNecessary(value, springValue.getTargetType(), springValue.getMethodParameter());
+                value = typeConverter.convertIfNecessary(value, springValue.getTargetType(), springValue.getMethodParameter());
             }
         }
 
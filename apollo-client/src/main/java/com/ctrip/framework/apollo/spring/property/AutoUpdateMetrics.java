@@ -0,0 +1,94 @@
+package com.ctrip.framework.apollo.spring.property;
+
+import com.ctrip.framework.apollo.spring.util.SpringInjector;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自动更新 {@link SpringValue} 的统计
+ */
+public class AutoUpdateMetrics {
+
+    private final SpringValueRegistry springValueRegistry;
+    /**
+     * 触发更新的配置变更次数
+     */
+    private final AtomicLong updateEventCount = new AtomicLong();
+    /**
+     * 更新成功的 SpringValue 数量
+     */
+    private final AtomicLong updatedCount = new AtomicLong();
+    /**
+     * 更新失败的 SpringValue 数量
+     */
+    private final AtomicLong failedCount = new AtomicLong();
+    /**
+     * 累计更新耗时，单位：纳秒
+     */
+    private final AtomicLong totalUpdateTimeNanos = new AtomicLong();
+    /**
+     * 最大单次更新耗时，单位：纳秒
+     */
+    private final AtomicLong maxUpdateTimeNanos = new AtomicLong();
+
+    public AutoUpdateMetrics() {
+        springValueRegistry = SpringInjector.getInstance(SpringValueRegistry.class);
+    }
+
+    void recordUpdate(int updated, int failed, long elapsedNanos) {
+        updateEventCount.incrementAndGet();
+        updatedCount.addAndGet(updated);
+        failedCount.addAndGet(failed);
+        totalUpdateTimeNanos.addAndGet(elapsedNanos);
+        long max;
+        while (elapsedNanos > (max = maxUpdateTimeNanos.get())) {
+            if (maxUpdateTimeNanos.compareAndSet(max, elapsedNanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the number of registered injection points, i.e. fields and methods with placeholders
+     */
+    public int getRegisteredCount() {
+        return springValueRegistry.size();
+    }
+
+    /**
+     * @return the number of config changes which triggered auto update
+     */
+    public long getUpdateEventCount() {
+        return updateEventCount.get();
+    }
+
+    public long getUpdatedCount() {
+        return updatedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getAverageUpdateTimeMillis() {
+        long count = updateEventCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalUpdateTimeNanos.get() / count);
+    }
+
+    public long getMaxUpdateTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxUpdateTimeNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "AutoUpdateMetrics{" +
+                "registeredCount=" + getRegisteredCount() +
+                ", updateEventCount=" + getUpdateEventCount() +
+                ", updatedCount=" + getUpdatedCount() +
+                ", failedCount=" + getFailedCount() +
+                ", averageUpdateTimeMillis=" + getAverageUpdateTimeMillis() +
+                ", maxUpdateTimeMillis=" + getMaxUpdateTimeMillis() +
+                '}';
+    }
+}
@@ -1,7 +1,9 @@
 package com.ctrip.framework.apollo.spring.property;
 
 import org.springframework.core.MethodParameter;
+import org.springframework.util.ReflectionUtils;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -16,9 +18,13 @@ import java.lang.reflect.Type;
 public class SpringValue {
 
     /**
-     * Bean 对象
+     * Bean 对象的弱引用，避免 prototype 等 Bean 无法被回收
      */
-    private Object bean;
+    private WeakReference<Object> beanRef;
+    /**
+     * Bean 类名
+     */
+    private String beanClassName;
     /**
      * Bean 名字
      */
@@ -56,7 +62,8 @@ public class SpringValue {
 
     // Field
     public SpringValue(String key, String placeholder, Object bean, String beanName, Field field, boolean isJson) {
-        this.bean = bean;
+        this.beanRef = new WeakReference<>(bean);
+        this.beanClassName = bean.getClass().getName();
         this.beanName = beanName;
         // Field
         this.field = field;
@@ -72,7 +79,8 @@ public class SpringValue {
 
     // Method
     public SpringValue(String key, String placeholder, Object bean, String beanName, Method method, boolean isJson) {
-        this.bean = bean;
+        this.beanRef = new WeakReference<>(bean);
+        this.beanClassName = bean.getClass().getName();
         this.beanName = beanName;
         // Method
         this.methodParameter = new MethodParameter(method, 0);
@@ -88,26 +96,45 @@ public class SpringValue {
     }
 
     public void update(Object newVal) throws IllegalAccessException, InvocationTargetException {
+        Object bean = beanRef.get();
+        // 忽略，若 Bean 已被回收
+        if (bean == null) {
+            return;
+        }
         // Field
         if (isField()) {
-            injectField(newVal);
+            injectField(bean, newVal);
         // Method
         } else {
-            injectMethod(newVal);
+            injectMethod(bean, newVal);
         }
     }
 
-    private void injectField(Object newVal) throws IllegalAccessException {
-        boolean accessible = field.isAccessible();
-        field.setAccessible(true);
+    private void injectField(Object bean, Object newVal) throws IllegalAccessException {
+        // 不恢复 accessible 标记，同一 Field 可能被并发更新
+        ReflectionUtils.makeAccessible(field);
         field.set(bean, newVal);
-        field.setAccessible(accessible);
     }
 
-    private void injectMethod(Object newVal) throws InvocationTargetException, IllegalAccessException {
+    private void injectMethod(Object bean, Object newVal) throws InvocationTargetException, IllegalAccessException {
         methodParameter.getMethod().invoke(bean, newVal);
     }
 
+    /**
+     * @return the bean, or null if it has been garbage collected
+     */
+    public Object getBean() {
+        return beanRef.get();
+    }
+
+    public boolean isTargetBeanValid() {
+        return beanRef.get() != null;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
     public String getBeanName() {
         return beanName;
     }
@@ -143,9 +170,9 @@ public class SpringValue {
     @Override
     public String toString() {
         if (isField()) {
-            return String.format("key: %s, beanName: %s, field: %s.%s", key, beanName, bean.getClass().getName(), field.getName());
+            return String.format("key: %s, beanName: %s, field: %s.%s", key, beanName, beanClassName, field.getName());
         }
-        return String.format("key: %s, beanName: %s, method: %s.%s", key, beanName, bean.getClass().getName(),
+        return String.format("key: %s, beanName: %s, method: %s.%s", key, beanName, beanClassName,
                 methodParameter.getMethod().getName());
     }
 
@@ -1,12 +1,20 @@
 package com.ctrip.framework.apollo.spring.property;
 
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@link SpringValue} 注册表
+ *
+ * 线程安全，Bean 创建时可并发注册。SpringValue 弱引用 Bean ，Bean 被回收后，对应的 SpringValue 在下次注册或获取时被清理。
  */
 public class SpringValueRegistry {
 
@@ -14,18 +22,89 @@ public class SpringValueRegistry {
      * SpringValue 集合
      *
      * KEY：属性 KEY ，即 Config 配置 KEY
-     * VALUE：SpringValue 数组
+     * VALUE：SpringValue 集合
      */
-    private final Multimap<String, SpringValue> registry = LinkedListMultimap.create();
+    private final ConcurrentMap<String, Set<SpringValue>> registry = Maps.newConcurrentMap();
+    /**
+     * Bean 被回收后，对应的 {@link BeanReference} 会被加入该队列
+     */
+    private final ReferenceQueue<Object> beanReferenceQueue = new ReferenceQueue<>();
+    /**
+     * BeanReference 集合，保证 BeanReference 本身不被回收，从而 Bean 被回收时能进入队列
+     */
+    private final Set<BeanReference> beanReferences = Sets.newConcurrentHashSet();
+    /**
+     * 注册的 SpringValue 数量
+     */
+    private final AtomicInteger size = new AtomicInteger();
 
     // 注册
     public void register(String key, SpringValue springValue) {
-        registry.put(key, springValue);
+        Object bean = springValue.getBean();
+        if (bean == null) {
+            return;
+        }
+        // 清理已回收的 Bean
+        purgeCollectedBeans();
+
+        Set<SpringValue> springValues = registry.get(key);
+        if (springValues == null) {
+            springValues = Sets.newConcurrentHashSet();
+            Set<SpringValue> previous = registry.putIfAbsent(key, springValues);
+            if (previous != null) {
+                springValues = previous;
+            }
+        }
+        if (springValues.add(springValue)) {
+            size.incrementAndGet();
+            beanReferences.add(new BeanReference(bean, key, springValue, beanReferenceQueue));
+        }
     }
 
     // 获得
     public Collection<SpringValue> get(String key) {
-        return registry.get(key);
+        // 清理已回收的 Bean
+        purgeCollectedBeans();
+
+        Set<SpringValue> springValues = registry.get(key);
+        if (springValues == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(springValues);
+    }
+
+    /**
+     * @return the number of registered injection points
+     */
+    public int size() {
+        purgeCollectedBeans();
+        return size.get();
+    }
+
+    private void purgeCollectedBeans() {
+        BeanReference reference;
+        while ((reference = (BeanReference) beanReferenceQueue.poll()) != null) {
+            beanReferences.remove(reference);
+            Set<SpringValue> springValues = registry.get(reference.key);
+            if (springValues != null && springValues.remove(reference.springValue)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Bean 的弱引用，记录需要清理的 SpringValue
+     */
+    private static class BeanReference extends WeakReference<Object> {
+
+        private final String key;
+        private final SpringValue springValue;
+
+        private BeanReference(Object bean, String key, SpringValue springValue, ReferenceQueue<Object> queue) {
+            super(bean, queue);
+            this.key = key;
+            this.springValue = springValue;
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -6,10 +6,13 @@ import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.enums.EnvUtils;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.foundation.Foundation;
+import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -33,6 +36,14 @@ public class ConfigUtil {
     private TimeUnit configCacheExpireTimeUnit = TimeUnit.MINUTES;//1 minute
     private long longPollingInitialDelayInMills = 2000;//2 seconds
     private boolean autoUpdateInjectedSpringProperties = true;
+    private boolean notificationStreamEnabled = false;
+    private boolean batchLoadEnabled = false;
+    private List<String> batchLoadNamespaces = Collections.emptyList();
+    private boolean deltaConfigEnabled = false;
+    private boolean localCacheSnapshotEnabled = false;
+    private int maxConcurrentHttpRequests = 16;
+    private int preloadParallelism = 4;
+    private long preloadTimeoutInMills = 30000; //30 seconds
 
     public ConfigUtil() {
         initRefreshInterval();
@@ -43,6 +54,12 @@ public class ConfigUtil {
         initMaxConfigCacheSize();
         initLongPollingInitialDelayInMills();
         initAutoUpdateInjectedSpringProperties();
+        initNotificationStreamEnabled();
+        initBatchLoad();
+        initDeltaConfigEnabled();
+        initLocalCacheSnapshotEnabled();
+        initMaxConcurrentHttpRequests();
+        initPreload();
     }
 
     /**
@@ -280,4 +297,178 @@ public class ConfigUtil {
     public boolean isAutoUpdateInjectedSpringPropertiesEnabled() {
         return autoUpdateInjectedSpringProperties;
     }
+
+    private void initNotificationStreamEnabled() {
+        // 1. Get from System Property
+        String enableNotificationStream = System.getProperty("apollo.notificationStream.enabled");
+        if (Strings.isNullOrEmpty(enableNotificationStream)) {
+            // 2. Get from app.properties
+            enableNotificationStream = Foundation.app().getProperty("apollo.notificationStream.enabled", null);
+        }
+        if (!Strings.isNullOrEmpty(enableNotificationStream)) {
+            notificationStreamEnabled = Boolean.parseBoolean(enableNotificationStream.trim());
+        }
+    }
+
+    /**
+     * Whether to receive config change notifications through server-sent events instead of long polling.
+     * Long polling is still used as the fallback when the stream is unavailable.
+     */
+    public boolean isNotificationStreamEnabled() {
+        return notificationStreamEnabled;
+    }
+
+    private void initBatchLoad() {
+        // 1. Get from System Property
+        String enableBatchLoad = System.getProperty("apollo.batchLoad.enabled");
+        if (Strings.isNullOrEmpty(enableBatchLoad)) {
+            // 2. Get from app.properties
+            enableBatchLoad = Foundation.app().getProperty("apollo.batchLoad.enabled", null);
+        }
+        if (!Strings.isNullOrEmpty(enableBatchLoad)) {
+            batchLoadEnabled = Boolean.parseBoolean(enableBatchLoad.trim());
+        }
+
+        // 1. Get from System Property
+        String namespaces = System.getProperty("apollo.batchLoad.namespaces");
+        if (Strings.isNullOrEmpty(namespaces)) {
+            // 2. Get from app.properties
+            namespaces = Foundation.app().getProperty("apollo.batchLoad.namespaces", null);
+        }
+        if (!Strings.isNullOrEmpty(namespaces)) {
+            batchLoadNamespaces = Splitter.on(",").omitEmptyStrings().trimResults().splitToList(namespaces);
+        }
+    }
+
+    /**
+     * Whether to load the declared namespaces with one batch request when the first config is requested,
+     * instead of one request per namespace.
+     */
+    public boolean isBatchLoadEnabled() {
+        return batchLoadEnabled;
+    }
+
+    /**
+     * The namespaces declared to be loaded in batch, besides the namespace which triggers the batch load.
+     */
+    public List<String> getBatchLoadNamespaces() {
+        return batchLoadNamespaces;
+    }
+
+    private void initDeltaConfigEnabled() {
+        // 1. Get from System Property
+        String enableDeltaConfig = System.getProperty("apollo.deltaConfig.enabled");
+        if (Strings.isNullOrEmpty(enableDeltaConfig)) {
+            // 2. Get from app.properties
+            enableDeltaConfig = Foundation.app().getProperty("apollo.deltaConfig.enabled", null);
+        }
+        if (!Strings.isNullOrEmpty(enableDeltaConfig)) {
+            deltaConfigEnabled = Boolean.parseBoolean(enableDeltaConfig.trim());
+        }
+    }
+
+    /**
+     * Whether to ask the config service for only the changed keys when the config is refreshed.
+     * The full config is loaded when the server could not compute the delta or the delta could not be applied.
+     */
+    public boolean isDeltaConfigEnabled() {
+        return deltaConfigEnabled;
+    }
+
+    private void initLocalCacheSnapshotEnabled() {
+        // 1. Get from System Property
+        String enableSnapshot = System.getProperty("apollo.localCacheSnapshot.enabled");
+        if (Strings.isNullOrEmpty(enableSnapshot)) {
+            // 2. Get from app.properties
+            enableSnapshot = Foundation.app().getProperty("apollo.localCacheSnapshot.enabled", null);
+        }
+        if (!Strings.isNullOrEmpty(enableSnapshot)) {
+            localCacheSnapshotEnabled = Boolean.parseBoolean(enableSnapshot.trim());
+        }
+    }
+
+    /**
+     * Whether to also persist the local cache as checksummed binary snapshots, disabled by default.
+     * Snapshots are read first, properties files are still written and read when there is no valid snapshot.
+     */
+    public boolean isLocalCacheSnapshotEnabled() {
+        return localCacheSnapshotEnabled;
+    }
+
+    private void initMaxConcurrentHttpRequests() {
+        // 1. Get from System Property
+        String customizedMaxConcurrentHttpRequests = System.getProperty("apollo.httpClient.maxConcurrentRequests");
+        if (Strings.isNullOrEmpty(customizedMaxConcurrentHttpRequests)) {
+            // 2. Get from app.properties
+            customizedMaxConcurrentHttpRequests = Foundation.app().getProperty("apollo.httpClient.maxConcurrentRequests", null);
+        }
+        if (!Strings.isNullOrEmpty(customizedMaxConcurrentHttpRequests)) {
+            try {
+                int value = Integer.parseInt(customizedMaxConcurrentHttpRequests.trim());
+                if (value > 0) {
+                    maxConcurrentHttpRequests = value;
+                }
+            } catch (Throwable ex) {
+                logger.error("Config for apollo.httpClient.maxConcurrentRequests is invalid: {}", customizedMaxConcurrentHttpRequests);
+            }
+        }
+    }
+
+    /**
+     * The max number of in-flight http requests of the default http transport, including the long polling requests.
+     */
+    public int getMaxConcurrentHttpRequests() {
+        return maxConcurrentHttpRequests;
+    }
+
+    private void initPreload() {
+        // 1. Get from System Property
+        String customizedPreloadParallelism = System.getProperty("apollo.preload.parallelism");
+        if (Strings.isNullOrEmpty(customizedPreloadParallelism)) {
+            // 2. Get from app.properties
+            customizedPreloadParallelism = Foundation.app().getProperty("apollo.preload.parallelism", null);
+        }
+        if (!Strings.isNullOrEmpty(customizedPreloadParallelism)) {
+            try {
+                int value = Integer.parseInt(customizedPreloadParallelism.trim());
+                if (value > 0) {
+                    preloadParallelism = value;
+                }
+            } catch (Throwable ex) {
+                logger.error("Config for apollo.preload.parallelism is invalid: {}", customizedPreloadParallelism);
+            }
+        }
+
+        // 1. Get from System Property
+        String customizedPreloadTimeout = System.getProperty("apollo.preload.timeout");
+        if (Strings.isNullOrEmpty(customizedPreloadTimeout)) {
+            // 2. Get from app.properties
+            customizedPreloadTimeout = Foundation.app().getProperty("apollo.preload.timeout", null);
+        }
+        if (!Strings.isNullOrEmpty(customizedPreloadTimeout)) {
+            try {
+                long value = Long.parseLong(customizedPreloadTimeout.trim());
+                if (value > 0) {
+                    preloadTimeoutInMills = value;
+                }
+            } catch (Throwable ex) {
+                logger.error("Config for apollo.preload.timeout is invalid: {}", customizedPreloadTimeout);
+            }
+        }
+    }
+
+    /**
+     * The max number of namespaces loaded concurrently at application startup, 1 means loading them one by one.
+     */
+    public int getPreloadParallelism() {
+        return preloadParallelism;
+    }
+
+    /**
+     * The deadline in milliseconds for loading all the namespaces at application startup.
+     * The namespaces not loaded in time are served from the local cache until they are loaded.
+     */
+    public long getPreloadTimeoutInMills() {
+        return preloadTimeoutInMills;
+    }
 }
@@ -0,0 +1,158 @@
+package com.ctrip.framework.apollo.util.http;
+
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Default {@link HttpTransport} based on {@link HttpURLConnection}.
+ * <p>
+ * Connections are kept alive and pooled by the JDK, so the long polling, config loading and meta server requests
+ * to the same server share sockets. To make a connection reusable, the response body, including the error body,
+ * is always read to the end before the stream is closed. The json body is deserialized straight from the stream,
+ * without building the whole response as a string first.
+ * <p>
+ * The number of in-flight requests is bounded, a request waits at most its connect timeout for a free slot.
+ */
+public class DefaultHttpTransport implements HttpTransport {
+    private static final String GZIP_ENCODING = "gzip";
+    private static final int DRAIN_BUFFER_SIZE = 4096;
+
+    private final Gson gson;
+    private final Semaphore m_requestPermits;
+
+    /**
+     * Constructor.
+     *
+     * @param maxConcurrentRequests the max number of in-flight requests
+     */
+    public DefaultHttpTransport(int maxConcurrentRequests) {
+        gson = new Gson();
+        m_requestPermits = new Semaphore(maxConcurrentRequests, true);
+    }
+
+    @Override
+    public <T> HttpResponse<T> execute(String method, HttpRequest httpRequest, Type responseType) {
+        try {
+            if (!m_requestPermits.tryAcquire(httpRequest.getConnectTimeout(), TimeUnit.MILLISECONDS)) {
+                throw new ApolloConfigException(String.format("Could not complete %s operation, too many concurrent requests",
+                        method.toLowerCase()));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApolloConfigException(String.format("Could not complete %s operation, interrupted", method.toLowerCase()), ex);
+        }
+        try {
+            return doExecute(method, httpRequest, responseType);
+        } finally {
+            m_requestPermits.release();
+        }
+    }
+
+    private <T> HttpResponse<T> doExecute(String method, HttpRequest httpRequest, Type responseType) {
+        int statusCode;
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
+
+            conn.setRequestMethod(method);
+            conn.setRequestProperty("Connection", "keep-alive");
+            // config service may send the response compressed
+            conn.setRequestProperty("Accept-Encoding", GZIP_ENCODING);
+            conn.setConnectTimeout(httpRequest.getConnectTimeout());
+            conn.setReadTimeout(httpRequest.getReadTimeout());
+
+            byte[] body = null;
+            if (httpRequest.getBody() != null) {
+                body = httpRequest.getBody().getBytes(StandardCharsets.UTF_8);
+                conn.setDoOutput(true);
+                conn.setFixedLengthStreamingMode(body.length);
+                conn.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+            }
+
+            conn.connect();
+
+            if (body != null) {
+                try (OutputStream os = conn.getOutputStream()) {
+                    os.write(body);
+                }
+            }
+
+            statusCode = conn.getResponseCode();
+
+            if (statusCode == 200) {
+                InputStream is = conn.getInputStream();
+                try {
+                    if (GZIP_ENCODING.equalsIgnoreCase(conn.getContentEncoding())) {
+                        is = new GZIPInputStream(is);
+                    }
+                    Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
+                    T result = gson.fromJson(reader, responseType);
+                    drain(is);
+                    return new HttpResponse<>(statusCode, result);
+                } finally {
+                    closeQuietly(is);
+                }
+            }
+
+            if (statusCode == 304) {
+                drainAndClose(conn.getInputStream());
+                return new HttpResponse<>(statusCode, null);
+            }
+
+            // clean up the connection so that it could be reused
+            drainAndClose(conn.getErrorStream());
+        } catch (Throwable ex) {
+            throw new ApolloConfigException(String.format("Could not complete %s operation", method.toLowerCase()), ex);
+        }
+
+        throw new ApolloConfigStatusCodeException(statusCode,
+                String.format("%s operation failed for %s", method.charAt(0) + method.substring(1).toLowerCase(),
+                        httpRequest.getUrl()));
+    }
+
+    /**
+     * according to https://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html,
+     * we should clean up the connection by reading the response body so that the connection could be reused.
+     */
+    private void drain(InputStream is) throws IOException {
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        while (is.read(buffer) != -1) {
+            //ignore
+        }
+    }
+
+    private void drainAndClose(InputStream is) {
+        if (is == null) {
+            return;
+        }
+        try {
+            drain(is);
+        } catch (IOException ex) {
+            //ignore
+        } finally {
+            closeQuietly(is);
+        }
+    }
+
+    private void closeQuietly(InputStream is) {
+        try {
+            is.close();
+        } catch (IOException ex) {
+            //ignore
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.ctrip.framework.apollo.util.http;
+
+/**
+ * Callback for events received from a server-sent events stream.
+ */
+public interface EventStreamHandler<T> {
+
+    /**
+     * Invoked on the reading thread for each event received.
+     *
+     * @param event the deserialized event data
+     */
+    void onEvent(T event);
+
+}
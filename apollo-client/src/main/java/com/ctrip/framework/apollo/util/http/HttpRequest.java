@@ -7,6 +7,7 @@ public class HttpRequest {
     private String m_url;
     private int m_connectTimeout;
     private int m_readTimeout;
+    private String m_body;
 
     /**
      * Create the request for the url.
@@ -38,4 +39,15 @@ public class HttpRequest {
     public void setReadTimeout(int readTimeout) {
         this.m_readTimeout = readTimeout;
     }
+
+    /**
+     * @return the request body in json, null if there is no request body
+     */
+    public String getBody() {
+        return m_body;
+    }
+
+    public void setBody(String body) {
+        this.m_body = body;
+    }
 }
@@ -0,0 +1,28 @@
+package com.ctrip.framework.apollo.util.http;
+
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+
+import java.lang.reflect.Type;
+
+/**
+ * The transport used by {@link HttpUtil} to talk to the meta server and config service.
+ * <p>
+ * The default implementation is {@link DefaultHttpTransport}. A custom implementation could be provided through
+ * /META-INF/services/com.ctrip.framework.apollo.util.http.HttpTransport.
+ */
+public interface HttpTransport {
+
+    /**
+     * Execute the http request.
+     *
+     * @param method       the http method, e.g. GET or POST
+     * @param httpRequest  the request, timeouts are already resolved and the body, if any, is sent as json
+     * @param responseType the type of the json response body
+     * @return the response, the body is null if the status code is 304
+     * @throws ApolloConfigStatusCodeException if the response code is neither 200 nor 304
+     * @throws ApolloConfigException           if any other error happened
+     */
+    <T> HttpResponse<T> execute(String method, HttpRequest httpRequest, Type responseType);
+
+}
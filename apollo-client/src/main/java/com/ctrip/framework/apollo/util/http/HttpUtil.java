@@ -4,10 +4,11 @@ import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
 import com.ctrip.framework.apollo.util.ConfigUtil;
-import com.google.common.base.Function;
+import com.ctrip.framework.foundation.internals.ServiceBootstrap;
 import com.google.common.io.CharStreams;
 import com.google.gson.Gson;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -21,6 +22,7 @@ import java.nio.charset.StandardCharsets;
  */
 public class HttpUtil {
     private ConfigUtil m_configUtil;
+    private HttpTransport m_httpTransport;
     private Gson gson;
 
     /**
@@ -28,6 +30,7 @@ public class HttpUtil {
      */
     public HttpUtil() {
         m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+        m_httpTransport = loadHttpTransport();
         gson = new Gson();
     }
 
@@ -40,14 +43,7 @@ public class HttpUtil {
      * @throws ApolloConfigException if any error happened or response code is neither 200 nor 304
      */
     public <T> HttpResponse<T> doGet(HttpRequest httpRequest, final Class<T> responseType) {
-        Function<String, T> convertResponse = new Function<String, T>() {
-            @Override
-            public T apply(String input) {
-                return gson.fromJson(input, responseType);
-            }
-        };
-
-        return doGetWithSerializeFunction(httpRequest, convertResponse);
+        return m_httpTransport.execute("GET", resolveTimeout(httpRequest), responseType);
     }
 
     /**
@@ -59,25 +55,38 @@ public class HttpUtil {
      * @throws ApolloConfigException if any error happened or response code is neither 200 nor 304
      */
     public <T> HttpResponse<T> doGet(HttpRequest httpRequest, final Type responseType) {
-        Function<String, T> convertResponse = new Function<String, T>() {
-            @Override
-            public T apply(String input) {
-                return gson.fromJson(input, responseType);
-            }
-        };
+        return m_httpTransport.execute("GET", resolveTimeout(httpRequest), responseType);
+    }
 
-        return doGetWithSerializeFunction(httpRequest, convertResponse);
+    /**
+     * Do post operation for the http request, the request body is sent as json.
+     *
+     * @param httpRequest  the request
+     * @param responseType the response type
+     * @return the response
+     * @throws ApolloConfigException if any error happened or response code is neither 200 nor 304
+     */
+    public <T> HttpResponse<T> doPost(HttpRequest httpRequest, final Type responseType) {
+        return m_httpTransport.execute("POST", resolveTimeout(httpRequest), responseType);
     }
 
-    private <T> HttpResponse<T> doGetWithSerializeFunction(HttpRequest httpRequest,
-                                                           Function<String, T> serializeFunction) {
-        InputStreamReader isr = null;
-        InputStreamReader esr = null;
+    /**
+     * Do get operation for a server-sent events stream, the handler is invoked for each event received
+     * until the server closes the stream.
+     *
+     * @param httpRequest  the request
+     * @param eventType    the type of each event's data
+     * @param handler      the event handler
+     * @throws ApolloConfigException if any error happened or response code is not 200
+     */
+    public <T> void doGetEventStream(HttpRequest httpRequest, Type eventType, EventStreamHandler<T> handler) {
+        BufferedReader reader = null;
         int statusCode;
         try {
             HttpURLConnection conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
 
             conn.setRequestMethod("GET");
+            conn.setRequestProperty("Accept", "text/event-stream");
 
             int connectTimeout = httpRequest.getConnectTimeout();
             if (connectTimeout < 0) {
@@ -95,52 +104,50 @@ public class HttpUtil {
             conn.connect();
 
             statusCode = conn.getResponseCode();
-            String response;
-
-            try {
-                isr = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8);
-                response = CharStreams.toString(isr);
-            } catch (IOException ex) {
-                /**
-                 * according to https://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html,
-                 * we should clean up the connection by reading the response body so that the connection
-                 * could be reused.
-                 */
-                InputStream errorStream = conn.getErrorStream();
-
-                if (errorStream != null) {
-                    esr = new InputStreamReader(errorStream, StandardCharsets.UTF_8);
-                    try {
-                        CharStreams.toString(esr);
-                    } catch (IOException ioe) {
-                        //ignore
-                    }
-                }
-
-                throw ex;
-            }
 
             if (statusCode == 200) {
-                return new HttpResponse<>(statusCode, serializeFunction.apply(response));
+                reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+                StringBuilder data = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // blank line dispatches the event
+                    if (line.isEmpty()) {
+                        if (data.length() > 0) {
+                            T event = gson.fromJson(data.toString(), eventType);
+                            data.setLength(0);
+                            handler.onEvent(event);
+                        }
+                        continue;
+                    }
+                    // event name, id and comments are not used
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    String value = line.substring("data:".length());
+                    data.append(value.startsWith(" ") ? value.substring(1) : value);
+                }
+                return;
             }
 
-            if (statusCode == 304) {
-                return new HttpResponse<>(statusCode, null);
-            }
-        } catch (Throwable ex) {
-            throw new ApolloConfigException("Could not complete get operation", ex);
-        } finally {
-            if (isr != null) {
+            // clean up the connection so that it could be reused
+            InputStream errorStream = conn.getErrorStream();
+            if (errorStream != null) {
+                reader = new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8));
                 try {
-                    isr.close();
-                } catch (IOException ex) {
-                    // ignore
+                    CharStreams.toString(reader);
+                } catch (IOException ioe) {
+                    //ignore
                 }
             }
-
-            if (esr != null) {
+        } catch (Throwable ex) {
+            throw new ApolloConfigException("Could not complete event stream operation", ex);
+        } finally {
+            if (reader != null) {
                 try {
-                    esr.close();
+                    reader.close();
                 } catch (IOException ex) {
                     // ignore
                 }
@@ -148,7 +155,27 @@ public class HttpUtil {
         }
 
         throw new ApolloConfigStatusCodeException(statusCode,
-                String.format("Get operation failed for %s", httpRequest.getUrl()));
+                String.format("Event stream operation failed for %s", httpRequest.getUrl()));
+    }
+
+    private HttpRequest resolveTimeout(HttpRequest httpRequest) {
+        if (httpRequest.getConnectTimeout() < 0) {
+            httpRequest.setConnectTimeout(m_configUtil.getConnectTimeout());
+        }
+        if (httpRequest.getReadTimeout() < 0) {
+            httpRequest.setReadTimeout(m_configUtil.getReadTimeout());
+        }
+        return httpRequest;
+    }
+
+    private HttpTransport loadHttpTransport() {
+        try {
+            // 基于 JDK SPI 加载自定义的 HttpTransport 实现对象
+            return ServiceBootstrap.loadFirst(HttpTransport.class);
+        } catch (Throwable ex) {
+            // 未配置时，使用默认实现
+            return new DefaultHttpTransport(m_configUtil.getMaxConcurrentHttpRequests());
+        }
     }
 
 }
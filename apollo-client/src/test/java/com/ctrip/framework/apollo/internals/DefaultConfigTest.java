@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.internals;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -144,18 +145,18 @@ public class DefaultConfigTest {
     Integer someDefaultValue = -1;
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
   }
 
   @Test
@@ -197,27 +198,27 @@ public class DefaultConfigTest {
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithSmallCache());
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
-    when(someProperties.getProperty(anotherKey)).thenReturn(String.valueOf(anotherValue));
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
+    someProperties.setProperty(anotherKey, String.valueOf(anotherValue));
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
 
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(anotherKey);
+    verify(defaultConfig, times(1)).getProperty(anotherKey, null);
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(2)).getProperty(someKey);
+    verify(defaultConfig, times(2)).getProperty(someKey, null);
   }
 
   @Test
@@ -230,24 +231,24 @@ public class DefaultConfigTest {
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithShortExpireTime());
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
 
     TimeUnit.MILLISECONDS.sleep(50);
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(2)).getProperty(someKey);
+    verify(defaultConfig, times(2)).getProperty(someKey, null);
   }
 
   @Test
@@ -424,24 +425,24 @@ public class DefaultConfigTest {
     String[] someDefaultValue = new String[]{"1", "2"};
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(someValue);
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, someValue);
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertArrayEquals(values, defaultConfig.getArrayProperty(someKey, someDelimiter, someDefaultValue));
     assertArrayEquals(values, defaultConfig.getArrayProperty(someKey, someDelimiter, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
 
     assertArrayEquals(someDefaultValue, defaultConfig.getArrayProperty(someKey, someInvalidDelimiter,
         someDefaultValue));
     assertArrayEquals(someDefaultValue, defaultConfig.getArrayProperty(someKey, someInvalidDelimiter,
         someDefaultValue));
 
-    verify(someProperties, times(3)).getProperty(someKey);
+    verify(defaultConfig, times(3)).getProperty(someKey, null);
   }
 
   @Test
@@ -474,6 +475,44 @@ public class DefaultConfigTest {
     assertArrayEquals(anotherValues, defaultConfig.getArrayProperty(someKey, someDelimiter, someDefaultValue));
   }
 
+  @Test
+  public void testGetTypedPropertiesOnlyReparsedForChangedKeys() throws Exception {
+    String someKey = "someKey";
+    String anotherKey = "anotherKey";
+    Integer someValue = 2;
+    Integer anotherValue = 3;
+    Integer anotherNewValue = 4;
+
+    Integer someDefaultValue = -1;
+
+    //set up config repo
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
+    someProperties.setProperty(anotherKey, String.valueOf(anotherValue));
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig =
+        spy(new DefaultConfig(someNamespace, configRepository));
+
+    assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
+    assertEquals(Long.valueOf(someValue), defaultConfig.getLongProperty(someKey, Long.valueOf(someDefaultValue)));
+    assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(someKey, String.valueOf(someValue));
+    anotherProperties.setProperty(anotherKey, String.valueOf(anotherNewValue));
+
+    defaultConfig.onRepositoryChange(someNamespace, anotherProperties);
+
+    assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
+    assertEquals(Long.valueOf(someValue), defaultConfig.getLongProperty(someKey, Long.valueOf(someDefaultValue)));
+    assertEquals(anotherNewValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
+
+    //int and long values of someKey are parsed once and kept after the change
+    verify(defaultConfig, times(2)).getProperty(someKey, null);
+    verify(defaultConfig, times(2)).getProperty(anotherKey, null);
+  }
+
   @Test
   public void testGetDatePropertyWithFormat() throws Exception {
     Date someDefaultValue = new Date();
@@ -564,6 +603,36 @@ public class DefaultConfigTest {
     assertEquals(someDefaultValue, defaultConfig.getDurationProperty("stringProperty", someDefaultValue));
   }
 
+  @Test
+  public void testRefreshSystemProperties() throws Exception {
+    String someKey = "someKey";
+    String someLocalFileValue = "local-file-value";
+    String someSystemPropertyValue = "system-property-value";
+
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, someLocalFileValue);
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig = new DefaultConfig(someNamespace, configRepository);
+
+    assertEquals(someLocalFileValue, defaultConfig.getProperty(someKey, null));
+
+    System.setProperty(someKey, someSystemPropertyValue);
+    try {
+      //the snapshot is not rebuilt until refreshed
+      assertEquals(someLocalFileValue, defaultConfig.getProperty(someKey, null));
+
+      DefaultConfig.refreshSystemProperties();
+
+      assertEquals(someSystemPropertyValue, defaultConfig.getProperty(someKey, null));
+    } finally {
+      System.clearProperty(someKey);
+      DefaultConfig.refreshSystemProperties();
+    }
+
+    assertEquals(someLocalFileValue, defaultConfig.getProperty(someKey, null));
+  }
+
   @Test
   public void testOnRepositoryChange() throws Exception {
     String someKey = "someKey";
@@ -0,0 +1,121 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+public class LocalConfigSnapshotTest {
+  private File someBaseDir;
+  private File someFile;
+
+  @Before
+  public void setUp() throws Exception {
+    someBaseDir = Files.createTempDir();
+    someFile = new File(someBaseDir, "someApp+someCluster+someNamespace.snapshot");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    File[] files = someBaseDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    someBaseDir.delete();
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    Properties someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+    someProperties.setProperty("multiLine", "someValue\nxxx\nyyy");
+    someProperties.setProperty("unicode", "中文=值#!");
+    someProperties.setProperty("empty", "");
+
+    new LocalConfigSnapshot(someProperties).writeTo(someFile);
+    LocalConfigSnapshot snapshot = LocalConfigSnapshot.readFrom(someFile);
+
+    assertEquals(someProperties, snapshot.getProperties());
+    //no temp file left
+    assertEquals(1, someBaseDir.listFiles().length);
+  }
+
+  @Test
+  public void testWriteAndReadEmpty() throws Exception {
+    new LocalConfigSnapshot(new Properties()).writeTo(someFile);
+    LocalConfigSnapshot snapshot = LocalConfigSnapshot.readFrom(someFile);
+
+    assertEquals(0, snapshot.getProperties().size());
+  }
+
+  @Test
+  public void testOverwrite() throws Exception {
+    Properties someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty("anotherKey", "anotherValue");
+
+    new LocalConfigSnapshot(someProperties).writeTo(someFile);
+    new LocalConfigSnapshot(anotherProperties).writeTo(someFile);
+
+    assertEquals(anotherProperties, LocalConfigSnapshot.readFrom(someFile).getProperties());
+  }
+
+  @Test
+  public void testReadCorruptedSnapshot() throws Exception {
+    Properties someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+    new LocalConfigSnapshot(someProperties).writeTo(someFile);
+
+    byte[] content = Files.toByteArray(someFile);
+    for (int i = 0; i < content.length; i++) {
+      byte[] corrupted = content.clone();
+      corrupted[i] ^= 0x01;
+      Files.write(corrupted, someFile);
+      assertReadFails();
+    }
+  }
+
+  @Test
+  public void testReadTruncatedSnapshot() throws Exception {
+    Properties someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+    new LocalConfigSnapshot(someProperties).writeTo(someFile);
+
+    byte[] content = Files.toByteArray(someFile);
+    for (int length = 0; length < content.length; length++) {
+      byte[] truncated = new byte[length];
+      System.arraycopy(content, 0, truncated, 0, length);
+      Files.write(truncated, someFile);
+      assertReadFails();
+    }
+  }
+
+  @Test
+  public void testReadPropertiesFileAsSnapshot() throws Exception {
+    Files.write("someKey=someValue".getBytes("UTF-8"), someFile);
+
+    assertReadFails();
+    assertFalse(someFile.length() == 0);
+  }
+
+  private void assertReadFails() {
+    try {
+      LocalConfigSnapshot.readFrom(someFile);
+      fail("Corrupted snapshot should not be read");
+    } catch (IOException ex) {
+      //expected
+    }
+  }
+}
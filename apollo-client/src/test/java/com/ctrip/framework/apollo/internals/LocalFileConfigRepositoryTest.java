@@ -2,7 +2,9 @@ package com.ctrip.framework.apollo.internals;
 
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -10,6 +12,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Properties;
@@ -74,6 +77,11 @@ public class LocalFileConfigRepositoryTest {
     file.delete();
   }
 
+  private String assembleLocalSnapshotFileName() {
+    return String.format("%s.snapshot", Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, someNamespace));
+  }
+
   private String assembleLocalCacheFileName() {
     return String.format("%s.properties", Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
         .join(someAppId, someCluster, someNamespace));
@@ -149,6 +157,70 @@ public class LocalFileConfigRepositoryTest {
 
   }
 
+  @Test
+  public void testPersistSnapshotAndPropertiesFile() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new SnapshotEnabledConfigUtil());
+
+    Properties someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+    File propertiesFile = createLocalCachePropertyFile(someProperties);
+    Properties upstreamProperties = new Properties();
+    upstreamProperties.setProperty("upstreamKey", "upstreamValue");
+    ConfigRepository anotherUpstreamRepo = mock(ConfigRepository.class);
+    when(anotherUpstreamRepo.getConfig()).thenReturn(upstreamProperties);
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    localRepo.setLocalCacheDir(someBaseDir, false);
+    localRepo.setUpstreamRepository(anotherUpstreamRepo);
+
+    File snapshotFile = new File(someBaseDir, assembleLocalSnapshotFileName());
+    assertTrue(snapshotFile.isFile());
+    assertEquals(upstreamProperties, LocalConfigSnapshot.readFrom(snapshotFile).getProperties());
+    //the properties file is kept up to date for clients with the snapshot disabled
+    assertEquals(upstreamProperties, loadPropertiesFile(propertiesFile));
+
+    LocalFileConfigRepository anotherLocalRepoWithNoFallback = new LocalFileConfigRepository(someNamespace);
+    anotherLocalRepoWithNoFallback.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals(upstreamProperties, anotherLocalRepoWithNoFallback.getConfig());
+  }
+
+  @Test
+  public void testLoadConfigWithCorruptedSnapshot() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new SnapshotEnabledConfigUtil());
+
+    String someKey = "someKey";
+    String someValue = "someValue";
+    Properties someProperties = new Properties();
+    someProperties.setProperty(someKey, someValue);
+    createLocalCachePropertyFile(someProperties);
+    Files.write("corrupted", new File(someBaseDir, assembleLocalSnapshotFileName()), Charsets.UTF_8);
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    localRepo.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals(someValue, localRepo.getConfig().getProperty(someKey));
+  }
+
+  @Test
+  public void testPersistPropertiesFileWithSnapshotDisabled() throws Exception {
+    //a snapshot left by a previous run with the snapshot enabled
+    File staleSnapshotFile = new File(someBaseDir, assembleLocalSnapshotFileName());
+    new LocalConfigSnapshot(someProperties).writeTo(staleSnapshotFile);
+
+    Properties upstreamProperties = new Properties();
+    upstreamProperties.setProperty("upstreamKey", "upstreamValue");
+    ConfigRepository anotherUpstreamRepo = mock(ConfigRepository.class);
+    when(anotherUpstreamRepo.getConfig()).thenReturn(upstreamProperties);
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    localRepo.setLocalCacheDir(someBaseDir, false);
+    localRepo.setUpstreamRepository(anotherUpstreamRepo);
+
+    assertTrue(new File(someBaseDir, assembleLocalCacheFileName()).isFile());
+    assertFalse(staleSnapshotFile.exists());
+  }
+
   @Test
   public void testOnRepositoryChange() throws Exception {
     RepositoryChangeListener someListener = mock(RepositoryChangeListener.class);
@@ -185,6 +257,27 @@ public class LocalFileConfigRepositoryTest {
     }
   }
 
+  public static class SnapshotEnabledConfigUtil extends MockConfigUtil {
+    @Override
+    public boolean isLocalCacheSnapshotEnabled() {
+      return true;
+    }
+  }
+
+  private Properties loadPropertiesFile(File file) throws IOException {
+    Properties properties = new Properties();
+    FileInputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      properties.load(in);
+    } finally {
+      if (in != null) {
+        in.close();
+      }
+    }
+    return properties;
+  }
+
   private File createLocalCachePropertyFile(Properties properties) throws IOException {
     File file = new File(someBaseDir, assembleLocalCacheFileName());
     FileOutputStream in = null;
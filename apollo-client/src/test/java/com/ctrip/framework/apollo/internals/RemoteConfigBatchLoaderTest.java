@@ -0,0 +1,120 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigQuery;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigQueryResult;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RemoteConfigBatchLoaderTest {
+  @Mock
+  private ConfigServiceLocator configServiceLocator;
+  @Mock
+  private HttpUtil httpUtil;
+  @Mock
+  private HttpResponse<List<ApolloConfigQueryResult>> someResponse;
+  private RemoteConfigBatchLoader batchLoader;
+  private String someServerUrl;
+  private String someNamespace;
+  private String anotherNamespace;
+
+  @Before
+  public void setUp() throws Exception {
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new RemoteConfigRepositoryTest.MockConfigUtil());
+    MockInjector.setInstance(HttpUtil.class, httpUtil);
+    MockInjector.setInstance(ConfigServiceLocator.class, configServiceLocator);
+
+    someServerUrl = "http://someServer";
+    ServiceDTO serviceDTO = mock(ServiceDTO.class);
+    when(serviceDTO.getHomepageUrl()).thenReturn(someServerUrl);
+    when(configServiceLocator.getConfigServices()).thenReturn(Lists.newArrayList(serviceDTO));
+
+    someNamespace = "someNamespace";
+    anotherNamespace = "anotherNamespace";
+
+    batchLoader = new RemoteConfigBatchLoader();
+  }
+
+  @Test
+  public void testLoadAndTake() throws Exception {
+    ApolloConfig someConfig = new ApolloConfig("someApp", "someCluster", someNamespace, "someReleaseKey");
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(Lists.newArrayList(
+        new ApolloConfigQueryResult(someNamespace, 200, someConfig),
+        new ApolloConfigQueryResult(anotherNamespace, 404, null)));
+    when(httpUtil.doPost(any(HttpRequest.class), any(Type.class))).thenReturn((HttpResponse) someResponse);
+
+    assertTrue(batchLoader.load(Lists.newArrayList(someNamespace, anotherNamespace)));
+
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpUtil, times(1)).doPost(requestCaptor.capture(), any(Type.class));
+
+    HttpRequest request = requestCaptor.getValue();
+    assertTrue(request.getUrl().startsWith(someServerUrl + "/configs/someApp/someCluster"));
+    List<ApolloConfigQuery> queries = new Gson().fromJson(request.getBody(),
+        new TypeToken<List<ApolloConfigQuery>>() {
+        }.getType());
+    assertEquals(2, queries.size());
+    assertEquals(someNamespace, queries.get(0).getNamespaceName());
+    assertNull(queries.get(0).getReleaseKey());
+    assertEquals(anotherNamespace, queries.get(1).getNamespaceName());
+
+    assertSame(someConfig, batchLoader.take(someNamespace));
+    //each loaded config is only used once
+    assertNull(batchLoader.take(someNamespace));
+    assertNull(batchLoader.take(anotherNamespace));
+  }
+
+  @Test
+  public void testLoadFailed() throws Exception {
+    when(httpUtil.doPost(any(HttpRequest.class), any(Type.class)))
+        .thenThrow(new ApolloConfigException("some error"));
+
+    assertFalse(batchLoader.load(Lists.newArrayList(someNamespace)));
+    assertNull(batchLoader.take(someNamespace));
+  }
+
+  @Test
+  public void testAssembleBatchQueryConfigUrl() throws Exception {
+    String someUri = "http://someServer/";
+    String someAppId = "someApp";
+    String someCluster = "some cluster";
+    String someDataCenter = "someDC";
+
+    String url = batchLoader.assembleBatchQueryConfigUrl(someUri, someAppId, someCluster, someDataCenter);
+
+    assertTrue(url.startsWith("http://someServer/configs/someApp/some%20cluster?"));
+    assertTrue(url.contains("dataCenter=someDC"));
+  }
+}
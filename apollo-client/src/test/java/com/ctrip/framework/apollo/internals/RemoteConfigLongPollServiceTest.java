@@ -6,6 +6,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -36,7 +37,9 @@ import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
 import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.http.EventStreamHandler;
 import com.ctrip.framework.apollo.util.http.HttpRequest;
 import com.ctrip.framework.apollo.util.http.HttpResponse;
 import com.ctrip.framework.apollo.util.http.HttpUtil;
@@ -468,6 +471,118 @@ public class RemoteConfigLongPollServiceTest {
             + "%22%2C%22notificationId%22%3A" + anotherNotificationId + "%7D%5D"));
   }
 
+  @Test
+  public void testSubmitNotificationStreamNamespace() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockStreamConfigUtil());
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someNamespace = "someNamespace";
+    final ApolloConfigNotification someNotification = new ApolloConfigNotification(someNamespace, 1);
+    someNotification.addMessage("someKey", 1);
+
+    final SettableFuture<Boolean> onNotified = SettableFuture.create();
+    final AtomicInteger streamCount = new AtomicInteger();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        onNotified.set(true);
+        return null;
+      }
+    }).when(someRepository).onLongPollNotified(any(ServiceDTO.class), any(ApolloNotificationMessages.class));
+
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        HttpRequest request = invocation.getArgumentAt(0, HttpRequest.class);
+        EventStreamHandler<List<ApolloConfigNotification>> handler = invocation.getArgumentAt(2, EventStreamHandler.class);
+
+        assertTrue(request.getUrl().contains(someServerUrl + "/notifications/v2/stream?"));
+        assertTrue(request.getUrl().contains(someNamespace));
+
+        // only the first stream receives the event, the following ones end without events
+        if (streamCount.incrementAndGet() == 1) {
+          handler.onEvent(Lists.newArrayList(someNotification));
+        }
+        TimeUnit.MILLISECONDS.sleep(50);
+        return null;
+      }
+    }).when(httpUtil).doGetEventStream(any(HttpRequest.class), eq(responseType), any(EventStreamHandler.class));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    onNotified.get(5000, TimeUnit.MILLISECONDS);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    verify(someRepository, times(1)).onLongPollNotified(any(ServiceDTO.class), any(ApolloNotificationMessages.class));
+    verify(httpUtil, never()).doGet(any(HttpRequest.class), eq(responseType));
+  }
+
+  @Test
+  public void testNotificationStreamNotSupportedFallbackToLongPolling() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockStreamConfigUtil());
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someNamespace = "someNamespace";
+
+    doThrow(new ApolloConfigStatusCodeException(HttpServletResponse.SC_NOT_FOUND, "not found"))
+        .when(httpUtil).doGetEventStream(any(HttpRequest.class), eq(responseType), any(EventStreamHandler.class));
+
+    when(pollResponse.getStatusCode()).thenReturn(HttpServletResponse.SC_NOT_MODIFIED);
+    final SettableFuture<Boolean> longPollFinished = SettableFuture.create();
+    doAnswer(new Answer<HttpResponse<List<ApolloConfigNotification>>>() {
+      @Override
+      public HttpResponse<List<ApolloConfigNotification>> answer(InvocationOnMock invocation)
+          throws Throwable {
+        TimeUnit.MILLISECONDS.sleep(50);
+        HttpRequest request = invocation.getArgumentAt(0, HttpRequest.class);
+
+        assertTrue(request.getUrl().contains(someServerUrl + "/notifications/v2?"));
+
+        longPollFinished.set(true);
+        return pollResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(responseType));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    longPollFinished.get(5000, TimeUnit.MILLISECONDS);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    verify(httpUtil, times(1)).doGetEventStream(any(HttpRequest.class), eq(responseType), any(EventStreamHandler.class));
+  }
+
+  @Test
+  public void testAssembleNotificationStreamUrl() throws Exception {
+    String someUri = someServerUrl;
+    String someAppId = "someAppId";
+    String someCluster = "someCluster";
+    String someNamespace = "someName";
+    long someNotificationId = 1;
+    Map<String, Long> notificationsMap = ImmutableMap.of(someNamespace, someNotificationId);
+
+    String notificationStreamUrl =
+        remoteConfigLongPollService
+            .assembleNotificationStreamUrl(someUri, someAppId, someCluster, null, notificationsMap);
+
+    assertTrue(notificationStreamUrl.contains(someServerUrl + "/notifications/v2/stream?"));
+    assertTrue(notificationStreamUrl.contains("appId=" + someAppId));
+    assertTrue(notificationStreamUrl.contains("cluster=" + someCluster));
+    assertTrue(notificationStreamUrl.contains(
+        "notifications=%5B%7B%22namespaceName%22%3A%22" + someNamespace
+            + "%22%2C%22notificationId%22%3A" + 1 + "%7D%5D"));
+  }
+
+  public static class MockStreamConfigUtil extends MockConfigUtil {
+    @Override
+    public boolean isNotificationStreamEnabled() {
+      return true;
+    }
+  }
+
   public static class MockConfigUtil extends ConfigUtil {
     @Override
     public String getAppId() {
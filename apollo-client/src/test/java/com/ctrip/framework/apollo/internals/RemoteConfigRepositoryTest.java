@@ -1,12 +1,14 @@
 package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -42,6 +44,7 @@ import com.ctrip.framework.apollo.util.http.HttpUtil;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.net.UrlEscapers;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.gson.Gson;
@@ -108,6 +111,76 @@ public class RemoteConfigRepositoryTest {
     remoteConfigLongPollService.stopLongPollingRefresh();
   }
 
+  @Test
+  public void testLoadConfigFromBatch() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    ApolloConfig someApolloConfig = assembleApolloConfig(configurations);
+
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil() {
+      @Override
+      public boolean isBatchLoadEnabled() {
+        return true;
+      }
+    });
+    RemoteConfigBatchLoader batchLoader = mock(RemoteConfigBatchLoader.class);
+    when(batchLoader.take(someNamespace)).thenReturn(someApolloConfig);
+    MockInjector.setInstance(RemoteConfigBatchLoader.class, batchLoader);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+
+    Properties config = remoteConfigRepository.getConfig();
+
+    assertEquals(configurations, config);
+    verify(batchLoader, times(1)).take(someNamespace);
+    verify(httpUtil, never()).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+    remoteConfigLongPollService.stopLongPollingRefresh();
+  }
+
+  @Test
+  public void testLoadDeltaConfig() throws Exception {
+    ApolloConfig someApolloConfig = assembleApolloConfig(ImmutableMap.of("a", "1", "b", "2", "c", "3"));
+    ApolloConfig deltaApolloConfig = assembleDeltaApolloConfig(someApolloConfig.getReleaseKey(),
+        ImmutableMap.of("b", "22", "d", "4"), "c");
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig).thenReturn(deltaApolloConfig);
+    mockDeltaConfigEnabled();
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigRepository.sync();
+
+    Properties config = remoteConfigRepository.getConfig();
+
+    assertEquals(ImmutableMap.of("a", "1", "b", "22", "d", "4"), config);
+    verify(httpUtil, times(2)).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+    remoteConfigLongPollService.stopLongPollingRefresh();
+  }
+
+  @Test
+  public void testLoadDeltaConfigWithMismatchedBase() throws Exception {
+    ApolloConfig someApolloConfig = assembleApolloConfig(ImmutableMap.of("a", "1", "b", "2", "c", "3"));
+    ApolloConfig deltaApolloConfig = assembleDeltaApolloConfig("someOtherReleaseKey",
+        ImmutableMap.of("b", "22"), "c");
+    ApolloConfig anotherApolloConfig = assembleApolloConfig(ImmutableMap.of("a", "11"));
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig).thenReturn(deltaApolloConfig)
+        .thenReturn(anotherApolloConfig);
+    mockDeltaConfigEnabled();
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigRepository.sync();
+
+    Properties config = remoteConfigRepository.getConfig();
+
+    assertEquals(ImmutableMap.of("a", "11"), config);
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpUtil, times(3)).doGet(requestCaptor.capture(), eq(ApolloConfig.class));
+    assertTrue(requestCaptor.getAllValues().get(1).getUrl().contains("delta=true"));
+    assertFalse(requestCaptor.getAllValues().get(2).getUrl().contains("delta=true"));
+    remoteConfigLongPollService.stopLongPollingRefresh();
+  }
+
   @Test(expected = ApolloConfigException.class)
   public void testGetRemoteConfigWithServerError() throws Exception {
 
@@ -235,6 +308,9 @@ public class RemoteConfigRepositoryTest {
         .contains("releaseKey=20160705193346-583078ef5716c055%2B20160705193308-31c471ddf9087c3f"));
     assertTrue(queryConfigUrl
         .contains("messages=" + UrlEscapers.urlFormParameterEscaper().escape(gson.toJson(notificationMessages))));
+    assertFalse(queryConfigUrl.contains("delta=true"));
+    assertTrue(remoteConfigRepository.assembleQueryConfigUrl(someUri, someAppId, someCluster, someNamespace, null,
+        notificationMessages, someApolloConfig, true).contains("delta=true"));
   }
 
   private ApolloConfig assembleApolloConfig(Map<String, String> configurations) {
@@ -249,6 +325,25 @@ public class RemoteConfigRepositoryTest {
     return apolloConfig;
   }
 
+  private void mockDeltaConfigEnabled() {
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil() {
+      @Override
+      public boolean isDeltaConfigEnabled() {
+        return true;
+      }
+    });
+  }
+
+  private ApolloConfig assembleDeltaApolloConfig(String baseReleaseKey, Map<String, String> configurations,
+      String... deletedKeys) {
+    ApolloConfig apolloConfig = new ApolloConfig("appId", "cluster", someNamespace, "2");
+    apolloConfig.setConfigurations(configurations);
+    apolloConfig.setBaseReleaseKey(baseReleaseKey);
+    apolloConfig.setDeletedKeys(Sets.newHashSet(deletedKeys));
+
+    return apolloConfig;
+  }
+
   public static class MockConfigUtil extends ConfigUtil {
     @Override
     public String getAppId() {
@@ -0,0 +1,209 @@
+package com.ctrip.framework.apollo.spring.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigFile;
+import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.internals.ConfigManager;
+import com.ctrip.framework.apollo.internals.DefaultInjector;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+public class ConfigPreloaderTest {
+  private static final long SOME_LOAD_TIME_IN_MILLS = 300;
+
+  private MockConfigManager configManager;
+  private MockConfigUtil configUtil;
+  private File someCacheDir;
+
+  @Before
+  public void setUp() throws Exception {
+    someCacheDir = Files.createTempDir();
+    configManager = new MockConfigManager();
+    configUtil = new MockConfigUtil(someCacheDir);
+
+    resetConfigService();
+    MockInjector.reset();
+    MockInjector.setDelegate(new DefaultInjector());
+    MockInjector.setInstance(ConfigManager.class, configManager);
+    MockInjector.setInstance(ConfigUtil.class, configUtil);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    resetConfigService();
+    MockInjector.reset();
+  }
+
+  @Test
+  public void testPreloadInParallel() throws Exception {
+    String someNamespace = "someNamespace";
+    String anotherNamespace = "anotherNamespace";
+    Config someConfig = mock(Config.class);
+    Config anotherConfig = mock(Config.class);
+    configManager.addConfig(someNamespace, someConfig, SOME_LOAD_TIME_IN_MILLS);
+    configManager.addConfig(anotherNamespace, anotherConfig, SOME_LOAD_TIME_IN_MILLS);
+
+    ConfigPreloader configPreloader = new ConfigPreloader();
+
+    long start = System.currentTimeMillis();
+    Map<String, Config> configs = configPreloader.preload(
+        Lists.newArrayList(someNamespace, anotherNamespace, someNamespace));
+    long elapsed = System.currentTimeMillis() - start;
+
+    assertEquals(Lists.newArrayList(someNamespace, anotherNamespace), Lists.newArrayList(configs.keySet()));
+    assertSame(someConfig, configs.get(someNamespace));
+    assertSame(anotherConfig, configs.get(anotherNamespace));
+    assertTrue(elapsed < SOME_LOAD_TIME_IN_MILLS * 2);
+  }
+
+  @Test
+  public void testPreloadSequentially() throws Exception {
+    String someNamespace = "someNamespace";
+    Config someConfig = mock(Config.class);
+    configManager.addConfig(someNamespace, someConfig, 0);
+    configUtil.setPreloadParallelism(1);
+
+    Map<String, Config> configs = new ConfigPreloader().preload(Lists.newArrayList(someNamespace));
+
+    assertSame(someConfig, configs.get(someNamespace));
+  }
+
+  @Test
+  public void testPreloadTimeoutWithFailover() throws Exception {
+    String someNamespace = "someNamespace";
+    String slowNamespace = "slowNamespace";
+    String someKey = "someKey";
+    String someValue = "someValue";
+    Config someConfig = mock(Config.class);
+    Config slowConfig = mock(Config.class);
+    when(slowConfig.getPropertyNames()).thenReturn(Collections.singleton(someKey));
+    when(slowConfig.getProperty(someKey, null)).thenReturn(someValue);
+    configManager.addConfig(someNamespace, someConfig, 0);
+    configManager.addConfig(slowNamespace, slowConfig, SOME_LOAD_TIME_IN_MILLS);
+    configUtil.setPreloadTimeoutInMills(SOME_LOAD_TIME_IN_MILLS / 3);
+
+    Map<String, Config> configs = new ConfigPreloader().preload(Lists.newArrayList(someNamespace, slowNamespace));
+
+    assertSame(someConfig, configs.get(someNamespace));
+    Config failoverConfig = configs.get(slowNamespace);
+    assertNotSame(slowConfig, failoverConfig);
+
+    assertTrue(configManager.awaitLoaded(slowNamespace, SOME_LOAD_TIME_IN_MILLS * 10));
+    for (int i = 0; i < 100 && failoverConfig.getProperty(someKey, null) == null; i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertEquals(someValue, failoverConfig.getProperty(someKey, null));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPreloadFailed() throws Exception {
+    String someNamespace = "someNamespace";
+    String anotherNamespace = "anotherNamespace";
+    configManager.addConfig(someNamespace, mock(Config.class), 0);
+    configManager.addError(anotherNamespace, new IllegalStateException("some error"));
+
+    new ConfigPreloader().preload(Lists.newArrayList(someNamespace, anotherNamespace));
+  }
+
+  private static void resetConfigService() throws Exception {
+    Method reset = ConfigService.class.getDeclaredMethod("reset");
+    reset.setAccessible(true);
+    reset.invoke(null);
+  }
+
+  private static class MockConfigManager implements ConfigManager {
+    private final Map<String, Config> configs = Maps.newHashMap();
+    private final Map<String, Long> loadTimes = Maps.newHashMap();
+    private final Map<String, RuntimeException> errors = Maps.newHashMap();
+    private final ConcurrentMap<String, CountDownLatch> loaded = Maps.newConcurrentMap();
+
+    void addConfig(String namespace, Config config, long loadTimeInMills) {
+      configs.put(namespace, config);
+      loadTimes.put(namespace, loadTimeInMills);
+      loaded.put(namespace, new CountDownLatch(1));
+    }
+
+    void addError(String namespace, RuntimeException error) {
+      errors.put(namespace, error);
+    }
+
+    boolean awaitLoaded(String namespace, long timeoutInMills) throws InterruptedException {
+      return loaded.get(namespace).await(timeoutInMills, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Config getConfig(String namespace) {
+      if (errors.containsKey(namespace)) {
+        throw errors.get(namespace);
+      }
+      try {
+        TimeUnit.MILLISECONDS.sleep(loadTimes.get(namespace));
+      } catch (InterruptedException ex) {
+        //ignore
+      }
+      loaded.get(namespace).countDown();
+      return configs.get(namespace);
+    }
+
+    @Override
+    public ConfigFile getConfigFile(String namespace, ConfigFileFormat configFileFormat) {
+      return null;
+    }
+  }
+
+  private static class MockConfigUtil extends ConfigUtil {
+    private final File cacheDir;
+    private int preloadParallelism = 4;
+    private long preloadTimeoutInMills = 5000;
+
+    MockConfigUtil(File cacheDir) {
+      this.cacheDir = cacheDir;
+    }
+
+    void setPreloadParallelism(int preloadParallelism) {
+      this.preloadParallelism = preloadParallelism;
+    }
+
+    void setPreloadTimeoutInMills(long preloadTimeoutInMills) {
+      this.preloadTimeoutInMills = preloadTimeoutInMills;
+    }
+
+    @Override
+    public int getPreloadParallelism() {
+      return preloadParallelism;
+    }
+
+    @Override
+    public long getPreloadTimeoutInMills() {
+      return preloadTimeoutInMills;
+    }
+
+    @Override
+    public String getDefaultLocalCacheDir() {
+      return cacheDir.getAbsolutePath();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.ctrip.framework.apollo.spring.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class SpringValueRegistryTest {
+  private SpringValueRegistry springValueRegistry;
+  private Field someField;
+
+  @Before
+  public void setUp() throws Exception {
+    springValueRegistry = new SpringValueRegistry();
+    someField = SomeBean.class.getDeclaredField("someValue");
+  }
+
+  @Test
+  public void testRegisterAndGet() throws Exception {
+    String someKey = "someKey";
+    SomeBean someBean = new SomeBean();
+    SpringValue someSpringValue = assembleSpringValue(someKey, someBean);
+
+    springValueRegistry.register(someKey, someSpringValue);
+
+    Collection<SpringValue> springValues = springValueRegistry.get(someKey);
+    assertEquals(1, springValues.size());
+    assertSame(someSpringValue, springValues.iterator().next());
+    assertTrue(springValueRegistry.get("anotherKey").isEmpty());
+    assertEquals(1, springValueRegistry.size());
+  }
+
+  @Test
+  public void testConcurrentRegister() throws Exception {
+    final String someKey = "someKey";
+    int threads = 8;
+    final int valuesPerThread = 1000;
+    final List<SomeBean> beans = Lists.newArrayList();
+    for (int i = 0; i < threads * valuesPerThread; i++) {
+      beans.add(new SomeBean());
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    List<Callable<Void>> tasks = Lists.newArrayList();
+    for (int i = 0; i < threads; i++) {
+      final int offset = i * valuesPerThread;
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int j = 0; j < valuesPerThread; j++) {
+            springValueRegistry.register(someKey, assembleSpringValue(someKey, beans.get(offset + j)));
+          }
+          return null;
+        }
+      });
+    }
+    for (Future<Void> future : executorService.invokeAll(tasks)) {
+      future.get();
+    }
+    executorService.shutdown();
+
+    assertEquals(beans.size(), springValueRegistry.get(someKey).size());
+    assertEquals(beans.size(), springValueRegistry.size());
+  }
+
+  @Test
+  public void testPurgeCollectedBeans() throws Exception {
+    String someKey = "someKey";
+    SomeBean someBean = new SomeBean();
+    springValueRegistry.register(someKey, assembleSpringValue(someKey, someBean));
+    springValueRegistry.register(someKey, assembleSpringValue(someKey, new SomeBean()));
+
+    for (int i = 0; i < 100 && springValueRegistry.size() > 1; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    Collection<SpringValue> springValues = springValueRegistry.get(someKey);
+    assertEquals(1, springValues.size());
+    assertSame(someBean, springValues.iterator().next().getBean());
+  }
+
+  private SpringValue assembleSpringValue(String key, Object bean) {
+    return new SpringValue(key, "${" + key + "}", bean, "someBean", someField, false);
+  }
+
+  private static class SomeBean {
+    private String someValue;
+  }
+}
@@ -22,6 +22,9 @@ public class ConfigUtilTest {
     System.clearProperty("apollo.configCacheSize");
     System.clearProperty("apollo.longPollingInitialDelayInMills");
     System.clearProperty("apollo.autoUpdateInjectedSpringProperties");
+    System.clearProperty("apollo.httpClient.maxConcurrentRequests");
+    System.clearProperty("apollo.preload.parallelism");
+    System.clearProperty("apollo.preload.timeout");
   }
 
   @Test
@@ -185,4 +188,47 @@ public class ConfigUtilTest {
     assertEquals(someAutoUpdateInjectedSpringProperties,
         configUtil.isAutoUpdateInjectedSpringPropertiesEnabled());
   }
+
+  @Test
+  public void testCustomizeMaxConcurrentHttpRequests() throws Exception {
+    int someMaxConcurrentHttpRequests = 1;
+    System.setProperty("apollo.httpClient.maxConcurrentRequests", String.valueOf(someMaxConcurrentHttpRequests));
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertEquals(someMaxConcurrentHttpRequests, configUtil.getMaxConcurrentHttpRequests());
+  }
+
+  @Test
+  public void testCustomizeInvalidMaxConcurrentHttpRequests() throws Exception {
+    System.setProperty("apollo.httpClient.maxConcurrentRequests", "0");
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertTrue(configUtil.getMaxConcurrentHttpRequests() > 0);
+  }
+
+  @Test
+  public void testCustomizePreload() throws Exception {
+    int somePreloadParallelism = 8;
+    long somePreloadTimeout = 1000;
+    System.setProperty("apollo.preload.parallelism", String.valueOf(somePreloadParallelism));
+    System.setProperty("apollo.preload.timeout", String.valueOf(somePreloadTimeout));
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertEquals(somePreloadParallelism, configUtil.getPreloadParallelism());
+    assertEquals(somePreloadTimeout, configUtil.getPreloadTimeoutInMills());
+  }
+
+  @Test
+  public void testCustomizeInvalidPreload() throws Exception {
+    System.setProperty("apollo.preload.parallelism", "0");
+    System.setProperty("apollo.preload.timeout", "a");
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertTrue(configUtil.getPreloadParallelism() > 0);
+    assertTrue(configUtil.getPreloadTimeoutInMills() > 0);
+  }
 }
@@ -0,0 +1,189 @@
+package com.ctrip.framework.apollo.util.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.CharStreams;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+public class DefaultHttpTransportTest {
+  private static final String SOME_RESPONSE_PATH = "/some";
+  private static final String GZIP_RESPONSE_PATH = "/gzip";
+  private static final String NOT_MODIFIED_PATH = "/notModified";
+  private static final String ECHO_PATH = "/echo";
+  private static final String REMOTE_PORT_PATH = "/remotePort";
+
+  private Server server;
+  private String baseUrl;
+  private DefaultHttpTransport httpTransport;
+  private Gson gson = new Gson();
+  private Map<String, String> someResponse;
+
+  @Before
+  public void setUp() throws Exception {
+    someResponse = ImmutableMap.of("someKey", "someValue", "anotherKey", "中文");
+
+    int port = findFreePort();
+    baseUrl = "http://localhost:" + port;
+    server = new Server(port);
+    server.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException, ServletException {
+        switch (target) {
+          case SOME_RESPONSE_PATH:
+            writeJson(response, gson.toJson(someResponse).getBytes(StandardCharsets.UTF_8));
+            break;
+          case GZIP_RESPONSE_PATH:
+            response.setHeader("Content-Encoding", "gzip");
+            writeJson(response, gzip(gson.toJson(someResponse).getBytes(StandardCharsets.UTF_8)));
+            break;
+          case NOT_MODIFIED_PATH:
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            break;
+          case ECHO_PATH:
+            writeJson(response, CharStreams.toString(request.getReader()).getBytes(StandardCharsets.UTF_8));
+            break;
+          case REMOTE_PORT_PATH:
+            writeJson(response, String.valueOf(request.getRemotePort()).getBytes(StandardCharsets.UTF_8));
+            break;
+          default:
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            response.getWriter().write("not found");
+        }
+        baseRequest.setHandled(true);
+      }
+    });
+    server.start();
+
+    httpTransport = new DefaultHttpTransport(2);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    HttpResponse<Map<String, String>> response = httpTransport.execute("GET",
+        assembleRequest(SOME_RESPONSE_PATH), new TypeToken<Map<String, String>>() {}.getType());
+
+    assertEquals(200, response.getStatusCode());
+    assertEquals(someResponse, response.getBody());
+  }
+
+  @Test
+  public void testGetWithGzip() throws Exception {
+    HttpResponse<Map<String, String>> response = httpTransport.execute("GET",
+        assembleRequest(GZIP_RESPONSE_PATH), new TypeToken<Map<String, String>>() {}.getType());
+
+    assertEquals(200, response.getStatusCode());
+    assertEquals(someResponse, response.getBody());
+  }
+
+  @Test
+  public void testGetNotModified() throws Exception {
+    HttpResponse<Map<String, String>> response = httpTransport.execute("GET",
+        assembleRequest(NOT_MODIFIED_PATH), new TypeToken<Map<String, String>>() {}.getType());
+
+    assertEquals(304, response.getStatusCode());
+    assertNull(response.getBody());
+  }
+
+  @Test
+  public void testGetNotFound() throws Exception {
+    try {
+      httpTransport.execute("GET", assembleRequest("/someNotExistingPath"), String.class);
+      fail("Should throw status code exception");
+    } catch (ApolloConfigStatusCodeException ex) {
+      assertEquals(404, ex.getStatusCode());
+    }
+  }
+
+  @Test
+  public void testPost() throws Exception {
+    List<String> someBody = Lists.newArrayList("someNamespace", "anotherNamespace");
+    HttpRequest request = assembleRequest(ECHO_PATH);
+    request.setBody(gson.toJson(someBody));
+
+    HttpResponse<List<String>> response = httpTransport.execute("POST", request,
+        new TypeToken<List<String>>() {}.getType());
+
+    assertEquals(200, response.getStatusCode());
+    assertEquals(someBody, response.getBody());
+  }
+
+  @Test
+  public void testConnectionReused() throws Exception {
+    Integer someRemotePort = httpTransport.<Integer>execute("GET", assembleRequest(REMOTE_PORT_PATH),
+        Integer.class).getBody();
+    //the error response should not break the connection
+    try {
+      httpTransport.execute("GET", assembleRequest("/someNotExistingPath"), String.class);
+    } catch (ApolloConfigStatusCodeException ex) {
+      //ignore
+    }
+    httpTransport.execute("GET", assembleRequest(NOT_MODIFIED_PATH), String.class);
+    Integer anotherRemotePort = httpTransport.<Integer>execute("GET", assembleRequest(REMOTE_PORT_PATH),
+        Integer.class).getBody();
+
+    assertEquals(someRemotePort, anotherRemotePort);
+  }
+
+  private HttpRequest assembleRequest(String path) {
+    HttpRequest request = new HttpRequest(baseUrl + path);
+    request.setConnectTimeout(1000);
+    request.setReadTimeout(5000);
+    return request;
+  }
+
+  private static void writeJson(HttpServletResponse response, byte[] content) throws IOException {
+    response.setContentType("application/json;charset=UTF-8");
+    response.setContentLength(content.length);
+    response.setStatus(HttpServletResponse.SC_OK);
+    OutputStream out = response.getOutputStream();
+    out.write(content);
+    out.flush();
+  }
+
+  private static byte[] gzip(byte[] content) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bos)) {
+      out.write(content);
+    }
+    return bos.toByteArray();
+  }
+
+  private static int findFreePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      socket.setReuseAddress(true);
+      return socket.getLocalPort();
+    }
+  }
+}
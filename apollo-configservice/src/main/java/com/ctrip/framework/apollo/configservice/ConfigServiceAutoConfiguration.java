@@ -2,18 +2,23 @@ package com.ctrip.framework.apollo.configservice;
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
 import com.ctrip.framework.apollo.configservice.controller.ConfigFileController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.DefaultConfigService;
+import com.google.common.collect.Lists;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
@@ -53,10 +58,13 @@ public class ConfigServiceAutoConfiguration {
         private ReleaseMessageServiceWithCache releaseMessageServiceWithCache;
         @Autowired
         private ConfigService configService;
+        @Autowired
+        private ConfigResponseCache configResponseCache;
 
         @Bean
         public ReleaseMessageScanner releaseMessageScanner() {
             ReleaseMessageScanner releaseMessageScanner = new ReleaseMessageScanner();
+            // 每个监听器有自己的队列和线程，按编号顺序处理，互不阻塞。
             // 0. handle release message cache
             releaseMessageScanner.addMessageListener(releaseMessageServiceWithCache);
             // 1. handle gray release rule
@@ -64,9 +72,14 @@ public class ConfigServiceAutoConfiguration {
             // 2. handle server cache
             releaseMessageScanner.addMessageListener(configService);
             releaseMessageScanner.addMessageListener(configFileController);
+            releaseMessageScanner.addMessageListener(configResponseCache);
             // 3. notify clients
-            releaseMessageScanner.addMessageListener(notificationControllerV2);
-            releaseMessageScanner.addMessageListener(notificationController);
+            // 客户端收到通知后会立即拉取配置并记录通知编号，所以需等待灰度规则和缓存都处理完同一条消息，
+            // 否则客户端可能拉取到旧的或错误灰度的配置，且不会再次收到通知。
+            List<ReleaseMessageListener> upstreamListeners = Lists.newArrayList(releaseMessageServiceWithCache,
+                    grayReleaseRulesHolder, configService, configFileController, configResponseCache);
+            releaseMessageScanner.addMessageListener(notificationControllerV2, upstreamListeners);
+            releaseMessageScanner.addMessageListener(notificationController, upstreamListeners);
             return releaseMessageScanner;
         }
     }
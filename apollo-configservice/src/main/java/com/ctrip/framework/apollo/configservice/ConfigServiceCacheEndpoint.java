@@ -0,0 +1,59 @@
+package com.ctrip.framework.apollo.configservice;
+
+import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
+import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCache;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Maps;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes the statistics of {@link ConfigServiceWithCache} at /configcache
+ */
+@Component
+public class ConfigServiceCacheEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+  @Autowired
+  private ConfigService configService;
+
+  public ConfigServiceCacheEndpoint() {
+    super("configcache");
+  }
+
+  @Override
+  public Map<String, Object> invoke() {
+    Map<String, Object> result = Maps.newLinkedHashMap();
+    if (!(configService instanceof ConfigServiceWithCache)) {
+      result.put("enabled", false);
+      return result;
+    }
+    ConfigServiceWithCache configServiceWithCache = (ConfigServiceWithCache) configService;
+    result.put("enabled", true);
+
+    Map<String, Object> configCache = assembleStats(configServiceWithCache.getConfigCacheStats(),
+        configServiceWithCache.getConfigCacheSize());
+    configCache.put("weightInBytes", configServiceWithCache.getConfigCacheWeight());
+    configCache.put("admissionRejectedCount", configServiceWithCache.getAdmissionRejectedCount());
+    result.put("configCache", configCache);
+    result.put("configIdCache", assembleStats(configServiceWithCache.getConfigIdCacheStats(),
+        configServiceWithCache.getConfigIdCacheSize()));
+    return result;
+  }
+
+  private Map<String, Object> assembleStats(CacheStats stats, long size) {
+    Map<String, Object> result = Maps.newLinkedHashMap();
+    result.put("size", size);
+    result.put("requestCount", stats.requestCount());
+    result.put("hitCount", stats.hitCount());
+    result.put("hitRate", stats.hitRate());
+    result.put("missCount", stats.missCount());
+    result.put("loadExceptionCount", stats.loadExceptionCount());
+    result.put("averageLoadPenaltyInMillis", stats.averageLoadPenalty() / 1000000);
+    result.put("evictionCount", stats.evictionCount());
+    return result;
+  }
+}
@@ -0,0 +1,35 @@
+package com.ctrip.framework.apollo.configservice;
+
+import com.ctrip.framework.apollo.configservice.util.NotificationFanoutScheduler;
+import com.google.common.collect.Maps;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes the progress of {@link NotificationFanoutScheduler} at /notificationfanout
+ */
+@Component
+public class NotificationFanoutEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+  @Autowired
+  private NotificationFanoutScheduler notificationFanoutScheduler;
+
+  public NotificationFanoutEndpoint() {
+    super("notificationfanout");
+  }
+
+  @Override
+  public Map<String, Object> invoke() {
+    Map<String, Object> result = Maps.newLinkedHashMap();
+    result.put("pendingJobCount", notificationFanoutScheduler.getPendingJobCount());
+    result.put("pendingClientCount", notificationFanoutScheduler.getPendingClientCount());
+    result.put("completedJobCount", notificationFanoutScheduler.getCompletedJobCount());
+    result.put("notifiedClientCount", notificationFanoutScheduler.getNotifiedClientCount());
+    result.put("jobs", notificationFanoutScheduler.getProgresses());
+    return result;
+  }
+}
@@ -2,12 +2,17 @@ package com.ctrip.framework.apollo.configservice.controller;
 
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache.ConfigResponse;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigQuery;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigQueryResult;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Splitter;
@@ -17,6 +22,8 @@ import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
@@ -39,6 +46,18 @@ public class ConfigController {
 
     private static final Splitter X_FORWARDED_FOR_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
 
+    /**
+     * 批量查询的 Namespace 数量上限
+     */
+    private static final int MAX_BATCH_QUERY_SIZE = 500;
+    private static final Splitter ACCEPT_ENCODING_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
+    private static final Splitter ACCEPT_ENCODING_PARAMETER_SPLITTER = Splitter.on(";").omitEmptyStrings().trimResults();
+    private static final String GZIP_ENCODING = "gzip";
+    /**
+     * 客户端未提交 Release Key 时的默认值
+     */
+    private static final String NO_RELEASE_KEY = "-1";
+
     private static final Type configurationTypeReference = new TypeToken<Map<String, String>>() {}.getType();
 
     @Autowired
@@ -50,24 +69,62 @@ public class ConfigController {
     @Autowired
     private InstanceConfigAuditUtil instanceConfigAuditUtil;
     @Autowired
+    private ConfigResponseCache configResponseCache;
+    @Autowired
     private Gson gson;
 
+    /**
+     * 查询配置，直接写入预先序列化的响应内容。客户端支持 gzip 时，写入压缩后的内容。
+     *
+     * 响应内容和 {@link #queryConfig} 返回的 ApolloConfig 序列化的结果一致。
+     * 客户端提交 delta=true 时，若能计算客户端的配置到最新配置的增量，返回增量配置，见 {@link ApolloConfig#getBaseReleaseKey()} 。
+     */
     @RequestMapping(value = "/{appId}/{clusterName}/{namespace:.+}", method = RequestMethod.GET)
-    public ApolloConfig queryConfig(@PathVariable String appId, @PathVariable String clusterName,
-                                    @PathVariable String namespace,
-                                    @RequestParam(value = "dataCenter", required = false) String dataCenter,
-                                    @RequestParam(value = "releaseKey", defaultValue = "-1") String clientSideReleaseKey,
-                                    @RequestParam(value = "ip", required = false) String clientIp,
-                                    @RequestParam(value = "messages", required = false) String messagesAsString,
+    public void queryConfigAsJson(@PathVariable String appId, @PathVariable String clusterName,
+                                  @PathVariable String namespace,
+                                  @RequestParam(value = "dataCenter", required = false) String dataCenter,
+                                  @RequestParam(value = "releaseKey", defaultValue = "-1") String clientSideReleaseKey,
+                                  @RequestParam(value = "ip", required = false) String clientIp,
+                                  @RequestParam(value = "messages", required = false) String messagesAsString,
+                                  @RequestParam(value = "delta", defaultValue = "false") boolean delta,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ConfigResponse configResponse = queryConfigResponse(appId, clusterName, namespace, dataCenter,
+                clientSideReleaseKey, clientIp, messagesAsString, delta, request, response);
+        if (configResponse == null) {
+            return;
+        }
+
+        byte[] body = configResponse.getJson();
+        // 客户端支持 gzip ，并且有压缩后的内容
+        if (configResponse.getGzippedJson() != null && acceptsGzip(request)) {
+            body = configResponse.getGzippedJson();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+        }
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * 查询配置，返回 ApolloConfig 对象。例如，{@link ConfigFileController} 转换成其它格式。
+     *
+     * 返回的 ApolloConfig 对象可能被缓存共享，不允许修改。
+     */
+    public ApolloConfig queryConfig(String appId, String clusterName, String namespace, String dataCenter,
+                                    String clientSideReleaseKey, String clientIp, String messagesAsString,
                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
-        String originalNamespace = namespace;
-        // 若 Namespace 名以 .properties 结尾，移除该结尾，并设置到 ApolloConfigNotification 中。例如 application.properties => application 。
-        // strip out .properties suffix
-        namespace = namespaceUtil.filterNamespaceName(namespace);
-        // 获得归一化的 Namespace 名字。因为，客户端 Namespace 会填写错大小写。
-        //fix the character case issue, such as FX.apollo <-> fx.apollo
-        namespace = namespaceUtil.normalizeNamespace(appId, namespace);
+        ConfigResponse configResponse = queryConfigResponse(appId, clusterName, namespace, dataCenter,
+                clientSideReleaseKey, clientIp, messagesAsString, false, request, response);
+        return configResponse == null ? null : configResponse.getConfig();
+    }
 
+    /**
+     * @return 配置的响应。404 和 304 时，设置响应状态码，并返回 null
+     */
+    private ConfigResponse queryConfigResponse(String appId, String clusterName, String namespace, String dataCenter,
+                                               String clientSideReleaseKey, String clientIp, String messagesAsString,
+                                               boolean delta, HttpServletRequest request, HttpServletResponse response) throws IOException {
         // 若 clientIp 未提交，从 Request 中获取。
         if (Strings.isNullOrEmpty(clientIp)) {
             clientIp = tryToGetClientIp(request);
@@ -76,6 +133,76 @@ public class ConfigController {
         // 解析 messagesAsString 参数，创建 ApolloNotificationMessages 对象。
         ApolloNotificationMessages clientMessages = transformMessages(messagesAsString);
 
+        // 查询配置
+        ConfigQueryOutcome outcome = doQueryConfig(appId, clusterName, namespace, dataCenter, clientSideReleaseKey,
+                clientIp, clientMessages, delta);
+
+        // 若获得不到 Release ，返回状态码为 404 的响应
+        if (outcome.statusCode == HttpServletResponse.SC_NOT_FOUND) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, String.format("Could not load configurations with appId: %s, clusterName: %s, namespace: %s",
+                    appId, clusterName, namespace));
+            return null;
+        }
+        // 若未改变，返回状态码为 304 的响应
+        if (outcome.statusCode == HttpServletResponse.SC_NOT_MODIFIED) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+        return outcome.response;
+    }
+
+    /**
+     * 批量查询多个 Namespace 的配置，一次请求代替每个 Namespace 一次请求。
+     *
+     * 每个 Namespace 的查询，和 {@link #queryConfig} 一致，结果通过 {@link ApolloConfigQueryResult#getStatusCode()} 区分：
+     * 200 有变化，304 未变化，404 不存在。
+     */
+    @RequestMapping(value = "/{appId}/{clusterName}", method = RequestMethod.POST)
+    public List<ApolloConfigQueryResult> queryConfigs(@PathVariable String appId, @PathVariable String clusterName,
+                                                      @RequestParam(value = "dataCenter", required = false) String dataCenter,
+                                                      @RequestParam(value = "ip", required = false) String clientIp,
+                                                      @RequestBody List<ApolloConfigQuery> queries,
+                                                      HttpServletRequest request) {
+        if (queries == null || queries.size() > MAX_BATCH_QUERY_SIZE) {
+            throw new BadRequestException(String.format("Batch query size should be between 0 and %d", MAX_BATCH_QUERY_SIZE));
+        }
+        // 若 clientIp 未提交，从 Request 中获取。
+        if (Strings.isNullOrEmpty(clientIp)) {
+            clientIp = tryToGetClientIp(request);
+        }
+
+        List<ApolloConfigQueryResult> results = Lists.newArrayListWithCapacity(queries.size());
+        for (ApolloConfigQuery query : queries) {
+            if (query == null || Strings.isNullOrEmpty(query.getNamespaceName())) {
+                continue;
+            }
+            String clientSideReleaseKey = Strings.isNullOrEmpty(query.getReleaseKey()) ? NO_RELEASE_KEY : query.getReleaseKey();
+            ConfigQueryOutcome outcome = doQueryConfig(appId, clusterName, query.getNamespaceName(), dataCenter,
+                    clientSideReleaseKey, clientIp, query.getMessages(), false);
+            results.add(new ApolloConfigQueryResult(query.getNamespaceName(), outcome.statusCode,
+                    outcome.response == null ? null : outcome.response.getConfig()));
+        }
+        return results;
+    }
+
+    /**
+     * 查询单个 Namespace 的配置
+     *
+     * @param namespace 客户端提交的 Namespace 名字，返回结果中使用该名字
+     * @param delta     客户端是否支持增量配置
+     * @return 查询结果
+     */
+    private ConfigQueryOutcome doQueryConfig(String appId, String clusterName, String namespace, String dataCenter,
+                                             String clientSideReleaseKey, String clientIp,
+                                             ApolloNotificationMessages clientMessages, boolean delta) {
+        String originalNamespace = namespace;
+        // 若 Namespace 名以 .properties 结尾，移除该结尾，并设置到 ApolloConfigNotification 中。例如 application.properties => application 。
+        // strip out .properties suffix
+        namespace = namespaceUtil.filterNamespaceName(namespace);
+        // 获得归一化的 Namespace 名字。因为，客户端 Namespace 会填写错大小写。
+        //fix the character case issue, such as FX.apollo <-> fx.apollo
+        namespace = namespaceUtil.normalizeNamespace(appId, namespace);
+
         // 创建 Release 数组
         List<Release> releases = Lists.newLinkedList();
         // 获得 Namespace 对应的 Release 对象
@@ -101,12 +228,10 @@ public class ConfigController {
                 releases.add(publicRelease);
             }
         }
-        // 若获得不到 Release ，返回状态码为 404 的响应
+        // 若获得不到 Release ，返回 404 结果
         if (releases.isEmpty()) {
-            response.sendError(HttpServletResponse.SC_NOT_FOUND, String.format("Could not load configurations with appId: %s, clusterName: %s, namespace: %s",
-                    appId, clusterName, originalNamespace));
             Tracer.logEvent("Apollo.Config.NotFound", assembleKey(appId, clusterName, originalNamespace, dataCenter));
-            return null;
+            return ConfigQueryOutcome.NOT_FOUND;
         }
 
         // 记录 InstanceConfig
@@ -114,22 +239,29 @@ public class ConfigController {
 
         // 计算 Config Service 的合并 ReleaseKey
         String mergedReleaseKey = releases.stream().map(Release::getReleaseKey).collect(Collectors.joining(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR));
-        // 对比 Client 的合并 Release Key 。若相等，说明没有改变，返回状态码为 302 的响应
+        // 对比 Client 的合并 Release Key 。若相等，说明没有改变，返回 304 结果
         if (mergedReleaseKey.equals(clientSideReleaseKey)) {
             // Client side configuration is the same with server side, return 304
-            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
             Tracer.logEvent("Apollo.Config.NotModified", assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
-            return null;
+            return ConfigQueryOutcome.NOT_MODIFIED;
         }
 
-        // 创建 ApolloConfig 对象
-        ApolloConfig apolloConfig = new ApolloConfig(appId, appClusterNameLoaded, originalNamespace, mergedReleaseKey);
-        // 合并 Release 的配置，并将结果设置到 ApolloConfig 中
-        apolloConfig.setConfigurations(mergeReleaseConfigurations(releases));
+        // 获得 ApolloConfig 及其序列化的响应。缓存不存在时，合并 Release 的配置
+        ConfigResponse configResponse = configResponseCache.getResponse(appId, appClusterNameLoaded, originalNamespace,
+                mergedReleaseKey, releases, () -> mergeReleaseConfigurations(releases));
+
+        // 客户端支持增量配置，并且已有配置时，尝试返回增量配置。无法计算增量时，返回全量配置
+        if (delta && !NO_RELEASE_KEY.equals(clientSideReleaseKey)) {
+            ConfigResponse deltaResponse = configResponseCache.getDeltaResponse(configResponse, releases, clientSideReleaseKey);
+            if (deltaResponse != null) {
+                Tracer.logEvent("Apollo.Config.Delta", assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
+                return new ConfigQueryOutcome(HttpServletResponse.SC_OK, deltaResponse);
+            }
+        }
 
         // 【TODO 6001】Tracer 日志
         Tracer.logEvent("Apollo.Config.Found", assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
-        return apolloConfig;
+        return new ConfigQueryOutcome(HttpServletResponse.SC_OK, configResponse);
     }
 
     private boolean namespaceBelongsToAppId(String appId, String namespaceName) {
@@ -213,6 +345,39 @@ public class ConfigController {
         return request.getRemoteAddr();
     }
 
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (Strings.isNullOrEmpty(acceptEncoding)) {
+            return false;
+        }
+        for (String encoding : ACCEPT_ENCODING_SPLITTER.split(acceptEncoding)) {
+            // 例如 gzip;q=0.5 ，q 值为 0 表示不接受
+            List<String> parts = ACCEPT_ENCODING_PARAMETER_SPLITTER.splitToList(encoding);
+            if (parts.isEmpty() || !GZIP_ENCODING.equalsIgnoreCase(parts.get(0))) {
+                continue;
+            }
+            return parseQuality(parts.subList(1, parts.size())) > 0;
+        }
+        return false;
+    }
+
+    /**
+     * @return q 值，未指定时为 1 ，格式错误时为 0
+     */
+    private double parseQuality(List<String> parameters) {
+        for (String parameter : parameters) {
+            if (parameter.length() < 2 || !parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                continue;
+            }
+            try {
+                return Double.parseDouble(parameter.substring(2).trim());
+            } catch (NumberFormatException ex) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
     ApolloNotificationMessages transformMessages(String messagesAsString) {
         ApolloNotificationMessages notificationMessages = null;
         if (!Strings.isNullOrEmpty(messagesAsString)) {
@@ -225,4 +390,24 @@ public class ConfigController {
         return notificationMessages;
     }
 
+    /**
+     * 单个 Namespace 的查询结果
+     */
+    private static class ConfigQueryOutcome {
+
+        private static final ConfigQueryOutcome NOT_FOUND = new ConfigQueryOutcome(HttpServletResponse.SC_NOT_FOUND, null);
+        private static final ConfigQueryOutcome NOT_MODIFIED = new ConfigQueryOutcome(HttpServletResponse.SC_NOT_MODIFIED, null);
+
+        private final int statusCode;
+        /**
+         * 配置的响应，仅 200 时非空
+         */
+        private final ConfigResponse response;
+
+        ConfigQueryOutcome(int statusCode, ConfigResponse response) {
+            this.statusCode = statusCode;
+            this.response = response;
+        }
+    }
+
 }
@@ -8,11 +8,13 @@ import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.NotificationFanoutScheduler;
+import com.ctrip.framework.apollo.configservice.util.WatchKeySubscriberRegistry;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.configservice.wrapper.SseEmitterWrapper;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Function;
 import com.google.common.base.Splitter;
@@ -30,12 +32,11 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.lang.reflect.Type;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * 通知 Controller
@@ -49,12 +50,13 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
     private static final Logger logger = LoggerFactory.getLogger(NotificationControllerV2.class);
 
     /**
-     * Watch Key 与 DeferredResultWrapper 的 Multimap
-     *
-     * Key：Watch Key
-     * Value：DeferredResultWrapper 数组
+     * Watch Key 与 DeferredResultWrapper 的注册表
+     */
+    private final WatchKeySubscriberRegistry<DeferredResultWrapper> deferredResults = new WatchKeySubscriberRegistry<>();
+    /**
+     * Watch Key 与 SseEmitterWrapper 的注册表
      */
-    private final Multimap<String, DeferredResultWrapper> deferredResults = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    private final WatchKeySubscriberRegistry<SseEmitterWrapper> sseEmitters = new WatchKeySubscriberRegistry<>();
 
     private static final Splitter STRING_SPLITTER = Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
     private static final Type notificationsTypeReference = new TypeToken<List<ApolloConfigNotification>>() {}.getType();
@@ -76,10 +78,6 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
                 return keys.get(2);
             };
 
-    /**
-     * 大量通知分批执行 ExecutorService
-     */
-    private final ExecutorService largeNotificationBatchExecutorService;
     @Autowired
     private WatchKeysUtil watchKeysUtil;
     @Autowired
@@ -92,10 +90,8 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
     private Gson gson;
     @Autowired
     private BizConfig bizConfig;
-
-    public NotificationControllerV2() {
-        largeNotificationBatchExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create("NotificationControllerV2", true));
-    }
+    @Autowired
+    private NotificationFanoutScheduler notificationFanoutScheduler;
 
     @RequestMapping(method = RequestMethod.GET)
     public DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> pollNotification(
@@ -104,16 +100,8 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             @RequestParam(value = "notifications") String notificationsAsString,
             @RequestParam(value = "dataCenter", required = false) String dataCenter,
             @RequestParam(value = "ip", required = false) String clientIp) {
-        // 解析 notificationsAsString 参数，创建 ApolloConfigNotification 数组。
-        List<ApolloConfigNotification> notifications = null;
-        try {
-            notifications = gson.fromJson(notificationsAsString, notificationsTypeReference);
-        } catch (Throwable ex) {
-            Tracer.logError(ex);
-        }
-        if (CollectionUtils.isEmpty(notifications)) {
-            throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
-        }
+        // 解析 notificationsAsString 参数，过滤并创建 ApolloConfigNotification Map
+        Map<String, ApolloConfigNotification> filteredNotifications = parseNotifications(appId, notificationsAsString);
 
         // 创建 DeferredResultWrapper 对象
         DeferredResultWrapper deferredResultWrapper = new DeferredResultWrapper();
@@ -121,8 +109,6 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         Set<String> namespaces = Sets.newHashSet();
         // 客户端的通知 Map 。key 为 Namespace 名，value 为通知编号。
         Map<String, Long> clientSideNotifications = Maps.newHashMap();
-        // 过滤并创建 ApolloConfigNotification Map
-        Map<String, ApolloConfigNotification> filteredNotifications = filterNotifications(appId, notifications);
         // 循环 ApolloConfigNotification Map ，初始化上述变量。
         for (Map.Entry<String, ApolloConfigNotification> notificationEntry : filteredNotifications.entrySet()) {
             String normalizedNamespace = notificationEntry.getKey();
@@ -171,18 +157,14 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             deferredResultWrapper.onCompletion(() -> {
                 // 移除 Watch Key + DeferredResultWrapper 出 `deferredResults`
                 // unregister all keys
-                for (String key : watchedKeys) {
-                    deferredResults.remove(key, deferredResultWrapper);
-                }
+                deferredResults.unregister(watchedKeys, deferredResultWrapper);
                 // 【TODO 6001】Tracer 日志
                 logWatchedKeys(watchedKeys, "Apollo.LongPoll.CompletedKeys");
             });
 
             // 注册 Watch Key + DeferredResultWrapper 到 `deferredResults` 中，等待配置发生变化后通知。详见 `#handleMessage(...)` 方法。
             // register all keys
-            for (String key : watchedKeys) {
-                this.deferredResults.put(key, deferredResultWrapper);
-            }
+            this.deferredResults.register(watchedKeys, deferredResultWrapper);
 
             // 【TODO 6001】Tracer 日志
             logWatchedKeys(watchedKeys, "Apollo.LongPoll.RegisteredKeys");
@@ -192,6 +174,85 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         return deferredResultWrapper.getResult();
     }
 
+    /**
+     * 以 Server-Sent Events 的方式订阅配置变更通知。
+     *
+     * 和 {@link #pollNotification(String, String, String, String, String)} 的差异在于，通知后连接不结束，
+     * 客户端无需每次通知或每 60 秒重新发起请求，直到连接超时才需要重新订阅。
+     */
+    @RequestMapping(value = "/stream", method = RequestMethod.GET)
+    public SseEmitter streamNotification(
+            @RequestParam(value = "appId") String appId,
+            @RequestParam(value = "cluster") String cluster,
+            @RequestParam(value = "notifications") String notificationsAsString,
+            @RequestParam(value = "dataCenter", required = false) String dataCenter,
+            @RequestParam(value = "ip", required = false) String clientIp) {
+        // 解析 notificationsAsString 参数，过滤并创建 ApolloConfigNotification Map
+        Map<String, ApolloConfigNotification> filteredNotifications = parseNotifications(appId, notificationsAsString);
+
+        // 创建 SseEmitterWrapper 对象
+        SseEmitterWrapper sseEmitterWrapper = new SseEmitterWrapper();
+        Set<String> namespaces = Sets.newHashSet();
+        Map<String, Long> clientSideNotifications = Maps.newHashMap();
+        for (Map.Entry<String, ApolloConfigNotification> notificationEntry : filteredNotifications.entrySet()) {
+            String normalizedNamespace = notificationEntry.getKey();
+            ApolloConfigNotification notification = notificationEntry.getValue();
+            namespaces.add(normalizedNamespace);
+            clientSideNotifications.put(normalizedNamespace, notification.getNotificationId());
+            if (!Objects.equals(notification.getNamespaceName(), normalizedNamespace)) {
+                sseEmitterWrapper.recordNamespaceNameNormalizedResult(notification.getNamespaceName(), normalizedNamespace);
+            }
+        }
+        if (CollectionUtils.isEmpty(namespaces)) {
+            throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
+        }
+
+        Multimap<String, String> watchedKeysMap = watchKeysUtil.assembleAllWatchKeys(appId, cluster, namespaces, dataCenter);
+        Set<String> watchedKeys = Sets.newHashSet(watchedKeysMap.values());
+
+        // 先注册，再查询最新的 ReleaseMessage ，避免在两者之间发生的变更被遗漏。重复的通知，客户端会按照通知编号忽略。
+        sseEmitterWrapper.onTimeout(() -> logWatchedKeys(watchedKeys, "Apollo.LongPoll.StreamTimeOutKeys"));
+        sseEmitterWrapper.onCompletion(() -> {
+            // unregister all keys
+            sseEmitters.unregister(watchedKeys, sseEmitterWrapper);
+            logWatchedKeys(watchedKeys, "Apollo.LongPoll.StreamCompletedKeys");
+        });
+        this.sseEmitters.register(watchedKeys, sseEmitterWrapper);
+        logWatchedKeys(watchedKeys, "Apollo.LongPoll.StreamRegisteredKeys");
+
+        List<ReleaseMessage> latestReleaseMessages = releaseMessageService.findLatestReleaseMessagesGroupByMessages(watchedKeys);
+        // 手动关闭 EntityManager ，原因同 #pollNotification(...)
+        entityManagerUtil.closeEntityManager();
+
+        List<ApolloConfigNotification> newNotifications = getApolloConfigNotifications(namespaces, clientSideNotifications, watchedKeysMap, latestReleaseMessages);
+        if (!CollectionUtils.isEmpty(newNotifications)) {
+            sseEmitterWrapper.setResult(newNotifications);
+        }
+        logger.debug("Streaming {} from appId: {}, cluster: {}, namespace: {}, datacenter: {}", watchedKeys, appId, cluster, namespaces, dataCenter);
+
+        return sseEmitterWrapper.getEmitter();
+    }
+
+    /**
+     * 解析 notificationsAsString 参数，过滤并创建 ApolloConfigNotification Map ，其中 Key 为 Namespace 名。
+     *
+     * @param appId                 App 编号
+     * @param notificationsAsString ApolloConfigNotification 数组的 JSON 字符串
+     * @return Map
+     */
+    private Map<String, ApolloConfigNotification> parseNotifications(String appId, String notificationsAsString) {
+        List<ApolloConfigNotification> notifications = null;
+        try {
+            notifications = gson.fromJson(notificationsAsString, notificationsTypeReference);
+        } catch (Throwable ex) {
+            Tracer.logError(ex);
+        }
+        if (CollectionUtils.isEmpty(notifications)) {
+            throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
+        }
+        return filterNotifications(appId, notifications);
+    }
+
     /**
      * 过滤并创建 ApolloConfigNotification Map ，其中 Key 为 Namespace 名。
      *
@@ -291,46 +352,39 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             return;
         }
 
-        // `deferredResults` 存在对应的 Watch Key
-        if (!deferredResults.containsKey(content)) {
+        // `deferredResults` 或 `sseEmitters` 存在对应的 Watch Key
+        if (!deferredResults.hasSubscribers(content) && !sseEmitters.hasSubscribers(content)) {
             return;
         }
 
-        // create a new list to avoid ConcurrentModificationException
-        // 创建 DeferredResultWrapper 数组，避免并发问题。
-        List<DeferredResultWrapper> results = Lists.newArrayList(deferredResults.get(content));
+        // 获得 DeferredResultWrapper 和 SseEmitterWrapper 的快照数组，避免并发问题。
+        List<DeferredResultWrapper> results = deferredResults.getSubscribers(content);
+        List<SseEmitterWrapper> emitters = sseEmitters.getSubscribers(content);
 
         // 创建 ApolloConfigNotification 对象
         ApolloConfigNotification configNotification = new ApolloConfigNotification(changedNamespace, message.getId());
         configNotification.addMessage(content, message.getId());
 
+        notifyClients(results, content, configNotification, DeferredResultWrapper::setResult);
+        notifyClients(emitters, content, configNotification, SseEmitterWrapper::setResult);
+    }
+
+    private <T> void notifyClients(List<T> clients, String content, ApolloConfigNotification configNotification,
+                                   BiConsumer<T, ApolloConfigNotification> notifier) {
+        if (clients.isEmpty()) {
+            return;
+        }
         // do async notification if too many clients
-        // 若需要通知的客户端过多，使用 ExecutorService 异步通知，避免“惊群效应”
-        if (results.size() > bizConfig.releaseMessageNotificationBatch()) {
-            largeNotificationBatchExecutorService.submit(() -> {
-                logger.debug("Async notify {} clients for key {} with batch {}", results.size(), content,
-                        bizConfig.releaseMessageNotificationBatch());
-                for (int i = 0; i < results.size(); i++) {
-                    // 每 N 个客户端，sleep 一段时间。
-                    if (i > 0 && i % bizConfig.releaseMessageNotificationBatch() == 0) {
-                        try {
-                            TimeUnit.MILLISECONDS.sleep(bizConfig.releaseMessageNotificationBatchIntervalInMilli());
-                        } catch (InterruptedException e) {
-                            //ignore
-                        }
-                    }
-                    logger.debug("Async notify {}", results.get(i));
-                    // 设置结果
-                    results.get(i).setResult(configNotification);
-                }
-            });
+        // 若需要通知的客户端过多，交给 NotificationFanoutScheduler 限速异步通知，避免“惊群效应”
+        if (clients.size() > bizConfig.releaseMessageNotificationBatch()) {
+            notificationFanoutScheduler.submit(content, clients, client -> notifier.accept(client, configNotification));
             return;
         }
 
-        logger.debug("Notify {} clients for key {}", results.size(), content);
+        logger.debug("Notify {} clients for key {}", clients.size(), content);
         // 设置结果
-        for (DeferredResultWrapper result : results) {
-            result.setResult(configNotification);
+        for (T client : clients) {
+            notifier.accept(client, configNotification);
         }
         logger.debug("Notification completed");
     }
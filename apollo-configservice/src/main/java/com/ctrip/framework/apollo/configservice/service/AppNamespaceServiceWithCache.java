@@ -2,6 +2,8 @@ package com.ctrip.framework.apollo.configservice.service;
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.repository.AppNamespaceRepository;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshot;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshotManager;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.configservice.wrapper.CaseInsensitiveMapWrapper;
 import com.ctrip.framework.apollo.core.ConfigConsts;
@@ -37,6 +39,7 @@ import java.util.concurrent.TimeUnit;
  * 1. 启动时，全量初始化 AppNamespace 到缓存
  * 2. 考虑 AppNamespace 新增，后台定时任务，定时增量初始化 AppNamespace 到缓存
  * 3. 考虑 AppNamespace 更新与删除，后台定时任务，定时全量重建 AppNamespace 到缓存
+ * 4. 开启快照时，启动时先从快照预热缓存，再增量初始化新的 AppNamespace ，并立即异步全量重建一次
  *
  * @author Jason Song(song_s@ctrip.com)
  */
@@ -46,11 +49,14 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
     private static final Logger logger = LoggerFactory.getLogger(AppNamespaceServiceWithCache.class);
 
     private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).skipNulls();
+    private static final String SNAPSHOT_NAME = "app-namespace";
 
     @Autowired
     private AppNamespaceRepository appNamespaceRepository;
     @Autowired
     private BizConfig bizConfig;
+    @Autowired(required = false)
+    private CacheSnapshotManager cacheSnapshotManager;
 
     /**
      * 增量初始化周期
@@ -75,7 +81,7 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
     /**
      * 最后扫描到的 AppNamespace 的编号
      */
-    private long maxIdScanned;
+    private volatile long maxIdScanned;
 
     /**
      * 公用类型的 AppNamespace 的缓存
@@ -183,9 +189,18 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
     public void afterPropertiesSet() throws Exception {
         // 从 ServerConfig 中，读取定时任务的周期配置
         populateDataBaseInterval();
-        // 全量初始化 AppNamespace 缓存
+        // 从快照预热缓存
+        boolean warmedUp = warmUpFromSnapshot();
+        // 全量初始化 AppNamespace 缓存，若已从快照预热，则只增量初始化快照之后新增的
         scanNewAppNamespaces(); // block the startup process until load finished
-        // 创建定时任务，全量重构 AppNamespace 缓存
+        // 注册快照
+        if (isSnapshotEnabled()) {
+            cacheSnapshotManager.register(SNAPSHOT_NAME, () -> {
+                long maxId = maxIdScanned;
+                return new CacheSnapshot<>(0, maxId, Lists.newArrayList(appNamespaceIdCache.values()));
+            });
+        }
+        // 创建定时任务，全量重构 AppNamespace 缓存。若从快照预热，立即异步重建一次，同步快照之后的更新与删除
         scheduledExecutorService.scheduleAtFixedRate(() -> {
             // 【TODO 6001】Tracer 日志
             Transaction transaction = Tracer.newTransaction("Apollo.AppNamespaceServiceWithCache", "rebuildCache");
@@ -202,11 +217,34 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
                 // 【TODO 6001】Tracer 日志
                 transaction.complete();
             }
-        }, rebuildInterval, rebuildInterval, rebuildIntervalTimeUnit);
+        }, warmedUp ? 0 : rebuildInterval, rebuildInterval, rebuildIntervalTimeUnit);
         // 创建定时任务，增量初始化 AppNamespace 缓存
         scheduledExecutorService.scheduleWithFixedDelay(this::scanNewAppNamespaces, scanInterval, scanInterval, scanIntervalTimeUnit);
     }
 
+    /**
+     * 从快照预热缓存
+     *
+     * @return 是否预热
+     */
+    private boolean warmUpFromSnapshot() {
+        if (!isSnapshotEnabled()) {
+            return false;
+        }
+        CacheSnapshot<AppNamespace> snapshot = cacheSnapshotManager.load(SNAPSHOT_NAME, AppNamespace.class);
+        if (snapshot == null) {
+            return false;
+        }
+        mergeAppNamespaces(snapshot.getEntries());
+        maxIdScanned = snapshot.getMaxId();
+        logger.info("Warmed up {} app namespaces from snapshot, maxIdScanned: {}", snapshot.getEntries().size(), maxIdScanned);
+        return true;
+    }
+
+    private boolean isSnapshotEnabled() {
+        return cacheSnapshotManager != null && cacheSnapshotManager.isEnabled();
+    }
+
     /**
      * 加载新的 AppNamespace 们
      */
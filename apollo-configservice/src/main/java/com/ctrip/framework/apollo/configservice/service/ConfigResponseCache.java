@@ -0,0 +1,309 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.MapDifference;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 配置查询的响应缓存
+ *
+ * Release 发布后不可变，所以合并 Release Key 相同时，合并后的配置和响应内容也相同。
+ * 缓存合并后的配置，以及预先序列化（可选 gzip 压缩）的 JSON 响应，避免每次请求都反序列化 Release 的配置、再序列化 ApolloConfig 。
+ *
+ * 缓存 KEY 为合并 Release Key ，加上响应中的 appId、cluster、namespace 。因为公共 Namespace 的 Release 被多个 App 共享，
+ * 而响应中的这些字段来自客户端。
+ *
+ * 缓存内容不会过期（Release Key 变化即为新的 KEY），收到 ReleaseMessage 时移除对应 Namespace 的旧缓存，尽快释放内存。
+ *
+ * 另外，按 Release Key 保留合并后的配置，收到 ReleaseMessage 时不移除，用于计算客户端的旧配置到最新配置的增量。
+ * 增量响应同样缓存，大量客户端从同一个旧 Release Key 升级时，只计算一次。
+ */
+@Service
+public class ConfigResponseCache implements ReleaseMessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigResponseCache.class);
+    private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+    private static final long MAX_CACHE_SIZE = 50 * 1024 * 1024; // 50MB
+    private static final long EXPIRE_AFTER_ACCESS = 30;
+    private static final String DELTA_CACHE_KEY_MARK = "delta";
+
+    @Autowired
+    private BizConfig bizConfig;
+    @Autowired
+    private Gson gson;
+
+    private final Cache<String, ConfigResponse> responseCache;
+    /**
+     * 合并后的配置，用于计算增量
+     *
+     * KEY：合并 Release Key + appId + namespace
+     * VALUE：合并后的配置，和 ConfigResponse 中的配置为同一对象
+     */
+    private final Cache<String, Map<String, String>> configurationsCache;
+    /**
+     * KEY：Watch Key ，即 Release 的 appId+cluster+namespace
+     * VALUE：缓存 KEY
+     */
+    private final Multimap<String, String> watchedKeys2CacheKey = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    /**
+     * KEY：缓存 KEY
+     * VALUE：Watch Key
+     */
+    private final Multimap<String, String> cacheKey2WatchedKeys = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+
+    public ConfigResponseCache() {
+        responseCache = CacheBuilder.newBuilder()
+                .expireAfterAccess(EXPIRE_AFTER_ACCESS, TimeUnit.MINUTES)
+                .weigher((String key, ConfigResponse value) -> value.getWeight())
+                .maximumWeight(MAX_CACHE_SIZE)
+                .removalListener((RemovalNotification<String, ConfigResponse> notification) -> {
+                    String cacheKey = notification.getKey();
+                    if (!cacheKey2WatchedKeys.containsKey(cacheKey)) {
+                        return;
+                    }
+                    //create a new list to avoid ConcurrentModificationException
+                    List<String> watchedKeys = new ArrayList<>(cacheKey2WatchedKeys.get(cacheKey));
+                    for (String watchedKey : watchedKeys) {
+                        watchedKeys2CacheKey.remove(watchedKey, cacheKey);
+                    }
+                    cacheKey2WatchedKeys.removeAll(cacheKey);
+                })
+                .build();
+        configurationsCache = CacheBuilder.newBuilder()
+                .weigher((String key, Map<String, String> value) -> weigh(value))
+                .maximumWeight(MAX_CACHE_SIZE)
+                .build();
+    }
+
+    /**
+     * 获得响应。缓存不存在时，合并 Release 的配置，并预先序列化。
+     *
+     * @param appId            响应的 App 编号
+     * @param cluster          响应的 Cluster 名字
+     * @param namespace        响应的 Namespace 名字，即客户端提交的名字
+     * @param mergedReleaseKey 合并 Release Key
+     * @param releases         Release 数组，用于失效缓存
+     * @param configurations   合并 Release 的配置的方法，缓存不存在时调用
+     * @return 响应
+     */
+    public ConfigResponse getResponse(String appId, String cluster, String namespace, String mergedReleaseKey,
+                                      List<Release> releases, Supplier<Map<String, String>> configurations) {
+        if (!bizConfig.isConfigResponseCacheEnabled()) {
+            return createResponse(new ApolloConfig(appId, cluster, namespace, mergedReleaseKey), configurations.get());
+        }
+
+        String cacheKey = STRING_JOINER.join(mergedReleaseKey, appId, cluster, namespace);
+        String configurationsKey = STRING_JOINER.join(mergedReleaseKey, appId, namespace);
+        ConfigResponse response = responseCache.getIfPresent(cacheKey);
+        if (response != null) {
+            Tracer.logEvent("Apollo.ConfigResponseCache.Hit", cacheKey);
+            // 访问合并后的配置，避免仍在使用的配置先被淘汰
+            if (configurationsCache.getIfPresent(configurationsKey) == null) {
+                configurationsCache.put(configurationsKey, response.getConfig().getConfigurations());
+            }
+            return response;
+        }
+
+        // 并发时可能重复创建，内容相同，以最后写入的为准
+        Tracer.logEvent("Apollo.ConfigResponseCache.Miss", cacheKey);
+        response = createResponse(new ApolloConfig(appId, cluster, namespace, mergedReleaseKey), configurations.get());
+        cache(cacheKey, response, releases);
+        configurationsCache.put(configurationsKey, response.getConfig().getConfigurations());
+        return response;
+    }
+
+    /**
+     * 获得增量响应，即从客户端的 Release Key 对应的配置到最新配置的差异。
+     *
+     * @param current        最新配置的响应，即 {@link #getResponse} 的返回
+     * @param releases       Release 数组，用于失效缓存
+     * @param baseReleaseKey 客户端的 Release Key
+     * @return 增量响应。未开启、客户端的配置未缓存、或者增量不比全量小时，返回 null
+     */
+    public ConfigResponse getDeltaResponse(ConfigResponse current, List<Release> releases, String baseReleaseKey) {
+        if (!bizConfig.isConfigResponseCacheEnabled() || !bizConfig.isConfigResponseDeltaEnabled()) {
+            return null;
+        }
+        ApolloConfig currentConfig = current.getConfig();
+        String cacheKey = STRING_JOINER.join(currentConfig.getReleaseKey(), currentConfig.getAppId(),
+                currentConfig.getCluster(), currentConfig.getNamespaceName(), DELTA_CACHE_KEY_MARK, baseReleaseKey);
+        ConfigResponse response = responseCache.getIfPresent(cacheKey);
+        if (response != null) {
+            Tracer.logEvent("Apollo.ConfigResponseCache.DeltaHit", cacheKey);
+            return response;
+        }
+
+        Map<String, String> baseConfigurations = configurationsCache.getIfPresent(STRING_JOINER.join(baseReleaseKey,
+                currentConfig.getAppId(), currentConfig.getNamespaceName()));
+        if (baseConfigurations == null) {
+            Tracer.logEvent("Apollo.ConfigResponseCache.DeltaMiss", cacheKey);
+            return null;
+        }
+
+        Map<String, String> latestConfigurations = currentConfig.getConfigurations();
+        MapDifference<String, String> difference = Maps.difference(baseConfigurations, latestConfigurations);
+        Map<String, String> changedConfigurations = Maps.newHashMap(difference.entriesOnlyOnRight());
+        for (Map.Entry<String, MapDifference.ValueDifference<String>> entry : difference.entriesDiffering().entrySet()) {
+            changedConfigurations.put(entry.getKey(), entry.getValue().rightValue());
+        }
+        Set<String> deletedKeys = Sets.newHashSet(difference.entriesOnlyOnLeft().keySet());
+        // 增量不比全量小，直接返回全量
+        if (changedConfigurations.size() + deletedKeys.size() >= latestConfigurations.size()) {
+            return null;
+        }
+
+        Tracer.logEvent("Apollo.ConfigResponseCache.DeltaCreated", cacheKey);
+        ApolloConfig deltaConfig = new ApolloConfig(currentConfig.getAppId(), currentConfig.getCluster(),
+                currentConfig.getNamespaceName(), currentConfig.getReleaseKey());
+        deltaConfig.setBaseReleaseKey(baseReleaseKey);
+        deltaConfig.setDeletedKeys(Collections.unmodifiableSet(deletedKeys));
+        response = createResponse(deltaConfig, changedConfigurations);
+        cache(cacheKey, response, releases);
+        return response;
+    }
+
+    @Override
+    public void handleMessage(ReleaseMessage message, String channel) {
+        String content = message.getMessage();
+        if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(content)) {
+            return;
+        }
+        if (!watchedKeys2CacheKey.containsKey(content)) {
+            return;
+        }
+        //create a new list to avoid ConcurrentModificationException
+        List<String> cacheKeys = new ArrayList<>(watchedKeys2CacheKey.get(content));
+        for (String cacheKey : cacheKeys) {
+            logger.debug("invalidate config response cache key: {}", cacheKey);
+            responseCache.invalidate(cacheKey);
+        }
+    }
+
+    /**
+     * @return 缓存的响应数量
+     */
+    public long size() {
+        return responseCache.size();
+    }
+
+    private void cache(String cacheKey, ConfigResponse response, List<Release> releases) {
+        responseCache.put(cacheKey, response);
+        for (Release release : releases) {
+            String watchedKey = STRING_JOINER.join(release.getAppId(), release.getClusterName(), release.getNamespaceName());
+            watchedKeys2CacheKey.put(watchedKey, cacheKey);
+            cacheKey2WatchedKeys.put(cacheKey, watchedKey);
+        }
+    }
+
+    /**
+     * @return 合并后的配置的权重，约为占用的字节数
+     */
+    private static int weigh(Map<String, String> configurations) {
+        int weight = 0;
+        for (Map.Entry<String, String> entry : configurations.entrySet()) {
+            weight += (entry.getKey().length() + Strings.nullToEmpty(entry.getValue()).length()) * 2;
+        }
+        return weight;
+    }
+
+    private ConfigResponse createResponse(ApolloConfig config, Map<String, String> configurations) {
+        // 响应会被多个请求共享，不允许修改
+        config.setConfigurations(Collections.unmodifiableMap(configurations));
+        byte[] json = gson.toJson(config).getBytes(StandardCharsets.UTF_8);
+        byte[] gzippedJson = null;
+        if (bizConfig.isConfigResponseGzipEnabled() && json.length >= bizConfig.configResponseGzipThreshold()) {
+            gzippedJson = gzip(json);
+        }
+        return new ConfigResponse(config, json, gzippedJson);
+    }
+
+    private byte[] gzip(byte[] content) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(content.length / 4 + 32);
+        try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+            gos.write(content);
+        } catch (IOException ex) {
+            // 内存流，不会发生
+            Tracer.logError(ex);
+            return null;
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * 配置查询的响应
+     */
+    public static class ConfigResponse {
+
+        /**
+         * 配置，不可修改
+         */
+        private final ApolloConfig config;
+        /**
+         * 配置的 JSON
+         */
+        private final byte[] json;
+        /**
+         * gzip 压缩后的配置的 JSON 。未开启压缩，或者 JSON 过小时，为 null
+         */
+        private final byte[] gzippedJson;
+
+        ConfigResponse(ApolloConfig config, byte[] json, byte[] gzippedJson) {
+            this.config = config;
+            this.json = json;
+            this.gzippedJson = gzippedJson;
+        }
+
+        public ApolloConfig getConfig() {
+            return config;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzippedJson() {
+            return gzippedJson;
+        }
+
+        /**
+         * @return 权重，约为占用的字节数。合并后的配置约和 JSON 一样大
+         */
+        int getWeight() {
+            return json.length * 2 + (gzippedJson == null ? 0 : gzippedJson.length);
+        }
+    }
+
+}
@@ -5,6 +5,8 @@ import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshot;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshotManager;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
@@ -34,6 +36,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *
  * 1. 启动时，初始化 ReleaseMessage 到缓存
  * 2. 新增时，基于 ReleaseMessageListener ，通知有新的 ReleaseMessage ，根据是否有消息间隙，直接使用该 ReleaseMessage 或从数据库读取。
+ *    推送的 ReleaseMessage 不按编号顺序到达，直接合并，不推进 maxIdScanned 。
+ * 3. 开启快照时，启动时先从快照预热缓存，再从快照的 ReleaseMessage 编号增量读取
  *
  * @author Jason Song(song_s@ctrip.com)
  */
@@ -41,11 +45,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, InitializingBean {
 
     private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageServiceWithCache.class);
+    private static final String SNAPSHOT_NAME = "release-message";
 
     @Autowired
     private ReleaseMessageRepository releaseMessageRepository;
     @Autowired
     private BizConfig bizConfig;
+    @Autowired(required = false)
+    private CacheSnapshotManager cacheSnapshotManager;
 
     /**
      * 扫描周期
@@ -145,21 +152,49 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
         // 若无空缺 gap ，直接合并
         if (gap == 1) {
             mergeReleaseMessage(message);
+            advanceMaxIdScanned(message.getId());
         // 如有空缺 gap ，增量拉取
         } else if (gap > 1) {
             // gap found!
             loadReleaseMessages(maxIdScanned);
+        // 已推送或已增量拉取过，合并，保留每个 KEY 编号最大的
+        } else {
+            mergeReleaseMessage(message);
         }
     }
 
+    /**
+     * 推送的 ReleaseMessage 之前，可能有尚未提交的编号更小的 ReleaseMessage 。
+     * 因此只合并，不增量拉取，也不推进 maxIdScanned ，由之后扫描到的 ReleaseMessage 推进。
+     */
+    @Override
+    public void handlePushedMessage(ReleaseMessage message, String channel) {
+        // 不关闭增量拉取定时任务，扫描到的 ReleaseMessage 到达前，由其补偿
+        logger.info("message pushed - channel: {}, message: {}", channel, message);
+        if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(message.getMessage())) {
+            return;
+        }
+        Tracer.logEvent("Apollo.ReleaseMessageService.UpdateCache", String.valueOf(message.getId()));
+        mergeReleaseMessage(message);
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         // 从 ServerConfig 中，读取任务的周期配置
         populateDataBaseInterval();
+        // 从快照预热缓存
+        long startId = warmUpFromSnapshot();
         // 初始拉取 ReleaseMessage 到缓存
         //block the startup process until load finished
         //this should happen before ReleaseMessageScanner due to autowire
-        loadReleaseMessages(0);
+        loadReleaseMessages(startId);
+        // 注册快照
+        if (isSnapshotEnabled()) {
+            cacheSnapshotManager.register(SNAPSHOT_NAME, () -> {
+                long maxId = maxIdScanned;
+                return new CacheSnapshot<>(maxId, maxId, Lists.newArrayList(releaseMessageCache.values()));
+            });
+        }
         // 创建定时任务，增量拉取 ReleaseMessage 到缓存，用以处理初始化期间，产生的 ReleaseMessage 遗漏的问题。
         executorService.submit(() -> {
             while (doScan.get() && !Thread.currentThread().isInterrupted()) {
@@ -186,13 +221,41 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
         });
     }
 
+    /**
+     * 从快照预热缓存
+     *
+     * @return 增量读取的起始编号，无快照时为 0
+     */
+    private long warmUpFromSnapshot() {
+        if (!isSnapshotEnabled()) {
+            return 0;
+        }
+        CacheSnapshot<ReleaseMessage> snapshot = cacheSnapshotManager.load(SNAPSHOT_NAME, ReleaseMessage.class);
+        if (snapshot == null) {
+            return 0;
+        }
+        snapshot.getEntries().forEach(this::mergeReleaseMessage);
+        advanceMaxIdScanned(snapshot.getMaxReleaseMessageId());
+        logger.info("Warmed up {} release messages from snapshot, maxIdScanned: {}", snapshot.getEntries().size(), maxIdScanned);
+        return maxIdScanned;
+    }
+
+    private boolean isSnapshotEnabled() {
+        return cacheSnapshotManager != null && cacheSnapshotManager.isEnabled();
+    }
+
     private synchronized void mergeReleaseMessage(ReleaseMessage releaseMessage) {
         // 获得对应的 ReleaseMessage 对象
         ReleaseMessage old = releaseMessageCache.get(releaseMessage.getMessage());
         // 若编号更大，进行更新缓存
         if (old == null || releaseMessage.getId() > old.getId()) {
             releaseMessageCache.put(releaseMessage.getMessage(), releaseMessage);
-            maxIdScanned = releaseMessage.getId();
+        }
+    }
+
+    private synchronized void advanceMaxIdScanned(long id) {
+        if (id > maxIdScanned) {
+            maxIdScanned = id;
         }
     }
 
@@ -210,6 +273,7 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
             // 获得新的 maxIdScanned ，取最后一条记录
             int scanned = releaseMessages.size();
             startId = releaseMessages.get(scanned - 1).getId();
+            advanceMaxIdScanned(startId);
             // 若拉取不足 500 条，说明无新消息了
             hasMore = scanned == 500;
             logger.info("Loaded {} release messages with startId {}", scanned, startId);
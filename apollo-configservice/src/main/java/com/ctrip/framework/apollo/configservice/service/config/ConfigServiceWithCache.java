@@ -1,10 +1,13 @@
 package com.ctrip.framework.apollo.configservice.service.config;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshot;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshotManager;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
@@ -12,18 +15,26 @@ import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.PostConstruct;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * config service with guava cache
@@ -40,6 +51,24 @@ public class ConfigServiceWithCache extends AbstractConfigService {
      * 默认缓存过滤时间，单位：分钟
      */
     private static final long DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES = 60; //1 hour
+    /**
+     * 缓存占用超过容量的该百分比时，开始限制准入
+     */
+    private static final long ADMISSION_HIGH_WATERMARK_PERCENT = 80;
+    /**
+     * 准入窗口，单位：分钟。窗口内被再次访问的 KEY 才准入
+     */
+    private static final long ADMISSION_WINDOW_IN_MINUTES = 10;
+    private static final long ADMISSION_DOORKEEPER_SIZE = 100000;
+    /**
+     * 每个缓存 Entry 除配置外的估算开销，单位：字节
+     */
+    private static final int ENTRY_OVERHEAD_IN_BYTES = 256;
+    private static final String SNAPSHOT_NAME = "config";
+    /**
+     * 创建快照时，每次查询最新 ReleaseMessage 编号的 KEY 数量
+     */
+    private static final int SNAPSHOT_CHECK_BATCH_SIZE = 500;
 
     // TRACER 日志内存的枚举
     private static final String TRACER_EVENT_CACHE_INVALIDATE = "ConfigCache.Invalidate";
@@ -54,6 +83,10 @@ public class ConfigServiceWithCache extends AbstractConfigService {
     private ReleaseService releaseService;
     @Autowired
     private ReleaseMessageService releaseMessageService;
+    @Autowired
+    private BizConfig bizConfig;
+    @Autowired(required = false)
+    private CacheSnapshotManager cacheSnapshotManager;
     /**
      * ConfigCacheEntry 缓存
      *
@@ -66,6 +99,19 @@ public class ConfigServiceWithCache extends AbstractConfigService {
      * KEY ：Release 编号
      */
     private LoadingCache<Long, Optional<Release>> configIdCache;
+    /**
+     * 缓存接近容量上限时，记录最近未准入的 KEY
+     */
+    private Cache<String, Boolean> admissionDoorkeeper;
+    /**
+     * configCache 占用的内存，单位：字节
+     */
+    private final AtomicLong configCacheWeight = new AtomicLong();
+    private final AtomicLong admissionRejectedCount = new AtomicLong();
+    /**
+     * 开始限制准入的 configCache 占用的内存，单位：字节
+     */
+    private long highWatermark;
     /**
      * 无 ConfigCacheEntry 占位对象
      */
@@ -77,48 +123,30 @@ public class ConfigServiceWithCache extends AbstractConfigService {
 
     @PostConstruct
     void initialize() {
+        long maxWeight = bizConfig.configServiceCacheMaxSizeInMB() * 1024L * 1024L;
+        highWatermark = maxWeight * ADMISSION_HIGH_WATERMARK_PERCENT / 100;
         // 初始化 configCache
         configCache = CacheBuilder.newBuilder()
                 .expireAfterAccess(DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES, TimeUnit.MINUTES) // 访问过期
+                .maximumWeight(maxWeight) // 按配置大小限制
+                .weigher((String key, ConfigCacheEntry value) -> value.getWeight())
+                .removalListener((RemovalNotification<String, ConfigCacheEntry> notification) ->
+                        configCacheWeight.addAndGet(-notification.getValue().getWeight()))
+                .recordStats()
                 .build(new CacheLoader<String, ConfigCacheEntry>() {
                     @Override
                     public ConfigCacheEntry load(String key) {
-                        // 格式不正确，返回 nullConfigCacheEntry
-                        List<String> namespaceInfo = STRING_SPLITTER.splitToList(key);
-                        if (namespaceInfo.size() != 3) {
-                            Tracer.logError(new IllegalArgumentException(String.format("Invalid cache load key %s", key)));
-                            return nullConfigCacheEntry;
-                        }
-                        // 【TODO 6001】Tracer 日志
-                        Transaction transaction = Tracer.newTransaction(TRACER_EVENT_CACHE_LOAD, key);
-                        try {
-                            // 获得最新的 ReleaseMessage 对象
-                            ReleaseMessage latestReleaseMessage = releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(key));
-                            // 获得最新的，并且有效的 Release 对象
-                            Release latestRelease = releaseService.findLatestActiveRelease(namespaceInfo.get(0), namespaceInfo.get(1), namespaceInfo.get(2));
-                            // 【TODO 6001】Tracer 日志
-                            transaction.setStatus(Transaction.SUCCESS);
-                            // 获得通知编号
-                            long notificationId = latestReleaseMessage == null ? ConfigConsts.NOTIFICATION_ID_PLACEHOLDER : latestReleaseMessage.getId();
-                            // 若 latestReleaseMessage 和 latestRelease 都为空，返回 nullConfigCacheEntry
-                            if (notificationId == ConfigConsts.NOTIFICATION_ID_PLACEHOLDER && latestRelease == null) {
-                                return nullConfigCacheEntry;
-                            }
-                            // 创建 ConfigCacheEntry 对象
-                            return new ConfigCacheEntry(notificationId, latestRelease);
-                        } catch (Throwable ex) {
-                            // 【TODO 6001】Tracer 日志
-                            transaction.setStatus(ex);
-                            throw ex;
-                        } finally {
-                            // 【TODO 6001】Tracer 日志
-                            transaction.complete();
-                        }
+                        ConfigCacheEntry entry = loadConfigCacheEntry(key);
+                        configCacheWeight.addAndGet(entry.getWeight());
+                        return entry;
                     }
                 });
-        // 初始化 configIdCache
+        // 初始化 configIdCache ，只用于灰度发布，占用 1/4 的容量
         configIdCache = CacheBuilder.newBuilder()
                 .expireAfterAccess(DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES, TimeUnit.MINUTES) // 访问过期
+                .maximumWeight(maxWeight / 4) // 按配置大小限制
+                .weigher((Long key, Optional<Release> value) -> weigh(value.orElse(null)))
+                .recordStats()
                 .build(new CacheLoader<Long, Optional<Release>>() {
                     @Override
                     public Optional<Release> load(Long key) {
@@ -141,6 +169,135 @@ public class ConfigServiceWithCache extends AbstractConfigService {
                         }
                     }
                 });
+        // 初始化 admissionDoorkeeper
+        admissionDoorkeeper = CacheBuilder.newBuilder()
+                .expireAfterWrite(ADMISSION_WINDOW_IN_MINUTES, TimeUnit.MINUTES)
+                .maximumSize(ADMISSION_DOORKEEPER_SIZE)
+                .build();
+        // 从快照预热 configCache ，并注册快照
+        if (isSnapshotEnabled()) {
+            warmUpFromSnapshot();
+            cacheSnapshotManager.register(SNAPSHOT_NAME, this::createSnapshot);
+        }
+    }
+
+    /**
+     * 从快照预热 configCache
+     *
+     * 快照之后有新的 ReleaseMessage 的 KEY ，说明已发布新的配置，不预热，请求时从 DB 加载。
+     */
+    private void warmUpFromSnapshot() {
+        CacheSnapshot<ConfigCacheSnapshotEntry> snapshot = cacheSnapshotManager.load(SNAPSHOT_NAME, ConfigCacheSnapshotEntry.class);
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            Set<String> changedKeys = cacheSnapshotManager.findMessagesAfter(snapshot.getMaxReleaseMessageId());
+            int warmedUp = 0;
+            for (ConfigCacheSnapshotEntry entry : snapshot.getEntries()) {
+                if (changedKeys.contains(entry.key)) {
+                    continue;
+                }
+                ConfigCacheEntry cacheEntry = new ConfigCacheEntry(entry.notificationId, entry.release);
+                configCache.put(entry.key, cacheEntry);
+                configCacheWeight.addAndGet(cacheEntry.getWeight());
+                warmedUp++;
+            }
+            logger.info("Warmed up {} config cache entries from snapshot, {} changed since the snapshot", warmedUp, changedKeys.size());
+        } catch (Throwable ex) {
+            // 预热失败，清空缓存，请求时从 DB 加载
+            configCache.invalidateAll();
+            Tracer.logError(ex);
+            logger.error("Warm up config cache from snapshot failed", ex);
+        }
+    }
+
+    /**
+     * 创建 configCache 的快照
+     *
+     * 复制缓存后，再查询各 KEY 最新的 ReleaseMessage 编号，跳过通知编号更小的 Entry 。
+     * 这些 Entry 的失效尚未被处理，而快照的最大 ReleaseMessage 编号已包含对应的 ReleaseMessage ，启动时不会失效。
+     */
+    private CacheSnapshot<?> createSnapshot() {
+        // 先获取最大的 ReleaseMessage 编号，之后的变化在启动时失效
+        long maxReleaseMessageId = cacheSnapshotManager.findMaxReleaseMessageId();
+        Map<String, ConfigCacheEntry> cachedEntries = Maps.newHashMap();
+        for (Map.Entry<String, ConfigCacheEntry> entry : configCache.asMap().entrySet()) {
+            if (entry.getValue() != nullConfigCacheEntry) {
+                cachedEntries.put(entry.getKey(), entry.getValue());
+            }
+        }
+        // 获得各 KEY 最新的 ReleaseMessage 编号
+        Map<String, Long> latestNotificationIds = Maps.newHashMap();
+        for (List<String> keys : Iterables.partition(cachedEntries.keySet(), SNAPSHOT_CHECK_BATCH_SIZE)) {
+            for (ReleaseMessage releaseMessage : releaseMessageService.findLatestReleaseMessagesGroupByMessages(keys)) {
+                latestNotificationIds.put(releaseMessage.getMessage(), releaseMessage.getId());
+            }
+        }
+        List<ConfigCacheSnapshotEntry> entries = Lists.newArrayList();
+        for (Map.Entry<String, ConfigCacheEntry> entry : cachedEntries.entrySet()) {
+            Long latestNotificationId = latestNotificationIds.get(entry.getKey());
+            if (latestNotificationId != null && latestNotificationId > entry.getValue().getNotificationId()) {
+                continue;
+            }
+            entries.add(new ConfigCacheSnapshotEntry(entry.getKey(), entry.getValue().getNotificationId(), entry.getValue().getRelease()));
+        }
+        return new CacheSnapshot<>(maxReleaseMessageId, maxReleaseMessageId, entries);
+    }
+
+    private boolean isSnapshotEnabled() {
+        return cacheSnapshotManager != null && cacheSnapshotManager.isEnabled();
+    }
+
+    private ConfigCacheEntry loadConfigCacheEntry(String key) {
+        // 格式不正确，返回 nullConfigCacheEntry
+        List<String> namespaceInfo = STRING_SPLITTER.splitToList(key);
+        if (namespaceInfo.size() != 3) {
+            Tracer.logError(new IllegalArgumentException(String.format("Invalid cache load key %s", key)));
+            return nullConfigCacheEntry;
+        }
+        // 【TODO 6001】Tracer 日志
+        Transaction transaction = Tracer.newTransaction(TRACER_EVENT_CACHE_LOAD, key);
+        try {
+            // 获得最新的 ReleaseMessage 对象
+            ReleaseMessage latestReleaseMessage = releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(key));
+            // 获得最新的，并且有效的 Release 对象
+            Release latestRelease = releaseService.findLatestActiveRelease(namespaceInfo.get(0), namespaceInfo.get(1), namespaceInfo.get(2));
+            // 【TODO 6001】Tracer 日志
+            transaction.setStatus(Transaction.SUCCESS);
+            // 获得通知编号
+            long notificationId = latestReleaseMessage == null ? ConfigConsts.NOTIFICATION_ID_PLACEHOLDER : latestReleaseMessage.getId();
+            // 若 latestReleaseMessage 和 latestRelease 都为空，返回 nullConfigCacheEntry
+            if (notificationId == ConfigConsts.NOTIFICATION_ID_PLACEHOLDER && latestRelease == null) {
+                return nullConfigCacheEntry;
+            }
+            // 创建 ConfigCacheEntry 对象
+            return new ConfigCacheEntry(notificationId, latestRelease);
+        } catch (Throwable ex) {
+            // 【TODO 6001】Tracer 日志
+            transaction.setStatus(ex);
+            throw ex;
+        } finally {
+            // 【TODO 6001】Tracer 日志
+            transaction.complete();
+        }
+    }
+
+    /**
+     * 获得 ConfigCacheEntry 对象
+     *
+     * 缓存未满时，直接加载到缓存。缓存接近容量上限时，只有在准入窗口内被再次访问的 KEY 才加载到缓存，
+     * 避免只访问一次的 Namespace 把常用的 Namespace 挤出缓存。未准入的 KEY 直接从 DB 读取。
+     */
+    private ConfigCacheEntry getConfigCacheEntry(String key) {
+        // asMap().containsKey 不计入统计，由 getUnchecked 记录命中或未命中
+        if (configCache.asMap().containsKey(key) || configCacheWeight.get() < highWatermark
+                || admissionDoorkeeper.getIfPresent(key) != null) {
+            return configCache.getUnchecked(key);
+        }
+        admissionDoorkeeper.put(key, Boolean.TRUE);
+        admissionRejectedCount.incrementAndGet();
+        return loadConfigCacheEntry(key);
     }
 
     @Override
@@ -158,7 +315,7 @@ public class ConfigServiceWithCache extends AbstractConfigService {
         // 【TODO 6001】Tracer 日志
         Tracer.logEvent(TRACER_EVENT_CACHE_GET, key);
         // 从缓存 configCache 中，读取 ConfigCacheEntry 对象
-        ConfigCacheEntry cacheEntry = configCache.getUnchecked(key);
+        ConfigCacheEntry cacheEntry = getConfigCacheEntry(key);
         // 若客户端的通知编号更大，说明缓存已经过期。
         // cache is out-dated
         if (clientMessages != null && clientMessages.has(key) && clientMessages.get(key) > cacheEntry.getNotificationId()) {
@@ -166,7 +323,7 @@ public class ConfigServiceWithCache extends AbstractConfigService {
             // invalidate the cache and try to load from db again
             invalidate(key);
             // 读取 ConfigCacheEntry 对象，重新从 DB 中加载。
-            cacheEntry = configCache.getUnchecked(key);
+            cacheEntry = getConfigCacheEntry(key);
         }
         // 返回 Release 对象
         return cacheEntry.getRelease();
@@ -187,16 +344,82 @@ public class ConfigServiceWithCache extends AbstractConfigService {
             return;
         }
         try {
+            boolean cached = configCache.asMap().containsKey(message.getMessage());
             // 清空对应的缓存
             invalidate(message.getMessage());
-            // 预热缓存，读取 ConfigCacheEntry 对象，重新从 DB 中加载。
+            // 预热缓存，读取 ConfigCacheEntry 对象，重新从 DB 中加载。未缓存的 KEY 不预热，等待请求时再准入。
             // warm up the cache
-            configCache.getUnchecked(message.getMessage());
+            if (cached) {
+                configCache.getUnchecked(message.getMessage());
+            }
         } catch (Throwable ex) {
             //ignore
         }
     }
 
+    /**
+     * @return the statistics of the release cache keyed by watch key
+     */
+    public CacheStats getConfigCacheStats() {
+        return configCache.stats();
+    }
+
+    /**
+     * @return the statistics of the release cache keyed by release id
+     */
+    public CacheStats getConfigIdCacheStats() {
+        return configIdCache.stats();
+    }
+
+    public long getConfigCacheSize() {
+        return configCache.size();
+    }
+
+    public long getConfigIdCacheSize() {
+        return configIdCache.size();
+    }
+
+    /**
+     * @return the approximate weight in bytes of the release cache keyed by watch key
+     */
+    public long getConfigCacheWeight() {
+        return configCacheWeight.get();
+    }
+
+    /**
+     * @return the number of loads not admitted to the cache under memory pressure
+     */
+    public long getAdmissionRejectedCount() {
+        return admissionRejectedCount.get();
+    }
+
+    /**
+     * 估算 Release 占用的内存，单位：字节
+     */
+    static int weigh(Release release) {
+        if (release == null) {
+            return ENTRY_OVERHEAD_IN_BYTES;
+        }
+        long weight = ENTRY_OVERHEAD_IN_BYTES + (long) Strings.nullToEmpty(release.getConfigurations()).length() * 2;
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * configCache 的快照 Entry
+     */
+    private static class ConfigCacheSnapshotEntry {
+
+        private final String key;
+        private final long notificationId;
+        private final Release release;
+
+        private ConfigCacheSnapshotEntry(String key, long notificationId, Release release) {
+            this.key = key;
+            this.notificationId = notificationId;
+            this.release = release;
+        }
+    }
+
     /**
      * 配置缓存 Entry
      */
@@ -210,10 +433,15 @@ public class ConfigServiceWithCache extends AbstractConfigService {
          * Release 对象
          */
         private final Release release;
+        /**
+         * 占用的内存，单位：字节
+         */
+        private final int weight;
 
         public ConfigCacheEntry(long notificationId, Release release) {
             this.notificationId = notificationId;
             this.release = release;
+            this.weight = weigh(release);
         }
 
         public long getNotificationId() {
@@ -224,6 +452,10 @@ public class ConfigServiceWithCache extends AbstractConfigService {
             return release;
         }
 
+        public int getWeight() {
+            return weight;
+        }
+
     }
 
 }
@@ -1,5 +1,6 @@
 package com.ctrip.framework.apollo.configservice.util;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
@@ -10,25 +11,43 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
 import com.google.common.collect.Queues;
+import com.google.common.collect.Table;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * InstanceConfig 审计工具类
  *
+ * 审计先进入有界队列，再由多个 Worker 批量消费：
+ * 1. 每个 Worker 在窗口时间内，从队列中拉取一批审计；
+ * 2. 同一批中，相同 (Instance, ConfigAppId, ConfigNamespace) 的审计合并，只保留最后入队的；
+ * 3. Instance 和 InstanceConfig 通过多行查询获得，通过 {@link InstanceService} 批量创建和更新。
+ *
+ * 队列满时，审计被丢弃，并计数，见 {@link #getDroppedAuditCount()} 。
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
@@ -51,9 +70,9 @@ public class InstanceConfigAuditUtil implements InitializingBean {
     private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
 
     /**
-     * ExecutorService 对象。队列大小为 1 。
+     * ExecutorService 对象。线程数为 {@link BizConfig#instanceConfigAuditWorkers()} 。
      */
-    private final ExecutorService auditExecutorService;
+    private ExecutorService auditExecutorService;
     /**
      * 是否停止
      */
@@ -62,6 +81,10 @@ public class InstanceConfigAuditUtil implements InitializingBean {
      * 队列
      */
     private BlockingQueue<InstanceConfigAuditModel> audits = Queues.newLinkedBlockingQueue(INSTANCE_CONFIG_AUDIT_MAX_SIZE);
+    /**
+     * 因队列已满，丢弃的审计数量
+     */
+    private final LongAdder droppedAudits = new LongAdder();
     /**
      * Instance 的编号的缓存
      *
@@ -79,9 +102,10 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 
     @Autowired
     private InstanceService instanceService;
+    @Autowired
+    private BizConfig bizConfig;
 
     public InstanceConfigAuditUtil() {
-        auditExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create("InstanceConfigAuditUtil", true));
         auditStopped = new AtomicBoolean(false);
         instanceCache = CacheBuilder.newBuilder().expireAfterAccess(1, TimeUnit.HOURS).maximumSize(INSTANCE_CACHE_MAX_SIZE).build();
         instanceConfigReleaseKeyCache = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.DAYS).maximumSize(INSTANCE_CONFIG_CACHE_MAX_SIZE).build();
@@ -90,63 +114,131 @@ public class InstanceConfigAuditUtil implements InitializingBean {
     // 添加到队列中
     public boolean audit(String appId, String clusterName, String dataCenter, String
             ip, String configAppId, String configClusterName, String configNamespace, String releaseKey) {
-        return this.audits.offer(new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip,
+        boolean offered = this.audits.offer(new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip,
                 configAppId, configClusterName, configNamespace, releaseKey));
+        // 队列已满，计数
+        if (!offered) {
+            droppedAudits.increment();
+        }
+        return offered;
+    }
+
+    /**
+     * @return 因队列已满，丢弃的审计数量
+     */
+    public long getDroppedAuditCount() {
+        return droppedAudits.sum();
     }
 
-    // 记录 Instance 和 InstanceConfig
-    void doAudit(InstanceConfigAuditModel auditModel) {
-        // 拼接 instanceCache 的 KEY
-        String instanceCacheKey = assembleInstanceKey(auditModel.getAppId(), auditModel.getClusterName(),
-                auditModel.getIp(), auditModel.getDataCenter());
-        // 获得 Instance 编号
-        Long instanceId = instanceCache.getIfPresent(instanceCacheKey);
-        // 查询不到，从 DB 加载或者创建，并添加到缓存中。
-        if (instanceId == null) {
-            instanceId = prepareInstanceId(auditModel);
-            instanceCache.put(instanceCacheKey, instanceId);
+    /**
+     * @return 队列中，待处理的审计数量
+     */
+    public int getPendingAuditCount() {
+        return audits.size();
+    }
+
+    // 批量记录 Instance 和 InstanceConfig
+    void doAudit(List<InstanceConfigAuditModel> auditModels) {
+        // 获得 Instance 编号们
+        Map<String, Long> instanceIds = prepareInstanceIds(auditModels);
+
+        // 按照 (ConfigAppId, ConfigNamespace) 分组，相同 Instance 的审计合并，后入队的覆盖先入队的
+        // ROW：ConfigAppId + ConfigNamespace
+        // COLUMN：Instance 编号
+        Table<String, Long, InstanceConfigAuditModel> coalescedAudits = HashBasedTable.create();
+        for (InstanceConfigAuditModel auditModel : auditModels) {
+            Long instanceId = instanceIds.get(assembleInstanceKey(auditModel));
+            if (instanceId == null) {
+                continue;
+            }
+            coalescedAudits.put(STRING_JOINER.join(auditModel.getConfigAppId(), auditModel.getConfigNamespace()),
+                    instanceId, auditModel);
         }
 
-        // 获得 instanceConfigReleaseKeyCache 的 KEY
-        // load instance config release key from cache, and check if release key is the same
-        String instanceConfigCacheKey = assembleInstanceConfigKey(instanceId, auditModel.getConfigAppId(),
-                auditModel.getConfigNamespace());
-        // 获得缓存的 cacheReleaseKey
-        String cacheReleaseKey = instanceConfigReleaseKeyCache.getIfPresent(instanceConfigCacheKey);
-        // 若相等，跳过
-        // if release key is the same, then skip audit
-        if (cacheReleaseKey != null && Objects.equals(cacheReleaseKey, auditModel.getReleaseKey())) {
-            return;
+        List<InstanceConfig> toUpdate = Lists.newArrayList();
+        List<InstanceConfig> toCreate = Lists.newArrayList();
+        for (Map<Long, InstanceConfigAuditModel> namespaceAudits : coalescedAudits.rowMap().values()) {
+            // 过滤 release key 和缓存相同的审计
+            // load instance config release key from cache, and check if release key is the same
+            Map<Long, InstanceConfigAuditModel> pendingAudits = Maps.newHashMap();
+            for (Map.Entry<Long, InstanceConfigAuditModel> entry : namespaceAudits.entrySet()) {
+                InstanceConfigAuditModel auditModel = entry.getValue();
+                String instanceConfigCacheKey = assembleInstanceConfigKey(entry.getKey(), auditModel.getConfigAppId(),
+                        auditModel.getConfigNamespace());
+                String cacheReleaseKey = instanceConfigReleaseKeyCache.getIfPresent(instanceConfigCacheKey);
+                // 若相等，跳过
+                // if release key is the same, then skip audit
+                if (cacheReleaseKey != null && Objects.equals(cacheReleaseKey, auditModel.getReleaseKey())) {
+                    continue;
+                }
+                // 更新对应的 instanceConfigReleaseKeyCache 缓存
+                instanceConfigReleaseKeyCache.put(instanceConfigCacheKey, auditModel.getReleaseKey());
+                pendingAudits.put(entry.getKey(), auditModel);
+            }
+            if (pendingAudits.isEmpty()) {
+                continue;
+            }
+
+            // 多行查询 InstanceConfig
+            // if release key is not the same or cannot find in cache, then do audit
+            InstanceConfigAuditModel anyAuditModel = pendingAudits.values().iterator().next();
+            Map<Long, InstanceConfig> instanceConfigs = instanceService.findInstanceConfigs(pendingAudits.keySet(),
+                    anyAuditModel.getConfigAppId(), anyAuditModel.getConfigNamespace()).stream()
+                    .collect(Collectors.toMap(InstanceConfig::getInstanceId, Function.identity(), (a, b) -> a));
+
+            for (Map.Entry<Long, InstanceConfigAuditModel> entry : pendingAudits.entrySet()) {
+                InstanceConfigAuditModel auditModel = entry.getValue();
+                InstanceConfig instanceConfig = instanceConfigs.get(entry.getKey());
+                // 若 InstanceConfig 不存在，创建 InstanceConfig 对象
+                if (instanceConfig == null) {
+                    toCreate.add(assembleInstanceConfig(entry.getKey(), auditModel));
+                    continue;
+                }
+                // 若 InstanceConfig 已经存在，进行更新
+                // ReleaseKey 发生变化
+                if (!Objects.equals(instanceConfig.getReleaseKey(), auditModel.getReleaseKey())) {
+                    instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
+                    instanceConfig.setReleaseKey(auditModel.getReleaseKey());
+                    instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime()); // 配置下发时间，使用入队时间
+                // 时间过近，例如 Client 先请求的 Config Service A 节点，再请求 Config Service B 节点的情况。
+                } else if (offerTimeAndLastModifiedTimeCloseEnough(auditModel.getOfferTime(), instanceConfig.getDataChangeLastModifiedTime())) {
+                    //when releaseKey is the same, optimize to reduce writes if the record was updated not long ago
+                    continue;
+                }
+                //we need to update no matter the release key is the same or not, to ensure the
+                //last modified time is updated each day
+                instanceConfig.setDataChangeLastModifiedTime(auditModel.getOfferTime());
+                toUpdate.add(instanceConfig);
+            }
+        }
+
+        // 批量更新
+        if (!toUpdate.isEmpty()) {
+            instanceService.batchUpdateInstanceConfigs(toUpdate);
         }
-        // 更新对应的 instanceConfigReleaseKeyCache 缓存
-        instanceConfigReleaseKeyCache.put(instanceConfigCacheKey, auditModel.getReleaseKey());
-        // 获得 InstanceConfig 对象
-        // if release key is not the same or cannot find in cache, then do audit
-        InstanceConfig instanceConfig = instanceService.findInstanceConfig(instanceId, auditModel.getConfigAppId(),
-                auditModel.getConfigNamespace());
-
-        // 若 InstanceConfig 已经存在，进行更新
-        if (instanceConfig != null) {
-            // ReleaseKey 发生变化
-            if (!Objects.equals(instanceConfig.getReleaseKey(), auditModel.getReleaseKey())) {
-                instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
-                instanceConfig.setReleaseKey(auditModel.getReleaseKey());
-                instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime()); // 配置下发时间，使用入队时间
-            // 时间过近，例如 Client 先请求的 Config Service A 节点，再请求 Config Service B 节点的情况。
-            } else if (offerTimeAndLastModifiedTimeCloseEnough(auditModel.getOfferTime(), instanceConfig.getDataChangeLastModifiedTime())) {
-                //when releaseKey is the same, optimize to reduce writes if the record was updated not long ago
-                return;
+        // 批量创建
+        if (!toCreate.isEmpty()) {
+            createInstanceConfigs(toCreate);
+        }
+    }
+
+    private void createInstanceConfigs(List<InstanceConfig> instanceConfigs) {
+        try {
+            instanceService.batchCreateInstanceConfigs(instanceConfigs);
+        } catch (DataIntegrityViolationException ex) {
+            // 其它 Config Service 节点并发创建，整批回滚，逐个重新创建
+            for (InstanceConfig instanceConfig : instanceConfigs) {
+                try {
+                    instanceService.createInstanceConfig(instanceConfig);
+                } catch (DataIntegrityViolationException e) {
+                    // concurrent insertion, safe to ignore
+                }
             }
-            // 更新
-            //we need to update no matter the release key is the same or not, to ensure the
-            //last modified time is updated each day
-            instanceConfig.setDataChangeLastModifiedTime(auditModel.getOfferTime());
-            instanceService.updateInstanceConfig(instanceConfig);
-            return;
         }
+    }
 
-        // 若 InstanceConfig 不存在，创建 InstanceConfig 对象
-        instanceConfig = new InstanceConfig();
+    private InstanceConfig assembleInstanceConfig(long instanceId, InstanceConfigAuditModel auditModel) {
+        InstanceConfig instanceConfig = new InstanceConfig();
         instanceConfig.setInstanceId(instanceId);
         instanceConfig.setConfigAppId(auditModel.getConfigAppId());
         instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
@@ -154,18 +246,84 @@ public class InstanceConfigAuditUtil implements InitializingBean {
         instanceConfig.setReleaseKey(auditModel.getReleaseKey());
         instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
         instanceConfig.setDataChangeCreatedTime(auditModel.getOfferTime());
-        // 保存 InstanceConfig 对象到数据库中
-        try {
-            instanceService.createInstanceConfig(instanceConfig);
-        } catch (DataIntegrityViolationException ex) {
-            // concurrent insertion, safe to ignore
-        }
+        return instanceConfig;
     }
 
     private boolean offerTimeAndLastModifiedTimeCloseEnough(Date offerTime, Date lastModifiedTime) {
         return (offerTime.getTime() - lastModifiedTime.getTime()) < OFFER_TIME_LAST_MODIFIED_TIME_THRESHOLD_IN_MILLI;
     }
 
+    /**
+     * 获得 Instance 编号们。缓存未命中的，按照 (AppId, ClusterName) 多行查询，仍不存在的批量创建。
+     *
+     * @return KEY：{@link #assembleInstanceKey(InstanceConfigAuditModel)} VALUE：Instance 编号
+     */
+    private Map<String, Long> prepareInstanceIds(List<InstanceConfigAuditModel> auditModels) {
+        Map<String, Long> instanceIds = Maps.newHashMap();
+        // 缓存未命中的 Instance
+        Map<String, InstanceConfigAuditModel> missedInstances = Maps.newLinkedHashMap();
+        for (InstanceConfigAuditModel auditModel : auditModels) {
+            String instanceCacheKey = assembleInstanceKey(auditModel);
+            if (instanceIds.containsKey(instanceCacheKey) || missedInstances.containsKey(instanceCacheKey)) {
+                continue;
+            }
+            Long instanceId = instanceCache.getIfPresent(instanceCacheKey);
+            if (instanceId != null) {
+                instanceIds.put(instanceCacheKey, instanceId);
+            } else {
+                missedInstances.put(instanceCacheKey, auditModel);
+            }
+        }
+        if (missedInstances.isEmpty()) {
+            return instanceIds;
+        }
+
+        // 按照 (AppId, ClusterName) 分组，多行查询
+        ImmutableListMultimap<String, InstanceConfigAuditModel> missedByCluster = Multimaps.index(missedInstances.values(),
+                auditModel -> STRING_JOINER.join(auditModel.getAppId(), auditModel.getClusterName()));
+        for (Collection<InstanceConfigAuditModel> clusterAudits : missedByCluster.asMap().values()) {
+            InstanceConfigAuditModel anyAuditModel = clusterAudits.iterator().next();
+            Set<String> ips = clusterAudits.stream().map(InstanceConfigAuditModel::getIp).collect(Collectors.toSet());
+            for (Instance instance : instanceService.findInstances(anyAuditModel.getAppId(),
+                    anyAuditModel.getClusterName(), ips)) {
+                String instanceCacheKey = assembleInstanceKey(instance.getAppId(), instance.getClusterName(),
+                        instance.getIp(), instance.getDataCenter());
+                if (missedInstances.containsKey(instanceCacheKey)) {
+                    instanceIds.put(instanceCacheKey, instance.getId());
+                }
+            }
+        }
+
+        // 若 Instance 不存在，批量创建 Instance 对象
+        List<InstanceConfigAuditModel> toCreate = missedInstances.entrySet().stream()
+                .filter(entry -> !instanceIds.containsKey(entry.getKey()))
+                .map(Map.Entry::getValue).collect(Collectors.toList());
+        if (!toCreate.isEmpty()) {
+            try {
+                List<Instance> instances = instanceService.batchCreateInstances(
+                        toCreate.stream().map(this::assembleInstance).collect(Collectors.toList()));
+                for (Instance instance : instances) {
+                    instanceIds.put(assembleInstanceKey(instance.getAppId(), instance.getClusterName(),
+                            instance.getIp(), instance.getDataCenter()), instance.getId());
+                }
+            } catch (DataIntegrityViolationException ex) {
+                // 其它 Config Service 节点并发创建，整批回滚，逐个处理
+                for (InstanceConfigAuditModel auditModel : toCreate) {
+                    instanceIds.put(assembleInstanceKey(auditModel), prepareInstanceId(auditModel));
+                }
+            }
+        }
+
+        // 添加到缓存中
+        for (String instanceCacheKey : missedInstances.keySet()) {
+            Long instanceId = instanceIds.get(instanceCacheKey);
+            if (instanceId != null) {
+                instanceCache.put(instanceCacheKey, instanceId);
+            }
+        }
+        return instanceIds;
+    }
+
     private long prepareInstanceId(InstanceConfigAuditModel auditModel) {
         // 查询 Instance 对象
         Instance instance = instanceService.findInstance(auditModel.getAppId(), auditModel
@@ -175,11 +333,7 @@ public class InstanceConfigAuditUtil implements InitializingBean {
             return instance.getId();
         }
         // 若 Instance 不存在，创建 Instance 对象
-        instance = new Instance();
-        instance.setAppId(auditModel.getAppId());
-        instance.setClusterName(auditModel.getClusterName());
-        instance.setDataCenter(auditModel.getDataCenter());
-        instance.setIp(auditModel.getIp());
+        instance = assembleInstance(auditModel);
         // 保存 Instance 对象到数据库中
         try {
             return instanceService.createInstance(instance).getId();
@@ -191,27 +345,51 @@ public class InstanceConfigAuditUtil implements InitializingBean {
         }
     }
 
+    private Instance assembleInstance(InstanceConfigAuditModel auditModel) {
+        Instance instance = new Instance();
+        instance.setAppId(auditModel.getAppId());
+        instance.setClusterName(auditModel.getClusterName());
+        instance.setDataCenter(auditModel.getDataCenter());
+        instance.setIp(auditModel.getIp());
+        return instance;
+    }
+
     @Override
     public void afterPropertiesSet() {
-        // 提交任务
-        auditExecutorService.submit(() -> {
-            // 循环，直到停止或线程打断
-            while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
-                try {
-                    // 获得队首 InstanceConfigAuditModel 元素，非阻塞
-                    InstanceConfigAuditModel model = audits.poll();
-                    // 若获取不到，sleep 等待 1 秒
-                    if (model == null) {
-                        TimeUnit.SECONDS.sleep(1);
-                        continue;
-                    }
-                    // 若获取到，记录 Instance 和 InstanceConfig
-                    doAudit(model);
-                } catch (Throwable ex) {
-                    Tracer.logError(ex);
+        int workers = bizConfig.instanceConfigAuditWorkers();
+        auditExecutorService = Executors.newFixedThreadPool(workers, ApolloThreadFactory.create("InstanceConfigAuditUtil", true));
+        // 提交任务，每个 Worker 一个
+        for (int i = 0; i < workers; i++) {
+            auditExecutorService.submit(this::consumeAudits);
+        }
+    }
+
+    private void consumeAudits() {
+        // 循环，直到停止或线程打断
+        while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
+            try {
+                // 获得队首 InstanceConfigAuditModel 元素，阻塞等待至多 1 秒
+                InstanceConfigAuditModel model = audits.poll(1, TimeUnit.SECONDS);
+                if (model == null) {
+                    continue;
                 }
+                // 在窗口时间内，继续拉取，直到批量满
+                List<InstanceConfigAuditModel> batch = Lists.newArrayList(model);
+                Queues.drain(audits, batch, bizConfig.instanceConfigAuditBatch() - 1,
+                        bizConfig.instanceConfigAuditBatchWindowInMilli(), TimeUnit.MILLISECONDS);
+                // 批量记录 Instance 和 InstanceConfig
+                doAudit(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable ex) {
+                Tracer.logError(ex);
             }
-        });
+        }
+    }
+
+    private String assembleInstanceKey(InstanceConfigAuditModel auditModel) {
+        return assembleInstanceKey(auditModel.getAppId(), auditModel.getClusterName(), auditModel.getIp(),
+                auditModel.getDataCenter());
     }
 
     private String assembleInstanceKey(String appId, String cluster, String ip, String datacenter) {
@@ -0,0 +1,271 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 大量客户端的通知调度器
+ *
+ * 1. 所有通知任务共享一个令牌桶，速率为 {@link BizConfig#releaseMessageNotificationRate()} ，平滑通知，避免“惊群效应”；
+ * 2. 多个 Worker 每次从任务中取出一批客户端进行通知，批量为 {@link BizConfig#releaseMessageNotificationBatch()} ，
+ *    未完成的任务重新入队；
+ * 3. 队列按已通知的客户端数量排序，并发的多个发布交替通知，新的发布优先，因此小的发布不会排在大的发布之后。
+ *
+ * 进度见 {@link #getProgresses()} 。
+ */
+@Component
+public class NotificationFanoutScheduler implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationFanoutScheduler.class);
+
+    /**
+     * 已通知的客户端少的优先，其次剩余客户端少的优先，最后按提交顺序
+     */
+    private static final Comparator<FanoutJob<?>> JOB_COMPARATOR = Comparator
+            .<FanoutJob<?>>comparingInt(job -> job.notified)
+            .thenComparingInt(FanoutJob::getRemaining)
+            .thenComparingLong(job -> job.sequence);
+
+    /**
+     * 待通知的任务队列
+     */
+    private final PriorityBlockingQueue<FanoutJob<?>> jobs = new PriorityBlockingQueue<>(11, JOB_COMPARATOR);
+    /**
+     * 未完成的任务，包括正在被 Worker 处理的任务
+     *
+     * KEY：任务序号
+     */
+    private final ConcurrentMap<Long, FanoutJob<?>> activeJobs = Maps.newConcurrentMap();
+    private final AtomicLong jobSequence = new AtomicLong();
+    private final LongAdder notifiedClients = new LongAdder();
+    private final LongAdder completedJobs = new LongAdder();
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private RateLimiter rateLimiter;
+    private ExecutorService fanoutExecutorService;
+
+    @Autowired
+    private BizConfig bizConfig;
+
+    /**
+     * 提交通知任务，由 Worker 异步通知
+     *
+     * @param key      Watch Key
+     * @param clients  待通知的客户端们
+     * @param notifier 通知单个客户端的方法
+     */
+    public <T> void submit(String key, List<T> clients, Consumer<T> notifier) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        FanoutJob<T> job = new FanoutJob<>(jobSequence.incrementAndGet(), key, clients, notifier);
+        activeJobs.put(job.sequence, job);
+        jobs.offer(job);
+        Tracer.logEvent("Apollo.LongPoll.Fanout.Submit", key);
+        logger.debug("Submit fanout of {} clients for key {}, pending jobs: {}", clients.size(), key, activeJobs.size());
+    }
+
+    /**
+     * @return 未完成的任务数量
+     */
+    public int getPendingJobCount() {
+        return activeJobs.size();
+    }
+
+    /**
+     * @return 未完成的任务中，待通知的客户端数量
+     */
+    public long getPendingClientCount() {
+        long pending = 0;
+        for (FanoutJob<?> job : activeJobs.values()) {
+            pending += job.getRemaining();
+        }
+        return pending;
+    }
+
+    /**
+     * @return 已通知的客户端总数
+     */
+    public long getNotifiedClientCount() {
+        return notifiedClients.sum();
+    }
+
+    /**
+     * @return 已完成的任务总数
+     */
+    public long getCompletedJobCount() {
+        return completedJobs.sum();
+    }
+
+    /**
+     * @return 未完成的任务的进度，按提交顺序
+     */
+    public List<FanoutProgress> getProgresses() {
+        List<FanoutProgress> progresses = Lists.newArrayList();
+        for (FanoutJob<?> job : activeJobs.values()) {
+            progresses.add(new FanoutProgress(job.sequence, job.key, job.clients.size(), job.notified,
+                    System.currentTimeMillis() - job.submitTime));
+        }
+        progresses.sort(Comparator.comparingLong(FanoutProgress::getSequence));
+        return progresses;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        rateLimiter = RateLimiter.create(bizConfig.releaseMessageNotificationRate());
+        int workers = bizConfig.releaseMessageNotificationWorkers();
+        fanoutExecutorService = Executors.newFixedThreadPool(workers, ApolloThreadFactory.create("NotificationFanoutScheduler", true));
+        // 提交任务，每个 Worker 一个
+        for (int i = 0; i < workers; i++) {
+            fanoutExecutorService.submit(this::consumeJobs);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stopped.set(true);
+        if (fanoutExecutorService != null) {
+            fanoutExecutorService.shutdownNow();
+        }
+    }
+
+    private void consumeJobs() {
+        // 循环，直到停止或线程打断
+        while (!stopped.get() && !Thread.currentThread().isInterrupted()) {
+            try {
+                // 获得优先级最高的任务，阻塞等待至多 1 秒
+                FanoutJob<?> job = jobs.poll(1, TimeUnit.SECONDS);
+                if (job == null) {
+                    continue;
+                }
+                notifyBatch(job);
+                // 未完成，重新入队，与其他任务交替通知
+                if (job.getRemaining() > 0) {
+                    jobs.offer(job);
+                } else {
+                    complete(job);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable ex) {
+                Tracer.logError(ex);
+                logger.error("Notification fanout failed", ex);
+            }
+        }
+    }
+
+    private <T> void notifyBatch(FanoutJob<T> job) {
+        // 速率支持动态调整
+        int rate = bizConfig.releaseMessageNotificationRate();
+        if (rateLimiter.getRate() != rate) {
+            rateLimiter.setRate(rate);
+        }
+        int batch = Math.min(job.getRemaining(), bizConfig.releaseMessageNotificationBatch());
+        rateLimiter.acquire(batch);
+        int end = job.notified + batch;
+        for (int i = job.notified; i < end; i++) {
+            T client = job.clients.get(i);
+            try {
+                logger.debug("Async notify {}", client);
+                job.notifier.accept(client);
+            } catch (Throwable ex) {
+                logger.warn("Notify {} for key {} failed", client, job.key, ex);
+            }
+        }
+        job.notified = end;
+        notifiedClients.add(batch);
+    }
+
+    private void complete(FanoutJob<?> job) {
+        activeJobs.remove(job.sequence);
+        completedJobs.increment();
+        long elapsed = System.currentTimeMillis() - job.submitTime;
+        Tracer.logEvent("Apollo.LongPoll.Fanout.Complete", job.key);
+        logger.info("Notified {} clients for key {} in {} ms", job.clients.size(), job.key, elapsed);
+    }
+
+    private static class FanoutJob<T> {
+        private final long sequence;
+        private final String key;
+        private final List<T> clients;
+        private final Consumer<T> notifier;
+        private final long submitTime = System.currentTimeMillis();
+        /**
+         * 已通知的客户端数量，同一时刻只有一个 Worker 处理该任务
+         */
+        private volatile int notified;
+
+        private FanoutJob(long sequence, String key, List<T> clients, Consumer<T> notifier) {
+            this.sequence = sequence;
+            this.key = key;
+            this.clients = clients;
+            this.notifier = notifier;
+        }
+
+        private int getRemaining() {
+            return clients.size() - notified;
+        }
+    }
+
+    /**
+     * 通知任务的进度
+     */
+    public static class FanoutProgress {
+        private final long sequence;
+        private final String key;
+        private final int total;
+        private final int notified;
+        private final long elapsedInMillis;
+
+        FanoutProgress(long sequence, String key, int total, int notified, long elapsedInMillis) {
+            this.sequence = sequence;
+            this.key = key;
+            this.total = total;
+            this.notified = notified;
+            this.elapsedInMillis = elapsedInMillis;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getNotified() {
+            return notified;
+        }
+
+        public long getElapsedInMillis() {
+            return elapsedInMillis;
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watch Key 订阅者注册表
+ *
+ * 替代 `Multimaps.synchronizedSetMultimap(...)` 。后者所有的注册、移除、查询，都竞争同一把锁。
+ * 这里基于 {@link ConcurrentHashMap} + 并发 Set ：
+ * 1. 注册不加锁，同一 Watch Key 的注册互不阻塞；移除按 bin 加锁，不同 Watch Key 的移除互不阻塞；
+ * 2. 同一 Watch Key 下，移除订阅者为 O(1) ；
+ * 3. 查询订阅者不加锁，返回快照。
+ *
+ * @param <T> 订阅者类型，例如 DeferredResultWrapper
+ */
+public class WatchKeySubscriberRegistry<T> {
+
+    /**
+     * 订阅者 Map
+     *
+     * KEY：Watch Key
+     * VALUE：订阅者集合
+     */
+    private final ConcurrentMap<String, KeySubscribers<T>> subscribers = new ConcurrentHashMap<>();
+    /**
+     * 注册数量，即 (Watch Key, 订阅者) 的数量
+     */
+    private final LongAdder registrations = new LongAdder();
+
+    /**
+     * 注册订阅者到 Watch Key 们
+     *
+     * @param watchKeys  Watch Key 集合
+     * @param subscriber 订阅者
+     */
+    public void register(Collection<String> watchKeys, T subscriber) {
+        for (String watchKey : watchKeys) {
+            // 不在 compute 中添加，避免热点 Watch Key 的注册都竞争同一个 bin 的锁
+            while (true) {
+                // 先 get ，已存在时不进入 computeIfAbsent 加锁
+                KeySubscribers<T> keySubscribers = subscribers.get(watchKey);
+                if (keySubscribers == null) {
+                    keySubscribers = subscribers.computeIfAbsent(watchKey, key -> new KeySubscribers<>());
+                }
+                boolean added = keySubscribers.values.add(subscriber);
+                // 集合已被 #unregister(...) 移除，撤销添加后重试
+                if (keySubscribers.removed) {
+                    if (added) {
+                        keySubscribers.values.remove(subscriber);
+                    }
+                    continue;
+                }
+                if (added) {
+                    registrations.increment();
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * 从 Watch Key 们移除订阅者
+     *
+     * @param watchKeys  Watch Key 集合
+     * @param subscriber 订阅者
+     */
+    public void unregister(Collection<String> watchKeys, T subscriber) {
+        for (String watchKey : watchKeys) {
+            subscribers.computeIfPresent(watchKey, (key, keySubscribers) -> {
+                if (keySubscribers.values.remove(subscriber)) {
+                    registrations.decrement();
+                }
+                if (!keySubscribers.values.isEmpty()) {
+                    return keySubscribers;
+                }
+                // 移除空集合，避免 Watch Key 无限增长。先标记移除再检查，和 #register(...) 先添加再检查标记配合，
+                // 保证两者至少一方看到对方，订阅者不会添加到已被移除的集合
+                keySubscribers.removed = true;
+                if (!keySubscribers.values.isEmpty()) {
+                    keySubscribers.removed = false;
+                    return keySubscribers;
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * @return 是否有订阅者
+     */
+    public boolean hasSubscribers(String watchKey) {
+        return subscribers.containsKey(watchKey);
+    }
+
+    /**
+     * 获得 Watch Key 的订阅者快照，返回后的注册和移除不影响该快照。
+     *
+     * @param watchKey Watch Key
+     * @return 订阅者数组
+     */
+    public List<T> getSubscribers(String watchKey) {
+        KeySubscribers<T> keySubscribers = subscribers.get(watchKey);
+        if (keySubscribers == null) {
+            return Collections.emptyList();
+        }
+        return Lists.newArrayList(keySubscribers.values);
+    }
+
+    /**
+     * @return Watch Key 的订阅者数量
+     */
+    public int getSubscriberCount(String watchKey) {
+        KeySubscribers<T> keySubscribers = subscribers.get(watchKey);
+        return keySubscribers == null ? 0 : keySubscribers.values.size();
+    }
+
+    /**
+     * @return 每个 Watch Key 的订阅者数量
+     */
+    public Map<String, Integer> getSubscriberCounts() {
+        Map<String, Integer> counts = Maps.newHashMapWithExpectedSize(subscribers.size());
+        for (Map.Entry<String, KeySubscribers<T>> entry : subscribers.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().values.size());
+        }
+        return counts;
+    }
+
+    /**
+     * @return 注册数量，即 (Watch Key, 订阅者) 的数量
+     */
+    public int size() {
+        return registrations.intValue();
+    }
+
+    /**
+     * Watch Key 的订阅者集合
+     */
+    private static class KeySubscribers<T> {
+
+        private final Set<T> values = Sets.newConcurrentHashSet();
+        /**
+         * 是否已从注册表移除，移除后不可再添加订阅者
+         */
+        private volatile boolean removed;
+
+    }
+
+}
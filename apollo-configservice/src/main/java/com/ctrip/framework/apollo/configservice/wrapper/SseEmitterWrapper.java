@@ -0,0 +1,128 @@
+package com.ctrip.framework.apollo.configservice.wrapper;
+
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SseEmitter} 包装器
+ *
+ * 和 {@link DeferredResultWrapper} 不同，一次订阅可以推送多次通知，直到连接超时或客户端断开。
+ */
+public class SseEmitterWrapper {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseEmitterWrapper.class);
+
+    /**
+     * 默认超时时间。超时后连接结束，客户端重新订阅，顺带校验一次通知编号。
+     */
+    private static final long TIMEOUT = 5 * 60 * 1000; //5 minutes
+    /**
+     * 通知事件名
+     */
+    public static final String NOTIFICATION_EVENT_NAME = "notifications";
+
+    /**
+     * 归一化和原始的 Namespace 的名字的 Map
+     */
+    private Map<String, String> normalizedNamespaceNameToOriginalNamespaceName;
+    /**
+     * 响应的 SseEmitter 对象
+     */
+    private final SseEmitter emitter;
+    /**
+     * 是否已经结束
+     */
+    private volatile boolean completed;
+
+    public SseEmitterWrapper() {
+        emitter = new SseEmitter(TIMEOUT);
+    }
+
+    /**
+     * 记录归一化和原始的 Namespace 的名字的映射
+     *
+     * @param originalNamespaceName 原始的 Namespace 的名字
+     * @param normalizedNamespaceName 归一化的 Namespace 的名字
+     */
+    public void recordNamespaceNameNormalizedResult(String originalNamespaceName, String normalizedNamespaceName) {
+        if (normalizedNamespaceNameToOriginalNamespaceName == null) {
+            normalizedNamespaceNameToOriginalNamespaceName = Maps.newHashMap();
+        }
+        normalizedNamespaceNameToOriginalNamespaceName.put(normalizedNamespaceName, originalNamespaceName);
+    }
+
+    public void onTimeout(Runnable timeoutCallback) {
+        emitter.onTimeout(() -> {
+            timeoutCallback.run();
+            complete();
+        });
+    }
+
+    public void onCompletion(Runnable completionCallback) {
+        emitter.onCompletion(completionCallback);
+    }
+
+    public void setResult(ApolloConfigNotification notification) {
+        setResult(Lists.newArrayList(notification));
+    }
+
+    /**
+     * 推送通知。
+     *
+     * 同一个 ApolloConfigNotification 会推送给多个订阅者，所以恢复 Namespace 的名字时，复制一份，不修改原对象。
+     */
+    public synchronized void setResult(List<ApolloConfigNotification> notifications) {
+        if (completed) {
+            return;
+        }
+        List<ApolloConfigNotification> toSend = Lists.newArrayListWithCapacity(notifications.size());
+        for (ApolloConfigNotification notification : notifications) {
+            String namespaceName = notification.getNamespaceName();
+            if (normalizedNamespaceNameToOriginalNamespaceName != null
+                    && normalizedNamespaceNameToOriginalNamespaceName.containsKey(namespaceName)) {
+                ApolloConfigNotification copy = new ApolloConfigNotification(
+                        normalizedNamespaceNameToOriginalNamespaceName.get(namespaceName), notification.getNotificationId());
+                copy.setMessages(notification.getMessages());
+                notification = copy;
+            }
+            toSend.add(notification);
+        }
+        try {
+            emitter.send(SseEmitter.event().name(NOTIFICATION_EVENT_NAME).data(toSend, MediaType.APPLICATION_JSON));
+        } catch (Throwable ex) {
+            // 客户端已断开，结束连接，触发 onCompletion 回调移除订阅
+            logger.debug("Send notifications to sse emitter failed, reason: {}", ex.getMessage());
+            Tracer.logEvent("Apollo.LongPoll.StreamSendFailed", ex.getClass().getSimpleName());
+            complete();
+        }
+    }
+
+    /**
+     * 结束连接
+     */
+    public synchronized void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        try {
+            emitter.complete();
+        } catch (Throwable ex) {
+            //ignore
+        }
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+}
@@ -1,10 +1,14 @@
 package com.ctrip.framework.apollo.configservice.controller;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 
@@ -15,15 +19,25 @@ import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigQuery;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigQueryResult;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -69,6 +83,8 @@ public class ConfigControllerTest {
   private InstanceConfigAuditUtil instanceConfigAuditUtil;
   @Mock
   private HttpServletRequest someRequest;
+  @Mock
+  private BizConfig bizConfig;
   private Gson gson = new Gson();
 
   @Before
@@ -80,6 +96,11 @@ public class ConfigControllerTest {
     ReflectionTestUtils.setField(configController, "instanceConfigAuditUtil", instanceConfigAuditUtil);
     ReflectionTestUtils.setField(configController, "gson", gson);
 
+    ConfigResponseCache configResponseCache = new ConfigResponseCache();
+    ReflectionTestUtils.setField(configResponseCache, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(configResponseCache, "gson", gson);
+    ReflectionTestUtils.setField(configController, "configResponseCache", configResponseCache);
+
     someAppId = "1";
     someClusterName = "someClusterName";
     defaultClusterName = ConfigConsts.CLUSTER_NAME_DEFAULT;
@@ -128,6 +149,135 @@ public class ConfigControllerTest {
         someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideNewReleaseKey);
   }
 
+  @Test
+  public void testQueryConfigAsJson() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    MockHttpServletRequest someHttpRequest = new MockHttpServletRequest();
+    MockHttpServletResponse someHttpResponse = new MockHttpServletResponse();
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(bizConfig.isConfigResponseGzipEnabled()).thenReturn(true);
+    when(bizConfig.configResponseGzipThreshold()).thenReturn(Integer.MAX_VALUE);
+
+    configController.queryConfigAsJson(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, false, someHttpRequest, someHttpResponse);
+
+    assertEquals(HttpServletResponse.SC_OK, someHttpResponse.getStatus());
+    assertNull(someHttpResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+
+    ApolloConfig result = gson.fromJson(someHttpResponse.getContentAsString(), ApolloConfig.class);
+    assertEquals(someAppId, result.getAppId());
+    assertEquals(someClusterName, result.getCluster());
+    assertEquals(defaultNamespaceName, result.getNamespaceName());
+    assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+    assertEquals("foo", result.getConfigurations().get("apollo.bar"));
+  }
+
+  @Test
+  public void testQueryConfigAsJsonWithGzip() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    MockHttpServletRequest someHttpRequest = new MockHttpServletRequest();
+    someHttpRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+    MockHttpServletResponse someHttpResponse = new MockHttpServletResponse();
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(bizConfig.isConfigResponseGzipEnabled()).thenReturn(true);
+    when(bizConfig.configResponseGzipThreshold()).thenReturn(0);
+
+    configController.queryConfigAsJson(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, false, someHttpRequest, someHttpResponse);
+
+    assertEquals("gzip", someHttpResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+
+    String json = new String(ByteStreams.toByteArray(new GZIPInputStream(
+        new ByteArrayInputStream(someHttpResponse.getContentAsByteArray()))), StandardCharsets.UTF_8);
+    ApolloConfig result = gson.fromJson(json, ApolloConfig.class);
+    assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+    assertEquals("foo", result.getConfigurations().get("apollo.bar"));
+  }
+
+  @Test
+  public void testQueryConfigAsJsonWithGzipRejected() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    MockHttpServletRequest someHttpRequest = new MockHttpServletRequest();
+    someHttpRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "GZIP; q=0.0, deflate");
+    MockHttpServletResponse someHttpResponse = new MockHttpServletResponse();
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(bizConfig.isConfigResponseGzipEnabled()).thenReturn(true);
+    when(bizConfig.configResponseGzipThreshold()).thenReturn(0);
+
+    configController.queryConfigAsJson(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, false, someHttpRequest, someHttpResponse);
+
+    assertNull(someHttpResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+
+    ApolloConfig result = gson.fromJson(someHttpResponse.getContentAsString(), ApolloConfig.class);
+    assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+  }
+
+  @Test
+  public void testQueryConfigAsJsonWithDelta() throws Exception {
+    String someReleaseKey = "someReleaseKey";
+    String anotherReleaseKey = "anotherReleaseKey";
+    Release someNewRelease = assembleRelease(someReleaseKey, ImmutableMap.of("a", "1", "b", "2", "c", "3", "e", "5"));
+    Release anotherNewRelease = assembleRelease(anotherReleaseKey, ImmutableMap.of("a", "1", "b", "22", "d", "4", "e", "5"));
+
+    when(bizConfig.isConfigResponseCacheEnabled()).thenReturn(true);
+    when(bizConfig.isConfigResponseDeltaEnabled()).thenReturn(true);
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someNewRelease).thenReturn(anotherNewRelease);
+
+    ApolloConfig someResult = queryConfigAsJson("-1", true);
+
+    assertNull(someResult.getBaseReleaseKey());
+    assertEquals(someReleaseKey, someResult.getReleaseKey());
+    assertEquals(4, someResult.getConfigurations().size());
+
+    ApolloConfig anotherResult = queryConfigAsJson(someReleaseKey, true);
+
+    assertEquals(someReleaseKey, anotherResult.getBaseReleaseKey());
+    assertEquals(anotherReleaseKey, anotherResult.getReleaseKey());
+    assertEquals(ImmutableMap.of("b", "22", "d", "4"), anotherResult.getConfigurations());
+    assertEquals(Sets.newHashSet("c"), anotherResult.getDeletedKeys());
+
+    ApolloConfig fullResult = queryConfigAsJson(someReleaseKey, false);
+
+    assertNull(fullResult.getBaseReleaseKey());
+    assertEquals(4, fullResult.getConfigurations().size());
+
+    ApolloConfig unknownBaseResult = queryConfigAsJson("someUnknownReleaseKey", true);
+
+    assertNull(unknownBaseResult.getBaseReleaseKey());
+    assertEquals(4, unknownBaseResult.getConfigurations().size());
+  }
+
+  @Test
+  public void testQueryConfigAsJsonWithReleaseNotFound() throws Exception {
+    MockHttpServletResponse someHttpResponse = new MockHttpServletResponse();
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(null);
+
+    configController.queryConfigAsJson(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        "1", someClientIp, someMessagesAsString, false, new MockHttpServletRequest(), someHttpResponse);
+
+    assertEquals(HttpServletResponse.SC_NOT_FOUND, someHttpResponse.getStatus());
+    assertEquals(0, someHttpResponse.getContentAsByteArray().length);
+  }
+
   @Test
   public void testQueryConfigFile() throws Exception {
     String someClientSideReleaseKey = "1";
@@ -355,6 +505,70 @@ public class ConfigControllerTest {
         someClientIp, somePublicAppId, someDataCenter, somePublicNamespaceName, somePublicAppSideReleaseKey);
   }
 
+  @Test
+  public void testQueryConfigs() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    String somePublicReleaseKey = "3";
+    String someNotFoundNamespaceName = "someNotFoundNamespace";
+    String somePublicAppId = "somePublicAppId";
+    AppNamespace somePublicAppNamespace =
+        assemblePublicAppNamespace(somePublicAppId, somePublicNamespaceName);
+    when(namespaceUtil.filterNamespaceName(someNotFoundNamespaceName)).thenReturn(someNotFoundNamespaceName);
+    when(namespaceUtil.normalizeNamespace(someAppId, someNotFoundNamespaceName)).thenReturn(someNotFoundNamespaceName);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(appNamespaceService.findPublicNamespaceByName(somePublicNamespaceName))
+        .thenReturn(somePublicAppNamespace);
+    when(configService.loadConfig(someAppId, someClientIp, somePublicAppId, someClusterName,
+        somePublicNamespaceName, someDataCenter, null)).thenReturn(somePublicRelease);
+    when(somePublicRelease.getReleaseKey()).thenReturn(somePublicReleaseKey);
+
+    ApolloConfigQuery someQuery = new ApolloConfigQuery(defaultNamespaceName, someClientSideReleaseKey);
+    someQuery.setMessages(someNotificationMessages);
+    ApolloConfigQuery somePublicQuery = new ApolloConfigQuery(somePublicNamespaceName, somePublicReleaseKey);
+    ApolloConfigQuery someNotFoundQuery = new ApolloConfigQuery(someNotFoundNamespaceName, null);
+
+    List<ApolloConfigQueryResult> results = configController.queryConfigs(someAppId, someClusterName,
+        someDataCenter, someClientIp, Lists.newArrayList(someQuery, somePublicQuery, someNotFoundQuery),
+        someRequest);
+
+    assertEquals(3, results.size());
+
+    ApolloConfigQueryResult someResult = results.get(0);
+    assertEquals(defaultNamespaceName, someResult.getNamespaceName());
+    assertEquals(HttpServletResponse.SC_OK, someResult.getStatusCode());
+    assertEquals(someServerSideNewReleaseKey, someResult.getConfig().getReleaseKey());
+    assertEquals("foo", someResult.getConfig().getConfigurations().get("apollo.bar"));
+
+    ApolloConfigQueryResult somePublicResult = results.get(1);
+    assertEquals(somePublicNamespaceName, somePublicResult.getNamespaceName());
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, somePublicResult.getStatusCode());
+    assertNull(somePublicResult.getConfig());
+
+    ApolloConfigQueryResult someNotFoundResult = results.get(2);
+    assertEquals(someNotFoundNamespaceName, someNotFoundResult.getNamespaceName());
+    assertEquals(HttpServletResponse.SC_NOT_FOUND, someNotFoundResult.getStatusCode());
+    assertNull(someNotFoundResult.getConfig());
+
+    verify(instanceConfigAuditUtil, times(1)).audit(someAppId, someClusterName, someDataCenter,
+        someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideNewReleaseKey);
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testQueryConfigsWithTooManyNamespaces() throws Exception {
+    List<ApolloConfigQuery> queries = Lists.newArrayList();
+    for (int i = 0; i < 501; i++) {
+      queries.add(new ApolloConfigQuery("someNamespace" + i, null));
+    }
+
+    configController.queryConfigs(someAppId, someClusterName, someDataCenter, someClientIp, queries,
+        someRequest);
+  }
+
   @Test
   public void testMergeConfigurations() throws Exception {
     Gson gson = new Gson();
@@ -463,6 +677,26 @@ public class ConfigControllerTest {
     assertNull(configController.transformMessages(someInvalidMessages));
   }
 
+  private ApolloConfig queryConfigAsJson(String clientSideReleaseKey, boolean delta) throws Exception {
+    MockHttpServletResponse someHttpResponse = new MockHttpServletResponse();
+
+    configController.queryConfigAsJson(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        clientSideReleaseKey, someClientIp, someMessagesAsString, delta, new MockHttpServletRequest(), someHttpResponse);
+
+    assertEquals(HttpServletResponse.SC_OK, someHttpResponse.getStatus());
+    return gson.fromJson(someHttpResponse.getContentAsString(), ApolloConfig.class);
+  }
+
+  private Release assembleRelease(String releaseKey, Map<String, String> configurations) {
+    Release release = new Release();
+    release.setAppId(someAppId);
+    release.setClusterName(someClusterName);
+    release.setNamespaceName(defaultNamespaceName);
+    release.setReleaseKey(releaseKey);
+    release.setConfigurations(gson.toJson(configurations));
+    return release;
+  }
+
   private AppNamespace assemblePublicAppNamespace(String appId, String namespace) {
     return assembleAppNamespace(appId, namespace, true);
   }
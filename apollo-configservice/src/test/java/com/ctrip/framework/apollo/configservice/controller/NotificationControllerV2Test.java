@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.configservice.controller;
 
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.configservice.wrapper.SseEmitterWrapper;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.base.Joiner;
 import com.google.common.collect.HashMultimap;
@@ -15,10 +16,13 @@ import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.NotificationFanoutScheduler;
+import com.ctrip.framework.apollo.configservice.util.WatchKeySubscriberRegistry;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -28,6 +32,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Collection;
 import java.util.List;
@@ -68,8 +73,9 @@ public class NotificationControllerV2Test {
   private BizConfig bizConfig;
 
   private Gson gson;
+  private NotificationFanoutScheduler notificationFanoutScheduler;
 
-  private Multimap<String, DeferredResultWrapper> deferredResults;
+  private WatchKeySubscriberRegistry<DeferredResultWrapper> deferredResults;
 
   @Before
   public void setUp() throws Exception {
@@ -78,6 +84,12 @@ public class NotificationControllerV2Test {
 
     when(bizConfig.releaseMessageNotificationBatch()).thenReturn(100);
     when(bizConfig.releaseMessageNotificationBatchIntervalInMilli()).thenReturn(5);
+    when(bizConfig.releaseMessageNotificationRate()).thenReturn(20000);
+    when(bizConfig.releaseMessageNotificationWorkers()).thenReturn(2);
+
+    notificationFanoutScheduler = new NotificationFanoutScheduler();
+    ReflectionTestUtils.setField(notificationFanoutScheduler, "bizConfig", bizConfig);
+    notificationFanoutScheduler.afterPropertiesSet();
 
     ReflectionTestUtils.setField(controller, "releaseMessageService", releaseMessageService);
     ReflectionTestUtils.setField(controller, "entityManagerUtil", entityManagerUtil);
@@ -85,6 +97,7 @@ public class NotificationControllerV2Test {
     ReflectionTestUtils.setField(controller, "watchKeysUtil", watchKeysUtil);
     ReflectionTestUtils.setField(controller, "gson", gson);
     ReflectionTestUtils.setField(controller, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(controller, "notificationFanoutScheduler", notificationFanoutScheduler);
 
     someAppId = "someAppId";
     someCluster = "someCluster";
@@ -101,7 +114,12 @@ public class NotificationControllerV2Test {
     when(namespaceUtil.normalizeNamespace(someAppId, somePublicNamespace)).thenReturn(somePublicNamespace);
 
     deferredResults =
-        (Multimap<String, DeferredResultWrapper>) ReflectionTestUtils.getField(controller, "deferredResults");
+        (WatchKeySubscriberRegistry<DeferredResultWrapper>) ReflectionTestUtils.getField(controller, "deferredResults");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    notificationFanoutScheduler.destroy();
   }
 
   @Test
@@ -327,6 +345,7 @@ public class NotificationControllerV2Test {
 
     when(bizConfig.releaseMessageNotificationBatch()).thenReturn(someBatch);
     when(bizConfig.releaseMessageNotificationBatchIntervalInMilli()).thenReturn(someBatchInterval);
+    when(bizConfig.releaseMessageNotificationRate()).thenReturn(someBatch * 1000 / someBatchInterval);
 
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         deferredResult = controller
@@ -341,6 +360,13 @@ public class NotificationControllerV2Test {
     ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
     someReleaseMessage.setId(someId);
 
+    //restart the scheduler so that the rate limiter starts with the batch rate
+    notificationFanoutScheduler.destroy();
+    notificationFanoutScheduler = new NotificationFanoutScheduler();
+    ReflectionTestUtils.setField(notificationFanoutScheduler, "bizConfig", bizConfig);
+    notificationFanoutScheduler.afterPropertiesSet();
+    ReflectionTestUtils.setField(controller, "notificationFanoutScheduler", notificationFanoutScheduler);
+
     controller.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
 
     //in batch mode, at most one of them should have result
@@ -352,6 +378,47 @@ public class NotificationControllerV2Test {
     assertTrue(deferredResult.hasResult() && anotherDeferredResult.hasResult());
   }
 
+  @Test
+  public void testStreamNotificationWithHandleMessage() throws Exception {
+    String someWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, defaultNamespace);
+
+    Multimap<String, String> watchKeysMap =
+        assembleMultiMap(defaultNamespace, Lists.newArrayList(someWatchKey));
+
+    String notificationAsString =
+        transformApolloConfigNotificationsToString(defaultNamespace, someNotificationId);
+
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someCluster, Sets.newHashSet(defaultNamespace),
+            someDataCenter)).thenReturn(watchKeysMap);
+
+    SseEmitter emitter = controller
+        .streamNotification(someAppId, someCluster, notificationAsString, someDataCenter,
+            someClientIp);
+
+    WatchKeySubscriberRegistry<SseEmitterWrapper> sseEmitters =
+        (WatchKeySubscriberRegistry<SseEmitterWrapper>) ReflectionTestUtils.getField(controller, "sseEmitters");
+    assertEquals(1, sseEmitters.getSubscriberCount(someWatchKey));
+    assertEquals(0, getSendAttempts(emitter));
+
+    long someId = 1;
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someId);
+
+    controller.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+    controller.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    //stream subscription is kept after notification
+    assertEquals(1, sseEmitters.getSubscriberCount(someWatchKey));
+    assertEquals(2, getSendAttempts(emitter));
+  }
+
+  private int getSendAttempts(SseEmitter emitter) {
+    //the emitter is not yet bound to a response, so the events sent are buffered
+    return ((Collection<?>) ReflectionTestUtils.getField(emitter, "earlySendAttempts")).size();
+  }
+
   private String transformApolloConfigNotificationsToString(
       String namespace, long notificationId) {
     List<ApolloConfigNotification> notifications =
@@ -394,7 +461,7 @@ public class NotificationControllerV2Test {
 
   private void assertWatchKeys(Multimap<String, String> watchKeysMap, DeferredResult deferredResult) {
     for (String watchKey : watchKeysMap.values()) {
-      Collection<DeferredResultWrapper> deferredResultWrappers = deferredResults.get(watchKey);
+      Collection<DeferredResultWrapper> deferredResultWrappers = deferredResults.getSubscribers(watchKey);
       boolean found = false;
       for (DeferredResultWrapper wrapper: deferredResultWrappers) {
         if (Objects.equals(wrapper.getResult(), deferredResult)) {
@@ -0,0 +1,213 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.gson.Gson;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache.ConfigResponse;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigResponseCacheTest {
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+  private ConfigResponseCache configResponseCache;
+  @Mock
+  private BizConfig bizConfig;
+  private Gson gson = new Gson();
+  private String someAppId;
+  private String someClusterName;
+  private String someNamespaceName;
+  private String someReleaseKey;
+  private List<Release> someReleases;
+  private AtomicInteger mergeCounter;
+  private Supplier<Map<String, String>> someConfigurations;
+
+  @Before
+  public void setUp() throws Exception {
+    configResponseCache = new ConfigResponseCache();
+    ReflectionTestUtils.setField(configResponseCache, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(configResponseCache, "gson", gson);
+
+    someAppId = "someAppId";
+    someClusterName = "someClusterName";
+    someNamespaceName = "someNamespaceName";
+    someReleaseKey = "someReleaseKey";
+
+    Release someRelease = new Release();
+    someRelease.setAppId(someAppId);
+    someRelease.setClusterName(someClusterName);
+    someRelease.setNamespaceName(someNamespaceName);
+    someRelease.setReleaseKey(someReleaseKey);
+    someReleases = Lists.newArrayList(someRelease);
+
+    mergeCounter = new AtomicInteger();
+    someConfigurations = () -> {
+      mergeCounter.incrementAndGet();
+      return ImmutableMap.of("someKey", "someValue");
+    };
+
+    when(bizConfig.isConfigResponseCacheEnabled()).thenReturn(true);
+  }
+
+  @Test
+  public void testGetResponseFromCache() throws Exception {
+    ConfigResponse response = getSomeResponse();
+    ConfigResponse anotherResponse = getSomeResponse();
+
+    assertSame(response, anotherResponse);
+    assertEquals(1, mergeCounter.get());
+    assertEquals(1, configResponseCache.size());
+
+    ApolloConfig config = response.getConfig();
+    assertEquals(someAppId, config.getAppId());
+    assertEquals(someClusterName, config.getCluster());
+    assertEquals(someNamespaceName, config.getNamespaceName());
+    assertEquals(someReleaseKey, config.getReleaseKey());
+    assertEquals("someValue", config.getConfigurations().get("someKey"));
+    assertEquals(gson.toJson(config), new String(response.getJson(), StandardCharsets.UTF_8));
+    assertNull(response.getGzippedJson());
+  }
+
+  @Test
+  public void testGetResponseWithCacheDisabled() throws Exception {
+    when(bizConfig.isConfigResponseCacheEnabled()).thenReturn(false);
+
+    ConfigResponse response = getSomeResponse();
+    ConfigResponse anotherResponse = getSomeResponse();
+
+    assertNotSame(response, anotherResponse);
+    assertEquals(2, mergeCounter.get());
+    assertEquals(0, configResponseCache.size());
+  }
+
+  @Test
+  public void testGetResponseWithGzip() throws Exception {
+    when(bizConfig.isConfigResponseGzipEnabled()).thenReturn(true);
+    when(bizConfig.configResponseGzipThreshold()).thenReturn(0);
+
+    ConfigResponse response = getSomeResponse();
+
+    assertNotNull(response.getGzippedJson());
+    assertArrayEquals(response.getJson(),
+        ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(response.getGzippedJson()))));
+  }
+
+  @Test
+  public void testGetResponseBelowGzipThreshold() throws Exception {
+    when(bizConfig.isConfigResponseGzipEnabled()).thenReturn(true);
+    when(bizConfig.configResponseGzipThreshold()).thenReturn(Integer.MAX_VALUE);
+
+    assertNull(getSomeResponse().getGzippedJson());
+  }
+
+  @Test
+  public void testHandleMessage() throws Exception {
+    ConfigResponse response = getSomeResponse();
+
+    configResponseCache.handleMessage(new ReleaseMessage(STRING_JOINER.join(someAppId, someClusterName,
+        "anotherNamespaceName")), Topics.APOLLO_RELEASE_TOPIC);
+    assertSame(response, getSomeResponse());
+
+    configResponseCache.handleMessage(new ReleaseMessage(STRING_JOINER.join(someAppId, someClusterName,
+        someNamespaceName)), Topics.APOLLO_RELEASE_TOPIC);
+    assertEquals(0, configResponseCache.size());
+
+    ConfigResponse anotherResponse = getSomeResponse();
+    assertNotSame(response, anotherResponse);
+    assertEquals(2, mergeCounter.get());
+  }
+
+  @Test
+  public void testGetDeltaResponse() throws Exception {
+    when(bizConfig.isConfigResponseDeltaEnabled()).thenReturn(true);
+    String anotherReleaseKey = "anotherReleaseKey";
+
+    configResponseCache.getResponse(someAppId, someClusterName, someNamespaceName, someReleaseKey, someReleases,
+        () -> ImmutableMap.of("a", "1", "b", "2", "c", "3", "e", "5"));
+    //the release message should not remove the configurations of the previous release key
+    configResponseCache.handleMessage(new ReleaseMessage(STRING_JOINER.join(someAppId, someClusterName,
+        someNamespaceName)), Topics.APOLLO_RELEASE_TOPIC);
+    ConfigResponse current = configResponseCache.getResponse(someAppId, someClusterName, someNamespaceName,
+        anotherReleaseKey, someReleases, () -> ImmutableMap.of("a", "1", "b", "22", "d", "4", "e", "5"));
+
+    ConfigResponse delta = configResponseCache.getDeltaResponse(current, someReleases, someReleaseKey);
+
+    ApolloConfig deltaConfig = delta.getConfig();
+    assertEquals(someReleaseKey, deltaConfig.getBaseReleaseKey());
+    assertEquals(anotherReleaseKey, deltaConfig.getReleaseKey());
+    assertEquals(ImmutableMap.of("b", "22", "d", "4"), deltaConfig.getConfigurations());
+    assertEquals(Sets.newHashSet("c"), deltaConfig.getDeletedKeys());
+    assertEquals(gson.toJson(deltaConfig), new String(delta.getJson(), StandardCharsets.UTF_8));
+    assertSame(delta, configResponseCache.getDeltaResponse(current, someReleases, someReleaseKey));
+  }
+
+  @Test
+  public void testGetDeltaResponseWithUnknownBase() throws Exception {
+    when(bizConfig.isConfigResponseDeltaEnabled()).thenReturn(true);
+
+    ConfigResponse current = getSomeResponse();
+
+    assertNull(configResponseCache.getDeltaResponse(current, someReleases, "someUnknownReleaseKey"));
+  }
+
+  @Test
+  public void testGetDeltaResponseNotSmallerThanFull() throws Exception {
+    when(bizConfig.isConfigResponseDeltaEnabled()).thenReturn(true);
+    String anotherReleaseKey = "anotherReleaseKey";
+
+    configResponseCache.getResponse(someAppId, someClusterName, someNamespaceName, someReleaseKey, someReleases,
+        () -> ImmutableMap.of("a", "1"));
+    ConfigResponse current = configResponseCache.getResponse(someAppId, someClusterName, someNamespaceName,
+        anotherReleaseKey, someReleases, () -> ImmutableMap.of("a", "2"));
+
+    assertNull(configResponseCache.getDeltaResponse(current, someReleases, someReleaseKey));
+  }
+
+  @Test
+  public void testGetDeltaResponseWithDeltaDisabled() throws Exception {
+    String anotherReleaseKey = "anotherReleaseKey";
+
+    configResponseCache.getResponse(someAppId, someClusterName, someNamespaceName, someReleaseKey, someReleases,
+        () -> ImmutableMap.of("a", "1", "b", "2", "c", "3"));
+    ConfigResponse current = configResponseCache.getResponse(someAppId, someClusterName, someNamespaceName,
+        anotherReleaseKey, someReleases, () -> ImmutableMap.of("a", "1", "b", "2", "c", "33"));
+
+    assertNull(configResponseCache.getDeltaResponse(current, someReleases, someReleaseKey));
+  }
+
+  private ConfigResponse getSomeResponse() {
+    return configResponseCache.getResponse(someAppId, someClusterName, someNamespaceName, someReleaseKey,
+        someReleases, someConfigurations);
+  }
+}
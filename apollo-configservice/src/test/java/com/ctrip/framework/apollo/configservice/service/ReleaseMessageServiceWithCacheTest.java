@@ -7,6 +7,8 @@ import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshot;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshotManager;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -23,6 +25,10 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -233,6 +239,74 @@ public class ReleaseMessageServiceWithCacheTest {
     assertEquals(newLatestReleaseMsg, newLatestReleaseMsgGroupByMsgContent.get(0));
   }
 
+  @Test
+  public void testHandleMessagesOutOfIdOrder() throws Exception {
+    String someMsgContent = "msg1";
+    String anotherMsgContent = "msg2";
+    String yetAnotherMsgContent = "msg3";
+    String lateMsgContent = "msg4";
+    ReleaseMessage someMsg = assembleReleaseMsg(1, someMsgContent);
+    ReleaseMessage pushedMsg = assembleReleaseMsg(4, someMsgContent);
+    ReleaseMessage anotherMsg = assembleReleaseMsg(2, anotherMsgContent);
+    ReleaseMessage yetAnotherMsg = assembleReleaseMsg(5, yetAnotherMsgContent);
+    ReleaseMessage lateMsg = assembleReleaseMsg(3, lateMsgContent);
+
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(Lists.newArrayList(someMsg));
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(2L))
+        .thenReturn(Lists.newArrayList(pushedMsg, yetAnotherMsg));
+
+    releaseMessageServiceWithCache.afterPropertiesSet();
+
+    //the pushed message is cached, but does not move maxIdScanned past the uncommitted messages before it
+    releaseMessageServiceWithCache.handlePushedMessage(pushedMsg, Topics.APOLLO_RELEASE_TOPIC);
+    assertEquals(pushedMsg, releaseMessageServiceWithCache.findLatestReleaseMessageForMessages(
+        Sets.newHashSet(someMsgContent)));
+    assertEquals(1L, ReflectionTestUtils.getField(releaseMessageServiceWithCache, "maxIdScanned"));
+
+    releaseMessageServiceWithCache.handleMessage(anotherMsg, Topics.APOLLO_RELEASE_TOPIC);
+    releaseMessageServiceWithCache.handleMessage(yetAnotherMsg, Topics.APOLLO_RELEASE_TOPIC);
+    assertEquals(5L, ReflectionTestUtils.getField(releaseMessageServiceWithCache, "maxIdScanned"));
+
+    //a message committed late is still merged
+    releaseMessageServiceWithCache.handleMessage(lateMsg, Topics.APOLLO_RELEASE_TOPIC);
+
+    List<ReleaseMessage> latestReleaseMsgGroupByMsgContent = releaseMessageServiceWithCache
+        .findLatestReleaseMessagesGroupByMessages(Sets.newLinkedHashSet(Lists.newArrayList(someMsgContent,
+            anotherMsgContent, yetAnotherMsgContent, lateMsgContent)));
+
+    assertEquals(Lists.newArrayList(pushedMsg, anotherMsg, yetAnotherMsg, lateMsg), latestReleaseMsgGroupByMsgContent);
+    assertEquals(5L, ReflectionTestUtils.getField(releaseMessageServiceWithCache, "maxIdScanned"));
+  }
+
+  @Test
+  public void testWarmUpFromSnapshot() throws Exception {
+    CacheSnapshotManager cacheSnapshotManager = mock(CacheSnapshotManager.class);
+    ReflectionTestUtils.setField(releaseMessageServiceWithCache, "cacheSnapshotManager", cacheSnapshotManager);
+
+    String someMsgContent = "msg1";
+    String anotherMsgContent = "msg2";
+    long someSnapshotMaxId = 10;
+    ReleaseMessage someMsg = assembleReleaseMsg(someSnapshotMaxId - 1, someMsgContent);
+    ReleaseMessage anotherMsg = assembleReleaseMsg(someSnapshotMaxId, anotherMsgContent);
+    ReleaseMessage anotherNewMsg = assembleReleaseMsg(someSnapshotMaxId + 1, anotherMsgContent);
+
+    when(cacheSnapshotManager.isEnabled()).thenReturn(true);
+    when(cacheSnapshotManager.load("release-message", ReleaseMessage.class)).thenReturn(
+        new CacheSnapshot<>(someSnapshotMaxId, someSnapshotMaxId, Lists.newArrayList(someMsg, anotherMsg)));
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(someSnapshotMaxId))
+        .thenReturn(Collections.singletonList(anotherNewMsg));
+
+    releaseMessageServiceWithCache.afterPropertiesSet();
+
+    List<ReleaseMessage> latestReleaseMsgGroupByMsgContent = releaseMessageServiceWithCache
+        .findLatestReleaseMessagesGroupByMessages(Sets.newLinkedHashSet(Lists.newArrayList(someMsgContent,
+            anotherMsgContent)));
+
+    assertEquals(Lists.newArrayList(someMsg, anotherNewMsg), latestReleaseMsgGroupByMsgContent);
+    verify(releaseMessageRepository, never()).findFirst500ByIdGreaterThanOrderByIdAsc(0L);
+    verify(cacheSnapshotManager).register(eq("release-message"), any());
+  }
+
   private ReleaseMessage assembleReleaseMsg(long id, String msgContent) {
 
     ReleaseMessage msg = new ReleaseMessage(msgContent);
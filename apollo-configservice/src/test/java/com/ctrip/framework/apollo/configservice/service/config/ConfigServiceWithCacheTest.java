@@ -3,23 +3,33 @@ package com.ctrip.framework.apollo.configservice.service.config;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.collect.Lists;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshot;
+import com.ctrip.framework.apollo.biz.snapshot.CacheSnapshotManager;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import com.google.common.cache.CacheStats;
+
+import java.util.function.Supplier;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,6 +46,8 @@ public class ConfigServiceWithCacheTest {
   @Mock
   private ReleaseMessageService releaseMessageService;
   @Mock
+  private BizConfig bizConfig;
+  @Mock
   private Release someRelease;
   @Mock
   private ReleaseMessage someReleaseMessage;
@@ -52,6 +64,9 @@ public class ConfigServiceWithCacheTest {
     configServiceWithCache = new ConfigServiceWithCache();
     ReflectionTestUtils.setField(configServiceWithCache, "releaseService", releaseService);
     ReflectionTestUtils.setField(configServiceWithCache, "releaseMessageService", releaseMessageService);
+    ReflectionTestUtils.setField(configServiceWithCache, "bizConfig", bizConfig);
+
+    when(bizConfig.configServiceCacheMaxSizeInMB()).thenReturn(1);
 
     configServiceWithCache.initialize();
 
@@ -284,4 +299,101 @@ public class ConfigServiceWithCacheTest {
     verify(releaseMessageService, times(1)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
     verify(releaseService, times(1)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
   }
+
+  @Test
+  public void testFindLatestActiveReleaseWithStats() throws Exception {
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenReturn
+        (someReleaseMessage);
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName)).thenReturn
+        (someRelease);
+    when(someReleaseMessage.getId()).thenReturn(someNotificationId);
+    when(someRelease.getConfigurations()).thenReturn("{\"someKey\":\"someValue\"}");
+
+    int times = 3;
+    for (int i = 0; i < times; i++) {
+      configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+          someNotificationMessages);
+    }
+
+    CacheStats stats = configServiceWithCache.getConfigCacheStats();
+    assertEquals(times, stats.requestCount());
+    assertEquals(1, stats.missCount());
+    assertEquals(times - 1, stats.hitCount());
+    assertEquals(1, configServiceWithCache.getConfigCacheSize());
+    assertEquals(ConfigServiceWithCache.weigh(someRelease), configServiceWithCache.getConfigCacheWeight());
+
+    configServiceWithCache.handleMessage(assembleReleaseMessage(someKey), Topics.APOLLO_RELEASE_TOPIC);
+
+    assertEquals(ConfigServiceWithCache.weigh(someRelease), configServiceWithCache.getConfigCacheWeight());
+  }
+
+  @Test
+  public void testFindLatestActiveReleaseAdmittedOnlyWhenHotUnderMemoryPressure() throws Exception {
+    ReflectionTestUtils.setField(configServiceWithCache, "highWatermark", 0L);
+
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenReturn
+        (someReleaseMessage);
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName)).thenReturn
+        (someRelease);
+    when(someReleaseMessage.getId()).thenReturn(someNotificationId);
+
+    int times = 3;
+    for (int i = 0; i < times; i++) {
+      assertEquals(someRelease, configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName,
+          someNamespaceName, someNotificationMessages));
+    }
+
+    assertEquals(1, configServiceWithCache.getAdmissionRejectedCount());
+    assertEquals(1, configServiceWithCache.getConfigCacheSize());
+    verify(releaseService, times(2)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
+  }
+
+  @Test
+  public void testReleaseMessageNotWarmUpNotCachedKey() throws Exception {
+    configServiceWithCache.handleMessage(assembleReleaseMessage(someKey), Topics.APOLLO_RELEASE_TOPIC);
+
+    assertEquals(0, configServiceWithCache.getConfigCacheSize());
+    verify(releaseService, never()).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSnapshotSkipsEntriesWithPendingInvalidation() throws Exception {
+    CacheSnapshotManager cacheSnapshotManager = mock(CacheSnapshotManager.class);
+    when(cacheSnapshotManager.isEnabled()).thenReturn(true);
+    ReflectionTestUtils.setField(configServiceWithCache, "cacheSnapshotManager", cacheSnapshotManager);
+    configServiceWithCache.initialize();
+    ArgumentCaptor<Supplier> supplierCaptor = ArgumentCaptor.forClass(Supplier.class);
+    verify(cacheSnapshotManager).register(eq("config"), supplierCaptor.capture());
+    Supplier<CacheSnapshot<?>> snapshotSupplier = supplierCaptor.getValue();
+
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenReturn
+        (someReleaseMessage);
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName)).thenReturn
+        (someRelease);
+    when(someReleaseMessage.getId()).thenReturn(someNotificationId);
+    configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+        someNotificationMessages);
+
+    ReleaseMessage latestReleaseMessage = new ReleaseMessage(someKey);
+    latestReleaseMessage.setId(someNotificationId);
+    when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(Lists.newArrayList(someKey)))
+        .thenReturn(Lists.newArrayList(latestReleaseMessage));
+
+    assertEquals(1, snapshotSupplier.get().getEntries().size());
+
+    //a newer release message whose invalidation is not handled yet
+    ReleaseMessage newerReleaseMessage = new ReleaseMessage(someKey);
+    newerReleaseMessage.setId(someNotificationId + 1);
+    when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(Lists.newArrayList(someKey)))
+        .thenReturn(Lists.newArrayList(newerReleaseMessage));
+
+    assertEquals(0, snapshotSupplier.get().getEntries().size());
+  }
+
+  private ReleaseMessage assembleReleaseMessage(String message) {
+    ReleaseMessage releaseMessage = mock(ReleaseMessage.class);
+    when(releaseMessage.getMessage()).thenReturn(message);
+    return releaseMessage;
+  }
 }
@@ -4,19 +4,33 @@ import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -77,23 +91,155 @@ public class InstanceConfigAuditUtilTest {
     assertTrue(Objects.equals(someAuditModel, audit));
   }
 
+  @Test
+  public void testAuditDroppedWhenQueueIsFull() throws Exception {
+    ReflectionTestUtils.setField(instanceConfigAuditUtil, "audits", new LinkedBlockingQueue<>(1));
+
+    assertTrue(instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter,
+        someIp, someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey));
+    assertFalse(instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter,
+        someIp, someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey));
+
+    assertEquals(1, instanceConfigAuditUtil.getDroppedAuditCount());
+    assertEquals(1, instanceConfigAuditUtil.getPendingAuditCount());
+  }
+
   @Test
   public void testDoAudit() throws Exception {
     long someInstanceId = 1;
     Instance someInstance = mock(Instance.class);
 
     when(someInstance.getId()).thenReturn(someInstanceId);
-    when(instanceService.createInstance(any(Instance.class))).thenReturn(someInstance);
+    when(someInstance.getAppId()).thenReturn(someAppId);
+    when(someInstance.getClusterName()).thenReturn(someClusterName);
+    when(someInstance.getDataCenter()).thenReturn(someDataCenter);
+    when(someInstance.getIp()).thenReturn(someIp);
+    when(instanceService.batchCreateInstances(anyListOf(Instance.class)))
+        .thenReturn(Lists.newArrayList(someInstance));
+
+    instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel));
+
+    verify(instanceService, times(1)).findInstances(someAppId, someClusterName,
+        Sets.newHashSet(someIp));
+    verify(instanceService, times(1)).batchCreateInstances(anyListOf(Instance.class));
+    verify(instanceService, times(1)).findInstanceConfigs(Sets.newHashSet(someInstanceId),
+        someConfigAppId, someConfigNamespace);
+    verify(instanceService, times(1)).batchCreateInstanceConfigs(anyListOf(InstanceConfig.class));
+    verify(instanceService, never()).batchUpdateInstanceConfigs(anyListOf(InstanceConfig.class));
+  }
 
-    instanceConfigAuditUtil.doAudit(someAuditModel);
+  @Test
+  public void testDoAuditCoalesceDuplicates() throws Exception {
+    long someInstanceId = 1;
+    String anotherReleaseKey = "anotherReleaseKey";
+    InstanceConfigAuditUtil.InstanceConfigAuditModel anotherAuditModel =
+        new InstanceConfigAuditUtil.InstanceConfigAuditModel(someAppId, someClusterName,
+            someDataCenter, someIp, someConfigAppId, someConfigClusterName, someConfigNamespace,
+            anotherReleaseKey);
+
+    Instance someInstance = assembleInstance(someInstanceId);
+    when(instanceService.findInstances(someAppId, someClusterName, Sets.newHashSet(someIp)))
+        .thenReturn(Lists.newArrayList(someInstance));
+
+    instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel, anotherAuditModel));
+
+    ArgumentCaptor<List> instanceConfigsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(instanceService, never()).batchCreateInstances(anyListOf(Instance.class));
+    verify(instanceService, times(1)).findInstanceConfigs(Sets.newHashSet(someInstanceId),
+        someConfigAppId, someConfigNamespace);
+    verify(instanceService, times(1)).batchCreateInstanceConfigs(instanceConfigsCaptor.capture());
+
+    List<InstanceConfig> created = instanceConfigsCaptor.getValue();
+    assertEquals(1, created.size());
+    assertEquals(anotherReleaseKey, created.get(0).getReleaseKey());
+  }
+
+  @Test
+  public void testDoAuditWithMultipleInstancesAndNamespaces() throws Exception {
+    long someInstanceId = 1;
+    long anotherInstanceId = 2;
+    String anotherIp = "anotherIp";
+    String anotherConfigNamespace = "anotherConfigNamespace";
+    String anotherReleaseKey = "anotherReleaseKey";
+
+    Instance someInstance = assembleInstance(someInstanceId);
+    Instance anotherInstance = assembleInstance(anotherInstanceId);
+    anotherInstance.setIp(anotherIp);
+    when(instanceService.findInstances(someAppId, someClusterName, Sets.newHashSet(someIp, anotherIp)))
+        .thenReturn(Lists.newArrayList(someInstance, anotherInstance));
+
+    InstanceConfig someInstanceConfig = new InstanceConfig();
+    someInstanceConfig.setInstanceId(someInstanceId);
+    someInstanceConfig.setReleaseKey(anotherReleaseKey);
+    someInstanceConfig.setDataChangeLastModifiedTime(new Date());
+    when(instanceService.findInstanceConfigs(Sets.newHashSet(someInstanceId, anotherInstanceId),
+        someConfigAppId, someConfigNamespace)).thenReturn(Lists.newArrayList(someInstanceConfig));
+
+    instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel,
+        new InstanceConfigAuditUtil.InstanceConfigAuditModel(someAppId, someClusterName,
+            someDataCenter, anotherIp, someConfigAppId, someConfigClusterName, someConfigNamespace,
+            someReleaseKey),
+        new InstanceConfigAuditUtil.InstanceConfigAuditModel(someAppId, someClusterName,
+            someDataCenter, someIp, someConfigAppId, someConfigClusterName, anotherConfigNamespace,
+            someReleaseKey)));
+
+    //one lookup per instance cluster and per namespace
+    verify(instanceService, times(1)).findInstances(anyString(), anyString(), anySetOf(String.class));
+    verify(instanceService, times(2)).findInstanceConfigs(anySetOf(Long.class), anyString(), anyString());
+
+    ArgumentCaptor<List> updatedCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List> createdCaptor = ArgumentCaptor.forClass(List.class);
+    verify(instanceService, times(1)).batchUpdateInstanceConfigs(updatedCaptor.capture());
+    verify(instanceService, times(1)).batchCreateInstanceConfigs(createdCaptor.capture());
+
+    assertEquals(Lists.newArrayList(someInstanceConfig), updatedCaptor.getValue());
+    assertEquals(someReleaseKey, someInstanceConfig.getReleaseKey());
+    assertEquals(2, createdCaptor.getValue().size());
+  }
+
+  @Test
+  public void testDoAuditSkipWhenReleaseKeyNotChanged() throws Exception {
+    long someInstanceId = 1;
+    Instance someInstance = assembleInstance(someInstanceId);
+    when(instanceService.findInstances(someAppId, someClusterName, Sets.newHashSet(someIp)))
+        .thenReturn(Lists.newArrayList(someInstance));
+
+    instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel));
+    instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel));
+
+    //instance id and release key are both cached after the first audit
+    verify(instanceService, times(1)).findInstances(anyString(), anyString(), anySetOf(String.class));
+    verify(instanceService, times(1)).findInstanceConfigs(anySetOf(Long.class), anyString(), anyString());
+    verify(instanceService, times(1)).batchCreateInstanceConfigs(anyListOf(InstanceConfig.class));
+  }
+
+  @Test
+  public void testDoAuditFallbackWhenConcurrentInsertion() throws Exception {
+    long someInstanceId = 1;
+    Instance someInstance = assembleInstance(someInstanceId);
+
+    when(instanceService.batchCreateInstances(anyListOf(Instance.class)))
+        .thenThrow(new DataIntegrityViolationException("someError"));
+    when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, someIp))
+        .thenReturn(someInstance);
+    when(instanceService.batchCreateInstanceConfigs(anyListOf(InstanceConfig.class)))
+        .thenThrow(new DataIntegrityViolationException("someError"));
+
+    instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel));
 
     verify(instanceService, times(1)).findInstance(someAppId, someClusterName, someDataCenter,
         someIp);
-    verify(instanceService, times(1)).createInstance(any(Instance.class));
-    verify(instanceService, times(1)).findInstanceConfig(someInstanceId, someConfigAppId,
-        someConfigNamespace);
+    verify(instanceService, never()).createInstance(any(Instance.class));
     verify(instanceService, times(1)).createInstanceConfig(any(InstanceConfig.class));
   }
 
-
+  private Instance assembleInstance(long instanceId) {
+    Instance instance = new Instance();
+    instance.setId(instanceId);
+    instance.setAppId(someAppId);
+    instance.setClusterName(someClusterName);
+    instance.setDataCenter(someDataCenter);
+    instance.setIp(someIp);
+    return instance;
+  }
 }
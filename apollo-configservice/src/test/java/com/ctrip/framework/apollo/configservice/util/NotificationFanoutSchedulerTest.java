@@ -0,0 +1,145 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationFanoutSchedulerTest {
+  private NotificationFanoutScheduler notificationFanoutScheduler;
+
+  @Mock
+  private BizConfig bizConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    when(bizConfig.releaseMessageNotificationBatch()).thenReturn(10);
+    when(bizConfig.releaseMessageNotificationRate()).thenReturn(10000);
+    when(bizConfig.releaseMessageNotificationWorkers()).thenReturn(1);
+
+    notificationFanoutScheduler = new NotificationFanoutScheduler();
+    ReflectionTestUtils.setField(notificationFanoutScheduler, "bizConfig", bizConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    notificationFanoutScheduler.destroy();
+  }
+
+  @Test
+  public void testSubmit() throws Exception {
+    int someClientCount = 250;
+    CountDownLatch notified = new CountDownLatch(someClientCount);
+    notificationFanoutScheduler.afterPropertiesSet();
+
+    notificationFanoutScheduler.submit("someKey", assembleClients("some", someClientCount), client -> notified.countDown());
+
+    assertTrue(notified.await(5, TimeUnit.SECONDS));
+    waitForCompletion(1);
+    assertEquals(someClientCount, notificationFanoutScheduler.getNotifiedClientCount());
+    assertEquals(0, notificationFanoutScheduler.getPendingJobCount());
+    assertEquals(0, notificationFanoutScheduler.getPendingClientCount());
+  }
+
+  @Test
+  public void testSubmitWithRateLimit() throws Exception {
+    int someRate = 1000;
+    int someClientCount = 500;
+    when(bizConfig.releaseMessageNotificationBatch()).thenReturn(100);
+    when(bizConfig.releaseMessageNotificationRate()).thenReturn(someRate);
+    when(bizConfig.releaseMessageNotificationWorkers()).thenReturn(4);
+    CountDownLatch notified = new CountDownLatch(someClientCount);
+    notificationFanoutScheduler.afterPropertiesSet();
+
+    long start = System.currentTimeMillis();
+    notificationFanoutScheduler.submit("someKey", assembleClients("some", someClientCount), client -> notified.countDown());
+
+    assertTrue(notified.await(5, TimeUnit.SECONDS));
+    long elapsed = System.currentTimeMillis() - start;
+    //the first batch is free, the other 4 batches take 100 ms each
+    assertTrue(elapsed >= 300);
+  }
+
+  @Test
+  public void testSmallJobIsNotBlockedByLargeJob() throws Exception {
+    when(bizConfig.releaseMessageNotificationRate()).thenReturn(1000);
+    List<String> notifications = Collections.synchronizedList(Lists.newArrayList());
+    CountDownLatch smallJobNotified = new CountDownLatch(20);
+    notificationFanoutScheduler.afterPropertiesSet();
+
+    notificationFanoutScheduler.submit("largeKey", assembleClients("large", 2000), notifications::add);
+    TimeUnit.MILLISECONDS.sleep(50);
+    notificationFanoutScheduler.submit("smallKey", assembleClients("small", 20), client -> {
+      notifications.add(client);
+      smallJobNotified.countDown();
+    });
+
+    assertTrue(smallJobNotified.await(1, TimeUnit.SECONDS));
+    waitForCompletion(1);
+    assertEquals(1, notificationFanoutScheduler.getPendingJobCount());
+    assertTrue(notificationFanoutScheduler.getPendingClientCount() > 0);
+    assertEquals("largeKey", notificationFanoutScheduler.getProgresses().get(0).getKey());
+  }
+
+  @Test
+  public void testJobsAreInterleaved() throws Exception {
+    int someClientCount = 500;
+    List<String> notifications = Collections.synchronizedList(Lists.newArrayList());
+    CountDownLatch notified = new CountDownLatch(someClientCount * 2);
+    notificationFanoutScheduler.afterPropertiesSet();
+
+    notificationFanoutScheduler.submit("someKey", assembleClients("some", someClientCount), client -> {
+      notifications.add(client);
+      notified.countDown();
+    });
+    notificationFanoutScheduler.submit("anotherKey", assembleClients("another", someClientCount), client -> {
+      notifications.add(client);
+      notified.countDown();
+    });
+
+    assertTrue(notified.await(5, TimeUnit.SECONDS));
+    int firstAnother = -1;
+    int lastSome = -1;
+    for (int i = 0; i < notifications.size(); i++) {
+      if (notifications.get(i).startsWith("another") && firstAnother < 0) {
+        firstAnother = i;
+      }
+      if (notifications.get(i).startsWith("some")) {
+        lastSome = i;
+      }
+    }
+    assertTrue(firstAnother < lastSome);
+    waitForCompletion(2);
+  }
+
+  private void waitForCompletion(long jobs) throws InterruptedException {
+    for (int i = 0; i < 100 && notificationFanoutScheduler.getCompletedJobCount() < jobs; i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertEquals(jobs, notificationFanoutScheduler.getCompletedJobCount());
+  }
+
+  private List<String> assembleClients(String prefix, int count) {
+    List<String> clients = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      clients.add(prefix + i);
+    }
+    return clients;
+  }
+}
@@ -0,0 +1,165 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WatchKeySubscriberRegistryTest {
+  private static final Logger logger = LoggerFactory.getLogger(WatchKeySubscriberRegistryTest.class);
+
+  private WatchKeySubscriberRegistry<Object> registry;
+  private String someKey;
+  private String anotherKey;
+
+  @Before
+  public void setUp() throws Exception {
+    registry = new WatchKeySubscriberRegistry<>();
+    someKey = "someAppId+default+application";
+    anotherKey = "someAppId+someCluster+application";
+  }
+
+  @Test
+  public void testRegisterAndUnregister() throws Exception {
+    Object someSubscriber = new Object();
+    Object anotherSubscriber = new Object();
+    Set<String> someWatchKeys = Sets.newHashSet(someKey, anotherKey);
+
+    registry.register(someWatchKeys, someSubscriber);
+    registry.register(Sets.newHashSet(someKey), anotherSubscriber);
+    //duplicate registration is ignored
+    registry.register(Sets.newHashSet(someKey), anotherSubscriber);
+
+    assertEquals(3, registry.size());
+    assertEquals(2, registry.getSubscriberCount(someKey));
+    assertEquals(1, registry.getSubscriberCount(anotherKey));
+    assertTrue(registry.getSubscribers(someKey).containsAll(Lists.newArrayList(someSubscriber, anotherSubscriber)));
+
+    Map<String, Integer> counts = registry.getSubscriberCounts();
+    assertEquals(2, counts.size());
+    assertEquals(2, counts.get(someKey).intValue());
+
+    registry.unregister(someWatchKeys, someSubscriber);
+
+    assertEquals(1, registry.size());
+    assertEquals(Lists.newArrayList(anotherSubscriber), registry.getSubscribers(someKey));
+    assertFalse(registry.hasSubscribers(anotherKey));
+    assertTrue(registry.getSubscribers(anotherKey).isEmpty());
+
+    registry.unregister(Sets.newHashSet(someKey), anotherSubscriber);
+    //unregister twice is a no-op
+    registry.unregister(Sets.newHashSet(someKey), anotherSubscriber);
+
+    assertEquals(0, registry.size());
+    assertFalse(registry.hasSubscribers(someKey));
+    assertTrue(registry.getSubscriberCounts().isEmpty());
+  }
+
+  @Test
+  public void testGetSubscribersReturnsSnapshot() throws Exception {
+    Object someSubscriber = new Object();
+    registry.register(Sets.newHashSet(someKey), someSubscriber);
+
+    List<Object> subscribers = registry.getSubscribers(someKey);
+    registry.unregister(Sets.newHashSet(someKey), someSubscriber);
+
+    assertEquals(1, subscribers.size());
+  }
+
+  @Test
+  public void testConcurrentRegisterAndUnregister() throws Exception {
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    long elapsed = runConcurrently(threads, 20000, 16);
+
+    assertEquals(0, registry.size());
+    assertTrue(registry.getSubscriberCounts().isEmpty());
+    logger.info("{} threads completed in {} ms", threads, elapsed);
+  }
+
+  /**
+   * Stress test that reports registration + notification throughput as the number of threads grows,
+   * the throughput is expected to scale with the cores available since registrations do not take a lock.
+   * The assertion is loose to tolerate noisy machines: adding threads must not collapse the throughput below half of
+   * the single-thread throughput, as a registry behind one global lock would.
+   */
+  @Test
+  public void testThroughputWithIncreasingThreads() throws Exception {
+    int operationsPerThread = 20000;
+    int cores = Runtime.getRuntime().availableProcessors();
+    //warm up so that the single-thread run is not slowed down by JIT compilation
+    runConcurrently(cores, operationsPerThread, 1024);
+
+    long singleThreadThroughput = 0;
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      registry = new WatchKeySubscriberRegistry<>();
+      long elapsed = Math.max(1, runConcurrently(threads, operationsPerThread, 1024));
+      long throughput = (long) threads * operationsPerThread * 1000 / elapsed;
+
+      assertEquals(0, registry.size());
+      logger.info("WatchKeySubscriberRegistry - threads: {}, cycles per second: {}", threads, throughput);
+      if (threads == 1) {
+        singleThreadThroughput = throughput;
+      } else {
+        assertTrue(String.format("throughput with %d threads %d is less than half of single-thread %d", threads,
+            throughput, singleThreadThroughput), throughput * 2 >= singleThreadThroughput);
+      }
+    }
+  }
+
+  /**
+   * Each cycle registers a subscriber to 3 watch keys, looks up the subscribers as a notification does and then
+   * unregisters the subscriber as the completion callback does.
+   *
+   * @return elapsed time in milliseconds
+   */
+  private long runConcurrently(int threads, final int cyclesPerThread, final int keySpace) throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    final CountDownLatch startSignal = new CountDownLatch(1);
+    final AtomicLong notified = new AtomicLong();
+    List<Future<?>> futures = Lists.newArrayList();
+    for (int i = 0; i < threads; i++) {
+      final int threadIndex = i;
+      futures.add(executorService.submit(() -> {
+        startSignal.await();
+        for (int j = 0; j < cyclesPerThread; j++) {
+          int key = (threadIndex * cyclesPerThread + j) % keySpace;
+          Set<String> watchKeys = Sets.newHashSet("app" + key + "+default+application",
+              "app" + key + "+someCluster+application", "public+default+someNamespace");
+          Object subscriber = new Object();
+          registry.register(watchKeys, subscriber);
+          notified.addAndGet(registry.getSubscribers("app" + key + "+default+application").size());
+          registry.unregister(watchKeys, subscriber);
+        }
+        return null;
+      }));
+    }
+    long start = System.nanoTime();
+    startSignal.countDown();
+    for (Future<?> future : futures) {
+      future.get(60, TimeUnit.SECONDS);
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    executorService.shutdown();
+
+    //every lookup must at least see the subscriber registered by itself
+    assertTrue(notified.get() >= (long) threads * cyclesPerThread);
+    return elapsed;
+  }
+}
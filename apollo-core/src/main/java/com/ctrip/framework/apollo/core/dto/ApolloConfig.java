@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.core.dto;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Apollo 配置 DTO
@@ -31,6 +32,17 @@ public class ApolloConfig {
      * 如果 {@link #configurations} 是多个 Release ，那 Release Key 是多个 `Release.releaseKey` 拼接，使用 '+' 拼接。
      */
     private String releaseKey;
+    /**
+     * 增量配置基于的 Release Key ，即客户端提交的 Release Key
+     *
+     * 为 null 时，{@link #configurations} 是全量配置；
+     * 非 null 时，{@link #configurations} 只包含新增和修改的配置项，删除的配置项见 {@link #deletedKeys} 。
+     */
+    private String baseReleaseKey;
+    /**
+     * 增量配置中，删除的配置项 KEY 集合
+     */
+    private Set<String> deletedKeys;
 
     public ApolloConfig() {
     }
@@ -65,6 +77,14 @@ public class ApolloConfig {
         return configurations;
     }
 
+    public String getBaseReleaseKey() {
+        return baseReleaseKey;
+    }
+
+    public Set<String> getDeletedKeys() {
+        return deletedKeys;
+    }
+
     public void setAppId(String appId) {
         this.appId = appId;
     }
@@ -85,6 +105,14 @@ public class ApolloConfig {
         this.configurations = configurations;
     }
 
+    public void setBaseReleaseKey(String baseReleaseKey) {
+        this.baseReleaseKey = baseReleaseKey;
+    }
+
+    public void setDeletedKeys(Set<String> deletedKeys) {
+        this.deletedKeys = deletedKeys;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("ApolloConfig{");
@@ -93,6 +121,10 @@ public class ApolloConfig {
         sb.append(", namespaceName='").append(namespaceName).append('\'');
         sb.append(", configurations=").append(configurations);
         sb.append(", releaseKey='").append(releaseKey).append('\'');
+        if (baseReleaseKey != null) {
+            sb.append(", baseReleaseKey='").append(baseReleaseKey).append('\'');
+            sb.append(", deletedKeys=").append(deletedKeys);
+        }
         sb.append('}');
         return sb.toString();
     }
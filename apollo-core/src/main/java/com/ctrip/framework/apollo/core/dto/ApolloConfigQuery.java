@@ -0,0 +1,61 @@
+package com.ctrip.framework.apollo.core.dto;
+
+/**
+ * Apollo 配置批量查询中，单个 Namespace 的查询条件 DTO
+ */
+public class ApolloConfigQuery {
+
+    /**
+     * Namespace 名字
+     */
+    private String namespaceName;
+    /**
+     * 客户端的 Release Key ，为空时表示客户端尚无配置
+     */
+    private String releaseKey;
+    /**
+     * 客户端的通知消息
+     */
+    private ApolloNotificationMessages messages;
+
+    public ApolloConfigQuery() {
+    }
+
+    public ApolloConfigQuery(String namespaceName, String releaseKey) {
+        this.namespaceName = namespaceName;
+        this.releaseKey = releaseKey;
+    }
+
+    public String getNamespaceName() {
+        return namespaceName;
+    }
+
+    public void setNamespaceName(String namespaceName) {
+        this.namespaceName = namespaceName;
+    }
+
+    public String getReleaseKey() {
+        return releaseKey;
+    }
+
+    public void setReleaseKey(String releaseKey) {
+        this.releaseKey = releaseKey;
+    }
+
+    public ApolloNotificationMessages getMessages() {
+        return messages;
+    }
+
+    public void setMessages(ApolloNotificationMessages messages) {
+        this.messages = messages;
+    }
+
+    @Override
+    public String toString() {
+        return "ApolloConfigQuery{" +
+                "namespaceName='" + namespaceName + '\'' +
+                ", releaseKey='" + releaseKey + '\'' +
+                ", messages=" + messages +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package com.ctrip.framework.apollo.core.dto;
+
+/**
+ * Apollo 配置批量查询中，单个 Namespace 的查询结果 DTO
+ *
+ * {@link #statusCode} 和单个 Namespace 查询的 HTTP 状态码一致：
+ * 200 - 配置有变化，{@link #config} 为最新配置；
+ * 304 - 配置未变化；
+ * 404 - 配置不存在。
+ */
+public class ApolloConfigQueryResult {
+
+    /**
+     * Namespace 名字，和查询条件中的一致
+     */
+    private String namespaceName;
+    /**
+     * 状态码
+     */
+    private int statusCode;
+    /**
+     * 配置，仅状态码为 200 时非空
+     */
+    private ApolloConfig config;
+
+    public ApolloConfigQueryResult() {
+    }
+
+    public ApolloConfigQueryResult(String namespaceName, int statusCode, ApolloConfig config) {
+        this.namespaceName = namespaceName;
+        this.statusCode = statusCode;
+        this.config = config;
+    }
+
+    public String getNamespaceName() {
+        return namespaceName;
+    }
+
+    public void setNamespaceName(String namespaceName) {
+        this.namespaceName = namespaceName;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public ApolloConfig getConfig() {
+        return config;
+    }
+
+    public void setConfig(ApolloConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public String toString() {
+        return "ApolloConfigQueryResult{" +
+                "namespaceName='" + namespaceName + '\'' +
+                ", statusCode=" + statusCode +
+                ", config=" + config +
+                '}';
+    }
+}
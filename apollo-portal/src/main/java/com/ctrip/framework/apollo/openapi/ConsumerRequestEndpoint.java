@@ -0,0 +1,39 @@
+package com.ctrip.framework.apollo.openapi;
+
+import com.ctrip.framework.apollo.openapi.util.ConsumerAuditUtil;
+import com.google.common.collect.Maps;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes the OpenAPI request counts of each consumer at /consumerrequests, for capacity planning
+ */
+@Component
+public class ConsumerRequestEndpoint extends AbstractEndpoint<Map<Long, Map<String, Long>>> {
+
+  @Autowired
+  private ConsumerAuditUtil consumerAuditUtil;
+
+  public ConsumerRequestEndpoint() {
+    super("consumerrequests");
+  }
+
+  @Override
+  public Map<Long, Map<String, Long>> invoke() {
+    Map<Long, Long> totalRequestCounts = consumerAuditUtil.getTotalRequestCounts();
+    Map<Long, Long> lastMinuteRequestCounts = consumerAuditUtil.getLastMinuteRequestCounts();
+
+    Map<Long, Map<String, Long>> result = Maps.newTreeMap();
+    for (Map.Entry<Long, Long> entry : totalRequestCounts.entrySet()) {
+      Map<String, Long> counts = Maps.newLinkedHashMap();
+      counts.put("total", entry.getValue());
+      counts.put("lastMinute", lastMinuteRequestCounts.getOrDefault(entry.getKey(), 0L));
+      result.put(entry.getKey(), counts);
+    }
+    return result;
+  }
+}
@@ -20,8 +20,11 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.hash.Hashing;
 import org.apache.commons.lang.time.FastDateFormat;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,15 +32,17 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
-public class ConsumerService {
+public class ConsumerService implements InitializingBean {
 
     private static final FastDateFormat TIMESTAMP_FORMAT = FastDateFormat.getInstance("yyyyMMddHHmmss");
     private static final Joiner KEY_JOINER = Joiner.on("|");
+    private static final int CONSUMER_TOKEN_CACHE_MAX_SIZE = 10000;
 
     @Autowired
     private UserInfoHolder userInfoHolder;
@@ -56,6 +61,21 @@ public class ConsumerService {
     @Autowired
     private UserService userService;
 
+    /**
+     * Token 的缓存，包括无效的 Token
+     *
+     * KEY：Token
+     */
+    private Cache<String, CachedConsumerToken> consumerTokenCache;
+
+    @Override
+    public void afterPropertiesSet() {
+        consumerTokenCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(portalConfig.consumerTokenCacheExpireInSeconds(), TimeUnit.SECONDS)
+                .maximumSize(CONSUMER_TOKEN_CACHE_MAX_SIZE)
+                .build();
+    }
+
     public Consumer createConsumer(Consumer consumer) {
         String appId = consumer.getAppId();
 
@@ -90,7 +110,9 @@ public class ConsumerService {
         consumerToken.setId(0); //for protection
 
         // 保存 ConsumerToken 到数据库中
-        return consumerTokenRepository.save(consumerToken);
+        ConsumerToken createdConsumerToken = consumerTokenRepository.save(consumerToken);
+        invalidateConsumerTokenCache(consumerToken.getToken());
+        return createdConsumerToken;
     }
 
     public ConsumerToken getConsumerTokenByAppId(String appId) {
@@ -106,8 +128,35 @@ public class ConsumerService {
         if (Strings.isNullOrEmpty(token)) {
             return null;
         }
-        ConsumerToken consumerToken = consumerTokenRepository.findTopByTokenAndExpiresAfter(token, new Date());
-        return consumerToken == null ? null : consumerToken.getConsumerId();
+        long now = System.currentTimeMillis();
+        // 优先从缓存获取，缓存的 Token 已过期时，重新查询
+        CachedConsumerToken cachedConsumerToken = consumerTokenCache.getIfPresent(token);
+        if (cachedConsumerToken == null || cachedConsumerToken.isExpired(now)) {
+            cachedConsumerToken = loadConsumerToken(token, now);
+            consumerTokenCache.put(token, cachedConsumerToken);
+        }
+        return cachedConsumerToken.consumerId;
+    }
+
+    /**
+     * 新建的 Token 可能已被缓存为无效，失效其缓存
+     */
+    private void invalidateConsumerTokenCache(String token) {
+        if (!Strings.isNullOrEmpty(token)) {
+            consumerTokenCache.invalidate(token);
+        }
+    }
+
+    private CachedConsumerToken loadConsumerToken(String token, long now) {
+        ConsumerToken consumerToken = consumerTokenRepository.findTopByTokenAndExpiresAfter(token, new Date(now));
+        // 无效的 Token 缓存较短的时间，避免频繁查询数据库
+        if (consumerToken == null) {
+            return new CachedConsumerToken(null,
+                    now + TimeUnit.SECONDS.toMillis(portalConfig.consumerTokenNegativeCacheExpireInSeconds()));
+        }
+        // 有效的 Token 缓存至过期时间
+        Date expires = consumerToken.getExpires();
+        return new CachedConsumerToken(consumerToken.getConsumerId(), expires == null ? Long.MAX_VALUE : expires.getTime());
     }
 
     public Consumer getConsumerByConsumerId(long consumerId) {
@@ -188,7 +237,9 @@ public class ConsumerService {
     public ConsumerToken createConsumerToken(ConsumerToken entity) {
         entity.setId(0); //for protection
 
-        return consumerTokenRepository.save(entity);
+        ConsumerToken createdConsumerToken = consumerTokenRepository.save(entity);
+        invalidateConsumerTokenCache(entity.getToken());
+        return createdConsumerToken;
     }
 
     private ConsumerToken generateConsumerToken(Consumer consumer, Date expires) {
@@ -243,4 +294,27 @@ public class ConsumerService {
         return consumerRole;
     }
 
+    /**
+     * 缓存的 Token
+     */
+    private static class CachedConsumerToken {
+        /**
+         * Consumer 编号，Token 无效时为空
+         */
+        private final Long consumerId;
+        /**
+         * 缓存的过期时间，有效的 Token 为其过期时间
+         */
+        private final long expireTime;
+
+        private CachedConsumerToken(Long consumerId, long expireTime) {
+            this.consumerId = consumerId;
+            this.expireTime = expireTime;
+        }
+
+        private boolean isExpired(long now) {
+            return expireTime <= now;
+        }
+    }
+
 }
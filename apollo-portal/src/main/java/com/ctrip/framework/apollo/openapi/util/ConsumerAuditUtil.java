@@ -6,6 +6,7 @@ import com.ctrip.framework.apollo.openapi.service.ConsumerService;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +15,9 @@ import org.springframework.stereotype.Service;
 import javax.servlet.http.HttpServletRequest;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -54,6 +57,13 @@ public class ConsumerAuditUtil implements InitializingBean {
      */
     private TimeUnit BATCH_TIMEUNIT = TimeUnit.SECONDS;
 
+    /**
+     * 各 Consumer 的请求计数，用于容量规划
+     *
+     * KEY：Consumer 编号
+     */
+    private final ConcurrentMap<Long, RequestCounter> requestCounters = Maps.newConcurrentMap();
+
     @Autowired
     private ConsumerService consumerService;
 
@@ -63,6 +73,9 @@ public class ConsumerAuditUtil implements InitializingBean {
     }
 
     public boolean audit(HttpServletRequest request, long consumerId) {
+        // 请求计数，包括 GET 请求
+        countRequest(consumerId);
+
         // ignore GET request
         // 忽略 GET 请求
         if ("GET".equalsIgnoreCase(request.getMethod())) {
@@ -112,4 +125,70 @@ public class ConsumerAuditUtil implements InitializingBean {
         auditStopped.set(true);
     }
 
+    /**
+     * @return 各 Consumer 的总请求数，KEY 为 Consumer 编号
+     */
+    public Map<Long, Long> getTotalRequestCounts() {
+        Map<Long, Long> result = Maps.newHashMap();
+        for (Map.Entry<Long, RequestCounter> entry : requestCounters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getTotal());
+        }
+        return result;
+    }
+
+    /**
+     * @return 各 Consumer 上一分钟的请求数，KEY 为 Consumer 编号
+     */
+    public Map<Long, Long> getLastMinuteRequestCounts() {
+        long currentMinute = currentMinute();
+        Map<Long, Long> result = Maps.newHashMap();
+        for (Map.Entry<Long, RequestCounter> entry : requestCounters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getLastMinuteCount(currentMinute));
+        }
+        return result;
+    }
+
+    private void countRequest(long consumerId) {
+        requestCounters.computeIfAbsent(consumerId, key -> new RequestCounter()).increment(currentMinute());
+    }
+
+    private long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+    }
+
+    /**
+     * 单个 Consumer 的请求计数，按分钟滚动
+     */
+    private static class RequestCounter {
+        private long total;
+        private long currentMinute;
+        private long currentMinuteCount;
+        private long lastMinuteCount;
+
+        synchronized void increment(long minute) {
+            roll(minute);
+            currentMinuteCount++;
+            total++;
+        }
+
+        synchronized long getTotal() {
+            return total;
+        }
+
+        synchronized long getLastMinuteCount(long minute) {
+            roll(minute);
+            return lastMinuteCount;
+        }
+
+        private void roll(long minute) {
+            if (minute <= currentMinute) {
+                return;
+            }
+            // 中间有空闲的分钟时，上一分钟的请求数为 0
+            lastMinuteCount = minute == currentMinute + 1 ? currentMinuteCount : 0;
+            currentMinute = minute;
+            currentMinuteCount = 0;
+        }
+    }
+
 }
\ No newline at end of file
@@ -256,12 +256,13 @@ public class AdminServiceAPI {
                 new ParameterizedTypeReference<PageDTO<InstanceDTO>>() {
                 };
 
-        public PageDTO<InstanceDTO> getByRelease(Env env, long releaseId, int page, int size) {
+        public PageDTO<InstanceDTO> getByRelease(Env env, long releaseId, Long lastInstanceId, int page, int size) {
             ResponseEntity<PageDTO<InstanceDTO>>
                     entity =
                     restTemplate
-                            .get(env, "/instances/by-release?releaseId={releaseId}&page={page}&size={size}", pageInstanceDtoType,
-                                    releaseId, page, size);
+                            .get(env, "/instances/by-release?releaseId={releaseId}&lastInstanceId={lastInstanceId}"
+                                            + "&page={page}&size={size}", pageInstanceDtoType,
+                                    releaseId, lastInstanceId, page, size);
             return entity.getBody();
 
         }
@@ -279,15 +280,16 @@ public class AdminServiceAPI {
         }
 
         public PageDTO<InstanceDTO> getByNamespace(String appId, Env env, String clusterName, String namespaceName,
-                                                   String instanceAppId,
+                                                   String instanceAppId, Long lastInstanceId,
                                                    int page, int size) {
             ResponseEntity<PageDTO<InstanceDTO>>
                     entity =
                     restTemplate.get(env,
                             "/instances/by-namespace?appId={appId}"
                                     + "&clusterName={clusterName}&namespaceName={namespaceName}&instanceAppId={instanceAppId}"
-                                    + "&page={page}&size={size}",
-                            pageInstanceDtoType, appId, clusterName, namespaceName, instanceAppId, page, size);
+                                    + "&lastInstanceId={lastInstanceId}&page={page}&size={size}",
+                            pageInstanceDtoType, appId, clusterName, namespaceName, instanceAppId, lastInstanceId,
+                            page, size);
             return entity.getBody();
         }
 
@@ -0,0 +1,215 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.common.exception.ServiceException;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 并行调用 Admin Service 的执行器
+ *
+ * Portal 的页面会聚合多个环境、多个 Namespace 的数据，串行调用时耗时为所有远程调用之和。
+ *
+ * 1. 线程池有界，线程数为 {@link PortalConfig#parallelThreads()} ，队列满时由调用线程执行；
+ * 2. 一次调用的所有任务共享超时时间 {@link PortalConfig#parallelTimeout()} ，超时的任务被取消；
+ * 3. 在线程池的线程中再次调用时，任务在当前线程串行执行，避免线程池耗尽导致的死锁。
+ *
+ * 注意，任务在其他线程执行，不能依赖 ThreadLocal ，例如 {@link com.ctrip.framework.apollo.portal.spi.UserInfoHolder} 。
+ */
+@Component
+public class ParallelExecutor implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelExecutor.class);
+    private static final int QUEUE_SIZE = 1000;
+    /**
+     * 当前线程是否正在执行并行任务
+     */
+    private static final ThreadLocal<Boolean> IN_PARALLEL_TASK = new ThreadLocal<>();
+
+    @Autowired
+    private PortalConfig portalConfig;
+
+    private ThreadPoolExecutor executorService;
+
+    @Override
+    public void afterPropertiesSet() {
+        int threads = portalConfig.parallelThreads();
+        executorService = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_SIZE), ApolloThreadFactory.create("ParallelExecutor", true),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executorService.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void destroy() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * 并行执行所有任务，任一任务失败或超时，取消其余任务并抛出异常
+     *
+     * @param tasks 任务们
+     * @return 结果们，与任务的顺序一致
+     */
+    public <V> List<V> invokeAll(List<Callable<V>> tasks) {
+        List<Future<V>> futures = submitAll(tasks);
+        long deadline = deadline();
+        List<V> results = Lists.newArrayListWithCapacity(futures.size());
+        try {
+            for (Future<V> future : futures) {
+                results.add(await(future, deadline));
+            }
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            throw propagate(e.getCause());
+        } catch (TimeoutException e) {
+            cancelAll(futures);
+            Tracer.logError(e);
+            throw new ServiceException(String.format("parallel invocation timeout in %d ms", portalConfig.parallelTimeout()), e);
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new ServiceException("parallel invocation interrupted", e);
+        }
+        return results;
+    }
+
+    /**
+     * 并行执行所有任务，单个任务失败或超时，不影响其他任务的结果
+     *
+     * @param tasks 任务们，KEY 一般为 Env
+     * @return 成功的结果和失败的原因，与任务的顺序一致
+     */
+    public <K, V> ParallelResults<K, V> invokeAllPartially(Map<K, Callable<V>> tasks) {
+        List<K> keys = Lists.newArrayList(tasks.keySet());
+        List<Future<V>> futures = submitAll(Lists.newArrayList(tasks.values()));
+        long deadline = deadline();
+        ParallelResults<K, V> results = new ParallelResults<>();
+        for (int i = 0; i < keys.size(); i++) {
+            K key = keys.get(i);
+            Future<V> future = futures.get(i);
+            try {
+                results.results.put(key, await(future, deadline));
+            } catch (ExecutionException e) {
+                results.errors.put(key, e.getCause());
+                // 由调用方记录日志或返回给前端
+                Tracer.logError(e.getCause());
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                TimeoutException timeout = new TimeoutException(String.format("timeout in %d ms", portalConfig.parallelTimeout()));
+                results.errors.put(key, timeout);
+                Tracer.logError(timeout);
+                logger.warn("Parallel task for {} timeout in {} ms", key, portalConfig.parallelTimeout());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll(futures.subList(i, futures.size()));
+                for (K remainingKey : keys.subList(i, keys.size())) {
+                    results.errors.put(remainingKey, e);
+                }
+                break;
+            }
+        }
+        return results;
+    }
+
+    private <V> List<Future<V>> submitAll(List<Callable<V>> tasks) {
+        // 只有一个任务，或者已经在线程池中时，直接在当前线程执行
+        boolean inline = tasks.size() <= 1 || Boolean.TRUE.equals(IN_PARALLEL_TASK.get());
+        List<Future<V>> futures = Lists.newArrayListWithCapacity(tasks.size());
+        for (Callable<V> task : tasks) {
+            FutureTask<V> future = new FutureTask<>(wrap(task));
+            if (inline) {
+                future.run();
+            } else {
+                executorService.execute(future);
+            }
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    private <V> Callable<V> wrap(Callable<V> task) {
+        return () -> {
+            Boolean previous = IN_PARALLEL_TASK.get();
+            IN_PARALLEL_TASK.set(Boolean.TRUE);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    IN_PARALLEL_TASK.remove();
+                } else {
+                    IN_PARALLEL_TASK.set(previous);
+                }
+            }
+        };
+    }
+
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(portalConfig.parallelTimeout());
+    }
+
+    private <V> V await(Future<V> future, long deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        // 超过截止时间后，已完成的任务仍可获得结果
+        return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new ServiceException(cause.getMessage(), (Exception) cause);
+    }
+
+    /**
+     * 部分成功的并行执行结果
+     */
+    public static class ParallelResults<K, V> {
+
+        private final Map<K, V> results = Maps.newLinkedHashMap();
+        private final Map<K, Throwable> errors = Maps.newLinkedHashMap();
+
+        public Map<K, V> getResults() {
+            return results;
+        }
+
+        public Map<K, Throwable> getErrors() {
+            return errors;
+        }
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+    }
+
+}
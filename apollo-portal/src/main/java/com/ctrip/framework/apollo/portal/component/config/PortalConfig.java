@@ -26,6 +26,9 @@ public class PortalConfig extends RefreshableConfig {
 
     private static final Type ORGANIZATION = new TypeToken<List<Organization>>() {}.getType();
 
+    private static final int DEFAULT_PERMISSION_CACHE_EXPIRE_IN_SECONDS = 60;
+    private static final int MAX_PERMISSION_CACHE_EXPIRE_IN_SECONDS = 3600;
+
     @Autowired
     private PortalDBPropertySource portalDBPropertySource;
 
@@ -50,6 +53,14 @@ public class PortalConfig extends RefreshableConfig {
         return envs;
     }
 
+    /**
+     * 用户权限缓存的过期时间，单位：秒。本节点修改授权时精确失效，其他节点依赖过期时间，因此限制在 [1, 3600] 内
+     */
+    public int permissionCacheExpireInSeconds() {
+        int expire = getIntProperty("permission.cache.expire", DEFAULT_PERMISSION_CACHE_EXPIRE_IN_SECONDS);
+        return checkInt(expire, 1, MAX_PERMISSION_CACHE_EXPIRE_IN_SECONDS, DEFAULT_PERMISSION_CACHE_EXPIRE_IN_SECONDS);
+    }
+
     public List<String> superAdmins() {
         String superAdminConfig = getValue("superAdmin", "");
         if (Strings.isNullOrEmpty(superAdminConfig)) {
@@ -81,6 +92,20 @@ public class PortalConfig extends RefreshableConfig {
         return getIntProperty("api.readTimeout", 10000);
     }
 
+    /**
+     * 并行调用 Admin Service 的线程数，如多个环境、多个 Namespace 的聚合查询
+     */
+    public int parallelThreads() {
+        return getIntProperty("api.parallel.threads", 20);
+    }
+
+    /**
+     * 并行调用的整体超时时间，单位：毫秒
+     */
+    public int parallelTimeout() {
+        return getIntProperty("api.parallel.timeout", 15000);
+    }
+
     public List<Organization> organizations() {
         String organizations = getValue("organizations");
         return organizations == null ? Collections.emptyList() : gson.fromJson(organizations, ORGANIZATION);
@@ -120,6 +145,20 @@ public class PortalConfig extends RefreshableConfig {
         return getValue("consumer.token.salt", "apollo-portal");
     }
 
+    /**
+     * 有效 Token 的缓存时间，单位：秒。Token 过期时立即失效，其他节点删除的 Token 在缓存过期后失效
+     */
+    public int consumerTokenCacheExpireInSeconds() {
+        return getIntProperty("consumer.token.cache.expire", 60);
+    }
+
+    /**
+     * 无效 Token 的缓存时间，单位：秒
+     */
+    public int consumerTokenNegativeCacheExpireInSeconds() {
+        return getIntProperty("consumer.token.negative-cache.expire", 10);
+    }
+
     public String emailSender() {
         return getValue("email.sender");
     }
@@ -213,4 +252,11 @@ public class PortalConfig extends RefreshableConfig {
         return getValue("hermes.server.address");
     }
 
+    int checkInt(int value, int min, int max, int defaultValue) {
+        if (value >= min && value <= max) {
+            return value;
+        }
+        return defaultValue;
+    }
+
 }
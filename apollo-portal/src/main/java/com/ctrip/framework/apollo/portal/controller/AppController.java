@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.portal.controller;
 
 
+import com.ctrip.framework.apollo.common.dto.AppDTO;
 import com.ctrip.framework.apollo.common.entity.App;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.http.MultiResponseEntity;
@@ -8,6 +9,7 @@ import com.ctrip.framework.apollo.common.http.RichResponseEntity;
 import com.ctrip.framework.apollo.common.utils.InputValidator;
 import com.ctrip.framework.apollo.common.utils.RequestPrecondition;
 import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.portal.component.ParallelExecutor;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.entity.model.AppModel;
 import com.ctrip.framework.apollo.portal.entity.vo.EnvClusterInfo;
@@ -17,6 +19,7 @@ import com.ctrip.framework.apollo.portal.service.AppService;
 import com.ctrip.framework.apollo.portal.service.RolePermissionService;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.portal.util.RoleUtils;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
@@ -30,8 +33,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * App Controller
@@ -53,6 +58,8 @@ public class AppController {
     private ApplicationEventPublisher publisher;
     @Autowired
     private RolePermissionService rolePermissionService;
+    @Autowired
+    private ParallelExecutor parallelExecutor;
 
     @RequestMapping(value = "", method = RequestMethod.GET)
     public List<App> findApps(@RequestParam(value = "appIds", required = false) String appIds) {
@@ -111,10 +118,17 @@ public class AppController {
 
         MultiResponseEntity<EnvClusterInfo> response = MultiResponseEntity.ok();
         List<Env> envs = portalSettings.getActiveEnvs();
+        // 并行加载各环境的集群，单个环境失败或超时不影响其他环境
+        Map<Env, Callable<EnvClusterInfo>> tasks = Maps.newLinkedHashMap();
+        for (Env env : envs) {
+            tasks.put(env, () -> appService.createEnvNavNode(env, appId));
+        }
+        ParallelExecutor.ParallelResults<Env, EnvClusterInfo> results = parallelExecutor.invokeAllPartially(tasks);
         for (Env env : envs) {
-            try {
-                response.addResponseEntity(RichResponseEntity.ok(appService.createEnvNavNode(env, appId)));
-            } catch (Exception e) {
+            Throwable e = results.getErrors().get(env);
+            if (e == null) {
+                response.addResponseEntity(RichResponseEntity.ok(results.getResults().get(env)));
+            } else {
                 response.addResponseEntity(RichResponseEntity.error(HttpStatus.INTERNAL_SERVER_ERROR,
                         "load env:" + env.name() + " cluster error." + e
                                 .getMessage()));
@@ -148,19 +162,25 @@ public class AppController {
     public MultiResponseEntity<Env> findMissEnvs(@PathVariable String appId) {
 
         MultiResponseEntity<Env> response = MultiResponseEntity.ok();
-        for (Env env : portalSettings.getActiveEnvs()) {
-            try {
-                appService.load(env, appId);
-            } catch (Exception e) {
-                if (e instanceof HttpClientErrorException &&
-                        ((HttpClientErrorException) e).getStatusCode() == HttpStatus.NOT_FOUND) {
-                    response.addResponseEntity(RichResponseEntity.ok(env));
-                } else {
-                    response.addResponseEntity(RichResponseEntity.error(HttpStatus.INTERNAL_SERVER_ERROR,
-                            String.format("load appId:%s from env %s error.", appId,
-                                    env)
-                                    + e.getMessage()));
-                }
+        List<Env> envs = portalSettings.getActiveEnvs();
+        Map<Env, Callable<AppDTO>> tasks = Maps.newLinkedHashMap();
+        for (Env env : envs) {
+            tasks.put(env, () -> appService.load(env, appId));
+        }
+        ParallelExecutor.ParallelResults<Env, AppDTO> results = parallelExecutor.invokeAllPartially(tasks);
+        for (Env env : envs) {
+            Throwable e = results.getErrors().get(env);
+            if (e == null) {
+                continue;
+            }
+            if (e instanceof HttpClientErrorException &&
+                    ((HttpClientErrorException) e).getStatusCode() == HttpStatus.NOT_FOUND) {
+                response.addResponseEntity(RichResponseEntity.ok(env));
+            } else {
+                response.addResponseEntity(RichResponseEntity.error(HttpStatus.INTERNAL_SERVER_ERROR,
+                        String.format("load appId:%s from env %s error.", appId,
+                                env)
+                                + e.getMessage()));
             }
         }
 
@@ -33,20 +33,23 @@ public class InstanceController {
 
     @RequestMapping(value = "/envs/{env}/instances/by-release", method = RequestMethod.GET)
     public PageDTO<InstanceDTO> getByRelease(@PathVariable String env, @RequestParam long releaseId,
+                                             @RequestParam(required = false) Long lastInstanceId,
                                              @RequestParam(defaultValue = "0") int page,
                                              @RequestParam(defaultValue = "20") int size) {
 
-        return instanceService.getByRelease(Env.valueOf(env), releaseId, page, size);
+        return instanceService.getByRelease(Env.valueOf(env), releaseId, lastInstanceId, page, size);
     }
 
     @RequestMapping(value = "/envs/{env}/instances/by-namespace", method = RequestMethod.GET)
     public PageDTO<InstanceDTO> getByNamespace(@PathVariable String env, @RequestParam String appId,
                                                @RequestParam String clusterName, @RequestParam String namespaceName,
                                                @RequestParam(required = false) String instanceAppId,
+                                               @RequestParam(required = false) Long lastInstanceId,
                                                @RequestParam(defaultValue = "0") int page,
                                                @RequestParam(defaultValue = "20") int size) {
 
-        return instanceService.getByNamespace(Env.valueOf(env), appId, clusterName, namespaceName, instanceAppId, page, size);
+        return instanceService.getByNamespace(Env.valueOf(env), appId, clusterName, namespaceName, instanceAppId,
+                lastInstanceId, page, size);
     }
 
     @RequestMapping(value = "/envs/{env}/instances/by-namespace/count", method = RequestMethod.GET)
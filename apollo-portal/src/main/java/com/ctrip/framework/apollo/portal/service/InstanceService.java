@@ -16,13 +16,20 @@ public class InstanceService {
     @Autowired
     private AdminServiceAPI.InstanceAPI instanceAPI;
 
-    public PageDTO<InstanceDTO> getByRelease(Env env, long releaseId, int page, int size) {
-        return instanceAPI.getByRelease(env, releaseId, page, size);
+    /**
+     * @param lastInstanceId 上一页最大的 InstanceId ，非空时按游标分页，忽略 page
+     */
+    public PageDTO<InstanceDTO> getByRelease(Env env, long releaseId, Long lastInstanceId, int page, int size) {
+        return instanceAPI.getByRelease(env, releaseId, lastInstanceId, page, size);
     }
 
+    /**
+     * @param lastInstanceId 上一页最大的 InstanceId ，非空时按游标分页，忽略 page
+     */
     public PageDTO<InstanceDTO> getByNamespace(Env env, String appId, String clusterName, String namespaceName,
-                                               String instanceAppId, int page, int size) {
-        return instanceAPI.getByNamespace(appId, env, clusterName, namespaceName, instanceAppId, page, size);
+                                               String instanceAppId, Long lastInstanceId, int page, int size) {
+        return instanceAPI.getByNamespace(appId, env, clusterName, namespaceName, instanceAppId, lastInstanceId,
+                page, size);
     }
 
     public int getInstanceCountByNamepsace(String appId, Env env, String clusterName, String namespaceName) {
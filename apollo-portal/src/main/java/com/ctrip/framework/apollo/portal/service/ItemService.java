@@ -9,6 +9,7 @@ import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.ParallelExecutor;
 import com.ctrip.framework.apollo.portal.component.txtresolver.ConfigTextResolver;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.portal.entity.model.NamespaceTextModel;
@@ -16,6 +17,7 @@ import com.ctrip.framework.apollo.portal.entity.vo.ItemDiffs;
 import com.ctrip.framework.apollo.portal.entity.vo.NamespaceIdentifier;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
@@ -26,6 +28,7 @@ import org.springframework.web.client.HttpClientErrorException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Item Service
@@ -39,6 +42,8 @@ public class ItemService {
     private AdminServiceAPI.NamespaceAPI namespaceAPI;
     @Autowired
     private AdminServiceAPI.ItemAPI itemAPI;
+    @Autowired
+    private ParallelExecutor parallelExecutor;
 
     @Autowired
     @Qualifier("fileTextResolver")
@@ -140,21 +145,22 @@ public class ItemService {
 
     public List<ItemDiffs> compare(List<NamespaceIdentifier> comparedNamespaces, List<ItemDTO> sourceItems) {
 
-        List<ItemDiffs> result = new LinkedList<>();
-
+        // 并行对比各个 Namespace ，每个 Namespace 需要多次调用 Admin Service
+        List<Callable<ItemDiffs>> tasks = Lists.newArrayListWithCapacity(comparedNamespaces.size());
         for (NamespaceIdentifier namespace : comparedNamespaces) {
-
-            ItemDiffs itemDiffs = new ItemDiffs(namespace);
-            try {
-                itemDiffs.setDiffs(parseChangeSets(namespace, sourceItems));
-            } catch (BadRequestException e) {
-                itemDiffs.setDiffs(new ItemChangeSets());
-                itemDiffs.setExtInfo("该集群下没有名为 " + namespace.getNamespaceName() + " 的namespace");
-            }
-            result.add(itemDiffs);
+            tasks.add(() -> {
+                ItemDiffs itemDiffs = new ItemDiffs(namespace);
+                try {
+                    itemDiffs.setDiffs(parseChangeSets(namespace, sourceItems));
+                } catch (BadRequestException e) {
+                    itemDiffs.setDiffs(new ItemChangeSets());
+                    itemDiffs.setExtInfo("该集群下没有名为 " + namespace.getNamespaceName() + " 的namespace");
+                }
+                return itemDiffs;
+            });
         }
 
-        return result;
+        return new LinkedList<>(parallelExecutor.invokeAll(tasks));
     }
 
     private long getNamespaceId(NamespaceIdentifier namespaceIdentifier) {
@@ -11,6 +11,7 @@ import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.ParallelExecutor;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
@@ -18,6 +19,7 @@ import com.ctrip.framework.apollo.portal.entity.bo.ItemBO;
 import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import org.slf4j.Logger;
@@ -27,6 +29,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 @Service
 public class NamespaceService {
@@ -52,6 +55,8 @@ public class NamespaceService {
     private InstanceService instanceService;
     @Autowired
     private NamespaceBranchService branchService;
+    @Autowired
+    private ParallelExecutor parallelExecutor;
 
     /**
      * 创建 Namespace
@@ -122,21 +127,21 @@ public class NamespaceService {
             throw new BadRequestException("namespaces not exist");
         }
 
-        List<NamespaceBO> namespaceBOs = new LinkedList<>();
+        // 并行组装每个 Namespace ，每个 Namespace 需要多次调用 Admin Service
+        List<Callable<NamespaceBO>> tasks = Lists.newArrayListWithCapacity(namespaces.size());
         for (NamespaceDTO namespace : namespaces) {
-
-            NamespaceBO namespaceBO;
-            try {
-                namespaceBO = transformNamespace2BO(env, namespace);
-                namespaceBOs.add(namespaceBO);
-            } catch (Exception e) {
-                logger.error("parse namespace error. app id:{}, env:{}, clusterName:{}, namespace:{}",
-                        appId, env, clusterName, namespace.getNamespaceName(), e);
-                throw e;
-            }
+            tasks.add(() -> {
+                try {
+                    return transformNamespace2BO(env, namespace);
+                } catch (Exception e) {
+                    logger.error("parse namespace error. app id:{}, env:{}, clusterName:{}, namespace:{}",
+                            appId, env, clusterName, namespace.getNamespaceName(), e);
+                    throw e;
+                }
+            });
         }
 
-        return namespaceBOs;
+        return new LinkedList<>(parallelExecutor.invokeAll(tasks));
     }
 
     public List<NamespaceDTO> getPublicAppNamespaceAllNamespaces(Env env, String publicNamespaceName, int page,
@@ -171,13 +176,22 @@ public class NamespaceService {
     public Map<String, Map<String, Boolean>> getNamespacesPublishInfo(String appId) {
         Map<String, Map<String, Boolean>> result = Maps.newHashMap();
 
-        Set<Env> envs = portalConfig.publishTipsSupportedEnvs();
-        for (Env env : envs) {
+        // 并行查询各环境，失败或超时的环境不返回，不影响其他环境的发布提示
+        Map<Env, Callable<Map<String, Boolean>>> tasks = Maps.newLinkedHashMap();
+        for (Env env : portalConfig.publishTipsSupportedEnvs()) {
             if (portalSettings.isEnvActive(env)) {
-                result.put(env.toString(), namespaceAPI.getNamespacePublishInfo(env, appId));
+                tasks.put(env, () -> namespaceAPI.getNamespacePublishInfo(env, appId));
             }
         }
 
+        ParallelExecutor.ParallelResults<Env, Map<String, Boolean>> publishInfos = parallelExecutor.invokeAllPartially(tasks);
+        for (Map.Entry<Env, Map<String, Boolean>> entry : publishInfos.getResults().entrySet()) {
+            result.put(entry.getKey().toString(), entry.getValue());
+        }
+        for (Map.Entry<Env, Throwable> entry : publishInfos.getErrors().entrySet()) {
+            logger.warn("load namespace publish info error. app id:{}, env:{}", appId, entry.getKey(), entry.getValue());
+        }
+
         return result;
     }
 
@@ -6,6 +6,7 @@ import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.ParallelExecutor;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.portal.entity.bo.KVEntity;
 import com.ctrip.framework.apollo.portal.entity.bo.ReleaseBO;
@@ -21,6 +22,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * Release Service
@@ -34,6 +36,8 @@ public class ReleaseService {
     private UserInfoHolder userInfoHolder;
     @Autowired
     private AdminServiceAPI.ReleaseAPI releaseAPI;
+    @Autowired
+    private ParallelExecutor parallelExecutor;
 
     public ReleaseDTO publish(NamespaceReleaseModel model) {
         Env env = model.getEnv();
@@ -117,17 +121,13 @@ public class ReleaseService {
 
     public ReleaseCompareResult compare(Env env, long baseReleaseId, long toCompareReleaseId) {
 
-        ReleaseDTO baseRelease = null;
-        ReleaseDTO toCompareRelease = null;
-        if (baseReleaseId != 0) {
-            baseRelease = releaseAPI.loadRelease(env, baseReleaseId);
-        }
-
-        if (toCompareReleaseId != 0) {
-            toCompareRelease = releaseAPI.loadRelease(env, toCompareReleaseId);
-        }
+        // 并行加载两个 Release
+        List<Callable<ReleaseDTO>> tasks = Arrays.asList(
+                () -> baseReleaseId == 0 ? null : releaseAPI.loadRelease(env, baseReleaseId),
+                () -> toCompareReleaseId == 0 ? null : releaseAPI.loadRelease(env, toCompareReleaseId));
+        List<ReleaseDTO> releases = parallelExecutor.invokeAll(tasks);
 
-        return compare(baseRelease, toCompareRelease);
+        return compare(releases.get(0), releases.get(1));
     }
 
     public ReleaseCompareResult compare(ReleaseDTO baseRelease, ReleaseDTO toCompareRelease) {
@@ -12,14 +12,22 @@ import com.ctrip.framework.apollo.portal.repository.RoleRepository;
 import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
 import com.ctrip.framework.apollo.portal.service.RolePermissionService;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -28,6 +36,8 @@ import java.util.stream.StreamSupport;
  */
 public class DefaultRolePermissionService implements RolePermissionService {
 
+    private static final int PERMISSION_CACHE_MAX_SIZE = 10000;
+
     @Autowired
     private RoleRepository roleRepository;
     @Autowired
@@ -39,6 +49,34 @@ public class DefaultRolePermissionService implements RolePermissionService {
     @Autowired
     private PortalConfig portalConfig;
 
+    /**
+     * 用户拥有的权限集合的缓存，懒加载
+     *
+     * KEY：用户编号
+     * VALUE：权限 KEY 的集合，见 {@link #permissionKey(String, String)}
+     */
+    private Cache<String, Set<String>> userPermissionsCache;
+    /**
+     * 权限是否存在的缓存，用于超级管理员的权限判断
+     *
+     * KEY：权限 KEY
+     */
+    private Cache<String, Boolean> permissionExistenceCache;
+
+    @PostConstruct
+    private void initialize() {
+        // 本节点修改授权时精确失效，其他节点修改的授权，在过期后生效
+        int expireInSeconds = portalConfig.permissionCacheExpireInSeconds();
+        userPermissionsCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireInSeconds, TimeUnit.SECONDS)
+                .maximumSize(PERMISSION_CACHE_MAX_SIZE)
+                .build();
+        permissionExistenceCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireInSeconds, TimeUnit.SECONDS)
+                .maximumSize(PERMISSION_CACHE_MAX_SIZE)
+                .build();
+    }
+
     /**
      * Create role with permissions, note that role name should be unique
      */
@@ -64,6 +102,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
             }).collect(Collectors.toList());
             // 保存 RolePermission 数组
             rolePermissionRepository.save(rolePermissions);
+            // 新建的 Role 尚未授予任何用户，不影响已缓存的用户权限；授予用户时，见 assignRoleToUsers
         }
 
         return createdRole;
@@ -99,6 +138,9 @@ public class DefaultRolePermissionService implements RolePermissionService {
         // 保存 RolePermission 数组
         userRoleRepository.save(toCreate);
 
+        // 失效被授权用户的权限缓存
+        invalidateUserPermissions(toAssignUserIds);
+
         return toAssignUserIds;
     }
 
@@ -123,6 +165,9 @@ public class DefaultRolePermissionService implements RolePermissionService {
 
         // 保存 RolePermission 数组 【标记删除】
         userRoleRepository.save(existedUserRoles);
+
+        // 失效被取消授权用户的权限缓存
+        invalidateUserPermissions(existedUserRoles.stream().map(UserRole::getUserId).collect(Collectors.toSet()));
     }
 
     /**
@@ -161,41 +206,43 @@ public class DefaultRolePermissionService implements RolePermissionService {
      */
     @Override
     public boolean userHasPermission(String userId, String permissionType, String targetId) {
-        // 获得 Permission 对象
-        Permission permission = permissionRepository.findTopByPermissionTypeAndTargetId(permissionType, targetId);
-        // 若 Permission 不存在，返回 false
-        if (permission == null) {
-            return false;
-        }
+        String permissionKey = permissionKey(permissionType, targetId);
 
-        // 若是超级管理员，返回 true 【有权限】
+        // 若是超级管理员，Permission 存在时返回 true 【有权限】
         if (isSuperAdmin(userId)) {
-            return true;
+            return getFromCache(permissionExistenceCache, permissionKey,
+                    () -> permissionRepository.findTopByPermissionTypeAndTargetId(permissionType, targetId) != null);
         }
 
+        // 判断用户拥有的权限集合中，是否有对应的 Permission
+        return getFromCache(userPermissionsCache, userId, () -> loadUserPermissions(userId)).contains(permissionKey);
+    }
+
+    /**
+     * 加载用户拥有的权限集合
+     */
+    private Set<String> loadUserPermissions(String userId) {
         // 获得 UserRole 数组
         List<UserRole> userRoles = userRoleRepository.findByUserId(userId);
-        // 若数组为空，返回 false
+        // 若数组为空，返回空集合
         if (CollectionUtils.isEmpty(userRoles)) {
-            return false;
+            return Collections.emptySet();
         }
 
         // 获得 RolePermission 数组
         Set<Long> roleIds = userRoles.stream().map(UserRole::getRoleId).collect(Collectors.toSet());
         List<RolePermission> rolePermissions = rolePermissionRepository.findByRoleIdIn(roleIds);
-        // 若数组为空，返回 false
+        // 若数组为空，返回空集合
         if (CollectionUtils.isEmpty(rolePermissions)) {
-            return false;
-        }
-
-        // 判断是否有对应的 RolePermission 。若有，则返回 true 【有权限】
-        for (RolePermission rolePermission : rolePermissions) {
-            if (rolePermission.getPermissionId() == permission.getId()) {
-                return true;
-            }
+            return Collections.emptySet();
         }
 
-        return false;
+        // 获得 Permission 数组，转换成权限 KEY 的集合
+        Set<Long> permissionIds = rolePermissions.stream().map(RolePermission::getPermissionId).collect(Collectors.toSet());
+        Iterable<Permission> permissions = permissionRepository.findAll(permissionIds);
+        return StreamSupport.stream(permissions.spliterator(), false)
+                .map(permission -> permissionKey(permission.getPermissionType(), permission.getTargetId()))
+                .collect(Collectors.toSet());
     }
 
     @Override
@@ -216,7 +263,12 @@ public class DefaultRolePermissionService implements RolePermissionService {
         Preconditions.checkState(current == null, "Permission with permissionType %s targetId %s already exists!", permissionType, targetId);
 
         // 保存 Permission
-        return permissionRepository.save(permission);
+        Permission createdPermission = permissionRepository.save(permission);
+
+        // 失效权限是否存在的缓存
+        invalidatePermissionExistence(Collections.singleton(permissionKey(permissionType, targetId)));
+
+        return createdPermission;
     }
 
     /**
@@ -240,8 +292,51 @@ public class DefaultRolePermissionService implements RolePermissionService {
 
         // 保存 Permission 集合
         Iterable<Permission> results = permissionRepository.save(permissions);
-        // 转成 Permission 集合，返回
-        return StreamSupport.stream(results.spliterator(), false).collect(Collectors.toSet());
+        // 转成 Permission 集合
+        Set<Permission> createdPermissions = StreamSupport.stream(results.spliterator(), false).collect(Collectors.toSet());
+
+        // 失效权限是否存在的缓存
+        invalidatePermissionExistence(createdPermissions.stream()
+                .map(permission -> permissionKey(permission.getPermissionType(), permission.getTargetId()))
+                .collect(Collectors.toSet()));
+
+        return createdPermissions;
+    }
+
+    private static String permissionKey(String permissionType, String targetId) {
+        return permissionType + "+" + targetId;
+    }
+
+    private static <V> V getFromCache(Cache<String, V> cache, String key, Callable<V> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(String.format("Load permissions for %s failed", key), ex.getCause());
+        }
+    }
+
+    private void invalidateUserPermissions(Set<String> userIds) {
+        afterCommit(() -> userPermissionsCache.invalidateAll(userIds));
+    }
+
+    private void invalidatePermissionExistence(Set<String> permissionKeys) {
+        afterCommit(() -> permissionExistenceCache.invalidateAll(permissionKeys));
+    }
+
+    /**
+     * 事务提交后执行，避免并发的权限判断在提交前重新加载旧的数据
+     */
+    private void afterCommit(Runnable runnable) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                runnable.run();
+            }
+        });
     }
 
 }
@@ -95,9 +95,9 @@ function directive($window, toastr, AppUtil, EventManager, PermissionService, Na
                 namespace.isPropertiesFormat = namespace.format == 'properties';
                 namespace.isTextEditing = false;
                 namespace.instanceViewType = namespace_instance_view_type.LATEST_RELEASE;
-                namespace.latestReleaseInstancesPage = 0;
+                namespace.latestReleaseLastInstanceId = 0;
                 namespace.allInstances = [];
-                namespace.allInstancesPage = 0;
+                namespace.allInstancesLastInstanceId = 0;
                 namespace.commitChangeBtnDisabled = false;
 
                 generateNamespaceId(namespace);
@@ -130,7 +130,7 @@ function directive($window, toastr, AppUtil, EventManager, PermissionService, Na
                             namespace.branch.isPropertiesFormat = namespace.format == 'properties';
                             namespace.branch.allInstances = [];//master namespace all instances
                             namespace.branch.latestReleaseInstances = [];
-                            namespace.branch.latestReleaseInstancesPage = 0;
+                            namespace.branch.latestReleaseLastInstanceId = 0;
                             namespace.branch.instanceViewType = namespace_instance_view_type.LATEST_RELEASE;
                             namespace.branch.hasLoadInstances = false;
                             namespace.branch.displayControl = {
@@ -440,21 +440,25 @@ function directive($window, toastr, AppUtil, EventManager, PermissionService, Na
                                 namespace.latestRelease = result;
                                 InstanceService.findInstancesByRelease(scope.env,
                                                                        namespace.latestRelease.id,
-                                                                       namespace.latestReleaseInstancesPage,
+                                                                       namespace.latestReleaseLastInstanceId,
                                                                        size)
                                     .then(function (result) {
                                         namespace.latestReleaseInstances = result;
-                                        namespace.latestReleaseInstancesPage++;
+                                        if (result.content.length) {
+                                            namespace.latestReleaseLastInstanceId =
+                                                result.content[result.content.length - 1].id;
+                                        }
                                     })
                             });
                     } else {
                         InstanceService.findInstancesByRelease(scope.env,
                                                                namespace.latestRelease.id,
-                                                               namespace.latestReleaseInstancesPage,
+                                                               namespace.latestReleaseLastInstanceId,
                                                                size)
                             .then(function (result) {
                                 if (result && result.content.length) {
-                                    namespace.latestReleaseInstancesPage++;
+                                    namespace.latestReleaseLastInstanceId =
+                                        result.content[result.content.length - 1].id;
                                     result.content.forEach(function (instance) {
                                         namespace.latestReleaseInstances.content.push(
                                             instance);
@@ -509,10 +513,11 @@ function directive($window, toastr, AppUtil, EventManager, PermissionService, Na
                                                              scope.cluster,
                                                              namespace.baseInfo.namespaceName,
                                                              '',
-                                                             namespace.allInstancesPage)
+                                                             namespace.allInstancesLastInstanceId)
                         .then(function (result) {
                             if (result && result.content.length) {
-                                namespace.allInstancesPage++;
+                                namespace.allInstancesLastInstanceId =
+                                    result.content[result.content.length - 1].id;
                                 result.content.forEach(function (instance) {
                                     namespace.allInstances.push(instance);
                                 })
@@ -526,7 +531,7 @@ function directive($window, toastr, AppUtil, EventManager, PermissionService, Na
 
                 namespace.instanceViewType = namespace_instance_view_type.LATEST_RELEASE;
 
-                namespace.latestReleaseInstancesPage = 0;
+                namespace.latestReleaseLastInstanceId = 0;
                 namespace.latestReleaseInstances = [];
                 namespace.latestRelease = undefined;
 
@@ -534,7 +539,7 @@ function directive($window, toastr, AppUtil, EventManager, PermissionService, Na
                     namespace.notLatestReleaseNames = [];
                     namespace.notLatestReleaseInstances = {};
 
-                    namespace.allInstancesPage = 0;
+                    namespace.allInstancesLastInstanceId = 0;
                     namespace.allInstances = [];
                 }
 
@@ -22,7 +22,7 @@ appService.service('InstanceService', ['$resource', '$q', function ($resource, $
     });
 
     var instanceService = {
-        findInstancesByRelease: function (env, releaseId, page, size) {
+        findInstancesByRelease: function (env, releaseId, lastInstanceId, size) {
             if (!size) {
                 size = 20;
             }
@@ -30,7 +30,7 @@ appService.service('InstanceService', ['$resource', '$q', function ($resource, $
             resource.find_instances_by_release({
                                                    env: env,
                                                    releaseId: releaseId,
-                                                   page: page,
+                                                   lastInstanceId: lastInstanceId || 0,
                                                    size: size
                                                },
                                                function (result) {
@@ -40,7 +40,7 @@ appService.service('InstanceService', ['$resource', '$q', function ($resource, $
                 });
             return d.promise;
         },
-        findInstancesByNamespace: function (appId, env, clusterName, namespaceName, instanceAppId, page, size) {
+        findInstancesByNamespace: function (appId, env, clusterName, namespaceName, instanceAppId, lastInstanceId, size) {
             if (!size) {
                 size = 20;
             }
@@ -53,7 +53,7 @@ appService.service('InstanceService', ['$resource', '$q', function ($resource, $
                                                      clusterName: clusterName,
                                                      namespaceName: namespaceName,
                                                      instanceAppId: instanceAppId,
-                                                     page: page,
+                                                     lastInstanceId: lastInstanceId || 0,
                                                      size: size
                                                  },
                                                  function (result) {
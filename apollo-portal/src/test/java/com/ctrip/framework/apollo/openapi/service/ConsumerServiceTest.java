@@ -24,6 +24,7 @@ import org.mockito.Spy;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
@@ -66,7 +67,9 @@ public class ConsumerServiceTest extends AbstractUnitTest {
   @Before
   public void setUp() throws Exception {
     when(portalConfig.consumerTokenSalt()).thenReturn(someTokenSalt);
-
+    when(portalConfig.consumerTokenCacheExpireInSeconds()).thenReturn(60);
+    when(portalConfig.consumerTokenNegativeCacheExpireInSeconds()).thenReturn(10);
+    consumerService.afterPropertiesSet();
   }
 
   @Test
@@ -82,6 +85,59 @@ public class ConsumerServiceTest extends AbstractUnitTest {
     assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
   }
 
+  @Test
+  public void testGetConsumerIdCached() throws Exception {
+    String someToken = "someToken";
+    long someConsumerId = 1;
+    ConsumerToken someConsumerToken = new ConsumerToken();
+    someConsumerToken.setConsumerId(someConsumerId);
+    someConsumerToken.setExpires(new Date(System.currentTimeMillis() + 60 * 1000));
+
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class)))
+        .thenReturn(someConsumerToken);
+
+    assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
+    assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
+    verify(consumerTokenRepository, times(1)).findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class));
+  }
+
+  @Test
+  public void testGetConsumerIdWithExpiredToken() throws Exception {
+    String someToken = "someToken";
+    ConsumerToken someConsumerToken = new ConsumerToken();
+    someConsumerToken.setConsumerId(1);
+    someConsumerToken.setExpires(new Date(System.currentTimeMillis() + 50));
+
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class)))
+        .thenReturn(someConsumerToken, (ConsumerToken) null);
+
+    assertEquals(1, consumerService.getConsumerIdByToken(someToken).longValue());
+    TimeUnit.MILLISECONDS.sleep(100);
+
+    assertNull(consumerService.getConsumerIdByToken(someToken));
+    verify(consumerTokenRepository, times(2)).findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class));
+  }
+
+  @Test
+  public void testGetConsumerIdWithUnknownTokenCached() throws Exception {
+    String someToken = "someToken";
+    long someConsumerId = 1;
+    ConsumerToken someConsumerToken = new ConsumerToken();
+    someConsumerToken.setConsumerId(someConsumerId);
+    someConsumerToken.setToken(someToken);
+
+    assertNull(consumerService.getConsumerIdByToken(someToken));
+    assertNull(consumerService.getConsumerIdByToken(someToken));
+    verify(consumerTokenRepository, times(1)).findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class));
+
+    //the unknown token is invalidated once created
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class)))
+        .thenReturn(someConsumerToken);
+    consumerService.createConsumerToken(someConsumerToken);
+
+    assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
+  }
+
   @Test
   public void testGetConsumerIdWithNullToken() throws Exception {
     Long consumerId = consumerService.getConsumerIdByToken(null);
@@ -16,6 +16,7 @@ import org.mockito.stubbing.Answer;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
@@ -88,4 +89,22 @@ public class ConsumerAuditUtilTest {
     assertEquals(someConsumerId, audit.getConsumerId());
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testRequestCounts() throws Exception {
+    long someConsumerId = 1;
+    long anotherConsumerId = 2;
+
+    when(request.getMethod()).thenReturn("GET");
+
+    consumerAuditUtil.audit(request, someConsumerId);
+    consumerAuditUtil.audit(request, someConsumerId);
+    consumerAuditUtil.audit(request, anotherConsumerId);
+
+    Map<Long, Long> totalRequestCounts = consumerAuditUtil.getTotalRequestCounts();
+    assertEquals(2, totalRequestCounts.size());
+    assertEquals(2, totalRequestCounts.get(someConsumerId).longValue());
+    assertEquals(1, totalRequestCounts.get(anotherConsumerId).longValue());
+    assertEquals(totalRequestCounts.keySet(), consumerAuditUtil.getLastMinuteRequestCounts().keySet());
+  }
+
+}
@@ -0,0 +1,119 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public class ParallelExecutorTest extends AbstractUnitTest {
+
+  private ParallelExecutor parallelExecutor;
+
+  @Mock
+  private PortalConfig portalConfig;
+
+  private int someTimeout = 500;
+
+  @Before
+  public void setUp() throws Exception {
+    when(portalConfig.parallelThreads()).thenReturn(2);
+    when(portalConfig.parallelTimeout()).thenReturn(someTimeout);
+
+    parallelExecutor = new ParallelExecutor();
+    ReflectionTestUtils.setField(parallelExecutor, "portalConfig", portalConfig);
+    parallelExecutor.afterPropertiesSet();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    parallelExecutor.destroy();
+  }
+
+  @Test
+  public void testInvokeAll() throws Exception {
+    CountDownLatch started = new CountDownLatch(2);
+    List<Callable<String>> tasks = Lists.newArrayList();
+    tasks.add(() -> {
+      started.countDown();
+      //wait for the other task, so they must run concurrently
+      assertTrue(started.await(1, TimeUnit.SECONDS));
+      TimeUnit.MILLISECONDS.sleep(50);
+      return "first";
+    });
+    tasks.add(() -> {
+      started.countDown();
+      assertTrue(started.await(1, TimeUnit.SECONDS));
+      return "second";
+    });
+
+    assertEquals(Arrays.asList("first", "second"), parallelExecutor.invokeAll(tasks));
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testInvokeAllWithFailure() throws Exception {
+    List<Callable<String>> tasks = Lists.newArrayList();
+    tasks.add(() -> "first");
+    tasks.add(() -> {
+      throw new BadRequestException("some error");
+    });
+
+    parallelExecutor.invokeAll(tasks);
+  }
+
+  @Test
+  public void testInvokeAllNested() throws Exception {
+    //more nested tasks than threads, they run in the caller thread instead of waiting for the pool
+    List<Callable<List<Integer>>> tasks = Lists.newArrayList();
+    for (int i = 0; i < 2; i++) {
+      int someValue = i;
+      tasks.add(() -> parallelExecutor.invokeAll(Arrays.<Callable<Integer>>asList(() -> someValue, () -> someValue + 10)));
+    }
+
+    List<List<Integer>> results = parallelExecutor.invokeAll(tasks);
+
+    assertEquals(Arrays.asList(Arrays.asList(0, 10), Arrays.asList(1, 11)), results);
+  }
+
+  @Test
+  public void testInvokeAllPartially() throws Exception {
+    Map<Env, Callable<String>> tasks = Maps.newLinkedHashMap();
+    tasks.put(Env.DEV, () -> "dev");
+    tasks.put(Env.FAT, () -> {
+      throw new BadRequestException("some error");
+    });
+    tasks.put(Env.UAT, () -> {
+      TimeUnit.MILLISECONDS.sleep(someTimeout * 4);
+      return "uat";
+    });
+
+    long start = System.currentTimeMillis();
+    ParallelExecutor.ParallelResults<Env, String> results = parallelExecutor.invokeAllPartially(tasks);
+
+    assertTrue(System.currentTimeMillis() - start < someTimeout * 2);
+    assertEquals(1, results.getResults().size());
+    assertEquals("dev", results.getResults().get(Env.DEV));
+    assertEquals(2, results.getErrors().size());
+    assertTrue(results.getErrors().get(Env.FAT) instanceof BadRequestException);
+    assertTrue(results.getErrors().get(Env.UAT) instanceof TimeoutException);
+  }
+}
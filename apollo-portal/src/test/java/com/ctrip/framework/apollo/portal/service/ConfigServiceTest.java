@@ -8,6 +8,8 @@ import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.portal.AbstractUnitTest;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.ParallelExecutor;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
 import com.ctrip.framework.apollo.portal.component.txtresolver.PropertyResolver;
@@ -15,6 +17,7 @@ import com.ctrip.framework.apollo.portal.entity.model.NamespaceTextModel;
 import com.ctrip.framework.apollo.portal.entity.vo.ItemDiffs;
 import com.ctrip.framework.apollo.portal.entity.vo.NamespaceIdentifier;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -40,13 +43,28 @@ public class ConfigServiceTest extends AbstractUnitTest {
   private PropertyResolver resolver;
   @Mock
   private UserInfoHolder userInfoHolder;
+  @Mock
+  private PortalConfig portalConfig;
 
   @InjectMocks
   private ItemService configService;
 
+  private ParallelExecutor parallelExecutor;
+
   @Before
   public void setup() {
     ReflectionTestUtils.setField(configService, "propertyResolver", resolver);
+    when(portalConfig.parallelThreads()).thenReturn(2);
+    when(portalConfig.parallelTimeout()).thenReturn(5000);
+    parallelExecutor = new ParallelExecutor();
+    ReflectionTestUtils.setField(parallelExecutor, "portalConfig", portalConfig);
+    parallelExecutor.afterPropertiesSet();
+    ReflectionTestUtils.setField(configService, "parallelExecutor", parallelExecutor);
+  }
+
+  @After
+  public void tearDown() {
+    parallelExecutor.destroy();
   }
 
   @Test
@@ -9,15 +9,19 @@ import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.portal.AbstractUnitTest;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.ParallelExecutor;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.component.txtresolver.PropertyResolver;
 import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -47,10 +51,14 @@ public class NamespaceServiceTest extends AbstractUnitTest {
   private NamespaceBranchService branchService;
   @Mock
   private UserInfoHolder userInfoHolder;
+  @Mock
+  private PortalConfig portalConfig;
 
   @InjectMocks
   private NamespaceService namespaceService;
 
+  private ParallelExecutor parallelExecutor;
+
   private String testAppId = "6666";
   private String testClusterName = "default";
   private String testNamespaceName = "application";
@@ -58,6 +66,17 @@ public class NamespaceServiceTest extends AbstractUnitTest {
 
   @Before
   public void setup() {
+    when(portalConfig.parallelThreads()).thenReturn(2);
+    when(portalConfig.parallelTimeout()).thenReturn(5000);
+    parallelExecutor = new ParallelExecutor();
+    ReflectionTestUtils.setField(parallelExecutor, "portalConfig", portalConfig);
+    parallelExecutor.afterPropertiesSet();
+    ReflectionTestUtils.setField(namespaceService, "parallelExecutor", parallelExecutor);
+  }
+
+  @After
+  public void tearDown() {
+    parallelExecutor.destroy();
   }
 
   @Test
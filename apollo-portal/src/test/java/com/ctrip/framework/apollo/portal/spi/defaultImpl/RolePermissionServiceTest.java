@@ -15,10 +15,12 @@ import com.ctrip.framework.apollo.portal.repository.PermissionRepository;
 import com.ctrip.framework.apollo.portal.repository.RolePermissionRepository;
 import com.ctrip.framework.apollo.portal.repository.RoleRepository;
 import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
+import com.ctrip.framework.apollo.portal.spi.defaultimpl.DefaultRolePermissionService;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.util.List;
@@ -33,6 +35,8 @@ import static org.junit.Assert.assertTrue;
  */
 public class RolePermissionServiceTest extends AbstractIntegrationTest {
   @Autowired
+  private AutowireCapableBeanFactory beanFactory;
+
   private RolePermissionService rolePermissionService;
 
   @Autowired
@@ -55,6 +59,9 @@ public class RolePermissionServiceTest extends AbstractIntegrationTest {
   public void setUp() throws Exception {
     someCreatedBy = "someCreatedBy";
     someLastModifiedBy = "someLastModifiedBy";
+
+    //a new service per test, as permissions cached by the previous test are stale when test data is inserted by sql scripts
+    rolePermissionService = (RolePermissionService) beanFactory.createBean(DefaultRolePermissionService.class);
   }
 
   @Test
@@ -309,6 +316,67 @@ public class RolePermissionServiceTest extends AbstractIntegrationTest {
 
   }
 
+  @Test
+  @Sql(scripts = "/sql/permission/insert-test-roles.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-permissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-userroles.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-rolepermissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testUserHasPermissionIsCached() throws Exception {
+    String someTargetId = "someTargetId";
+    String somePermissionType = "somePermissionType";
+    String someUser = "someUser";
+
+    assertTrue(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId));
+
+    //changed without the service, so the cached permissions are not invalidated
+    userRoleRepository.delete(990L);
+
+    assertTrue(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/permission/insert-test-roles.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-permissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-rolepermissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testUserHasPermissionAfterAssignRoleToUsers() throws Exception {
+    String someRoleName = "someRoleName";
+    String someTargetId = "someTargetId";
+    String somePermissionType = "somePermissionType";
+    String someUser = "someUser";
+    String operator = "operator";
+
+    assertFalse(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId));
+
+    rolePermissionService.assignRoleToUsers(someRoleName, Sets.newHashSet(someUser), operator);
+
+    assertTrue(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/permission/insert-test-roles.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-permissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-userroles.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-rolepermissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testUserHasPermissionAfterRemoveRoleFromUsers() throws Exception {
+    String someRoleName = "someRoleName";
+    String someTargetId = "someTargetId";
+    String somePermissionType = "somePermissionType";
+    String someUser = "someUser";
+    String anotherUser = "anotherUser";
+    String operator = "operator";
+
+    assertTrue(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId));
+    assertTrue(rolePermissionService.userHasPermission(anotherUser, somePermissionType, someTargetId));
+
+    rolePermissionService.removeRoleFromUsers(someRoleName, Sets.newHashSet(someUser), operator);
+
+    assertFalse(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId));
+    assertTrue(rolePermissionService.userHasPermission(anotherUser, somePermissionType, someTargetId));
+  }
+
   private Role assembleRole(String roleName) {
     Role role = new Role();
     role.setRoleName(roleName);
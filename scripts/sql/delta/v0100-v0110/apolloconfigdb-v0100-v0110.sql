@@ -0,0 +1,7 @@
+# delta schema to upgrade apollo config db from v0.10.0 to v0.11.0
+
+Use ApolloConfigDB;
+
+ALTER TABLE `InstanceConfig` DROP INDEX `IX_ReleaseKey`;
+ALTER TABLE `InstanceConfig` ADD KEY `IX_ReleaseKey` (`ReleaseKey`,`InstanceId`);
+ALTER TABLE `InstanceConfig` ADD KEY `IX_Namespace_InstanceId` (`ConfigAppId`,`ConfigClusterName`,`ConfigNamespaceName`,`InstanceId`);